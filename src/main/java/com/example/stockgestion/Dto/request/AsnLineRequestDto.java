@@ -0,0 +1,23 @@
+package com.example.stockgestion.Dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsnLineRequestDto {
+
+    @NotNull(message = "L'ID du produit ne peut pas être nul")
+    private UUID productId;
+
+    @Positive(message = "La quantité annoncée doit être positive")
+    private long qtyExpected;
+}
@@ -0,0 +1,38 @@
+package com.example.stockgestion.Dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Avis d'expédition annoncé par le fournisseur pour un bon de commande
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsnRequestDto {
+
+    @NotNull(message = "L'ID du bon de commande ne peut pas être nul")
+    private UUID purchaseOrderId;
+
+    @NotNull(message = "L'ID de l'entrepôt ne peut pas être nul")
+    private UUID warehouseId;
+
+    @NotBlank(message = "La référence de l'avis ne peut pas être vide")
+    @Size(max = 64)
+    private String reference;
+
+    @Valid
+    @NotEmpty(message = "L'avis doit annoncer au moins une ligne")
+    private List<AsnLineRequestDto> lines;
+}
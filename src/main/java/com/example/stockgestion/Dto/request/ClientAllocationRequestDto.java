@@ -0,0 +1,25 @@
+package com.example.stockgestion.Dto.request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import com.example.stockgestion.models.enums.AllocationStrategyType;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientAllocationRequestDto {
+
+    // null = revenir au défaut (GREEDY)
+    private AllocationStrategyType allocationStrategy;
+
+    // Du plus proche au plus lointain ; une liste vide efface les préférences
+    @NotNull(message = "La liste de priorité ne peut pas être nulle")
+    private List<@NotNull UUID> warehousePriority = new ArrayList<>();
+}
@@ -0,0 +1,26 @@
+package com.example.stockgestion.Dto.request;
+
+import java.util.List;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryMovementBatchRequestDto {
+
+    // Les mouvements sont appliqués dans l'ordre de cette liste
+    @Valid
+    @NotEmpty(message = "Le lot doit contenir au moins un mouvement")
+    @Size(max = 10000, message = "Un lot ne peut pas dépasser 10000 mouvements")
+    private List<InventoryMovementRequestDto> movements;
+
+    // true : un mouvement invalide rejette tout le lot ; false : seuls les mouvements invalides sont rejetés
+    private boolean atomic = true;
+}
@@ -0,0 +1,23 @@
+package com.example.stockgestion.Dto.request;
+
+import java.util.List;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesOrderBatchRequestDto {
+
+    // Les commandes sont allouées dans l'ordre de cette liste
+    @Valid
+    @NotEmpty(message = "Le lot doit contenir au moins une commande")
+    @Size(max = 5000, message = "Un lot ne peut pas dépasser 5000 commandes")
+    private List<SalesOrderRequestDto> orders;
+}
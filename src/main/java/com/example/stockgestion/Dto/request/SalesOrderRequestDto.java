@@ -2,6 +2,7 @@ package com.example.stockgestion.Dto.request;
 
 import java.util.List;
 import java.util.UUID;
+import com.example.stockgestion.models.enums.AllocationStrategyType;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.Valid; // IMPORTANT
 import lombok.AllArgsConstructor;
@@ -23,4 +24,12 @@ public class SalesOrderRequestDto {
     @Valid // Dit à Spring de valider AUSSI les objets dans cette liste
     @NotNull(message = "La liste des lignes ne peut pas être nulle")
     private List<SalesOrderLineRequestDto> lines;
+
+    // Optionnel : surcharge la stratégie d'allocation du client pour cette commande
+    private AllocationStrategyType allocationStrategy;
+
+    public SalesOrderRequestDto(UUID clientId, List<SalesOrderLineRequestDto> lines) {
+        this.clientId = clientId;
+        this.lines = lines;
+    }
 }
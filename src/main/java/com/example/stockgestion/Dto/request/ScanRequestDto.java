@@ -0,0 +1,36 @@
+package com.example.stockgestion.Dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Un scan de code-barres au quai de réception
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanRequestDto {
+
+    // Identifiant unique côté scanner : renvoyer le même scan ne le compte pas deux fois
+    @Size(max = 64)
+    private String scanRef;
+
+    @NotNull(message = "L'ID du produit ne peut pas être nul")
+    private UUID productId;
+
+    // 1 par défaut (un colis)
+    @Positive(message = "La quantité scannée doit être positive")
+    private Integer quantity;
+
+    // Heure du scan sur le terminal ; heure de réception par défaut
+    private Instant scannedAt;
+}
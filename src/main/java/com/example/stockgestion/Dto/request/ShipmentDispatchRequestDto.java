@@ -0,0 +1,23 @@
+package com.example.stockgestion.Dto.request;
+
+import java.util.List;
+import java.util.UUID;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShipmentDispatchRequestDto {
+
+    // Expéditions chargées dans le même camion : toutes marquées SHIPPED, ou aucune
+    @NotEmpty(message = "Le lot doit contenir au moins une expédition")
+    @Size(max = 1000, message = "Un lot ne peut pas dépasser 1000 expéditions")
+    private List<@NotNull UUID> shipmentIds;
+}
@@ -0,0 +1,24 @@
+package com.example.stockgestion.Dto.request;
+
+import java.util.List;
+import java.util.UUID;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShipmentWaveRequestDto {
+
+    // Transporteurs à remplir, dans cet ordre ; tous les transporteurs actifs si absent
+    private List<UUID> carrierIds;
+
+    @Min(value = 0, message = "L'heure de cut-off doit être comprise entre 0 et 23")
+    @Max(value = 23, message = "L'heure de cut-off doit être comprise entre 0 et 23")
+    private Integer cutoffHour; // Heure limite (par défaut 14h si non fourni)
+}
@@ -0,0 +1,23 @@
+package com.example.stockgestion.Dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * Avancement d'une ligne d'avis : qtyReceived est reportée en base, qtyPending scannée mais pas encore reportée
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsnLineResponseDto {
+    private UUID productId;
+    private String productName;
+    private long qtyExpected;
+    private long qtyReceived;
+    private long qtyPending;
+}
@@ -0,0 +1,26 @@
+package com.example.stockgestion.Dto.response;
+
+import com.example.stockgestion.models.enums.ASNStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsnResponseDto {
+    private UUID id;
+    private UUID purchaseOrderId;
+    private UUID warehouseId;
+    private String reference;
+    private ASNStatus status;
+    private Instant createdAt;
+    private Instant closedAt;
+    private List<AsnLineResponseDto> lines;
+}
@@ -0,0 +1,26 @@
+package com.example.stockgestion.Dto.response;
+
+import java.util.List;
+import java.util.UUID;
+import com.example.stockgestion.models.enums.AllocationStrategyType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import com.example.stockgestion.models.Client;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientAllocationResponseDto {
+    private UUID clientId;
+    private AllocationStrategyType allocationStrategy;
+    private List<UUID> warehousePriority;
+
+    public ClientAllocationResponseDto(Client client) {
+        this.clientId = client.getId();
+        this.allocationStrategy = client.getAllocationStrategy();
+        this.warehousePriority = List.copyOf(client.getWarehousePriority());
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.stockgestion.Dto.response;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryMovementBatchResponseDto {
+    private int applied;
+    private int rejected;
+    private List<InventoryMovementBatchResultDto> results;
+
+    public InventoryMovementBatchResponseDto(List<InventoryMovementBatchResultDto> results) {
+        this.results = results;
+        this.rejected = (int) results.stream().filter(r -> r.getError() != null).count();
+        this.applied = results.size() - this.rejected;
+    }
+}
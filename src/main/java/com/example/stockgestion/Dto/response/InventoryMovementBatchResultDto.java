@@ -0,0 +1,30 @@
+package com.example.stockgestion.Dto.response;
+
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Résultat d'un mouvement d'un lot : enregistré (movementId) ou rejeté (error)
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryMovementBatchResultDto {
+    private int index; // position dans le lot reçu
+    private UUID movementId;
+    private String error;
+
+    public InventoryMovementBatchResultDto(int index, UUID movementId) {
+        this.index = index;
+        this.movementId = movementId;
+    }
+
+    public InventoryMovementBatchResultDto(int index, String error) {
+        this.index = index;
+        this.error = error;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.stockgestion.Dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Page d'une liste paginée par curseur ; nextCursor est null sur la dernière page
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetPageDto<T> {
+    private List<T> items;
+    private UUID nextCursor;
+}
@@ -0,0 +1,23 @@
+package com.example.stockgestion.Dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Résultat d'une recherche de produits : les meilleurs résultats, le nombre total de produits trouvés
+ * et leur répartition par catégorie (avant le filtre de catégorie, pour proposer les autres)
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResponseDto {
+    private List<ProductResponseDto> products;
+    private int total;
+    private Map<String, Integer> categories;
+}
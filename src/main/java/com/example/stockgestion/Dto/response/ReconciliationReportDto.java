@@ -0,0 +1,25 @@
+package com.example.stockgestion.Dto.response;
+
+import java.time.Instant;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Rapport d'un rapprochement complet journal / inventaires
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReportDto {
+    private Instant startedAt;
+    private long durationMs;
+    private int warehouses;
+    private long pairsChecked;
+    private long driftedPairs;
+    private long driftUnits; // Somme des écarts en valeur absolue
+    private List<StockDriftDto> drifts; // Tronquée à stock.reconciliation.max-reported-drifts
+}
@@ -0,0 +1,23 @@
+package com.example.stockgestion.Dto.response;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesOrderBatchResponseDto {
+    private int created;
+    private int rejected;
+    private List<SalesOrderBatchResultDto> results;
+
+    public SalesOrderBatchResponseDto(List<SalesOrderBatchResultDto> results) {
+        this.results = results;
+        this.rejected = (int) results.stream().filter(r -> r.getError() != null).count();
+        this.created = results.size() - this.rejected;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.stockgestion.Dto.response;
+
+import java.util.UUID;
+import com.example.stockgestion.models.enums.SOStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import com.example.stockgestion.models.SalesOrder;
+
+/**
+ * Résultat d'une commande d'un lot : créée (orderId + status) ou rejetée (error)
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesOrderBatchResultDto {
+    private int index; // position dans le lot reçu
+    private UUID orderId;
+    private SOStatus status;
+    private String error;
+
+    public SalesOrderBatchResultDto(int index, SalesOrder order) {
+        this.index = index;
+        this.orderId = order.getId();
+        this.status = order.getStatus();
+    }
+
+    public SalesOrderBatchResultDto(int index, String error) {
+        this.index = index;
+        this.error = error;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.stockgestion.Dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * Accusé de réception d'un scan : enregistré dans le journal, reporté en base au prochain point de reprise
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanResponseDto {
+    private String scanRef;
+    private UUID productId;
+    private long quantity;
+    // Scan déjà reçu avec la même référence : ignoré
+    private boolean duplicate;
+}
@@ -0,0 +1,24 @@
+package com.example.stockgestion.Dto.response;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Avancement d'une vague de planification, émis après chaque lot puis une dernière fois à la fin
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShipmentWaveProgressDto {
+    private Instant startedAt;
+    private long durationMs;
+    private int chunks;
+    private long planned;
+    private long unplanned; // Commandes RESERVED restées sans expédition faute de créneau libre dans l'horizon de recherche
+    private boolean done;
+    private String message;
+}
@@ -0,0 +1,23 @@
+package com.example.stockgestion.Dto.response;
+
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Stock physique d'un couple (produit, entrepôt) à une date passée
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAtResponseDto {
+    private UUID productId;
+    private UUID warehouseId;
+    private Instant at;
+    private long qtyOnHand;
+    private Instant checkpointAt; // Point de reprise utilisé, null si reconstruit depuis le début du journal
+}
@@ -0,0 +1,22 @@
+package com.example.stockgestion.Dto.response;
+
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Écart entre le stock physique d'un couple (produit, entrepôt) et la somme de ses mouvements
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockDriftDto {
+    private UUID productId;
+    private UUID warehouseId;
+    private long qtyOnHand;
+    private long ledgerQty;
+    private long drift; // qtyOnHand - ledgerQty
+}
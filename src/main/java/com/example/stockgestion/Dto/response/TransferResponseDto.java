@@ -0,0 +1,26 @@
+package com.example.stockgestion.Dto.response;
+
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Transfert entre entrepôts : la sortie et l'entrée enregistrées, qui partagent la même référence
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferResponseDto {
+    private UUID productId;
+    private UUID fromWarehouseId;
+    private UUID toWarehouseId;
+    private long quantity;
+    private String referenceDoc;
+    private Instant occurredAt;
+    private UUID outboundMovementId;
+    private UUID inboundMovementId;
+}
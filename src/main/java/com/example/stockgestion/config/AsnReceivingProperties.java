@@ -0,0 +1,31 @@
+package com.example.stockgestion.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration de la réception sur avis d'expédition (scans au quai)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "receiving.asn")
+@Getter
+@Setter
+public class AsnReceivingProperties {
+
+    /**
+     * Délai en millisecondes entre deux reports des scans en base (lignes de commande, inventaire)
+     */
+    private long checkpointInterval = 5000;
+
+    /**
+     * Nombre maximal d'avis gardés en mémoire pour valider les scans sans lire la base
+     */
+    private long sessionMaximumSize = 10_000;
+
+    /**
+     * Durée en millisecondes après le dernier scan au bout de laquelle un avis est oublié (relu au scan suivant)
+     */
+    private long sessionTtl = 3_600_000;
+}
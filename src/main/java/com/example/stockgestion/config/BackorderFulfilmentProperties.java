@@ -0,0 +1,31 @@
+package com.example.stockgestion.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration du service des backorders après réception
+ */
+@Configuration
+@ConfigurationProperties(prefix = "backorder.fulfilment")
+@Getter
+@Setter
+public class BackorderFulfilmentProperties {
+
+    /**
+     * Nombre de threads servant les backorders en arrière-plan
+     */
+    private int workers = 4;
+
+    /**
+     * Passes en attente au-delà desquelles le thread qui publie exécute la passe lui-même
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * Tentatives d'une passe en cas de conflit de version sur l'inventaire
+     */
+    private int maxAttempts = 3;
+}
@@ -0,0 +1,26 @@
+package com.example.stockgestion.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration du journal des mouvements de stock (table inventory_movements)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "inventory.movements")
+@Getter
+@Setter
+public class InventoryMovementProperties {
+
+    /**
+     * Nombre de lignes envoyées par lot JDBC
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Partitions mensuelles créées à l'avance au démarrage, mois courant compris (table partitionnée uniquement)
+     */
+    private int partitionsAhead = 3;
+}
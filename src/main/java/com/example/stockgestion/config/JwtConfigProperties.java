@@ -1,5 +1,6 @@
 package com.example.stockgestion.config;
 
+import com.example.stockgestion.security.JwtAuthMode;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -31,4 +32,23 @@ public class JwtConfigProperties {
      * Default: 7 days (604800000 ms)
      */
     private long refreshTokenExpiry = 604800000L;
+
+    /**
+     * Maximum number of verified access tokens kept in the principal cache
+     */
+    private long principalCacheSize = 10000L;
+
+    /**
+     * Maximum time a verified principal stays cached, in milliseconds (never beyond the token's exp)
+     * Bounds how long a deactivated user keeps access when no explicit eviction happens
+     * Default: 5 minutes (300000 ms)
+     */
+    private long principalCacheTtl = 300000L;
+
+    /**
+     * How authenticated requests get their principal
+     * DATABASE: user reloaded from the database; CLAIMS: role and clientId read from the token
+     * Default: DATABASE
+     */
+    private JwtAuthMode authMode = JwtAuthMode.DATABASE;
 }
@@ -0,0 +1,42 @@
+package com.example.stockgestion.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration de l'index de recherche des produits
+ */
+@Configuration
+@ConfigurationProperties(prefix = "product.search")
+@Getter
+@Setter
+public class ProductSearchProperties {
+
+    /**
+     * Résultats renvoyés quand limit n'est pas précisé
+     */
+    private int defaultLimit = 20;
+
+    /**
+     * Plafond de limit
+     */
+    private int maxLimit = 100;
+
+    /**
+     * Termes du vocabulaire retenus au plus pour un préfixe ou une recherche approchée
+     */
+    private int maxExpansions = 50;
+
+    /**
+     * Produits retenus au plus pour l'expansion d'un préfixe (somme des listes des termes retenus) :
+     * borne le décompte par catégorie d'un préfixe très court
+     */
+    private int maxPrefixPostings = 10_000;
+
+    /**
+     * SKU retenus au plus pour un préfixe de SKU : borne le coût d'un préfixe très court
+     */
+    private int maxSkuMatches = 1000;
+}
@@ -0,0 +1,26 @@
+package com.example.stockgestion.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration du cache local des données de référence (produits, entrepôts, clients)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "reference.cache")
+@Getter
+@Setter
+public class ReferenceCacheProperties {
+
+    /**
+     * Nombre maximal d'entrées par type (produits, entrepôts, clients) ; les moins utilisées sont évincées
+     */
+    private long maximumSize = 10000L;
+
+    /**
+     * Durée de vie d'une entrée en millisecondes : borne le retard d'une autre instance sur une modification
+     */
+    private long ttl = 600000L;
+}
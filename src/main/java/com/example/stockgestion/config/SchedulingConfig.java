@@ -0,0 +1,12 @@
+package com.example.stockgestion.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les tâches planifiées (points de reprise du stock)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
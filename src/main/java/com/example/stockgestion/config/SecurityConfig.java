@@ -5,6 +5,7 @@ import com.example.stockgestion.services.UserDetailsServiceImpl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -83,14 +84,19 @@ public class SecurityConfig {
                         .permitAll()
 
                         // Role-based authorization
-                        // ADMIN: Products, Warehouses, Purchase Orders, Suppliers
+                        // ADMIN: Products, Warehouses, Purchase Orders, Suppliers, Clients
+                        // Product search also backs the picking screens
+                        .requestMatchers(HttpMethod.GET, "/api/products/search").hasAnyRole("ADMIN", "WAREHOUSE_MANAGER")
                         .requestMatchers("/api/products/**").hasRole("ADMIN")
+                        .requestMatchers("/api/clients/**").hasRole("ADMIN")
                         .requestMatchers("/api/warehouses/**").hasRole("ADMIN")
                         .requestMatchers("/api/purchase-orders/**").hasRole("ADMIN")
                         .requestMatchers("/api/suppliers/**").hasRole("ADMIN")
 
                         // WAREHOUSE_MANAGER: Inventory, Movements
                         .requestMatchers("/api/inventory/**").hasRole("WAREHOUSE_MANAGER")
+                        // ASN receiving: announced by purchasing, scanned at the dock
+                        .requestMatchers("/api/asns/**").hasAnyRole("ADMIN", "WAREHOUSE_MANAGER")
 
                         // CLIENT: Sales Orders (with data isolation enforced in service layer)
                         .requestMatchers("/api/sales-orders/**").hasRole("CLIENT")
@@ -0,0 +1,26 @@
+package com.example.stockgestion.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration des créneaux de départ des expéditions
+ */
+@Configuration
+@ConfigurationProperties(prefix = "shipment.slots")
+@Getter
+@Setter
+public class ShipmentSlotProperties {
+
+    /**
+     * Expéditions par créneau pour un transporteur sans capacité propre (Carrier.slotCapacity)
+     */
+    private int defaultCapacity = 10;
+
+    /**
+     * Jours ouvrés examinés au-delà du créneau demandé avant de refuser la planification
+     */
+    private int searchDays = 60;
+}
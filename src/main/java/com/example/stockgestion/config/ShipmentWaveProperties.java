@@ -0,0 +1,21 @@
+package com.example.stockgestion.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration de la planification des expéditions par vague
+ */
+@Configuration
+@ConfigurationProperties(prefix = "shipment.waves")
+@Getter
+@Setter
+public class ShipmentWaveProperties {
+
+    /**
+     * Commandes planifiées par transaction ; aussi la taille des lots JDBC d'insertion des expéditions
+     */
+    private int chunkSize = 500;
+}
@@ -0,0 +1,31 @@
+package com.example.stockgestion.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration du rapprochement nocturne entre le journal des mouvements et les inventaires
+ */
+@Configuration
+@ConfigurationProperties(prefix = "stock.reconciliation")
+@Getter
+@Setter
+public class StockReconciliationProperties {
+
+    /**
+     * Entrepôts rapprochés en parallèle ; chacun occupe une connexion du pool pendant son parcours
+     */
+    private int parallelism = 4;
+
+    /**
+     * Lignes lues par aller-retour sur le curseur serveur
+     */
+    private int fetchSize = 10000;
+
+    /**
+     * Écarts détaillés conservés dans le rapport ; au-delà seuls les totaux sont tenus
+     */
+    private int maxReportedDrifts = 1000;
+}
@@ -0,0 +1,21 @@
+package com.example.stockgestion.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration des numéros de suivi des expéditions
+ */
+@Configuration
+@ConfigurationProperties(prefix = "shipment.tracking")
+@Getter
+@Setter
+public class TrackingNumberProperties {
+
+    /**
+     * Numéro de l'instance (0 à 1023), distinct pour chaque instance qui planifie des expéditions
+     */
+    private int nodeId = 0;
+}
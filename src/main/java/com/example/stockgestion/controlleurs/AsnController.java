@@ -0,0 +1,69 @@
+package com.example.stockgestion.controlleurs;
+
+import com.example.stockgestion.Dto.request.AsnRequestDto;
+import com.example.stockgestion.Dto.request.ScanRequestDto;
+import com.example.stockgestion.Dto.response.AsnResponseDto;
+import com.example.stockgestion.Dto.response.ScanResponseDto;
+import com.example.stockgestion.services.AsnService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+/**
+ * Contrôleur de la réception sur avis d'expédition (ASN) : annonce fournisseur puis scans au quai
+ */
+@RestController
+@RequestMapping("/api/asns")
+@RequiredArgsConstructor
+@Tag(name = "ASN", description = "Réception sur avis d'expédition, scan par scan")
+public class AsnController {
+
+    private final AsnService asnService;
+
+    @PostMapping
+    @Operation(
+            summary = "Créer un avis d'expédition",
+            description = "Annonce une livraison pour un bon de commande APPROVED ou PARTIALLY_RECEIVED. " +
+                    "Chaque produit annoncé doit figurer sur le bon de commande. 409 si la référence existe déjà."
+    )
+    public ResponseEntity<AsnResponseDto> createAsn(@Valid @RequestBody AsnRequestDto request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(asnService.createAsn(request));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(
+            summary = "Avancement d'un avis d'expédition",
+            description = "Par produit : quantité annoncée, quantité reportée sur la commande et l'inventaire, " +
+                    "et quantité scannée en attente du prochain report."
+    )
+    public ResponseEntity<AsnResponseDto> getAsnById(@PathVariable UUID id) {
+        return ResponseEntity.ok(asnService.getAsnById(id));
+    }
+
+    @PostMapping("/{id}/scans")
+    @Operation(
+            summary = "Enregistrer un scan",
+            description = "Journalise un scan de réception. La ligne de commande et l'inventaire sont mis à jour " +
+                    "au prochain report périodique (receiving.asn.checkpoint-interval) ou à la clôture. " +
+                    "Un scan renvoyé avec le même scanRef n'est compté qu'une fois (duplicate = true)."
+    )
+    public ResponseEntity<ScanResponseDto> scan(@PathVariable UUID id, @Valid @RequestBody ScanRequestDto request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(asnService.scan(id, request));
+    }
+
+    @PostMapping("/{id}/close")
+    @Operation(
+            summary = "Clôturer un avis d'expédition",
+            description = "Reporte les scans en attente puis clôture l'avis : les scans suivants sont refusés. " +
+                    "Le bon de commande passe RECEIVED ou PARTIALLY_RECEIVED selon les quantités reçues."
+    )
+    public ResponseEntity<AsnResponseDto> closeAsn(@PathVariable UUID id) {
+        return ResponseEntity.ok(asnService.closeAsn(id));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.stockgestion.controlleurs;
+
+import com.example.stockgestion.Dto.request.ClientAllocationRequestDto;
+import com.example.stockgestion.Dto.response.ClientAllocationResponseDto;
+import com.example.stockgestion.services.ClientService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/clients")
+@RequiredArgsConstructor
+@Validated
+@Tag(name = "Clients", description = "API de gestion des préférences clients - stratégie d'allocation et entrepôts préférés")
+public class ClientController {
+
+    private final ClientService clientService;
+
+    @Operation(
+        summary = "Consulter les préférences d'allocation d'un client",
+        description = "Retourne la stratégie d'allocation par défaut du client et sa liste d'entrepôts préférés"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Préférences récupérées avec succès",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = ClientAllocationResponseDto.class))),
+        @ApiResponse(responseCode = "404", description = "Client introuvable", content = @Content)
+    })
+    @GetMapping("/{clientId}/allocation")
+    public ResponseEntity<ClientAllocationResponseDto> getAllocationPreferences(
+            @Parameter(description = "Identifiant unique du client", required = true)
+            @PathVariable UUID clientId) {
+        return ResponseEntity.ok(clientService.getAllocationPreferences(clientId));
+    }
+
+    @Operation(
+        summary = "Définir les préférences d'allocation d'un client",
+        description = """
+                Définit la stratégie utilisée pour répartir les commandes du client entre les entrepôts
+                (GREEDY, MIN_SPLIT, CLIENT_PROXIMITY) et sa liste d'entrepôts préférés, du plus proche au plus lointain.
+                Une commande peut toujours surcharger la stratégie via son champ allocationStrategy.
+                """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Préférences mises à jour",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = ClientAllocationResponseDto.class))),
+        @ApiResponse(responseCode = "400", description = "Liste de priorité invalide", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Client ou entrepôt introuvable", content = @Content)
+    })
+    @PutMapping("/{clientId}/allocation")
+    public ResponseEntity<ClientAllocationResponseDto> updateAllocationPreferences(
+            @Parameter(description = "Identifiant unique du client", required = true)
+            @PathVariable UUID clientId,
+            @Valid @RequestBody ClientAllocationRequestDto request) {
+        return ResponseEntity.ok(clientService.updateAllocationPreferences(clientId, request));
+    }
+}
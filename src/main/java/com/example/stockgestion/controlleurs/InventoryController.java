@@ -1,8 +1,20 @@
 package com.example.stockgestion.controlleurs;
 
+import com.example.stockgestion.Dto.request.InventoryMovementBatchRequestDto;
 import com.example.stockgestion.Dto.request.InventoryRequestDto;
+import com.example.stockgestion.Dto.request.TransferBatchRequestDto;
+import com.example.stockgestion.Dto.request.TransferRequestDto;
+import com.example.stockgestion.Dto.response.InventoryMovementBatchResponseDto;
 import com.example.stockgestion.Dto.response.InventoryResponseDto;
+import com.example.stockgestion.Dto.response.ReconciliationReportDto;
+import com.example.stockgestion.Dto.response.StockAtResponseDto;
+import com.example.stockgestion.Dto.response.TransferResponseDto;
 import com.example.stockgestion.services.InventoryService;
+import com.example.stockgestion.services.StockHistoryService;
+import com.example.stockgestion.services.TransferService;
+import com.example.stockgestion.exception.ResourceNotFoundException;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
+import com.example.stockgestion.services.helpers.StockReconciliationJob;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,8 +26,10 @@ import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
@@ -27,6 +41,9 @@ import java.util.UUID;
 public class InventoryController {
 
     private final InventoryService inventoryService;
+    private final StockHistoryService stockHistoryService;
+    private final StockReconciliationJob stockReconciliationJob;
+    private final TransferService transferService;
 
     @Operation(
         summary = "Créer un mouvement d'inventaire", 
@@ -47,6 +64,60 @@ public class InventoryController {
         return ResponseEntity.status(201).body(dto);
     }
 
+    @Operation(
+        summary = "Enregistrer un lot de mouvements", 
+        description = "Applique dans l'ordre jusqu'à 10000 entrées, sorties et ajustements (comptages d'inventaire, scanners). En mode atomique (par défaut) un mouvement invalide rejette tout le lot ; sinon chaque mouvement invalide est rejeté seul, avec son erreur"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lot traité ; le détail par mouvement indique l'identifiant créé ou l'erreur",
+            content = @Content(mediaType = "application/json", 
+            schema = @Schema(implementation = InventoryMovementBatchResponseDto.class))),
+        @ApiResponse(responseCode = "400", description = "Lot vide, trop volumineux, mal formé, ou mouvement invalide en mode atomique", content = @Content),
+        @ApiResponse(responseCode = "409", description = "Le stock a changé pendant le traitement, le lot doit être renvoyé", content = @Content)
+    })
+    @PostMapping("/movements/batch")
+    public ResponseEntity<InventoryMovementBatchResponseDto> createMovementsBatch(
+            @Parameter(description = "Mouvements du lot, dans l'ordre d'application", required = true)
+            @Valid @RequestBody InventoryMovementBatchRequestDto request) {
+        return ResponseEntity.ok(inventoryService.createMovementsBatch(request));
+    }
+
+    @Operation(
+        summary = "Transférer du stock entre entrepôts", 
+        description = "Déplace une quantité disponible d'un produit d'un entrepôt à un autre : sortie et entrée enregistrées ensemble, sous la même référence, puis service des backorders de l'entrepôt destination"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Transfert effectué",
+            content = @Content(mediaType = "application/json", 
+            schema = @Schema(implementation = TransferResponseDto.class))),
+        @ApiResponse(responseCode = "400", description = "Données invalides, entrepôts identiques ou stock disponible insuffisant", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Produit ou entrepôt introuvable", content = @Content)
+    })
+    @PostMapping("/transfers")
+    public ResponseEntity<TransferResponseDto> transfer(
+            @Parameter(description = "Transfert à effectuer", required = true)
+            @Valid @RequestBody TransferRequestDto request) {
+        return ResponseEntity.status(201).body(transferService.transfer(request));
+    }
+
+    @Operation(
+        summary = "Transférer un lot", 
+        description = "Applique jusqu'à 5000 transferts dans l'ordre reçu, tous ou aucun"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Transferts effectués",
+            content = @Content(mediaType = "application/json", 
+            schema = @Schema(implementation = TransferResponseDto.class))),
+        @ApiResponse(responseCode = "400", description = "Lot vide, trop volumineux, ou transfert invalide", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Produit ou entrepôt introuvable", content = @Content)
+    })
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<List<TransferResponseDto>> transferBatch(
+            @Parameter(description = "Transferts du lot, dans l'ordre d'application", required = true)
+            @Valid @RequestBody TransferBatchRequestDto request) {
+        return ResponseEntity.status(201).body(transferService.transferAll(request.getTransfers()));
+    }
+
     @Operation(
         summary = "Créer un enregistrement d'inventaire", 
         description = "Crée un nouvel enregistrement d'inventaire pour un produit dans un entrepôt spécifique"
@@ -68,7 +139,7 @@ public class InventoryController {
 
     @Operation(
         summary = "Lister tous les inventaires", 
-        description = "Récupère la liste complète de tous les enregistrements d'inventaire avec les quantités disponibles et réservées"
+        description = "Récupère la liste complète de tous les enregistrements d'inventaire avec les quantités disponibles et réservées. Avec after et/ou limit, renvoie une page triée par id et l'en-tête X-Next-Cursor tant qu'il reste des éléments."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Liste des inventaires récupérée avec succès",
@@ -76,11 +147,32 @@ public class InventoryController {
             schema = @Schema(implementation = InventoryResponseDto.class)))
     })
     @GetMapping
-    public ResponseEntity<List<InventoryResponseDto>> getAll() {
+    public ResponseEntity<List<InventoryResponseDto>> getAll(
+            @Parameter(description = "Curseur : id du dernier élément de la page précédente")
+            @RequestParam(required = false) UUID after,
+            @Parameter(description = "Taille de page (100 par défaut, 1000 au plus)")
+            @RequestParam(required = false) Integer limit) {
+        if (after != null || limit != null) {
+            return KeysetResponses.page(inventoryService.getInventoriesPage(after, limit));
+        }
         List<InventoryResponseDto> list = inventoryService.getAllInventories();
         return ResponseEntity.ok(list);
     }
 
+    @Operation(
+        summary = "Exporter tous les inventaires en NDJSON",
+        description = "Diffuse tous les inventaires, un objet JSON par ligne (application/x-ndjson), lus par curseur en base : la mémoire reste constante quelle que soit la taille de la table"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flux NDJSON",
+            content = @Content(mediaType = NdjsonStreamer.MEDIA_TYPE,
+            schema = @Schema(implementation = InventoryResponseDto.class)))
+    })
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return KeysetResponses.ndjson(inventoryService.streamAllInventories());
+    }
+
     @Operation(
         summary = "Lister les inventaires par produit", 
         description = "Récupère tous les enregistrements d'inventaire pour un produit spécifique à travers tous les entrepôts"
@@ -117,6 +209,58 @@ public class InventoryController {
         return ResponseEntity.ok(list);
     }
 
+    @Operation(
+        summary = "Stock à une date passée", 
+        description = "Reconstruit le stock physique d'un produit dans un entrepôt à l'instant donné (maintenant par défaut), à partir du dernier point de reprise quotidien et des mouvements qui le suivent"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stock reconstruit avec succès",
+            content = @Content(mediaType = "application/json", 
+            schema = @Schema(implementation = StockAtResponseDto.class))),
+        @ApiResponse(responseCode = "404", description = "Produit ou entrepôt introuvable", content = @Content)
+    })
+    @GetMapping("/history")
+    public ResponseEntity<StockAtResponseDto> getOnHandAt(
+            @Parameter(description = "Identifiant unique du produit", required = true, example = "123e4567-e89b-12d3-a456-426614174000")
+            @RequestParam UUID productId,
+            @Parameter(description = "Identifiant unique de l'entrepôt", required = true, example = "123e4567-e89b-12d3-a456-426614174000")
+            @RequestParam UUID warehouseId,
+            @Parameter(description = "Instant ISO-8601 (UTC)", example = "2025-06-30T23:59:59Z")
+            @RequestParam(required = false) Instant at) {
+        return ResponseEntity.ok(stockHistoryService.getOnHandAt(productId, warehouseId, at));
+    }
+
+    @Operation(
+        summary = "Dernier rapprochement du stock", 
+        description = "Rapport du dernier rapprochement entre le stock physique des inventaires et la somme des mouvements du journal"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Rapport récupéré avec succès",
+            content = @Content(mediaType = "application/json", 
+            schema = @Schema(implementation = ReconciliationReportDto.class))),
+        @ApiResponse(responseCode = "404", description = "Aucun rapprochement depuis le démarrage", content = @Content)
+    })
+    @GetMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReportDto> getLastReconciliation() {
+        return ResponseEntity.ok(stockReconciliationJob.getLastReport()
+                .orElseThrow(() -> new ResourceNotFoundException("Aucun rapprochement du stock depuis le démarrage")));
+    }
+
+    @Operation(
+        summary = "Lancer un rapprochement du stock", 
+        description = "Recalcule le stock de chaque couple produit/entrepôt depuis le journal des mouvements et le compare aux inventaires"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Rapprochement terminé",
+            content = @Content(mediaType = "application/json", 
+            schema = @Schema(implementation = ReconciliationReportDto.class))),
+        @ApiResponse(responseCode = "409", description = "Un rapprochement est déjà en cours", content = @Content)
+    })
+    @PostMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReportDto> reconcile() {
+        return ResponseEntity.ok(stockReconciliationJob.reconcileAll());
+    }
+
     @Operation(
         summary = "Récupérer un inventaire par ID", 
         description = "Récupère les détails complets d'un enregistrement d'inventaire spécifique"
@@ -0,0 +1,35 @@
+package com.example.stockgestion.controlleurs;
+
+import com.example.stockgestion.Dto.response.KeysetPageDto;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+/**
+ * Réponses communes des listes : page keyset (tableau JSON + en-tête X-Next-Cursor) et export NDJSON
+ */
+final class KeysetResponses {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private KeysetResponses() {
+    }
+
+    // Le corps reste un tableau JSON comme la liste complète ; le curseur suivant passe dans un en-tête
+    static <T> ResponseEntity<List<T>> page(KeysetPageDto<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getItems());
+    }
+
+    static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonStreamer.MEDIA_TYPE))
+                .body(body);
+    }
+}
@@ -2,8 +2,10 @@ package com.example.stockgestion.controlleurs;
 
 import com.example.stockgestion.Dto.request.ProductRequestDto;
 import com.example.stockgestion.Dto.response.ProductResponseDto;
+import com.example.stockgestion.Dto.response.ProductSearchResponseDto;
 import com.example.stockgestion.models.Product;
 import com.example.stockgestion.services.ProductService;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,6 +18,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -68,7 +71,7 @@ public class ProductController {
 
     @Operation(
         summary = "Lister tous les produits", 
-        description = "Récupère la liste complète de tous les produits enregistrés dans le système avec leurs informations de base"
+        description = "Récupère la liste complète de tous les produits enregistrés dans le système avec leurs informations de base. Avec after et/ou limit, renvoie une page triée par id et l'en-tête X-Next-Cursor tant qu'il reste des éléments."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Liste des produits récupérée avec succès",
@@ -76,11 +79,55 @@ public class ProductController {
             schema = @Schema(implementation = ProductResponseDto.class)))
     })
     @GetMapping
-    public ResponseEntity<List<ProductResponseDto>> getAllProducts() {
+    public ResponseEntity<List<ProductResponseDto>> getAllProducts(
+            @Parameter(description = "Curseur : id du dernier élément de la page précédente")
+            @RequestParam(required = false) UUID after,
+            @Parameter(description = "Taille de page (100 par défaut, 1000 au plus)")
+            @RequestParam(required = false) Integer limit) {
+        if (after != null || limit != null) {
+            return KeysetResponses.page(productService.getProductsPage(after, limit));
+        }
         List<ProductResponseDto> products = productService.getAllProducts();
         return ResponseEntity.ok(products);
     }
 
+    @Operation(
+        summary = "Exporter tous les produits en NDJSON",
+        description = "Diffuse tous les produits, un objet JSON par ligne (application/x-ndjson), lus par curseur en base : la mémoire reste constante quelle que soit la taille de la table"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flux NDJSON",
+            content = @Content(mediaType = NdjsonStreamer.MEDIA_TYPE,
+            schema = @Schema(implementation = ProductResponseDto.class)))
+    })
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts() {
+        return KeysetResponses.ndjson(productService.streamAllProducts());
+    }
+
+    @Operation(
+        summary = "Rechercher des produits",
+        description = "Recherche dans l'index en mémoire : SKU par préfixe, mots du nom et de la catégorie (le dernier mot peut être incomplet, une faute de frappe est tolérée sur les mots de 4 lettres et plus). Renvoie les produits les plus pertinents, le nombre total de résultats et leur répartition par catégorie, calculée avant le filtre category."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Résultats de la recherche",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = ProductSearchResponseDto.class))),
+        @ApiResponse(responseCode = "400", description = "Ni q ni category renseignés, ou limit invalide", content = @Content)
+    })
+    @GetMapping("/search")
+    public ResponseEntity<ProductSearchResponseDto> searchProducts(
+            @Parameter(description = "Texte recherché : début de SKU ou mots du nom / de la catégorie", example = "ecran 24")
+            @RequestParam(required = false) String q,
+            @Parameter(description = "Catégorie exacte (sans tenir compte des accents ni de la casse)")
+            @RequestParam(required = false) String category,
+            @Parameter(description = "Inclure les produits désactivés")
+            @RequestParam(defaultValue = "false") boolean includeInactive,
+            @Parameter(description = "Nombre de résultats (20 par défaut, 100 au plus)")
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productService.searchProducts(q, category, includeInactive, limit));
+    }
+
     @Operation(
         summary = "Mettre à jour partiellement un produit", 
         description = "Met à jour sélectivement les champs d'un produit existant (nom, prix, description, etc.) sans affecter les autres propriétés"
@@ -4,6 +4,7 @@ import com.example.stockgestion.Dto.request.PurchaseOrderRequestDto;
 import com.example.stockgestion.Dto.request.ReceiveRequestDto;
 import com.example.stockgestion.Dto.response.PurchaseOrderResponseDto;
 import com.example.stockgestion.services.PurchaseOrderService;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,6 +16,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.util.List;
@@ -72,7 +74,7 @@ public class PurchaseOrderController {
 
     @Operation(
         summary = "Lister tous les bons de commande d'achat", 
-        description = "Récupère la liste complète de tous les bons de commande d'achat avec leur statut actuel (en attente, partiellement reçu, reçu, etc.)"
+        description = "Récupère la liste complète de tous les bons de commande d'achat avec leur statut actuel (en attente, partiellement reçu, reçu, etc.). Avec after et/ou limit, renvoie une page triée par id et l'en-tête X-Next-Cursor tant qu'il reste des éléments."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Liste des bons de commande récupérée avec succès",
@@ -80,11 +82,32 @@ public class PurchaseOrderController {
             schema = @Schema(implementation = PurchaseOrderResponseDto.class)))
     })
     @GetMapping
-    public ResponseEntity<List<PurchaseOrderResponseDto>> getAllPurchaseOrders() {
+    public ResponseEntity<List<PurchaseOrderResponseDto>> getAllPurchaseOrders(
+            @Parameter(description = "Curseur : id du dernier élément de la page précédente")
+            @RequestParam(required = false) UUID after,
+            @Parameter(description = "Taille de page (100 par défaut, 1000 au plus)")
+            @RequestParam(required = false) Integer limit) {
+        if (after != null || limit != null) {
+            return KeysetResponses.page(purchaseOrderService.getPurchaseOrdersPage(after, limit));
+        }
         List<PurchaseOrderResponseDto> response = purchaseOrderService.getAllPurchaseOrders();
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+        summary = "Exporter tous les bons de commande d'achat en NDJSON",
+        description = "Diffuse tous les bons de commande d'achat, un objet JSON par ligne (application/x-ndjson), lus par curseur en base : la mémoire reste constante quelle que soit la taille de la table"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flux NDJSON",
+            content = @Content(mediaType = NdjsonStreamer.MEDIA_TYPE,
+            schema = @Schema(implementation = PurchaseOrderResponseDto.class)))
+    })
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAllPurchaseOrders() {
+        return KeysetResponses.ndjson(purchaseOrderService.streamAllPurchaseOrders());
+    }
+
     @Operation(
         summary = "Récupérer un bon de commande par ID", 
         description = "Récupère les détails complets d'un bon de commande d'achat spécifique avec toutes ses lignes et son historique de réception"
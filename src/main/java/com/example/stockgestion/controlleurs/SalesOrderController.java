@@ -1,8 +1,11 @@
 package com.example.stockgestion.controlleurs;
 
+import com.example.stockgestion.Dto.request.SalesOrderBatchRequestDto;
 import com.example.stockgestion.Dto.request.SalesOrderRequestDto;
+import com.example.stockgestion.Dto.response.SalesOrderBatchResponseDto;
 import com.example.stockgestion.Dto.response.SalesOrderResponseDto;
 import com.example.stockgestion.services.SalesOrderService;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,6 +19,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -29,12 +33,37 @@ public class SalesOrderController {
 
     private final SalesOrderService salesOrderService;
 
+    @Operation(
+        summary = "Lister les commandes client",
+        description = "Sans paramètre, renvoie toutes les commandes avec leurs lignes. Avec after et/ou limit, renvoie une page triée par id et l'en-tête X-Next-Cursor tant qu'il reste des éléments."
+    )
     @GetMapping
-    public ResponseEntity<List<SalesOrderResponseDto>> getAllSalesOrders() {
+    public ResponseEntity<List<SalesOrderResponseDto>> getAllSalesOrders(
+            @Parameter(description = "Curseur : id du dernier élément de la page précédente")
+            @RequestParam(required = false) UUID after,
+            @Parameter(description = "Taille de page (100 par défaut, 1000 au plus)")
+            @RequestParam(required = false) Integer limit) {
+        if (after != null || limit != null) {
+            return KeysetResponses.page(salesOrderService.getSalesOrdersPage(after, limit));
+        }
         List<SalesOrderResponseDto> orders = salesOrderService.getAllSalesOrders();
         return ResponseEntity.ok(orders);
     }
 
+    @Operation(
+        summary = "Exporter toutes les commandes client en NDJSON",
+        description = "Diffuse toutes les commandes client, un objet JSON par ligne (application/x-ndjson), lus par curseur en base : la mémoire reste constante quelle que soit la taille de la table"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flux NDJSON",
+            content = @Content(mediaType = NdjsonStreamer.MEDIA_TYPE,
+            schema = @Schema(implementation = SalesOrderResponseDto.class)))
+    })
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAllSalesOrders() {
+        return KeysetResponses.ndjson(salesOrderService.streamAllSalesOrders());
+    }
+
     @Operation(
         summary = "Créer une nouvelle commande client", 
         description = """
@@ -58,6 +87,28 @@ public class SalesOrderController {
         return new ResponseEntity<>(created, HttpStatus.CREATED);
     }
 
+    @Operation(
+        summary = "Créer un lot de commandes clients",
+        description = """
+                Crée jusqu'à 5000 commandes en une seule passe (flux EDI).
+                Les commandes sont allouées dans l'ordre du lot ; chacune reçoit son propre résultat
+                (commande créée avec son statut, ou rejetée avec le motif). Une commande rejetée n'empêche pas les autres.
+                """
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lot traité, voir le résultat de chaque commande",
+            content = @Content(mediaType = "application/json",
+            schema = @Schema(implementation = SalesOrderBatchResponseDto.class))),
+        @ApiResponse(responseCode = "400", description = "Lot vide, trop volumineux ou commandes mal formées", content = @Content),
+        @ApiResponse(responseCode = "409", description = "Le stock a changé pendant le traitement, le lot doit être renvoyé", content = @Content)
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<SalesOrderBatchResponseDto> createSalesOrdersBatch(
+            @Parameter(description = "Commandes du lot, dans l'ordre d'arrivée", required = true)
+            @Valid @RequestBody SalesOrderBatchRequestDto request) {
+        return ResponseEntity.ok(salesOrderService.createSalesOrdersBatch(request));
+    }
+
     @Operation(
         summary = "Récupérer une commande client par ID", 
         description = """
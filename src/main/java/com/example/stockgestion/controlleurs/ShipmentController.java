@@ -1,16 +1,21 @@
 package com.example.stockgestion.controlleurs;
 
+import com.example.stockgestion.Dto.request.ShipmentDispatchRequestDto;
 import com.example.stockgestion.Dto.request.ShipmentRequestDto;
+import com.example.stockgestion.Dto.request.ShipmentWaveRequestDto;
 import com.example.stockgestion.Dto.response.ShipmentResponseDto;
 import com.example.stockgestion.models.enums.ShipmentStatus;
 import com.example.stockgestion.services.ShipmentService;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -44,6 +49,21 @@ public class ShipmentController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * Planifier en une vague toutes les commandes RESERVED sans expédition
+     */
+    @PostMapping(value = "/waves", produces = NdjsonStreamer.MEDIA_TYPE)
+    @Operation(
+            summary = "Planifier une vague d'expéditions",
+            description = "Crée une expédition PLANNED pour chaque commande RESERVED qui n'en a pas encore, " +
+                    "en répartissant les commandes sur les transporteurs dans la limite de capacité de chaque créneau. " +
+                    "L'avancement est renvoyé en NDJSON, une ligne par lot, la dernière avec done = true. " +
+                    "409 si une vague est déjà en cours."
+    )
+    public ResponseEntity<StreamingResponseBody> planWave(@Valid @RequestBody ShipmentWaveRequestDto request) {
+        return KeysetResponses.ndjson(shipmentService.planWave(request));
+    }
+
     /**
      * US11 - Marquer l'expédition comme SHIPPED
      */
@@ -61,6 +81,20 @@ public class ShipmentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * US11 - Marquer un lot d'expéditions comme SHIPPED
+     */
+    @PutMapping("/ship")
+    @Operation(
+            summary = "US11 - Marquer un lot d'expéditions comme SHIPPED",
+            description = "Ferme un camion en un appel : chaque expédition du lot est traitée comme PUT /{id}/ship, " +
+                    "toutes ou aucune. 1000 expéditions au plus."
+    )
+    public ResponseEntity<List<ShipmentResponseDto>> markAllAsShipped(
+            @Valid @RequestBody ShipmentDispatchRequestDto request) {
+        return ResponseEntity.ok(shipmentService.shipAll(request.getShipmentIds()));
+    }
+
     /**
      * US11 - Marquer l'expédition comme DELIVERED
      */
@@ -78,12 +112,29 @@ public class ShipmentController {
      * Récupérer toutes les expéditions
      */
     @GetMapping
-    @Operation(summary = "Lister toutes les expéditions")
-    public ResponseEntity<List<ShipmentResponseDto>> getAllShipments() {
+    @Operation(summary = "Lister toutes les expéditions", description = "Sans paramètre, renvoie toutes les expéditions. Avec after et/ou limit, renvoie une page triée par id et l'en-tête X-Next-Cursor tant qu'il reste des éléments.")
+    public ResponseEntity<List<ShipmentResponseDto>> getAllShipments(
+            @Parameter(description = "Curseur : id du dernier élément de la page précédente")
+            @RequestParam(required = false) UUID after,
+            @Parameter(description = "Taille de page (100 par défaut, 1000 au plus)")
+            @RequestParam(required = false) Integer limit) {
+        if (after != null || limit != null) {
+            return KeysetResponses.page(shipmentService.findPage(after, limit));
+        }
         List<ShipmentResponseDto> shipments = shipmentService.findAll();
         return ResponseEntity.ok(shipments);
     }
 
+    /**
+     * Exporter toutes les expéditions en NDJSON
+     */
+    @GetMapping(value = "/stream", produces = NdjsonStreamer.MEDIA_TYPE)
+    @Operation(summary = "Exporter toutes les expéditions en NDJSON",
+            description = "Un objet JSON par ligne (application/x-ndjson), lus par curseur en base : la mémoire reste constante quelle que soit la taille de la table")
+    public ResponseEntity<StreamingResponseBody> streamAllShipments() {
+        return KeysetResponses.ndjson(shipmentService.streamAll());
+    }
+
     /**
      * Récupérer une expédition par ID
      */
@@ -0,0 +1,69 @@
+package com.example.stockgestion.models;
+
+import com.example.stockgestion.models.enums.ASNStatus;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Avis d'expédition (ASN) : livraison annoncée par le fournisseur pour un bon de commande,
+ * réceptionnée au quai scan par scan dans un entrepôt
+ */
+@Entity
+@Table(name = "advance_shipping_notices", indexes = {
+        @Index(name = "idx_asn_purchase_order", columnList = "purchase_order_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdvanceShippingNotice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    // ----- RELATION VERS LE BON DE COMMANDE -----
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "purchase_order_id", nullable = false)
+    private PurchaseOrder purchaseOrder;
+
+    // ----- ENTREPÔT DE RÉCEPTION -----
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "warehouse_id", nullable = false)
+    private WareHouse warehouse;
+
+    // Numéro d'avis communiqué par le fournisseur
+    @NotNull
+    @Column(nullable = false, unique = true, length = 64)
+    private String reference;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ASNStatus status;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant closedAt;
+
+    @OneToMany(mappedBy = "asn", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<AdvanceShippingNoticeLine> lines = new ArrayList<>();
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = Instant.now();
+    }
+}
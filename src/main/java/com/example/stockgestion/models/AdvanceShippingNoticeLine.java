@@ -0,0 +1,46 @@
+package com.example.stockgestion.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * Ligne d'un avis d'expédition : quantité annoncée d'un produit et quantité reçue,
+ * mise à jour à chaque point de reprise des scans (AsnCheckpointer)
+ */
+@Entity
+@Table(name = "advance_shipping_notice_lines", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_asn_lines_asn_product", columnNames = {"asn_id", "product_id"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdvanceShippingNoticeLine {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "asn_id", nullable = false)
+    private AdvanceShippingNotice asn;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(name = "qty_expected", nullable = false)
+    private long qtyExpected;
+
+    @Column(name = "qty_received", nullable = false)
+    private long qtyReceived;
+}
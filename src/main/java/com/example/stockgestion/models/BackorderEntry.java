@@ -0,0 +1,56 @@
+package com.example.stockgestion.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * File d'attente des backorders : une entrée par ligne de commande encore en attente de stock.
+ * Servie en FIFO par produit (createdAt de la ligne) à chaque réception.
+ */
+@Entity
+@Table(name = "backorder_queue", indexes = {
+        @Index(name = "idx_backorder_queue_product_created", columnList = "product_id, created_at"),
+        @Index(name = "idx_backorder_queue_sales_order", columnList = "sales_order_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BackorderEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @NotNull
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sales_order_line_id", nullable = false, unique = true)
+    private SalesOrderLine salesOrderLine;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sales_order_id", nullable = false)
+    private SalesOrder salesOrder;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(name = "qty_remaining", nullable = false)
+    private long qtyRemaining;
+
+    // Date de la ligne, pas de l'entrée : c'est elle qui fixe le rang FIFO
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
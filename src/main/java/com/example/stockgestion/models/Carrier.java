@@ -6,12 +6,15 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 import java.util.UUID;
 
 @Entity
 @Table(name = "carriers")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "carriers")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,6 +33,10 @@ public class Carrier {
     @Column(nullable = false)
     private boolean active = true;
 
+    // Expéditions par créneau de départ ; null = shipment.slots.default-capacity
+    @Column(name = "slot_capacity")
+    private Integer slotCapacity;
+
     // ----- RELATION INVERSE VERS LES EXPÉDITIONS -----
     @OneToMany(
             mappedBy = "carrier", // "carrier" = nom du champ dans l'entité Shipment
@@ -1,17 +1,23 @@
 package com.example.stockgestion.models;
 
+import com.example.stockgestion.models.enums.AllocationStrategyType;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 @Entity
 @Table(name = "clients")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "clients")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -27,6 +33,21 @@ public class Client {
     @Column(nullable = false, unique = true) // Le nom du client doit être unique
     private String name;
 
+    // ----- PRÉFÉRENCES D'ALLOCATION -----
+    // Stratégie multi-entrepôts par défaut de ce client (null = GREEDY)
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private AllocationStrategyType allocationStrategy;
+
+    // Entrepôts du plus proche au plus lointain, utilisés par CLIENT_PROXIMITY
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "client_warehouse_priority", joinColumns = @JoinColumn(name = "client_id"))
+    @OrderColumn(name = "priority")
+    @Column(name = "warehouse_id", nullable = false)
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "clients-warehouse-priority")
+    private List<UUID> warehousePriority = new ArrayList<>();
+
     // ----- RELATION INVERSE VERS LES COMMANDES CLIENTS -----
     /**
      * Représente la liste de toutes les commandes
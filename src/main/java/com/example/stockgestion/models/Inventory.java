@@ -30,6 +30,11 @@ public class Inventory {
     @Column(name = "qty_reserved", nullable = false)
     private long qtyReserved;
 
+    // Verrou optimiste : toute écriture lecture-modification-écriture concurrente échoue au lieu d'écraser
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @ManyToOne(fetch= FetchType.LAZY)
     @JoinColumn(name = "product_id",nullable = false)
     @NotNull
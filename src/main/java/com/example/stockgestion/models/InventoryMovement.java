@@ -7,20 +7,38 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Immutable;
 
 import java.time.Instant;
 import java.util.UUID;
 
+/**
+ * Journal des mouvements de stock, en ajout seul : les lignes sont écrites par InventoryMovementWriter
+ * et jamais modifiées. Les index suivent les recherches de InventoryMovmentRepository (préfixes compris),
+ * avec occurred_at en dernière colonne pour les pages triées par date ; sous PostgreSQL la table peut être
+ * partitionnée par mois sur occurred_at (db/inventory_movements_partitioning.sql).
+ */
 @Entity
-@Table(name = "inventory_movements")
+@Immutable
+@Table(name = "inventory_movements", indexes = {
+        // produit ; produit + entrepôt ; produit + entrepôt + type
+        @Index(name = "idx_inventory_movements_product_warehouse_type", columnList = "product_id, warehouse_id, type, occurred_at"),
+        // reconstruction du stock d'un couple à une date (StockHistoryService)
+        @Index(name = "idx_inventory_movements_product_warehouse_occurred", columnList = "product_id, warehouse_id, occurred_at"),
+        @Index(name = "idx_inventory_movements_product_type", columnList = "product_id, type, occurred_at"),
+        // entrepôt ; entrepôt + type
+        @Index(name = "idx_inventory_movements_warehouse_type", columnList = "warehouse_id, type, occurred_at"),
+        @Index(name = "idx_inventory_movements_type", columnList = "type, occurred_at"),
+        @Index(name = "idx_inventory_movements_occurred_at", columnList = "occurred_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class InventoryMovement {
 
+    // UUID v7 attribué à l'écriture
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     @Column(updatable = false, nullable = false)
     private UUID id;
 
@@ -3,6 +3,8 @@ package com.example.stockgestion.models;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -16,6 +18,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "products")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products")
 public class Product {
 
     // Comment annoter l'ID ?
@@ -0,0 +1,52 @@
+package com.example.stockgestion.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Journal des scans de réception, en ajout seul : une ligne par scan, écrite par ReceivingScanBuffer
+ * avant d'être comptée en mémoire. Seul le drapeau checkpointed change, quand le scan a été reporté
+ * sur les lignes de commande et l'inventaire ; les scans non reportés sont rejoués au démarrage.
+ */
+@Entity
+@Table(name = "receiving_scans", indexes = {
+        @Index(name = "idx_receiving_scans_pending", columnList = "checkpointed, asn_id, product_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceivingScan {
+
+    // UUID v7 attribué à l'écriture
+    @Id
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    // Identifiant envoyé par le scanner : un scan renvoyé après une coupure n'est compté qu'une fois
+    @Column(name = "scan_ref", unique = true, length = 64)
+    private String scanRef;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "asn_id", nullable = false)
+    private AdvanceShippingNotice asn;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    @Column(name = "scanned_at", nullable = false)
+    private Instant scannedAt;
+
+    @Column(nullable = false)
+    private boolean checkpointed;
+}
@@ -51,6 +51,11 @@ public class SalesOrder {
     @Column(precision = 19, scale = 2)
     private BigDecimal totalPrice;
 
+    // Somme des qtyBackordered des lignes, tenue à jour à chaque réception pour recalculer le statut sans relire les lignes
+    @Builder.Default
+    @Column(name = "qty_backordered_remaining", nullable = false, columnDefinition = "bigint default 0")
+    private long qtyBackorderedRemaining = 0;
+
     // ----- RELATION VERS LES LIGNES DE COMMANDE -----
     @OneToMany(
             mappedBy = "salesOrder", // "salesOrder" = champ dans SalesOrderLine
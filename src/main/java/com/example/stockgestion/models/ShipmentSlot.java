@@ -0,0 +1,40 @@
+package com.example.stockgestion.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Compteur de réservations d'un créneau de départ (date, transporteur, heure), incrémenté
+ * atomiquement à chaque planification au lieu de recompter les expéditions du jour
+ */
+@Entity
+@Table(name = "shipment_slots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_shipment_slots_carrier_date_hour", columnNames = {"carrier_id", "slot_date", "slot_hour"})
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ShipmentSlot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "carrier_id", nullable = false)
+    private Carrier carrier;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    @Column(name = "slot_hour", nullable = false)
+    private int slotHour;
+
+    @Column(name = "booked", nullable = false)
+    private int booked;
+}
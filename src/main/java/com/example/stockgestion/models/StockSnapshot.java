@@ -0,0 +1,53 @@
+package com.example.stockgestion.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Point de reprise du stock physique d'un couple (produit, entrepôt) : qtyOnHand cumule tous les
+ * mouvements antérieurs à takenAt. Le stock à une date D se reconstruit à partir du dernier point
+ * de reprise avant D et des seuls mouvements qui suivent.
+ */
+@Entity
+@Table(name = "stock_snapshots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stock_snapshots_product_warehouse_taken", columnNames = {"product_id", "warehouse_id", "taken_at"})
+}, indexes = {
+        @Index(name = "idx_stock_snapshots_taken_at", columnList = "taken_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "warehouse_id", nullable = false)
+    private WareHouse warehouse;
+
+    @NotNull
+    @Column(name = "taken_at", nullable = false)
+    private Instant takenAt;
+
+    @Column(name = "qty_on_hand", nullable = false)
+    private long qtyOnHand;
+}
@@ -6,12 +6,15 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 import java.util.UUID;
 
 @Entity
 @Table(name = "suppliers")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "suppliers")
 @Getter
 @Setter
 @NoArgsConstructor
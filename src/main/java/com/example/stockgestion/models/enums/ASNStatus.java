@@ -0,0 +1,9 @@
+package com.example.stockgestion.models.enums;
+
+/**
+ * Statuts d'un avis d'expédition fournisseur (Advance Shipping Notice)
+ */
+public enum ASNStatus {
+    OPEN,   // Annoncé ou en cours de déchargement : les scans sont acceptés
+    CLOSED  // Déchargement terminé : plus aucun scan accepté
+}
@@ -0,0 +1,10 @@
+package com.example.stockgestion.models.enums;
+
+/**
+ * Stratégie de répartition d'une ligne de commande entre les entrepôts
+ */
+public enum AllocationStrategyType {
+    GREEDY,           // le plus disponible d'abord (comportement historique)
+    MIN_SPLIT,        // un seul entrepôt si possible, sinon le moins de lignes possible
+    CLIENT_PROXIMITY  // entrepôts préférés du client d'abord
+}
@@ -6,5 +6,17 @@ package com.example.stockgestion.models.enums;
 public enum MovementType {
     INBOUND,      // Entrée de stock (ex: réception d'un PurchaseOrder)
     OUTBOUND,     // Sortie de stock (ex: expédition d'un SalesOrder)
-    ADJUSTMENT    // Correction manuelle (ex: inventaire physique)
-}
\ No newline at end of file
+    ADJUSTMENT;   // Correction manuelle (ex: inventaire physique)
+
+    /**
+     * Effet du mouvement sur le stock physique. Les sorties ont été enregistrées tantôt positives,
+     * tantôt négatives : seul le type fait foi pour INBOUND et OUTBOUND, l'ajustement garde son signe.
+     */
+    public long signed(long quantity) {
+        return switch (this) {
+            case INBOUND -> Math.abs(quantity);
+            case OUTBOUND -> -Math.abs(quantity);
+            case ADJUSTMENT -> quantity;
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.stockgestion.repositories;
+
+import com.example.stockgestion.models.AdvanceShippingNotice;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface AdvanceShippingNoticeRepository extends JpaRepository<AdvanceShippingNotice, UUID> {
+
+    /**
+     * Avis avec bon de commande, entrepôt, lignes et produits en une requête
+     */
+    @EntityGraph(attributePaths = {"purchaseOrder", "warehouse", "lines", "lines.product"})
+    Optional<AdvanceShippingNotice> findWithLinesById(UUID id);
+
+    @EntityGraph(attributePaths = {"purchaseOrder", "warehouse", "lines", "lines.product"})
+    List<AdvanceShippingNotice> findWithLinesByIdIn(Collection<UUID> ids);
+
+    boolean existsByReference(String reference);
+}
@@ -0,0 +1,28 @@
+package com.example.stockgestion.repositories;
+
+import com.example.stockgestion.models.BackorderEntry;
+import com.example.stockgestion.repositories.projections.QueuedBackorder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface BackorderEntryRepository extends JpaRepository<BackorderEntry, UUID> {
+
+    @Query("SELECT new com.example.stockgestion.repositories.projections.QueuedBackorder(e.id, e.product.id, e.createdAt, e.qtyRemaining) " +
+            "FROM BackorderEntry e")
+    List<QueuedBackorder> findAllQueued();
+
+    // Entrées servies par une réception, avec leur ligne et leur commande en une requête
+    @Query("SELECT e FROM BackorderEntry e JOIN FETCH e.salesOrderLine JOIN FETCH e.salesOrder WHERE e.id IN :ids")
+    List<BackorderEntry> findAllWithLineAndOrderByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT DISTINCT e.product.id FROM BackorderEntry e")
+    List<UUID> findQueuedProductIds();
+
+    @Query("SELECT e.id FROM BackorderEntry e WHERE e.salesOrder.id = :salesOrderId")
+    List<UUID> findIdsBySalesOrderId(@Param("salesOrderId") UUID salesOrderId);
+}
@@ -3,7 +3,10 @@ package com.example.stockgestion.repositories;
 import com.example.stockgestion.models.Carrier;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface CarrierRepository extends JpaRepository<Carrier, UUID> {
+
+    List<Carrier> findByActiveTrue();
 }
@@ -1,9 +1,18 @@
 package com.example.stockgestion.repositories;
 
 import com.example.stockgestion.models.Client;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface ClientRepository extends JpaRepository<Client, UUID> {
+
+    /**
+     * Clients avec leurs entrepôts préférés chargés : utilisables hors session (cache des données de référence)
+     */
+    @EntityGraph(attributePaths = {"warehousePriority"})
+    List<Client> findWithWarehousePriorityByIdIn(Collection<UUID> ids);
 }
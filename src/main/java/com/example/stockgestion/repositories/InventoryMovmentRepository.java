@@ -2,11 +2,16 @@ package com.example.stockgestion.repositories;
 
 import com.example.stockgestion.models.InventoryMovement;
 import com.example.stockgestion.models.enums.MovementType;
+import com.example.stockgestion.repositories.projections.StockDelta;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface InventoryMovmentRepository extends JpaRepository<InventoryMovement, UUID> {
@@ -18,4 +23,43 @@ public interface InventoryMovmentRepository extends JpaRepository<InventoryMovem
     Page<InventoryMovement> findByProduct_IdAndType(UUID productId, MovementType type, Pageable pageable);
     Page<InventoryMovement> findByWarehouse_IdAndType(UUID warehouseId, MovementType type, Pageable pageable);
     Page<InventoryMovement> findByProduct_IdAndWarehouse_IdAndType(UUID productId, UUID warehouseId, MovementType type, Pageable pageable);
+
+    /**
+     * Variation nette du stock d'un couple entre from (inclus) et to (inclus), signée comme MovementType.signed
+     */
+    @Query("SELECT COALESCE(SUM(CASE m.type " +
+            "WHEN com.example.stockgestion.models.enums.MovementType.INBOUND THEN ABS(m.quantity) " +
+            "WHEN com.example.stockgestion.models.enums.MovementType.OUTBOUND THEN -ABS(m.quantity) " +
+            "ELSE m.quantity END), 0) FROM InventoryMovement m " +
+            "WHERE m.product.id = :productId AND m.warehouse.id = :warehouseId " +
+            "AND m.occurredAt >= :from AND m.occurredAt <= :to")
+    long sumDelta(@Param("productId") UUID productId, @Param("warehouseId") UUID warehouseId,
+                  @Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Variation nette par couple entre from (inclus) et to (exclu), pour la prise des points de reprise
+     */
+    @Query("SELECT new com.example.stockgestion.repositories.projections.StockDelta(m.product.id, m.warehouse.id, " +
+            "SUM(CASE m.type " +
+            "WHEN com.example.stockgestion.models.enums.MovementType.INBOUND THEN ABS(m.quantity) " +
+            "WHEN com.example.stockgestion.models.enums.MovementType.OUTBOUND THEN -ABS(m.quantity) " +
+            "ELSE m.quantity END)) FROM InventoryMovement m " +
+            "WHERE m.occurredAt >= :from AND m.occurredAt < :to GROUP BY m.product.id, m.warehouse.id")
+    List<StockDelta> sumDeltasBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Variation nette par couple des produits donnés, depuis le dernier point de reprise du couple (inclus,
+     * since sans point) jusqu'à to (exclu) : rattrape les mouvements d'un couple dont le point est plus ancien
+     * que le dernier point de la table. since borne la lecture : au plus tôt des points des couples à rattraper
+     */
+    @Query("SELECT new com.example.stockgestion.repositories.projections.StockDelta(m.product.id, m.warehouse.id, " +
+            "SUM(CASE m.type " +
+            "WHEN com.example.stockgestion.models.enums.MovementType.INBOUND THEN ABS(m.quantity) " +
+            "WHEN com.example.stockgestion.models.enums.MovementType.OUTBOUND THEN -ABS(m.quantity) " +
+            "ELSE m.quantity END)) FROM InventoryMovement m " +
+            "WHERE m.product.id IN :productIds AND m.occurredAt >= :since AND m.occurredAt < :to " +
+            "AND m.occurredAt >= COALESCE((SELECT MAX(s.takenAt) FROM StockSnapshot s " +
+            "WHERE s.product = m.product AND s.warehouse = m.warehouse), :since) GROUP BY m.product.id, m.warehouse.id")
+    List<StockDelta> sumDeltasSinceLatestSnapshot(@Param("productIds") Collection<UUID> productIds,
+                                                  @Param("since") Instant since, @Param("to") Instant to);
 }
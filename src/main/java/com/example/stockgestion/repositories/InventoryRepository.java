@@ -1,14 +1,92 @@
 package com.example.stockgestion.repositories;
 
 import com.example.stockgestion.models.Inventory;
+import com.example.stockgestion.repositories.projections.StockLevel;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
 	boolean existsByProduct_IdAndWarehouse_Id(UUID productId, UUID warehouseId);
 	List<Inventory> findByProduct_Id(UUID productId);
 	List<Inventory> findByProduct_IdAndWarehouse_Id(UUID productId, UUID warehouseId);
 	List<Inventory> findByWarehouse_Id(UUID warehouseId);
-}
\ No newline at end of file
+	// Lignes candidates d'un lot de mouvements : sur-ensemble des couples demandés, filtré par l'appelant
+	List<Inventory> findByProduct_IdInAndWarehouse_IdIn(Collection<UUID> productIds, Collection<UUID> warehouseIds);
+	// Lignes d'un entrepôt pour un lot de produits (réception)
+	List<Inventory> findByProduct_IdInAndWarehouse_Id(Collection<UUID> productIds, UUID warehouseId);
+
+	/**
+	 * Réserve qty unités en une seule instruction, uniquement si le disponible
+	 * (qtyOnHand - qtyReserved) le permet au moment de l'écriture.
+	 * Retourne 1 si la réservation est appliquée, 0 si le stock ne suffit plus.
+	 */
+	@Modifying
+	@Query("UPDATE Inventory i SET i.qtyReserved = i.qtyReserved + :qty, i.version = i.version + 1 " +
+			"WHERE i.product.id = :productId AND i.warehouse.id = :warehouseId " +
+			"AND i.qtyOnHand - i.qtyReserved >= :qty")
+	int reserveIfAvailable(@Param("productId") UUID productId, @Param("warehouseId") UUID warehouseId,
+			@Param("qty") long qty);
+
+	/**
+	 * Compteurs de toutes les lignes d'inventaire, pour le chargement du ledger au démarrage
+	 */
+	@Query("SELECT new com.example.stockgestion.repositories.projections.StockLevel(" +
+			"i.product.id, i.warehouse.id, i.qtyOnHand, i.qtyReserved) FROM Inventory i")
+	List<StockLevel> findAllStockLevels();
+
+	@Query("SELECT new com.example.stockgestion.repositories.projections.StockLevel(" +
+			"i.product.id, i.warehouse.id, i.qtyOnHand, i.qtyReserved) FROM Inventory i " +
+			"WHERE i.product.id = :productId")
+	List<StockLevel> findStockLevelsByProductId(@Param("productId") UUID productId);
+
+	@Query("SELECT new com.example.stockgestion.repositories.projections.StockLevel(" +
+			"i.product.id, i.warehouse.id, i.qtyOnHand, i.qtyReserved) FROM Inventory i " +
+			"WHERE i.product.id IN :productIds")
+	List<StockLevel> findStockLevelsByProductIdIn(@Param("productIds") Collection<UUID> productIds);
+
+	/**
+	 * Relit les compteurs courants d'un couple (produit, entrepôt) sans passer par le contexte de persistance
+	 */
+	@Query("SELECT new com.example.stockgestion.repositories.projections.StockLevel(" +
+			"i.product.id, i.warehouse.id, i.qtyOnHand, i.qtyReserved) FROM Inventory i " +
+			"WHERE i.product.id = :productId AND i.warehouse.id = :warehouseId")
+	Optional<StockLevel> findStockLevel(@Param("productId") UUID productId, @Param("warehouseId") UUID warehouseId);
+
+	/**
+	 * Verrouille la ligne d'un couple jusqu'à la fin de la transaction (SELECT ... FOR UPDATE).
+	 * Les appelants qui verrouillent plusieurs couples le font dans l'ordre StockKey.LOCK_ORDER.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT i FROM Inventory i WHERE i.product.id = :productId AND i.warehouse.id = :warehouseId")
+	Optional<Inventory> findForUpdate(@Param("productId") UUID productId, @Param("warehouseId") UUID warehouseId);
+
+	/**
+	 * Page keyset : lignes d'id supérieur au curseur, produit et entrepôt chargés dans la même requête
+	 */
+	@EntityGraph(attributePaths = {"product", "warehouse"})
+	List<Inventory> findByIdGreaterThanOrderByIdAsc(UUID after, Limit limit);
+
+	/**
+	 * Parcours complet par curseur JDBC, pour l'export NDJSON
+	 */
+	@QueryHints({
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+	@Query("SELECT i FROM Inventory i JOIN FETCH i.product JOIN FETCH i.warehouse ORDER BY i.id")
+	Stream<Inventory> streamAll();
+}
@@ -1,12 +1,44 @@
 package com.example.stockgestion.repositories;
 
 import com.example.stockgestion.models.Product;
+import com.example.stockgestion.repositories.projections.ProductSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, UUID> {
+    /**
+     * Résultats gardés dans le cache de requêtes, invalidés par toute écriture Hibernate sur products
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     public Boolean existsBySku(String sku);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     public Product findBySku(String sku);
     public int countActiveOrdersBySku(String sku);
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(UUID after, Limit limit);
+
+    /**
+     * Parcours complet par curseur JDBC, pour l'export NDJSON
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAll();
+
+    /**
+     * Tous les produits en projection, sans passer par le contexte de persistance (construction de l'index de recherche)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.stockgestion.repositories.projections.ProductSummary("
+            + "p.id, p.sku, p.name, p.category, p.active, p.price) FROM Product p ORDER BY p.sku")
+    Stream<ProductSummary> streamSummaries();
 }
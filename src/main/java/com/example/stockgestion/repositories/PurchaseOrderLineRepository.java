@@ -1,9 +1,18 @@
 package com.example.stockgestion.repositories;
 
 import com.example.stockgestion.models.PurchaseOrderLine;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface PurchaseOrderLineRepository extends JpaRepository<PurchaseOrderLine, UUID> {
+
+    /**
+     * Toutes les lignes des bons de commande donnés, avec leur produit
+     */
+    @EntityGraph(attributePaths = {"product"})
+    List<PurchaseOrderLine> findByPurchaseOrder_IdIn(Collection<UUID> purchaseOrderIds);
 }
@@ -1,9 +1,37 @@
 package com.example.stockgestion.repositories;
 
 import com.example.stockgestion.models.PurchaseOrder;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface PurchaseOrderRepository extends JpaRepository<PurchaseOrder, UUID> {
+
+    /**
+     * Bon de commande avec fournisseur, lignes et produits en une requête
+     */
+    @EntityGraph(attributePaths = {"supplier", "lines", "lines.product"})
+    Optional<PurchaseOrder> findWithLinesById(UUID id);
+
+    @Query("SELECT DISTINCT po FROM PurchaseOrder po JOIN FETCH po.supplier LEFT JOIN FETCH po.lines l " +
+            "LEFT JOIN FETCH l.product ORDER BY po.id")
+    List<PurchaseOrder> findAllWithLines();
+
+    /**
+     * Ids de la page keyset ; les lignes sont chargées ensuite par findAllWithLinesByIdIn
+     * (un LIMIT sur une requête qui charge une collection serait appliqué en mémoire)
+     */
+    @Query("SELECT po.id FROM PurchaseOrder po WHERE po.id > :after ORDER BY po.id")
+    List<UUID> findIdsAfter(@Param("after") UUID after, Limit limit);
+
+    @Query("SELECT DISTINCT po FROM PurchaseOrder po JOIN FETCH po.supplier LEFT JOIN FETCH po.lines l " +
+            "LEFT JOIN FETCH l.product WHERE po.id IN :ids ORDER BY po.id")
+    List<PurchaseOrder> findAllWithLinesByIdIn(@Param("ids") Collection<UUID> ids);
 }
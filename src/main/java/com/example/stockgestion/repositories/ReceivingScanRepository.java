@@ -0,0 +1,19 @@
+package com.example.stockgestion.repositories;
+
+import com.example.stockgestion.models.ReceivingScan;
+import com.example.stockgestion.repositories.projections.PendingReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface ReceivingScanRepository extends JpaRepository<ReceivingScan, UUID> {
+
+    /**
+     * Scans pas encore reportés, sommés par avis et produit (reprise au démarrage)
+     */
+    @Query("SELECT new com.example.stockgestion.repositories.projections.PendingReceipt(s.asn.id, s.product.id, SUM(s.quantity)) "
+            + "FROM ReceivingScan s WHERE s.checkpointed = false GROUP BY s.asn.id, s.product.id")
+    List<PendingReceipt> sumPending();
+}
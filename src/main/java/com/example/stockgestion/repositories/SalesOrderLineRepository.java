@@ -1,12 +1,36 @@
 package com.example.stockgestion.repositories;
 
 import com.example.stockgestion.models.SalesOrderLine;
+import com.example.stockgestion.models.enums.SOStatus;
+import com.example.stockgestion.repositories.projections.SalesOrderLineRow;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface SalesOrderLineRepository extends JpaRepository<SalesOrderLine, UUID> {
-    List<SalesOrderLine> findByProductIdAndQtyBackorderedGreaterThanOrderByCreatedAtAsc(UUID productId, long qtyBackordered);
     List<SalesOrderLine> findByProductId(UUID productId);
-}
\ No newline at end of file
+
+    // Reprise des backorders antérieurs à la file dédiée
+    @Query("SELECT l FROM SalesOrderLine l JOIN FETCH l.salesOrder o " +
+            "WHERE l.qtyBackordered > 0 AND o.status IN :statuses ORDER BY l.createdAt")
+    List<SalesOrderLine> findOpenBackorderedLines(@Param("statuses") Collection<SOStatus> statuses);
+
+    // Lectures des commandes : toutes les lignes avec produit et entrepôt, en une requête
+    @Query("SELECT new com.example.stockgestion.repositories.projections.SalesOrderLineRow(" +
+            "l.salesOrder.id, l.id, p.id, p.sku, p.name, p.category, p.active, p.price, " +
+            "w.id, w.code, w.name, l.quantity, l.qtyReserved, l.qtyBackordered, l.unitPrice) " +
+            "FROM SalesOrderLine l JOIN l.product p JOIN l.warehouse w " +
+            "ORDER BY l.salesOrder.id, l.createdAt, l.id")
+    List<SalesOrderLineRow> findAllLineRows();
+
+    @Query("SELECT new com.example.stockgestion.repositories.projections.SalesOrderLineRow(" +
+            "l.salesOrder.id, l.id, p.id, p.sku, p.name, p.category, p.active, p.price, " +
+            "w.id, w.code, w.name, l.quantity, l.qtyReserved, l.qtyBackordered, l.unitPrice) " +
+            "FROM SalesOrderLine l JOIN l.product p JOIN l.warehouse w " +
+            "WHERE l.salesOrder.id IN :orderIds ORDER BY l.salesOrder.id, l.createdAt, l.id")
+    List<SalesOrderLineRow> findLineRowsBySalesOrderIdIn(@Param("orderIds") Collection<UUID> orderIds);
+}
@@ -1,12 +1,54 @@
 package com.example.stockgestion.repositories;
 
 import com.example.stockgestion.models.SalesOrder;
+import com.example.stockgestion.repositories.projections.SalesOrderHeader;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface SalesOrderRepository extends JpaRepository<SalesOrder, UUID> {
 
     void findByClientId(UUID id);
-}
\ No newline at end of file
+
+    /**
+     * Commande avec client, lignes, produits et entrepôts en une requête (annulation, expédition)
+     */
+    @EntityGraph(attributePaths = {"client", "lines", "lines.product", "lines.warehouse"})
+    Optional<SalesOrder> findWithLinesById(UUID id);
+
+    /**
+     * Ids de la page keyset ; les commandes sont lues ensuite par findHeadersByIdIn
+     */
+    @Query("SELECT so.id FROM SalesOrder so WHERE so.id > :after ORDER BY so.id")
+    List<UUID> findIdsAfter(@Param("after") UUID after, Limit limit);
+
+    /**
+     * Ids des commandes RESERVED sans expédition, par page keyset (planification par vague)
+     */
+    @Query("SELECT so.id FROM SalesOrder so WHERE so.status = com.example.stockgestion.models.enums.SOStatus.RESERVED " +
+            "AND so.id > :after AND NOT EXISTS (SELECT 1 FROM Shipment s WHERE s.salesOrder = so) ORDER BY so.id")
+    List<UUID> findReservedWithoutShipmentIdsAfter(@Param("after") UUID after, Limit limit);
+
+    // Commandes restées sans expédition quand une vague s'arrête faute de créneau
+    @Query("SELECT COUNT(so) FROM SalesOrder so WHERE so.status = com.example.stockgestion.models.enums.SOStatus.RESERVED " +
+            "AND NOT EXISTS (SELECT 1 FROM Shipment s WHERE s.salesOrder = so)")
+    long countReservedWithoutShipment();
+
+    // En-têtes des lectures ; les lignes sont lues par SalesOrderLineRepository
+    @Query("SELECT new com.example.stockgestion.repositories.projections.SalesOrderHeader(" +
+            "so.id, c.id, c.name, so.status, so.createdAt, so.totalPrice) FROM SalesOrder so JOIN so.client c " +
+            "ORDER BY so.id")
+    List<SalesOrderHeader> findAllHeaders();
+
+    @Query("SELECT new com.example.stockgestion.repositories.projections.SalesOrderHeader(" +
+            "so.id, c.id, c.name, so.status, so.createdAt, so.totalPrice) FROM SalesOrder so JOIN so.client c " +
+            "WHERE so.id IN :ids ORDER BY so.id")
+    List<SalesOrderHeader> findHeadersByIdIn(@Param("ids") Collection<UUID> ids);
+}
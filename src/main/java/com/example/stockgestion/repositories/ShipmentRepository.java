@@ -2,13 +2,18 @@ package com.example.stockgestion.repositories;
 
 import com.example.stockgestion.models.Shipment;
 import com.example.stockgestion.models.enums.ShipmentStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.QueryHints;
 
-import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface ShipmentRepository extends JpaRepository<Shipment, UUID> {
     
@@ -23,12 +28,24 @@ public interface ShipmentRepository extends JpaRepository<Shipment, UUID> {
     List<Shipment> findByStatus(ShipmentStatus status);
     
     /**
-     * Compter les expéditions planifiées pour un créneau donné
-     * Utilisé pour vérifier la capacité du slot
+     * Expéditions avec transporteur, commande, lignes, produits et entrepôts en une requête (expédition par lot)
      */
-    @Query("SELECT COUNT(s) FROM Shipment s WHERE s.plannedDepartureDate BETWEEN :startDate AND :endDate")
-    long countByPlannedDepartureDateBetween(
-            @Param("startDate") Instant startDate, 
-            @Param("endDate") Instant endDate
-    );
+    @EntityGraph(attributePaths = {"carrier", "salesOrder", "salesOrder.lines", "salesOrder.lines.product",
+            "salesOrder.lines.warehouse"})
+    List<Shipment> findWithLinesByIdIn(Collection<UUID> ids);
+
+    /**
+     * Page keyset : expéditions d'id supérieur au curseur, commande et transporteur chargés dans la même requête
+     */
+    @EntityGraph(attributePaths = {"salesOrder", "carrier"})
+    List<Shipment> findByIdGreaterThanOrderByIdAsc(UUID after, Limit limit);
+
+    /**
+     * Parcours complet par curseur JDBC, pour l'export NDJSON
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT s FROM Shipment s JOIN FETCH s.salesOrder JOIN FETCH s.carrier ORDER BY s.id")
+    Stream<Shipment> streamAll();
 }
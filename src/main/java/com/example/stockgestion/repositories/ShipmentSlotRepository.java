@@ -0,0 +1,51 @@
+package com.example.stockgestion.repositories;
+
+import com.example.stockgestion.models.ShipmentSlot;
+import com.example.stockgestion.repositories.projections.SlotFill;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ShipmentSlotRepository extends JpaRepository<ShipmentSlot, UUID> {
+
+    /**
+     * Créneaux existants d'un transporteur sur une plage de dates, lus en une requête
+     */
+    List<ShipmentSlot> findByCarrier_IdAndSlotDateBetween(UUID carrierId, LocalDate from, LocalDate to);
+
+    /**
+     * Réserve une place en une seule instruction, uniquement s'il en reste au moment de l'écriture.
+     * Retourne 1 si la place est prise, 0 si le créneau est plein (ou n'existe pas encore).
+     */
+    @Modifying
+    @Query("UPDATE ShipmentSlot s SET s.booked = s.booked + 1 " +
+            "WHERE s.carrier.id = :carrierId AND s.slotDate = :date AND s.slotHour = :hour AND s.booked < :capacity")
+    int bookIfAvailable(@Param("carrierId") UUID carrierId, @Param("date") LocalDate date,
+                        @Param("hour") int hour, @Param("capacity") int capacity);
+
+    /**
+     * Remplissage des créneaux de plusieurs transporteurs sur une plage de dates, en une requête
+     */
+    @Query("SELECT new com.example.stockgestion.repositories.projections.SlotFill(" +
+            "s.carrier.id, s.slotDate, s.slotHour, s.booked) FROM ShipmentSlot s " +
+            "WHERE s.carrier.id IN :carrierIds AND s.slotDate BETWEEN :from AND :to")
+    List<SlotFill> findFillByCarrierIds(@Param("carrierIds") Collection<UUID> carrierIds,
+                                        @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Réserve count places d'un coup, uniquement si toutes tiennent encore dans le créneau.
+     * Retourne 1 si les places sont prises, 0 sinon.
+     */
+    @Modifying
+    @Query("UPDATE ShipmentSlot s SET s.booked = s.booked + :count " +
+            "WHERE s.carrier.id = :carrierId AND s.slotDate = :date AND s.slotHour = :hour " +
+            "AND s.booked + :count <= :capacity")
+    int bookManyIfAvailable(@Param("carrierId") UUID carrierId, @Param("date") LocalDate date,
+                            @Param("hour") int hour, @Param("count") int count, @Param("capacity") int capacity);
+}
@@ -0,0 +1,54 @@
+package com.example.stockgestion.repositories;
+
+import com.example.stockgestion.models.StockSnapshot;
+import com.example.stockgestion.repositories.projections.StockCheckpoint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, UUID> {
+
+    /**
+     * Dernier point de reprise d'un couple à la date donnée (incluse)
+     */
+    @Query("SELECT new com.example.stockgestion.repositories.projections.StockCheckpoint(" +
+            "s.product.id, s.warehouse.id, s.takenAt, s.qtyOnHand) FROM StockSnapshot s " +
+            "WHERE s.product.id = :productId AND s.warehouse.id = :warehouseId AND s.takenAt <= :at " +
+            "ORDER BY s.takenAt DESC")
+    List<StockCheckpoint> findLatestBefore(@Param("productId") UUID productId, @Param("warehouseId") UUID warehouseId,
+                                           @Param("at") Instant at, Limit limit);
+
+    default Optional<StockCheckpoint> findLatestBefore(UUID productId, UUID warehouseId, Instant at) {
+        return findLatestBefore(productId, warehouseId, at, Limit.of(1)).stream().findFirst();
+    }
+
+    @Query("SELECT MAX(s.takenAt) FROM StockSnapshot s")
+    Optional<Instant> findLatestTakenAt();
+
+    /**
+     * Dernier point de reprise de chaque couple des produits donnés
+     */
+    @Query("SELECT new com.example.stockgestion.repositories.projections.StockCheckpoint(" +
+            "s.product.id, s.warehouse.id, s.takenAt, s.qtyOnHand) FROM StockSnapshot s " +
+            "WHERE (s.product.id, s.warehouse.id, s.takenAt) IN (" +
+            "SELECT l.product.id, l.warehouse.id, MAX(l.takenAt) FROM StockSnapshot l " +
+            "WHERE l.product.id IN :productIds GROUP BY l.product.id, l.warehouse.id)")
+    List<StockCheckpoint> findLatestByProductIdIn(@Param("productIds") Collection<UUID> productIds);
+
+    /**
+     * Reporte un mouvement antidaté sur les points de reprise pris après sa date
+     */
+    @Modifying
+    @Query("UPDATE StockSnapshot s SET s.qtyOnHand = s.qtyOnHand + :delta " +
+            "WHERE s.product.id = :productId AND s.warehouse.id = :warehouseId AND s.takenAt > :occurredAt")
+    int shiftAfter(@Param("productId") UUID productId, @Param("warehouseId") UUID warehouseId,
+                   @Param("occurredAt") Instant occurredAt, @Param("delta") long delta);
+}
@@ -0,0 +1,9 @@
+package com.example.stockgestion.repositories.projections;
+
+import java.util.UUID;
+
+/**
+ * Quantité scannée mais pas encore reportée pour un produit d'un avis d'expédition
+ */
+public record PendingReceipt(UUID asnId, UUID productId, long quantity) {
+}
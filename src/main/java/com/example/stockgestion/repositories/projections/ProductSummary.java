@@ -0,0 +1,10 @@
+package com.example.stockgestion.repositories.projections;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Projection d'un produit sans ses inventaires : ce que l'index de recherche garde en mémoire
+ */
+public record ProductSummary(UUID id, String sku, String name, String category, boolean active, BigDecimal price) {
+}
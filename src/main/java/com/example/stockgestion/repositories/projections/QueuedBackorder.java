@@ -0,0 +1,10 @@
+package com.example.stockgestion.repositories.projections;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Projection d'une entrée de la file de backorders : de quoi reconstruire la file en mémoire sans charger les lignes
+ */
+public record QueuedBackorder(UUID entryId, UUID productId, Instant createdAt, long qtyRemaining) {
+}
@@ -0,0 +1,14 @@
+package com.example.stockgestion.repositories.projections;
+
+import com.example.stockgestion.models.enums.SOStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Projection d'en-tête de commande client avec son client, pour les lectures (sans entité chargée)
+ */
+public record SalesOrderHeader(UUID id, UUID clientId, String clientName, SOStatus status,
+                               Instant createdAt, BigDecimal totalPrice) {
+}
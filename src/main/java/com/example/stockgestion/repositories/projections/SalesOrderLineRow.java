@@ -0,0 +1,14 @@
+package com.example.stockgestion.repositories.projections;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Projection d'une ligne de commande client avec son produit et son entrepôt, en une seule ligne SQL
+ */
+public record SalesOrderLineRow(UUID salesOrderId, UUID id,
+                                UUID productId, String sku, String productName, String category,
+                                Boolean active, BigDecimal price,
+                                UUID warehouseId, String warehouseCode, String warehouseName,
+                                long quantity, long qtyReserved, long qtyBackordered, BigDecimal unitPrice) {
+}
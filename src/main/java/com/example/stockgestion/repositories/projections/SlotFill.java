@@ -0,0 +1,10 @@
+package com.example.stockgestion.repositories.projections;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Projection du remplissage d'un créneau de départ : relue à chaque fois, jamais servie par le contexte de persistance
+ */
+public record SlotFill(UUID carrierId, LocalDate slotDate, int slotHour, int booked) {
+}
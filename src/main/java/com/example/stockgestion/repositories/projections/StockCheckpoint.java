@@ -0,0 +1,10 @@
+package com.example.stockgestion.repositories.projections;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Point de reprise d'un couple (produit, entrepôt), sans charger les entités liées
+ */
+public record StockCheckpoint(UUID productId, UUID warehouseId, Instant takenAt, long qtyOnHand) {
+}
@@ -0,0 +1,9 @@
+package com.example.stockgestion.repositories.projections;
+
+import java.util.UUID;
+
+/**
+ * Variation nette du stock physique d'un couple (produit, entrepôt) sur une période
+ */
+public record StockDelta(UUID productId, UUID warehouseId, long delta) {
+}
@@ -0,0 +1,9 @@
+package com.example.stockgestion.repositories.projections;
+
+import java.util.UUID;
+
+/**
+ * Projection légère d'une ligne d'inventaire : uniquement les compteurs, sans charger les entités liées
+ */
+public record StockLevel(UUID productId, UUID warehouseId, long qtyOnHand, long qtyReserved) {
+}
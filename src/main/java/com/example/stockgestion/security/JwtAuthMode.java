@@ -0,0 +1,19 @@
+package com.example.stockgestion.security;
+
+/**
+ * How the JWT filter builds the authenticated principal
+ */
+public enum JwtAuthMode {
+
+    /**
+     * Reload the user from the database (once per token, then cached); role or account changes
+     * apply as soon as the principal cache entry is evicted or expires
+     */
+    DATABASE,
+
+    /**
+     * Trust the role and clientId claims of the verified token: no database access at all;
+     * role or account changes only apply to tokens issued afterwards
+     */
+    CLAIMS
+}
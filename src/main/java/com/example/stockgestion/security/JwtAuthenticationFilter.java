@@ -1,6 +1,8 @@
 package com.example.stockgestion.security;
 
+import com.example.stockgestion.config.JwtConfigProperties;
 import com.example.stockgestion.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,6 +27,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsServiceImpl userDetailsService;
+    private final JwtPrincipalCache principalCache;
+    private final JwtConfigProperties jwtConfig;
 
     @Override
     protected void doFilterInternal(
@@ -48,14 +52,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             final String jwt = authHeader.substring(7);
-            final String userEmail = jwtService.extractUsername(jwt);
 
-            // If token contains username and user is not yet authenticated
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                // Token already verified: no parsing and no user lookup
+                UserDetails userDetails = principalCache.get(jwt);
+                if (userDetails == null) {
+                    Claims claims = jwtService.parseClaims(jwt);
+                    userDetails = jwtConfig.getAuthMode() == JwtAuthMode.CLAIMS
+                            ? jwtService.extractPrincipal(claims)
+                            : loadUser(claims);
+                    if (userDetails != null) {
+                        principalCache.put(jwt, userDetails, claims.getExpiration());
+                    }
+                }
 
-                // Validate token
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -73,6 +84,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Load the user named by verified claims from the database, or null if the token does not match it
+     */
+    private UserDetails loadUser(Claims claims) {
+        if (claims.getSubject() == null) {
+            return null;
+        }
+        UserDetails loaded = userDetailsService.loadUserByUsername(claims.getSubject());
+        return jwtService.isTokenValid(claims, loaded) ? loaded : null;
+    }
+
     /**
      * Check if the endpoint is public (doesn't require authentication)
      */
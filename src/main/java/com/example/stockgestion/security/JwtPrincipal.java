@@ -0,0 +1,54 @@
+package com.example.stockgestion.security;
+
+import com.example.stockgestion.models.User;
+import com.example.stockgestion.models.enums.Role;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Lightweight authenticated principal built from verified token claims
+ * Carries everything authorization and client isolation need, without a User entity
+ */
+@Getter
+public class JwtPrincipal implements UserDetails {
+
+    private final String username;
+    private final Role role;
+    private final UUID clientId;
+    private final List<GrantedAuthority> authorities;
+
+    public JwtPrincipal(String username, Role role, UUID clientId) {
+        this.username = username;
+        this.role = role;
+        this.clientId = clientId;
+        // Same authority as UserDetailsServiceImpl (ROLE_ prefix, Spring Security convention)
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    /**
+     * Principal of a user loaded from the database
+     */
+    public static JwtPrincipal of(User user) {
+        return new JwtPrincipal(user.getEmail(), user.getRole(),
+                user.getClient() != null ? user.getClient().getId() : null);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    /**
+     * No credentials: the token has already been verified
+     */
+    @Override
+    public String getPassword() {
+        return null;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.stockgestion.security;
+
+import com.example.stockgestion.config.JwtConfigProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of verified access tokens to their authenticated principal
+ * Keyed by a SHA-256 hash of the token; an entry never outlives the token's exp
+ */
+@Component
+public class JwtPrincipalCache {
+
+    private final Cache<String, CachedPrincipal> cache;
+    private final Clock clock;
+
+    @Autowired
+    public JwtPrincipalCache(JwtConfigProperties jwtConfig) {
+        this(jwtConfig.getPrincipalCacheSize(), jwtConfig.getPrincipalCacheTtl(), Ticker.systemTicker(), Clock.systemUTC());
+    }
+
+    JwtPrincipalCache(long maximumSize, long ttlMillis, Ticker ticker, Clock clock) {
+        this.clock = clock;
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .ticker(ticker)
+                .expireAfter(new Expiry<String, CachedPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedPrincipal value, long currentTime) {
+                        long untilExp = TimeUnit.MILLISECONDS.toNanos(value.expiresAtMillis() - clock.millis());
+                        return Math.max(0, Math.min(ttlNanos, untilExp));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Principal of an already verified token, or null if the token must be verified again
+     */
+    public UserDetails get(String token) {
+        CachedPrincipal cached = cache.getIfPresent(hash(token));
+        return cached != null ? cached.principal() : null;
+    }
+
+    public void put(String token, UserDetails principal, Date expiration) {
+        if (expiration == null || expiration.getTime() <= clock.millis()) {
+            return;
+        }
+        cache.put(hash(token), new CachedPrincipal(principal, expiration.getTime()));
+    }
+
+    /**
+     * Drop every cached token of a user (deactivation, refresh tokens revoked)
+     */
+    public void evictUser(String username) {
+        cache.asMap().values().removeIf(cached -> cached.principal().getUsername().equals(username));
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record CachedPrincipal(UserDetails principal, long expiresAtMillis) {
+    }
+}
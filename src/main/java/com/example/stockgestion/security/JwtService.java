@@ -1,11 +1,12 @@
 package com.example.stockgestion.security;
 
 import com.example.stockgestion.config.JwtConfigProperties;
+import com.example.stockgestion.models.enums.Role;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
-import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
@@ -21,11 +22,20 @@ import java.util.function.Function;
  * Service for JWT token generation and validation
  */
 @Service
-@RequiredArgsConstructor
 public class JwtService {
 
     private final JwtConfigProperties jwtConfig;
 
+    // Built once: the key and parser are immutable and thread-safe
+    private final Key signingKey;
+    private final JwtParser parser;
+
+    public JwtService(JwtConfigProperties jwtConfig) {
+        this.jwtConfig = jwtConfig;
+        this.signingKey = Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
     /**
      * Extract username (email) from token
      */
@@ -77,7 +87,7 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiry))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -85,40 +95,40 @@ public class JwtService {
      * Validate token
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(parseClaims(token), userDetails);
     }
 
     /**
-     * Check if token is expired
+     * Validate already parsed claims (avoids parsing the token a second time)
      */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
     }
 
     /**
-     * Extract expiration date from token
+     * Build the principal carried by verified claims, or null if the token lacks the role claim
      */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public JwtPrincipal extractPrincipal(Claims claims) {
+        String role = claims.get("role", String.class);
+        if (claims.getSubject() == null || role == null) {
+            return null;
+        }
+        String clientId = claims.get("clientId", String.class);
+        return new JwtPrincipal(claims.getSubject(), Role.valueOf(role),
+                clientId != null ? UUID.fromString(clientId) : null);
     }
 
     /**
-     * Extract all claims from token
+     * Verify signature and expiration and return all claims, in a single parse
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
     /**
-     * Get signing key from secret
+     * Extract all claims from token
      */
-    private Key getSigningKey() {
-        byte[] keyBytes = jwtConfig.getSecret().getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private Claims extractAllClaims(String token) {
+        return parseClaims(token);
     }
 }
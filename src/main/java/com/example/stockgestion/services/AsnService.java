@@ -0,0 +1,177 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.request.AsnLineRequestDto;
+import com.example.stockgestion.Dto.request.AsnRequestDto;
+import com.example.stockgestion.Dto.request.ScanRequestDto;
+import com.example.stockgestion.Dto.response.AsnLineResponseDto;
+import com.example.stockgestion.Dto.response.AsnResponseDto;
+import com.example.stockgestion.Dto.response.ScanResponseDto;
+import com.example.stockgestion.config.AsnReceivingProperties;
+import com.example.stockgestion.exception.BusinessRuleException;
+import com.example.stockgestion.exception.ConflictException;
+import com.example.stockgestion.exception.ResourceNotFoundException;
+import com.example.stockgestion.models.AdvanceShippingNotice;
+import com.example.stockgestion.models.AdvanceShippingNoticeLine;
+import com.example.stockgestion.models.PurchaseOrder;
+import com.example.stockgestion.models.PurchaseOrderLine;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.ASNStatus;
+import com.example.stockgestion.models.enums.POStatus;
+import com.example.stockgestion.repositories.AdvanceShippingNoticeRepository;
+import com.example.stockgestion.repositories.PurchaseOrderRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.services.helpers.AsnCheckpointer;
+import com.example.stockgestion.services.helpers.ReceivingScanBuffer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Réception sur avis d'expédition (ASN) : le fournisseur annonce la livraison d'un bon de commande,
+ * le quai la réceptionne scan par scan.
+ *
+ * Un scan ne lit pas la base : l'avis (statut, produits annoncés) est gardé en mémoire après le premier scan,
+ * et le scan est seulement journalisé puis compté (ReceivingScanBuffer). Les lignes de commande et
+ * l'inventaire sont mis à jour par lots, à chaque point de reprise (AsnCheckpointer), et à la clôture.
+ */
+@Service
+public class AsnService {
+    private final AdvanceShippingNoticeRepository asnRepository;
+    private final PurchaseOrderRepository purchaseOrderRepository;
+    private final WareHouseRepository wareHouseRepository;
+    private final ReceivingScanBuffer receivingScanBuffer;
+    private final AsnCheckpointer asnCheckpointer;
+
+    // Avis déjà scannés : statut et produits annoncés ; bornés en nombre, oubliés quand le quai n'y scanne plus
+    private final Cache<UUID, AsnSession> sessions;
+
+    private record AsnSession(ASNStatus status, Set<UUID> productIds) {
+    }
+
+    public AsnService(AdvanceShippingNoticeRepository asnRepository, PurchaseOrderRepository purchaseOrderRepository,
+                      WareHouseRepository wareHouseRepository, ReceivingScanBuffer receivingScanBuffer,
+                      AsnCheckpointer asnCheckpointer, AsnReceivingProperties properties) {
+        this.asnRepository = asnRepository;
+        this.purchaseOrderRepository = purchaseOrderRepository;
+        this.wareHouseRepository = wareHouseRepository;
+        this.receivingScanBuffer = receivingScanBuffer;
+        this.asnCheckpointer = asnCheckpointer;
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(properties.getSessionMaximumSize())
+                .expireAfterAccess(Duration.ofMillis(properties.getSessionTtl()))
+                .build();
+    }
+
+    @Transactional
+    public AsnResponseDto createAsn(AsnRequestDto dto) {
+        PurchaseOrder purchaseOrder = purchaseOrderRepository.findWithLinesById(dto.getPurchaseOrderId())
+                .orElseThrow(() -> new ResourceNotFoundException("Purchase Order not found"));
+        if (purchaseOrder.getStatus() != POStatus.APPROVED && purchaseOrder.getStatus() != POStatus.PARTIALLY_RECEIVED) {
+            throw new BusinessRuleException("Le bon de commande doit être APPROVED ou PARTIALLY_RECEIVED, statut actuel : "
+                    + purchaseOrder.getStatus());
+        }
+        WareHouse wareHouse = wareHouseRepository.findById(dto.getWarehouseId())
+                .orElseThrow(() -> new ResourceNotFoundException("WareHouse", "id", dto.getWarehouseId()));
+        if (asnRepository.existsByReference(dto.getReference())) {
+            throw new ConflictException("Un avis d'expédition de référence " + dto.getReference() + " existe déjà");
+        }
+
+        Map<UUID, PurchaseOrderLine> poLines = new HashMap<>();
+        purchaseOrder.getLines().forEach(line -> poLines.putIfAbsent(line.getProduct().getId(), line));
+        AdvanceShippingNotice asn = new AdvanceShippingNotice();
+        asn.setPurchaseOrder(purchaseOrder);
+        asn.setWarehouse(wareHouse);
+        asn.setReference(dto.getReference());
+        asn.setStatus(ASNStatus.OPEN);
+        Set<UUID> seen = new HashSet<>();
+        for (AsnLineRequestDto lineDto : dto.getLines()) {
+            PurchaseOrderLine poLine = poLines.get(lineDto.getProductId());
+            if (poLine == null) {
+                throw new BusinessRuleException("Le produit " + lineDto.getProductId() + " n'est pas commandé sur ce bon de commande");
+            }
+            if (!seen.add(lineDto.getProductId())) {
+                throw new BusinessRuleException("Le produit " + lineDto.getProductId() + " est annoncé deux fois");
+            }
+            AdvanceShippingNoticeLine line = new AdvanceShippingNoticeLine();
+            line.setAsn(asn);
+            line.setProduct(poLine.getProduct());
+            line.setQtyExpected(lineDto.getQtyExpected());
+            asn.getLines().add(line);
+        }
+        return toDto(asnRepository.save(asn));
+    }
+
+    @Transactional(readOnly = true)
+    public AsnResponseDto getAsnById(UUID id) {
+        return toDto(asnRepository.findWithLinesById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("AdvanceShippingNotice", "id", id)));
+    }
+
+    /**
+     * Enregistre un scan ; il est reporté sur la commande et l'inventaire au prochain point de reprise
+     */
+    public ScanResponseDto scan(UUID asnId, ScanRequestDto dto) {
+        AsnSession session = sessions.get(asnId, this::loadSession);
+        if (session.status() != ASNStatus.OPEN) {
+            throw new BusinessRuleException("L'avis d'expédition est clôturé, le scan est refusé");
+        }
+        if (!session.productIds().contains(dto.getProductId())) {
+            throw new BusinessRuleException("Le produit " + dto.getProductId() + " n'est pas annoncé sur cet avis d'expédition");
+        }
+        long quantity = dto.getQuantity() != null ? dto.getQuantity() : 1;
+        Instant scannedAt = dto.getScannedAt() != null ? dto.getScannedAt() : Instant.now();
+        boolean recorded = receivingScanBuffer.record(dto.getScanRef(), asnId, dto.getProductId(), quantity, scannedAt);
+        return new ScanResponseDto(dto.getScanRef(), dto.getProductId(), quantity, !recorded);
+    }
+
+    /**
+     * Reporte les scans en attente puis clôture l'avis ; les scans suivants sont refusés.
+     * Le report a sa propre transaction : un échec de la clôture ne remet pas en cause les scans déjà reportés.
+     * Un scan validé juste avant la clôture mais journalisé après ce report n'est pas reporté (AsnCheckpointer).
+     */
+    public AsnResponseDto closeAsn(UUID id) {
+        sessions.put(id, new AsnSession(ASNStatus.CLOSED, Set.of()));
+        try {
+            asnCheckpointer.checkpoint();
+            AdvanceShippingNotice asn = asnRepository.findWithLinesById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("AdvanceShippingNotice", "id", id));
+            if (asn.getStatus() == ASNStatus.CLOSED) {
+                throw new BusinessRuleException("L'avis d'expédition est déjà clôturé");
+            }
+            asn.setStatus(ASNStatus.CLOSED);
+            asn.setClosedAt(Instant.now());
+            asnRepository.save(asn);
+            return toDto(asn);
+        } finally {
+            // Relu en base au prochain scan : clôturé si la clôture a abouti, ouvert sinon
+            sessions.invalidate(id);
+        }
+    }
+
+    private AsnSession loadSession(UUID asnId) {
+        AdvanceShippingNotice asn = asnRepository.findWithLinesById(asnId)
+                .orElseThrow(() -> new ResourceNotFoundException("AdvanceShippingNotice", "id", asnId));
+        Set<UUID> productIds = new HashSet<>();
+        asn.getLines().forEach(line -> productIds.add(line.getProduct().getId()));
+        return new AsnSession(asn.getStatus(), Set.copyOf(productIds));
+    }
+
+    private AsnResponseDto toDto(AdvanceShippingNotice asn) {
+        return new AsnResponseDto(asn.getId(), asn.getPurchaseOrder().getId(), asn.getWarehouse().getId(),
+                asn.getReference(), asn.getStatus(), asn.getCreatedAt(), asn.getClosedAt(),
+                asn.getLines().stream()
+                        .map(line -> new AsnLineResponseDto(line.getProduct().getId(), line.getProduct().getName(),
+                                line.getQtyExpected(), line.getQtyReceived(),
+                                receivingScanBuffer.pending(asn.getId(), line.getProduct().getId())))
+                        .toList());
+    }
+}
@@ -1,7 +1,7 @@
 package com.example.stockgestion.services;
 
-import com.example.stockgestion.models.User;
 import com.example.stockgestion.models.enums.Role;
+import com.example.stockgestion.security.JwtPrincipal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -21,16 +21,22 @@ public class ClientDataService {
     private final UserDetailsServiceImpl userDetailsService;
 
     /**
-     * Get the currently authenticated user
+     * Get the currently authenticated principal
+     * Read from the SecurityContext when the filter built it from token claims,
+     * otherwise loaded from the database
      */
-    private User getCurrentUser() {
+    private JwtPrincipal getCurrentPrincipal() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new RuntimeException("User not authenticated");
         }
 
+        if (authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return principal;
+        }
+
         String email = authentication.getName();
-        return userDetailsService.loadUserEntityByEmail(email);
+        return JwtPrincipal.of(userDetailsService.loadUserEntityByEmail(email));
     }
 
     /**
@@ -39,7 +45,7 @@ public class ClientDataService {
      * If user is ADMIN or WAREHOUSE_MANAGER, always allows access
      */
     public void ensureClientAccess(UUID clientId) {
-        User user = getCurrentUser();
+        JwtPrincipal user = getCurrentPrincipal();
 
         // ADMIN and WAREHOUSE_MANAGER can access all data
         if (user.getRole() == Role.ADMIN || user.getRole() == Role.WAREHOUSE_MANAGER) {
@@ -48,11 +54,11 @@ public class ClientDataService {
 
         // CLIENT can only access their own data
         if (user.getRole() == Role.CLIENT) {
-            if (user.getClient() == null) {
+            if (user.getClientId() == null) {
                 throw new RuntimeException("CLIENT user has no associated client");
             }
 
-            if (!user.getClient().getId().equals(clientId)) {
+            if (!user.getClientId().equals(clientId)) {
                 throw new RuntimeException("Access denied: You can only access your own data");
             }
         }
@@ -64,10 +70,10 @@ public class ClientDataService {
      * Use this to filter queries by client ID
      */
     public Optional<UUID> getClientFilter() {
-        User user = getCurrentUser();
+        JwtPrincipal user = getCurrentPrincipal();
 
-        if (user.getRole() == Role.CLIENT && user.getClient() != null) {
-            return Optional.of(user.getClient().getId());
+        if (user.getRole() == Role.CLIENT && user.getClientId() != null) {
+            return Optional.of(user.getClientId());
         }
 
         return Optional.empty();
@@ -77,13 +83,13 @@ public class ClientDataService {
      * Get the current user's role
      */
     public Role getCurrentUserRole() {
-        return getCurrentUser().getRole();
+        return getCurrentPrincipal().getRole();
     }
 
     /**
      * Check if current user is CLIENT role
      */
     public boolean isClientRole() {
-        return getCurrentUser().getRole() == Role.CLIENT;
+        return getCurrentPrincipal().getRole() == Role.CLIENT;
     }
 }
@@ -0,0 +1,65 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.request.ClientAllocationRequestDto;
+import com.example.stockgestion.Dto.response.ClientAllocationResponseDto;
+import com.example.stockgestion.exception.BusinessRuleException;
+import com.example.stockgestion.exception.ResourceNotFoundException;
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.repositories.ClientRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.services.helpers.ReferenceDataCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class ClientService {
+
+    private final ClientRepository clientRepository;
+    private final WareHouseRepository wareHouseRepository;
+    private final ReferenceDataCache referenceDataCache;
+
+    @Transactional(readOnly = true)
+    public ClientAllocationResponseDto getAllocationPreferences(UUID clientId) {
+        Client client = clientRepository.findById(clientId)
+                .orElseThrow(() -> new ResourceNotFoundException("Client", "id", clientId));
+        return new ClientAllocationResponseDto(client);
+    }
+
+    /**
+     * Définit la stratégie d'allocation par défaut du client et sa liste d'entrepôts préférés
+     */
+    @Transactional
+    public ClientAllocationResponseDto updateAllocationPreferences(UUID clientId, ClientAllocationRequestDto dto) {
+        Client client = clientRepository.findById(clientId)
+                .orElseThrow(() -> new ResourceNotFoundException("Client", "id", clientId));
+
+        Set<UUID> requested = new LinkedHashSet<>(dto.getWarehousePriority());
+        if (requested.size() != dto.getWarehousePriority().size()) {
+            throw new BusinessRuleException("La liste de priorité contient un entrepôt en double");
+        }
+        Set<UUID> known = wareHouseRepository.findAllById(requested).stream()
+                .map(WareHouse::getId)
+                .collect(Collectors.toSet());
+        List<UUID> unknown = requested.stream().filter(id -> !known.contains(id)).toList();
+        if (!unknown.isEmpty()) {
+            throw new ResourceNotFoundException("WareHouse", "id", unknown.get(0));
+        }
+
+        client.setAllocationStrategy(dto.getAllocationStrategy());
+        client.getWarehousePriority().clear();
+        client.getWarehousePriority().addAll(requested);
+        Client saved = clientRepository.save(client);
+        // Préférences relues par l'allocation depuis le cache
+        referenceDataCache.evictClient(clientId);
+        return new ClientAllocationResponseDto(saved);
+    }
+}
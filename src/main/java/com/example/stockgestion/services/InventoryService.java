@@ -1,9 +1,13 @@
 package com.example.stockgestion.services;
 
+import com.example.stockgestion.Dto.request.InventoryMovementBatchRequestDto;
 import com.example.stockgestion.Dto.request.InventoryMovementRequestDto;
 import com.example.stockgestion.Dto.request.InventoryRequestDto;
+import com.example.stockgestion.Dto.response.InventoryMovementBatchResponseDto;
+import com.example.stockgestion.Dto.response.InventoryMovementBatchResultDto;
 import com.example.stockgestion.Dto.response.InventoryMovementResponseDto;
 import com.example.stockgestion.Dto.response.InventoryResponseDto;
+import com.example.stockgestion.Dto.response.KeysetPageDto;
 import com.example.stockgestion.exception.BusinessRuleException;
 import com.example.stockgestion.exception.ConflictException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
@@ -11,15 +15,30 @@ import com.example.stockgestion.models.Inventory;
 import com.example.stockgestion.models.InventoryMovement;
 import com.example.stockgestion.models.Product;
 import com.example.stockgestion.models.WareHouse;
-import com.example.stockgestion.repositories.InventoryMovmentRepository;
 import com.example.stockgestion.repositories.InventoryRepository;
 import com.example.stockgestion.repositories.ProductRepository;
 import com.example.stockgestion.repositories.SalesOrderRepository;
+import com.example.stockgestion.repositories.StockSnapshotRepository;
 import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import com.example.stockgestion.services.helpers.KeysetPaging;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
+import com.example.stockgestion.services.helpers.ReferenceDataCache;
+import com.example.stockgestion.services.helpers.StockKey;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -28,8 +47,12 @@ public class InventoryService {
     private final InventoryRepository inventoryRepository;
     private final ProductRepository productRepository;
     private final WareHouseRepository wareHouseRepository;
-    private final InventoryMovmentRepository inventoryMovmentRepository;
+    private final InventoryMovementWriter inventoryMovementWriter;
+    private final StockSnapshotRepository stockSnapshotRepository;
     private final SalesOrderRepository salesOrderRepository;
+    private final AvailabilityLedger availabilityLedger;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final ReferenceDataCache referenceDataCache;
 
     @Transactional
     public InventoryResponseDto createInventory(InventoryRequestDto dto) {
@@ -55,6 +78,7 @@ public class InventoryService {
         inventory.setWarehouse(warehouse);
 
         Inventory saved = inventoryRepository.save(inventory);
+        availabilityLedger.recordChange(product.getId(), warehouse.getId(), saved.getQtyOnHand(), saved.getQtyReserved());
         return new InventoryResponseDto(saved);
     }
 
@@ -72,6 +96,17 @@ public class InventoryService {
         return list.stream().map(InventoryResponseDto::new).toList();
     }
 
+    @Transactional(readOnly = true)
+    public KeysetPageDto<InventoryResponseDto> getInventoriesPage(UUID after, Integer limit) {
+        Limit pageLimit = KeysetPaging.limit(limit);
+        List<Inventory> rows = inventoryRepository.findByIdGreaterThanOrderByIdAsc(KeysetPaging.after(after), pageLimit);
+        return KeysetPaging.page(rows, pageLimit, Inventory::getId, InventoryResponseDto::new);
+    }
+
+    public StreamingResponseBody streamAllInventories() {
+        return ndjsonStreamer.stream(inventoryRepository::streamAll, InventoryResponseDto::new);
+    }
+
     @Transactional(readOnly = true)
     public List<InventoryResponseDto> getByProductId(UUID productId) {
         List<Inventory> list = inventoryRepository.findByProduct_Id(productId);
@@ -86,11 +121,11 @@ public class InventoryService {
 
     @Transactional
     public InventoryMovementResponseDto createMovement(InventoryMovementRequestDto dto) {
-        // validate product and warehouse
-        Product product = productRepository.findById(dto.getProductId()).orElseThrow(() ->
+        // validate product and warehouse (cache des données de référence)
+        Product product = referenceDataCache.findProduct(dto.getProductId()).orElseThrow(() ->
                 new ResourceNotFoundException("Product", "id", dto.getProductId())
         );
-        WareHouse warehouse = wareHouseRepository.findById(dto.getWarehouseId()).orElseThrow(() ->
+        WareHouse warehouse = referenceDataCache.findWarehouse(dto.getWarehouseId()).orElseThrow(() ->
                 new ResourceNotFoundException("WareHouse", "id", dto.getWarehouseId())
         );
 
@@ -106,6 +141,7 @@ public class InventoryService {
                 });
 
         long qty = dto.getQuantity();
+        long previousOnHand = inventory.getQtyOnHand();
         switch (dto.getType()) {
             case INBOUND:
                 inventory.setQtyOnHand(inventory.getQtyOnHand() + qty);
@@ -126,6 +162,7 @@ public class InventoryService {
         }
 
         inventoryRepository.save(inventory);
+        availabilityLedger.recordChange(product.getId(), warehouse.getId(), inventory.getQtyOnHand() - previousOnHand, 0);
 
         InventoryMovement movement = new InventoryMovement();
         movement.setProduct(product);
@@ -135,16 +172,177 @@ public class InventoryService {
         movement.setOccurredAt(dto.getOccurredAt() != null ? dto.getOccurredAt() : java.time.Instant.now());
         movement.setReferenceDoc(dto.getReferenceDoc());
 
-        InventoryMovement savedMovement = inventoryMovmentRepository.save(movement);
+        InventoryMovement savedMovement = inventoryMovementWriter.append(movement);
+        // Daté avant le dernier point de reprise : les points pris après sa date doivent l'inclure
+        shiftSnapshotsForBackdated(List.of(savedMovement));
 
         return new InventoryMovementResponseDto(savedMovement);
     }
 
+    /**
+     * Applique un lot de mouvements dans l'ordre reçu. Produits, entrepôts et lignes d'inventaire sont lus
+     * en une requête chacun, le stock n'est écrit qu'une fois par couple (variation nette du lot) et les
+     * mouvements sont insérés en un seul lot. En mode atomique, le premier mouvement invalide rejette tout le lot.
+     */
+    @Transactional
+    public InventoryMovementBatchResponseDto createMovementsBatch(InventoryMovementBatchRequestDto dto) {
+        List<InventoryMovementRequestDto> requests = dto.getMovements();
+        Set<UUID> productIds = new HashSet<>();
+        Set<UUID> warehouseIds = new HashSet<>();
+        requests.forEach(request -> {
+            productIds.add(request.getProductId());
+            warehouseIds.add(request.getWarehouseId());
+        });
+        Map<UUID, Product> products = referenceDataCache.findProducts(productIds);
+        Map<UUID, WareHouse> warehouses = referenceDataCache.findWarehouses(warehouseIds);
+        Map<StockKey, Inventory> inventories = new HashMap<>();
+        if (!products.isEmpty() && !warehouses.isEmpty()) {
+            for (Inventory inventory : inventoryRepository.findByProduct_IdInAndWarehouse_IdIn(products.keySet(), warehouses.keySet())) {
+                inventories.put(new StockKey(inventory.getProduct().getId(), inventory.getWarehouse().getId()), inventory);
+            }
+        }
+
+        // Stock courant de chaque couple, mouvement après mouvement
+        Map<StockKey, Long> balances = new HashMap<>();
+        Map<Integer, InventoryMovement> acceptedByIndex = new LinkedHashMap<>();
+        Map<Integer, String> rejectedByIndex = new HashMap<>();
+        for (int index = 0; index < requests.size(); index++) {
+            InventoryMovementRequestDto request = requests.get(index);
+            StockKey key = new StockKey(request.getProductId(), request.getWarehouseId());
+            long balance = balances.getOrDefault(key, onHand(inventories.get(key)));
+            String error = validateBatchMovement(request, products, warehouses, balance);
+            if (error != null) {
+                if (dto.isAtomic()) {
+                    throw new BusinessRuleException("Mouvement " + index + " : " + error);
+                }
+                rejectedByIndex.put(index, error);
+                continue;
+            }
+            balances.put(key, balance + request.getType().signed(request.getQuantity()));
+
+            InventoryMovement movement = new InventoryMovement();
+            movement.setProduct(products.get(request.getProductId()));
+            movement.setWarehouse(warehouses.get(request.getWarehouseId()));
+            movement.setType(request.getType());
+            movement.setQuantity(request.getQuantity());
+            movement.setOccurredAt(request.getOccurredAt());
+            movement.setReferenceDoc(request.getReferenceDoc());
+            acceptedByIndex.put(index, movement);
+        }
+
+        applyBatchBalances(balances, inventories, products, warehouses);
+        List<InventoryMovement> movements = new ArrayList<>(acceptedByIndex.values());
+        inventoryMovementWriter.append(movements);
+        shiftSnapshotsForBackdated(movements);
+
+        List<InventoryMovementBatchResultDto> results = new ArrayList<>(requests.size());
+        for (int index = 0; index < requests.size(); index++) {
+            InventoryMovement movement = acceptedByIndex.get(index);
+            results.add(movement != null
+                    ? new InventoryMovementBatchResultDto(index, movement.getId())
+                    : new InventoryMovementBatchResultDto(index, rejectedByIndex.get(index)));
+        }
+        return new InventoryMovementBatchResponseDto(results);
+    }
+
+    private static long onHand(Inventory inventory) {
+        return inventory != null ? inventory.getQtyOnHand() : 0;
+    }
+
+    // Mêmes règles que createMovement, appliquées au stock déjà modifié par les mouvements précédents du lot
+    private String validateBatchMovement(InventoryMovementRequestDto request, Map<UUID, Product> products,
+                                         Map<UUID, WareHouse> warehouses, long balance) {
+        if (!products.containsKey(request.getProductId())) {
+            return "Product non trouvé avec id: '" + request.getProductId() + "'";
+        }
+        if (!warehouses.containsKey(request.getWarehouseId())) {
+            return "WareHouse non trouvé avec id: '" + request.getWarehouseId() + "'";
+        }
+        long qty = request.getQuantity();
+        switch (request.getType()) {
+            case INBOUND:
+                if (qty <= 0) {
+                    return "La quantité d'une entrée doit être positive: " + qty;
+                }
+                break;
+            case OUTBOUND:
+                if (qty <= 0) {
+                    return "La quantité d'une sortie doit être positive: " + qty;
+                }
+                if (balance < qty) {
+                    return "Stock insuffisant pour sortie: demandé=" + qty + ", disponible=" + balance;
+                }
+                break;
+            case ADJUSTMENT:
+                if (balance + qty < 0) {
+                    return "L'ajustement mène à un stock négatif: " + (balance + qty);
+                }
+                break;
+        }
+        return null;
+    }
+
+    // Une écriture par couple, dans l'ordre de verrouillage commun aux écritures par lot
+    private void applyBatchBalances(Map<StockKey, Long> balances, Map<StockKey, Inventory> inventories,
+                                    Map<UUID, Product> products, Map<UUID, WareHouse> warehouses) {
+        List<StockKey> keys = new ArrayList<>(balances.keySet());
+        keys.sort(StockKey.LOCK_ORDER);
+        List<Inventory> toSave = new ArrayList<>(keys.size());
+        for (StockKey key : keys) {
+            Inventory inventory = inventories.get(key);
+            long previousOnHand = onHand(inventory);
+            long balance = balances.get(key);
+            if (inventory == null) {
+                inventory = Inventory.builder()
+                        .product(products.get(key.productId()))
+                        .warehouse(warehouses.get(key.warehouseId()))
+                        .qtyOnHand(0)
+                        .qtyReserved(0)
+                        .build();
+            } else if (balance == previousOnHand) {
+                continue;
+            }
+            inventory.setQtyOnHand(balance);
+            toSave.add(inventory);
+            availabilityLedger.recordChange(key.productId(), key.warehouseId(), balance - previousOnHand, 0);
+        }
+        inventoryRepository.saveAll(toSave);
+    }
+
+    // Seuls les mouvements datés avant le dernier point de reprise le concernent ; une mise à jour par
+    // couple et par date, avec la somme des mouvements de ce couple à cette date. Un couple sans point
+    // après le mouvement n'a rien à décaler : le job repart de son propre dernier point
+    private void shiftSnapshotsForBackdated(List<InventoryMovement> movements) {
+        Instant latestSnapshot = stockSnapshotRepository.findLatestTakenAt().orElse(null);
+        if (latestSnapshot == null) {
+            return;
+        }
+        Map<SnapshotShift, Long> deltas = new LinkedHashMap<>();
+        for (InventoryMovement movement : movements) {
+            if (movement.getOccurredAt().isBefore(latestSnapshot)) {
+                deltas.merge(new SnapshotShift(movement.getProduct().getId(), movement.getWarehouse().getId(),
+                        movement.getOccurredAt()), movement.getType().signed(movement.getQuantity()), Long::sum);
+            }
+        }
+        deltas.forEach((shift, delta) -> {
+            if (delta != 0) {
+                stockSnapshotRepository.shiftAfter(shift.productId(), shift.warehouseId(), shift.occurredAt(), delta);
+            }
+        });
+    }
+
+    private record SnapshotShift(UUID productId, UUID warehouseId, Instant occurredAt) {
+    }
+
     @Transactional
     public InventoryResponseDto updateInventory(UUID id, InventoryRequestDto dto) {
         Inventory existing = inventoryRepository.findById(id).orElseThrow(() ->
                 new ResourceNotFoundException("Inventory", "id", id)
         );
+        UUID previousProductId = existing.getProduct().getId();
+        UUID previousWarehouseId = existing.getWarehouse().getId();
+        long previousOnHand = existing.getQtyOnHand();
+        long previousReserved = existing.getQtyReserved();
 
         // If product or warehouse changed, ensure they exist and uniqueness
         if (dto.getProductId() != null && !dto.getProductId().equals(existing.getProduct().getId())) {
@@ -172,6 +370,10 @@ public class InventoryService {
         existing.setQtyReserved(dto.getQtyReserved());
 
         Inventory saved = inventoryRepository.save(existing);
+        // Le ledger suit la ligne : retrait de l'ancien couple, ajout au nouveau (même couple = simple delta)
+        availabilityLedger.recordChange(previousProductId, previousWarehouseId, -previousOnHand, -previousReserved);
+        availabilityLedger.recordChange(saved.getProduct().getId(), saved.getWarehouse().getId(),
+                saved.getQtyOnHand(), saved.getQtyReserved());
         return new InventoryResponseDto(saved);
     }
 }
\ No newline at end of file
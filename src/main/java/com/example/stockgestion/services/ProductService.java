@@ -1,7 +1,11 @@
 package com.example.stockgestion.services;
 
 import com.example.stockgestion.Dto.request.ProductRequestDto;
+import com.example.stockgestion.Dto.response.KeysetPageDto;
 import com.example.stockgestion.Dto.response.ProductResponseDto;
+import com.example.stockgestion.Dto.response.ProductSearchResponseDto;
+import com.example.stockgestion.config.ProductSearchProperties;
+import com.example.stockgestion.exception.BusinessRuleException;
 import com.example.stockgestion.exception.ConflictException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.Product;
@@ -9,9 +13,15 @@ import com.example.stockgestion.models.SalesOrder;
 import com.example.stockgestion.models.SalesOrderLine;
 import com.example.stockgestion.repositories.ProductRepository;
 import com.example.stockgestion.repositories.SalesOrderLineRepository;
+import com.example.stockgestion.services.helpers.KeysetPaging;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
+import com.example.stockgestion.services.helpers.ProductSearchIndex;
+import com.example.stockgestion.services.helpers.ReferenceDataCache;
+import org.springframework.data.domain.Limit;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -21,6 +31,10 @@ import java.util.UUID;
 public class ProductService {
     private final ProductRepository productRepository;
     private final SalesOrderLineRepository salesOrderLineRepository;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final ReferenceDataCache referenceDataCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSearchProperties productSearchProperties;
     @Transactional
     public ProductResponseDto createProduct(ProductRequestDto productRequestDto) {
         if (productRepository.existsBySku(productRequestDto.getSku())) {
@@ -33,6 +47,7 @@ public class ProductService {
         product.setActive(productRequestDto.isActive());
         product.setPrice(productRequestDto.getPrice());
         Product savedProduct = productRepository.save(product);
+        productSearchIndex.put(savedProduct);
         return new ProductResponseDto(savedProduct);
     }
     @Transactional(readOnly = true)
@@ -46,6 +61,29 @@ public class ProductService {
         List<Product> products = productRepository.findAll();
         return products.stream().map(ProductResponseDto::new).toList();
     }
+    @Transactional(readOnly = true)
+    public KeysetPageDto<ProductResponseDto> getProductsPage(UUID after, Integer limit) {
+        Limit pageLimit = KeysetPaging.limit(limit);
+        List<Product> rows = productRepository.findByIdGreaterThanOrderByIdAsc(KeysetPaging.after(after), pageLimit);
+        return KeysetPaging.page(rows, pageLimit, Product::getId, ProductResponseDto::new);
+    }
+    public StreamingResponseBody streamAllProducts() {
+        return ndjsonStreamer.stream(productRepository::streamAll, ProductResponseDto::new);
+    }
+    /**
+     * Recherche dans l'index en mémoire (SKU par préfixe, nom et catégorie par mot), sans accès base
+     */
+    public ProductSearchResponseDto searchProducts(String query, String category, boolean includeInactive, Integer limit) {
+        if ((query == null || query.isBlank()) && (category == null || category.isBlank())) {
+            throw new BusinessRuleException("Renseigner q ou category");
+        }
+        if (limit != null && limit < 1) {
+            throw new BusinessRuleException("limit doit être supérieur à 0");
+        }
+        int size = limit == null ? productSearchProperties.getDefaultLimit()
+                : Math.min(limit, productSearchProperties.getMaxLimit());
+        return productSearchIndex.search(query, category, includeInactive, size);
+    }
     @Transactional
     public ProductResponseDto updateProduct(UUID id, com.example.stockgestion.models.Product product) {
         if (id != null) {
@@ -63,6 +101,8 @@ public class ProductService {
                 if(product.getActive() != null) existingProduct.setActive(product.getActive());
                 if(product.getPrice() != null) existingProduct.setPrice(product.getPrice());
                 Product savedProduct = productRepository.save(existingProduct);
+                referenceDataCache.evictProduct(id);
+                productSearchIndex.put(savedProduct);
                 return new com.example.stockgestion.Dto.response.ProductResponseDto(savedProduct);
             }
         }
@@ -73,6 +113,8 @@ public class ProductService {
     Product existingProduct = productRepository.findById(id).orElseThrow(() ->
         new ResourceNotFoundException("Produit", "id", id));
         productRepository.delete(existingProduct);
+        referenceDataCache.evictProduct(id);
+        productSearchIndex.remove(id);
     }
 
 
@@ -102,6 +144,8 @@ public class ProductService {
         }
         product.setActive(false);
         Product savedProduct = productRepository.save(product);
+        referenceDataCache.evictProduct(product.getId());
+        productSearchIndex.put(savedProduct);
         return new ProductResponseDto(savedProduct);
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.example.stockgestion.services;
 
 import com.example.stockgestion.Dto.request.PurchaseOrderRequestDto;
 import com.example.stockgestion.Dto.request.ReceiveRequestDto;
+import com.example.stockgestion.Dto.request.ReceivedLineDto;
+import com.example.stockgestion.Dto.response.KeysetPageDto;
 import com.example.stockgestion.Dto.response.PurchaseOrderResponseDto;
 import com.example.stockgestion.events.StockReceivedEvent;
 import com.example.stockgestion.exception.ResourceNotFoundException;
@@ -9,15 +11,26 @@ import com.example.stockgestion.models.*;
 import com.example.stockgestion.models.enums.MovementType;
 import com.example.stockgestion.models.enums.POStatus;
 import com.example.stockgestion.repositories.*;
-import jakarta.transaction.Transactional;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import com.example.stockgestion.services.helpers.KeysetPaging;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
+import com.example.stockgestion.services.helpers.ReferenceDataCache;
 import lombok.AllArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -28,10 +41,10 @@ public class PurchaseOrderService {
     private final PurchaseOrderLineRepository purchaseOrderLineRepository;
     private final InventoryRepository inventoryRepository;
     private final SupplierRepository supplierRepository;
-    private final ProductRepository productRepository;
-    private final ModelMapper modelMapper;
-    private final WareHouseRepository wareHouseRepository;
-    private final InventoryMovmentRepository inventoryMovmentRepository;
+    private final InventoryMovementWriter inventoryMovementWriter;
+    private final AvailabilityLedger availabilityLedger;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final ReferenceDataCache referenceDataCache;
 
     @Transactional
     public PurchaseOrderResponseDto createPurchaseOrder(PurchaseOrderRequestDto purchaseOrderRequestDto) {
@@ -42,7 +55,7 @@ public class PurchaseOrderService {
         purchaseOrder.setStatus(POStatus.APPROVED);
         List<PurchaseOrderLine> purchaseOrdersLines = new ArrayList<>();
         purchaseOrderRequestDto.getLines().forEach(line -> {
-            Product product = productRepository.findById(line.getProductId())
+            Product product = referenceDataCache.findProduct(line.getProductId())
                     .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
             PurchaseOrderLine purchaseOrderLine = new PurchaseOrderLine();
             purchaseOrderLine.setProduct(product);
@@ -53,55 +66,81 @@ public class PurchaseOrderService {
         });
         purchaseOrder.setLines(purchaseOrdersLines);
         PurchaseOrder savedOrder = purchaseOrderRepository.save(purchaseOrder);
-        return modelMapper.map(savedOrder, PurchaseOrderResponseDto.class);
+        return new PurchaseOrderResponseDto(savedOrder);
     }
 
+    /**
+     * Réception d'une livraison fournisseur, quel que soit le nombre de lignes en quelques requêtes :
+     * commande avec ses lignes, produits reçus, puis inventaires de l'entrepôt pour ces produits.
+     * Les lignes de commande sont indexées par produit ; les quantités sont cumulées par produit
+     * avant d'être appliquées, puis écrites en un lot par table. Un seul événement par produit.
+     */
+    @Transactional
     public PurchaseOrderResponseDto receptionOrder(UUID orderId, ReceiveRequestDto requestDto) {
-        PurchaseOrder purchaseOrder = purchaseOrderRepository.findById(orderId)
+        PurchaseOrder purchaseOrder = purchaseOrderRepository.findWithLinesById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Purchase Order not found"));
-        WareHouse wareHouse = wareHouseRepository.findById(requestDto.getWarehouseId())
+        WareHouse wareHouse = referenceDataCache.findWarehouse(requestDto.getWarehouseId())
                 .orElseThrow(() -> new ResourceNotFoundException("Warehouse not found"));
         if (purchaseOrder.getStatus() == POStatus.RECEIVED || purchaseOrder.getStatus() == POStatus.CANCELED)
             throw new ResourceNotFoundException("Purchase Order Status not found");
-        List<Inventory> inventoriesToUpdate = new ArrayList<>();
-        List<InventoryMovement> movmentsToCreate = new ArrayList<>();
-        requestDto.getReceivedLineDto().forEach(line -> {
-            UUID productUuid = UUID.fromString(line.getProductId().toString());
-            Product product = productRepository.findById(productUuid)
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-            Inventory inventory = inventoryRepository
-                    .findByProduct_IdAndWarehouse_Id(productUuid, requestDto.getWarehouseId()).stream().findFirst()
-                    .orElseGet(() -> Inventory.builder()
-                            .product(product)
-                            .warehouse(wareHouse)
-                            .qtyOnHand(0)
-                            .qtyReserved(0)
-                            .build());
+
+        List<ReceivedLineDto> receivedLines = requestDto.getReceivedLineDto();
+        Set<UUID> productIds = new LinkedHashSet<>();
+        receivedLines.forEach(line -> productIds.add(line.getProductId()));
+        Map<UUID, Product> products = referenceDataCache.findProducts(productIds);
+        Map<UUID, PurchaseOrderLine> poLines = new HashMap<>();
+        purchaseOrder.getLines().forEach(l -> poLines.putIfAbsent(l.getProduct().getId(), l));
+        for (UUID productId : productIds) {
+            if (!products.containsKey(productId))
+                throw new ResourceNotFoundException("Product not found");
+            if (!poLines.containsKey(productId))
+                throw new ResourceNotFoundException("line not found");
+        }
+
+        Instant now = Instant.now();
+        List<InventoryMovement> movmentsToCreate = new ArrayList<>(receivedLines.size());
+        Map<UUID, Long> receivedByProduct = new LinkedHashMap<>();
+        for (ReceivedLineDto line : receivedLines) {
+            Product product = products.get(line.getProductId());
             long qtyReceived = line.getQuantityReceived();
-            inventory.setQtyOnHand(inventory.getQtyOnHand() + qtyReceived);
-            inventoriesToUpdate.add(inventory);
+            receivedByProduct.merge(product.getId(), qtyReceived, Long::sum);
+            PurchaseOrderLine poLine = poLines.get(product.getId());
+            poLine.setQtyReceived(poLine.getQtyReceived() + qtyReceived);
             InventoryMovement inventoryMovement = new InventoryMovement();
-            inventoryMovement.setOccurredAt(Instant.now());
+            inventoryMovement.setOccurredAt(now);
             inventoryMovement.setProduct(product);
             inventoryMovement.setWarehouse(wareHouse);
             inventoryMovement.setType(MovementType.INBOUND);
             inventoryMovement.setQuantity(qtyReceived);
             movmentsToCreate.add(inventoryMovement);
-            StockReceivedEvent event = new StockReceivedEvent(product.getId(),wareHouse.getId(),qtyReceived);
-            this.eventPublisher.publishEvent(event);
-        });
-        List<PurchaseOrderLine> poLineToUpdate = new ArrayList<>();
-        requestDto.getReceivedLineDto().forEach(line -> {
-            UUID productId = line.getProductId();
-            PurchaseOrderLine poLine = purchaseOrder.getLines().stream()
-                    .filter(l -> l.getProduct().getId().equals(productId)).findFirst()
-                    .orElseThrow(() -> new ResourceNotFoundException("line not found"));
-            poLine.setQtyReceived(poLine.getQtyReceived() + line.getQuantityReceived());
-            poLineToUpdate.add(poLine);
+        }
+
+        // Une ligne d'inventaire par produit, créée si l'entrepôt n'en a pas encore
+        Map<UUID, Inventory> inventories = new HashMap<>();
+        inventoryRepository.findByProduct_IdInAndWarehouse_Id(productIds, wareHouse.getId())
+                .forEach(inventory -> inventories.putIfAbsent(inventory.getProduct().getId(), inventory));
+        List<Inventory> inventoriesToUpdate = new ArrayList<>(receivedByProduct.size());
+        List<PurchaseOrderLine> poLineToUpdate = new ArrayList<>(receivedByProduct.size());
+        receivedByProduct.forEach((productId, qtyReceived) -> {
+            Inventory inventory = inventories.computeIfAbsent(productId, id -> Inventory.builder()
+                    .product(products.get(id))
+                    .warehouse(wareHouse)
+                    .qtyOnHand(0)
+                    .qtyReserved(0)
+                    .build());
+            inventory.setQtyOnHand(inventory.getQtyOnHand() + qtyReceived);
+            inventoriesToUpdate.add(inventory);
+            poLineToUpdate.add(poLines.get(productId));
         });
+
         purchaseOrderLineRepository.saveAll(poLineToUpdate);
         inventoryRepository.saveAll(inventoriesToUpdate);
-        inventoryMovmentRepository.saveAll(movmentsToCreate);
+        inventoryMovementWriter.append(movmentsToCreate);
+        // Un événement par produit, traité après commit (BackorderFulfilmentDispatcher)
+        receivedByProduct.forEach((productId, qtyReceived) -> {
+            availabilityLedger.recordChange(productId, wareHouse.getId(), qtyReceived, 0);
+            eventPublisher.publishEvent(new StockReceivedEvent(productId, wareHouse.getId(), qtyReceived));
+        });
         boolean allLinesCompleted = true;
         for (PurchaseOrderLine l : purchaseOrder.getLines()) {
             if (l.getQtyReceived() < l.getQuantity()) {
@@ -114,19 +153,32 @@ public class PurchaseOrderService {
         else
             purchaseOrder.setStatus(POStatus.PARTIALLY_RECEIVED);
         PurchaseOrder orderSaved = purchaseOrderRepository.save(purchaseOrder);
-        return modelMapper.map(orderSaved, PurchaseOrderResponseDto.class);
+        return new PurchaseOrderResponseDto(orderSaved);
     }
 
     public List<PurchaseOrderResponseDto> getAllPurchaseOrders() {
-        List<PurchaseOrder> purchaseOrders = purchaseOrderRepository.findAll();
+        List<PurchaseOrder> purchaseOrders = purchaseOrderRepository.findAllWithLines();
         return purchaseOrders.stream()
-                .map(order -> modelMapper.map(order, PurchaseOrderResponseDto.class))
+                .map(PurchaseOrderResponseDto::new)
                 .toList();
     }
 
+    @Transactional
+    public KeysetPageDto<PurchaseOrderResponseDto> getPurchaseOrdersPage(UUID after, Integer limit) {
+        Limit pageLimit = KeysetPaging.limit(limit);
+        List<UUID> ids = purchaseOrderRepository.findIdsAfter(KeysetPaging.after(after), pageLimit);
+        List<PurchaseOrder> orders = ids.isEmpty() ? List.of() : purchaseOrderRepository.findAllWithLinesByIdIn(ids);
+        return KeysetPaging.page(orders, pageLimit, PurchaseOrder::getId, PurchaseOrderResponseDto::new);
+    }
+
+    public StreamingResponseBody streamAllPurchaseOrders() {
+        return ndjsonStreamer.streamPages(purchaseOrderRepository::findIdsAfter,
+                purchaseOrderRepository::findAllWithLinesByIdIn, PurchaseOrderResponseDto::new);
+    }
+
     public PurchaseOrderResponseDto getPurchaseOrderById(UUID id) {
-        PurchaseOrder purchaseOrder = purchaseOrderRepository.findById(id)
+        PurchaseOrder purchaseOrder = purchaseOrderRepository.findWithLinesById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Purchase Order not found"));
-        return modelMapper.map(purchaseOrder, PurchaseOrderResponseDto.class);
+        return new PurchaseOrderResponseDto(purchaseOrder);
     }
 }
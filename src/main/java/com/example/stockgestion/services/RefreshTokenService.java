@@ -4,6 +4,7 @@ import com.example.stockgestion.config.JwtConfigProperties;
 import com.example.stockgestion.models.RefreshToken;
 import com.example.stockgestion.models.User;
 import com.example.stockgestion.repositories.RefreshTokenRepository;
+import com.example.stockgestion.security.JwtPrincipalCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +22,7 @@ public class RefreshTokenService {
 
     private final RefreshTokenRepository refreshTokenRepository;
     private final JwtConfigProperties jwtConfig;
+    private final JwtPrincipalCache principalCache;
 
     /**
      * Create a new refresh token for a user
@@ -74,6 +76,8 @@ public class RefreshTokenService {
     @Transactional
     public void revokeUserTokens(User user) {
         refreshTokenRepository.deleteByUser(user);
+        // Access tokens already verified must not keep authenticating from the cache
+        principalCache.evictUser(user.getEmail());
     }
 
     /**
@@ -82,6 +86,9 @@ public class RefreshTokenService {
     @Transactional
     public void revokeToken(String token) {
         refreshTokenRepository.findByToken(token)
-                .ifPresent(refreshTokenRepository::delete);
+                .ifPresent(refreshToken -> {
+                    refreshTokenRepository.delete(refreshToken);
+                    principalCache.evictUser(refreshToken.getUser().getEmail());
+                });
     }
 }
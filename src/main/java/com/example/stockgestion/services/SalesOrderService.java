@@ -1,58 +1,73 @@
 package com.example.stockgestion.services;
 
+import com.example.stockgestion.Dto.request.SalesOrderBatchRequestDto;
+import com.example.stockgestion.Dto.request.SalesOrderLineRequestDto;
 import com.example.stockgestion.Dto.request.SalesOrderRequestDto;
+import com.example.stockgestion.Dto.response.KeysetPageDto;
+import com.example.stockgestion.Dto.response.SalesOrderBatchResponseDto;
+import com.example.stockgestion.Dto.response.SalesOrderBatchResultDto;
 import com.example.stockgestion.Dto.response.SalesOrderResponseDto;
-import com.example.stockgestion.events.StockReceivedEvent;
 import com.example.stockgestion.exception.BusinessRuleException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.*;
 import com.example.stockgestion.models.enums.MovementType;
 import com.example.stockgestion.models.enums.SOStatus;
-import com.example.stockgestion.repositories.InventoryMovmentRepository;
 import com.example.stockgestion.repositories.InventoryRepository;
 import com.example.stockgestion.repositories.SalesOrderLineRepository;
 import com.example.stockgestion.repositories.SalesOrderRepository;
+import com.example.stockgestion.services.allocation.AllocationStrategy;
+import com.example.stockgestion.services.allocation.AllocationStrategyResolver;
 import com.example.stockgestion.services.helpers.*;
 
 import lombok.AllArgsConstructor;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
 
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 @AllArgsConstructor
 public class SalesOrderService {
     private final SalesOrderRepository salesOrderRepository;
     private final InventoryRepository inventoryRepository;
-    private final ModelMapper modelMapper;
 
     // Helpers
     private final ClientValidator clientValidator;
     private final ProductValidator productValidator;
     private final StockReservationHelper stockReservationHelper;
+    private final AvailabilityLedger availabilityLedger;
     private final OrderStatusHelper orderStatusHelper;
     private final SalesOrderBuilder salesOrderBuilder;
-    private final InventoryMovmentRepository inventoryMovmentRepository;
+    private final InventoryMovementWriter inventoryMovementWriter;
     private final SalesOrderLineRepository salesOrderLineRepository;
+    private final AllocationStrategyResolver allocationStrategyResolver;
+    private final BackorderQueue backorderQueue;
+    private final SalesOrderReadModel salesOrderReadModel;
+    private final NdjsonStreamer ndjsonStreamer;
 
     @Transactional
     public SalesOrderResponseDto createSalesOrder(SalesOrderRequestDto dto) {
         Client client = clientValidator.validateAndGet(dto.getClientId());
         SalesOrder order = salesOrderBuilder.initialize(client);
+        AllocationStrategy strategy = allocationStrategyResolver.resolve(dto.getAllocationStrategy(), client);
 
         List<SalesOrderLine> lines = new ArrayList<>();
-        List<Inventory> inventoriesToUpdate = new ArrayList<>();
         boolean[] hasBackorder = { false };
         boolean[] hasReserved = { false };
 
@@ -62,10 +77,8 @@ public class SalesOrderService {
                     BigDecimal unitPrice = productValidator.validateAndGetPrice(product);
                     long requestedQty = lineDto.getQuantity();
 
-                    List<Inventory> inventories = stockReservationHelper.getInventoriesSortedByAvailability(product);
-
                     ReservationResult result = stockReservationHelper.reserveAcrossWarehouses(
-                            order, product, unitPrice, requestedQty, inventories, inventoriesToUpdate);
+                            order, product, unitPrice, requestedQty, strategy);
 
                     lines.addAll(result.getLines());
                     hasReserved[0] = hasReserved[0] || result.isHasReserved();
@@ -77,34 +90,133 @@ public class SalesOrderService {
 
         SOStatus finalStatus = orderStatusHelper.determineStatus(hasBackorder[0], hasReserved[0]);
         salesOrderBuilder.finalize(order, lines, totalPrice, finalStatus);
-        stockReservationHelper.saveInventoriesInBatch(inventoriesToUpdate);
 
         SalesOrder savedOrder = salesOrderRepository.save(order);
-        return modelMapper.map(savedOrder, SalesOrderResponseDto.class);
+        backorderQueue.enqueue(List.of(savedOrder));
+        return new SalesOrderResponseDto(savedOrder);
+    }
+
+    /**
+     * Intake d'un lot de commandes (flux EDI).
+     * Clients, produits et compteurs de stock sont préchargés en trois requêtes IN, les commandes
+     * sont allouées en mémoire dans l'ordre d'arrivée, puis les réservations sont écrites avec un
+     * UPDATE conditionnel par couple (produit, entrepôt) et les commandes insérées via le batching JDBC.
+     * Une commande invalide (client/produit inconnu, produit sans prix) est rejetée seule.
+     */
+    @Transactional
+    public SalesOrderBatchResponseDto createSalesOrdersBatch(SalesOrderBatchRequestDto dto) {
+        List<SalesOrderRequestDto> requests = dto.getOrders();
+        Set<UUID> clientIds = new HashSet<>();
+        Set<UUID> productIds = new HashSet<>();
+        requests.forEach(request -> {
+            clientIds.add(request.getClientId());
+            request.getLines().forEach(line -> productIds.add(line.getProductId()));
+        });
+        Map<UUID, Client> clients = clientValidator.getAllById(clientIds);
+        Map<UUID, Product> products = productValidator.getAllById(productIds);
+        availabilityLedger.preload(productIds);
+
+        Map<StockKey, Long> pendingDeltas = new HashMap<>();
+        Map<Integer, SalesOrder> acceptedByIndex = new LinkedHashMap<>();
+        Map<Integer, String> rejectedByIndex = new HashMap<>();
+        for (int index = 0; index < requests.size(); index++) {
+            SalesOrderRequestDto request = requests.get(index);
+            String error = validateBatchOrder(request, clients, products);
+            if (error != null) {
+                rejectedByIndex.put(index, error);
+                continue;
+            }
+            acceptedByIndex.put(index, allocateBatchOrder(request, clients, products, pendingDeltas));
+        }
+
+        stockReservationHelper.applyPendingReservations(pendingDeltas);
+        salesOrderRepository.saveAll(new ArrayList<>(acceptedByIndex.values()));
+        backorderQueue.enqueue(acceptedByIndex.values());
+
+        List<SalesOrderBatchResultDto> results = new ArrayList<>(requests.size());
+        for (int index = 0; index < requests.size(); index++) {
+            SalesOrder order = acceptedByIndex.get(index);
+            results.add(order != null
+                    ? new SalesOrderBatchResultDto(index, order)
+                    : new SalesOrderBatchResultDto(index, rejectedByIndex.get(index)));
+        }
+        return new SalesOrderBatchResponseDto(results);
+    }
+
+    // Valide une commande du lot avant toute réservation, pour ne jamais laisser de stock pris par une commande rejetée
+    private String validateBatchOrder(SalesOrderRequestDto request, Map<UUID, Client> clients,
+                                      Map<UUID, Product> products) {
+        if (!clients.containsKey(request.getClientId())) {
+            return "Client non trouvé avec id: '" + request.getClientId() + "'";
+        }
+        for (SalesOrderLineRequestDto line : request.getLines()) {
+            Product product = products.get(line.getProductId());
+            if (product == null) {
+                return "Product non trouvé avec id: '" + line.getProductId() + "'";
+            }
+            if (product.getPrice() == null) {
+                return "Le produit '" + product.getName() + "' n'a pas de prix défini";
+            }
+        }
+        return null;
+    }
+
+    private SalesOrder allocateBatchOrder(SalesOrderRequestDto request, Map<UUID, Client> clients,
+                                          Map<UUID, Product> products, Map<StockKey, Long> pendingDeltas) {
+        Client client = clients.get(request.getClientId());
+        SalesOrder order = salesOrderBuilder.initialize(client);
+        AllocationStrategy strategy = allocationStrategyResolver.resolve(request.getAllocationStrategy(), client);
+        List<SalesOrderLine> lines = new ArrayList<>();
+        boolean hasBackorder = false;
+        boolean hasReserved = false;
+        BigDecimal totalPrice = BigDecimal.ZERO;
+
+        for (SalesOrderLineRequestDto lineDto : request.getLines()) {
+            Product product = products.get(lineDto.getProductId());
+            ReservationResult result = stockReservationHelper.allocateInLedger(
+                    order, product, product.getPrice(), lineDto.getQuantity(), strategy, pendingDeltas);
+            lines.addAll(result.getLines());
+            hasReserved = hasReserved || result.isHasReserved();
+            hasBackorder = hasBackorder || result.isHasBackorder();
+            totalPrice = totalPrice.add(product.getPrice().multiply(BigDecimal.valueOf(lineDto.getQuantity())));
+        }
+
+        SOStatus finalStatus = orderStatusHelper.determineStatus(hasBackorder, hasReserved);
+        salesOrderBuilder.finalize(order, lines, totalPrice, finalStatus);
+        return order;
     }
 
     public SalesOrderResponseDto getSalesOrderById(UUID orderId) {
-        SalesOrder salesOrder = salesOrderRepository.findById(orderId)
+        return salesOrderReadModel.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("SalesOrder", "id", orderId));
-        return modelMapper.map(salesOrder, SalesOrderResponseDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<SalesOrderResponseDto> getAllSalesOrders() {
-        List<SalesOrder> orders = salesOrderRepository.findAll();
-        return orders.stream()
-                .map(order -> new SalesOrderResponseDto(order))
-                .toList();
+        return salesOrderReadModel.findAll();
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPageDto<SalesOrderResponseDto> getSalesOrdersPage(UUID after, Integer limit) {
+        Limit pageLimit = KeysetPaging.limit(limit);
+        List<UUID> ids = salesOrderRepository.findIdsAfter(KeysetPaging.after(after), pageLimit);
+        List<SalesOrderResponseDto> orders = ids.isEmpty() ? List.of() : salesOrderReadModel.findByIds(ids);
+        return KeysetPaging.page(orders, pageLimit, SalesOrderResponseDto::getId, Function.identity());
+    }
+
+    public StreamingResponseBody streamAllSalesOrders() {
+        return ndjsonStreamer.streamPages(salesOrderRepository::findIdsAfter, salesOrderReadModel::findByIds,
+                Function.identity());
     }
 
     @Transactional
     public SalesOrderResponseDto cancelOrder(UUID orderId) {
-        SalesOrder order = salesOrderRepository.findById(orderId)
+        SalesOrder order = salesOrderRepository.findWithLinesById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("SalesOrder", "id", orderId));
         if (order.getStatus() == SOStatus.DELIVERED)
             throw new BusinessRuleException("Impossible d'annuler une commande déjà expédiée ou livrée.");
         if (order.getStatus() == SOStatus.CANCELED)
-            return modelMapper.map(order, SalesOrderResponseDto.class);
+            return new SalesOrderResponseDto(order);
         List<Inventory> inventoriesToUpdate = new ArrayList<>();
         if (order.getStatus() == SOStatus.RESERVED || order.getStatus() == SOStatus.PARTIALLY_RESERVED) {
             order.getLines().forEach(line -> {
@@ -128,6 +240,8 @@ public class SalesOrderService {
                         } else {
                             inventory.setQtyReserved(currentReserved - toRelease);
                         }
+                        availabilityLedger.recordChange(line.getProduct().getId(), line.getWarehouse().getId(),
+                                0, inventory.getQtyReserved() - currentReserved);
                         
                         inventoriesToUpdate.add(inventory);
                     } else {
@@ -139,14 +253,16 @@ public class SalesOrderService {
         }
         if (!inventoriesToUpdate.isEmpty())
             inventoryRepository.saveAll(inventoriesToUpdate);
+        if (BackorderQueue.OPEN_STATUSES.contains(order.getStatus()))
+            backorderQueue.remove(order.getId());
         order.setStatus(SOStatus.CANCELED);
         SalesOrder savedOrder = salesOrderRepository.save(order);
-        return modelMapper.map(savedOrder, SalesOrderResponseDto.class);
+        return new SalesOrderResponseDto(savedOrder);
     }
 
     @Transactional
     public SalesOrderResponseDto shipOrder(UUID orderId) {
-        SalesOrder order = salesOrderRepository.findById(orderId)
+        SalesOrder order = salesOrderRepository.findWithLinesById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("SalesOrder", "id", orderId));
         if (order.getStatus() != SOStatus.RESERVED && order.getStatus() != SOStatus.PARTIALLY_RESERVED)
             throw new BusinessRuleException("Impossible d'epédier une commande qui n'est pas reserver !!!!");
@@ -163,6 +279,8 @@ public class SalesOrderService {
                         inventory.setQtyOnHand(inventory.getQtyOnHand() - qtyToShip);
                         inventory.setQtyReserved(inventory.getQtyReserved() - qtyToShip);
                         inventoriesToUpdate.add(inventory);
+                        availabilityLedger.recordChange(line.getProduct().getId(), line.getWarehouse().getId(),
+                                -qtyToShip, -qtyToShip);
 
                         InventoryMovement inventoryMovement = new InventoryMovement();
                         inventoryMovement.setProduct(line.getProduct());
@@ -178,59 +296,56 @@ public class SalesOrderService {
                 }
             });
             if (!movementsToCreate.isEmpty())
-                inventoryMovmentRepository.saveAll(movementsToCreate);
+                inventoryMovementWriter.append(movementsToCreate);
             if (!inventoriesToUpdate.isEmpty())
                 inventoryRepository.saveAll(inventoriesToUpdate);
             order.setStatus(SOStatus.DELIVERED);
             SalesOrder savedOrder = salesOrderRepository.save(order);
-            return modelMapper.map(savedOrder, SalesOrderResponseDto.class);
+            return new SalesOrderResponseDto(savedOrder);
         }
-        return modelMapper.map(order, SalesOrderResponseDto.class);
+        return new SalesOrderResponseDto(order);
     }
 
-    @EventListener
-    public void handleStockReceived(StockReceivedEvent event) {
-        List<Inventory> inventorys = inventoryRepository.findByProduct_IdAndWarehouse_Id(event.productId(),
-                event.WarehouseId());
+    /**
+     * Sert les backorders du produit en FIFO avec le disponible de l'entrepôt : seules les entrées couvertes
+     * sont dépilées, et le statut de chaque commande est déduit de son reliquat en backorder sans relire ses lignes.
+     * Appelé après commit de la réception, hors du thread de requête (BackorderFulfilmentDispatcher).
+     * Transaction propre : si la file du dispatcher est pleine, la passe tourne sur le thread du listener
+     * AFTER_COMMIT, dont la transaction est déjà commitée et n'écrirait plus rien.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void fulfilBackorders(UUID productId, UUID warehouseId) {
+        List<Inventory> inventorys = inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId);
         if (inventorys.isEmpty()) {
             return;
         }
         Inventory inventory = inventorys.get(0);
-        long initialQtyDispo = inventory.getQtyOnHand() - inventory.getQtyReserved();
-        long qtyDispo = initialQtyDispo;
+        long qtyDispo = inventory.getQtyOnHand() - inventory.getQtyReserved();
         if (qtyDispo <= 0)
             return;
-        List<SalesOrderLine> linesToSendStock = salesOrderLineRepository
-                .findByProductIdAndQtyBackorderedGreaterThanOrderByCreatedAtAsc(event.productId(), 0);
+        List<BackorderFill> fills = backorderQueue.claim(productId, qtyDispo);
+        if (fills.isEmpty())
+            return;
 
         List<SalesOrderLine> linesToUpdate = new ArrayList<>();
-        List<SalesOrder> ordersToUpdateStatus = new ArrayList<>();
-
-        for (SalesOrderLine line : linesToSendStock) {
-            long qtyToSend = Math.min(line.getQtyBackordered(), qtyDispo);
-            line.setQtyBackordered(line.getQtyBackordered() - qtyToSend);
-            line.setQtyReserved(line.getQtyReserved() + qtyToSend);
+        Set<SalesOrder> ordersToUpdate = new LinkedHashSet<>();
+        long totalQtyAllocated = 0;
+        for (BackorderFill fill : fills) {
+            SalesOrderLine line = fill.line();
+            line.setQtyBackordered(line.getQtyBackordered() - fill.qty());
+            line.setQtyReserved(line.getQtyReserved() + fill.qty());
             linesToUpdate.add(line);
-            qtyDispo = qtyDispo - qtyToSend;
-            ordersToUpdateStatus.add(line.getSalesOrder());
-            if (qtyDispo <= 0)
-                break;
+            totalQtyAllocated += fill.qty();
+
+            SalesOrder order = line.getSalesOrder();
+            order.setQtyBackorderedRemaining(Math.max(0, order.getQtyBackorderedRemaining() - fill.qty()));
+            order.setStatus(orderStatusHelper.determineStatus(order.getQtyBackorderedRemaining() > 0, true));
+            ordersToUpdate.add(order);
         }
-        long totalQtyAllocated = initialQtyDispo - qtyDispo;
         inventory.setQtyReserved(inventory.getQtyReserved() + totalQtyAllocated);
         inventoryRepository.save(inventory);
-        if (!linesToUpdate.isEmpty())
-            salesOrderLineRepository.saveAll(linesToUpdate);
-        Set<SalesOrder> ordersTocheck = new HashSet<>(ordersToUpdateStatus);
-        List<SalesOrder> orderToSave = new ArrayList<>();
-        for (SalesOrder order : ordersTocheck) {
-            boolean isStilPartial = order.getLines().stream().anyMatch(l -> l.getQtyBackordered() > 0);
-            if (!isStilPartial) {
-                order.setStatus(SOStatus.RESERVED);
-                orderToSave.add(order);
-            }
-        }
-        if (!orderToSave.isEmpty())
-            salesOrderRepository.saveAll(orderToSave);
+        availabilityLedger.recordChange(productId, warehouseId, 0, totalQtyAllocated);
+        salesOrderLineRepository.saveAll(linesToUpdate);
+        salesOrderRepository.saveAll(new ArrayList<>(ordersToUpdate));
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.example.stockgestion.services;
 
 import com.example.stockgestion.Dto.request.ShipmentRequestDto;
+import com.example.stockgestion.Dto.request.ShipmentWaveRequestDto;
+import com.example.stockgestion.Dto.response.KeysetPageDto;
 import com.example.stockgestion.Dto.response.ShipmentResponseDto;
+import com.example.stockgestion.Dto.response.ShipmentWaveProgressDto;
 import com.example.stockgestion.exception.BusinessRuleException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.*;
@@ -9,13 +12,30 @@ import com.example.stockgestion.models.enums.MovementType;
 import com.example.stockgestion.models.enums.SOStatus;
 import com.example.stockgestion.models.enums.ShipmentStatus;
 import com.example.stockgestion.repositories.*;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import com.example.stockgestion.services.helpers.KeysetPaging;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
+import com.example.stockgestion.services.helpers.ShipmentSlotAllocator;
+import com.example.stockgestion.services.helpers.ShipmentWavePlanner;
+import com.example.stockgestion.services.helpers.StockKey;
+import com.example.stockgestion.services.helpers.TrackingNumberGenerator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -31,10 +51,14 @@ public class ShipmentService {
     private final SalesOrderRepository salesOrderRepository;
     private final CarrierRepository carrierRepository;
     private final InventoryRepository inventoryRepository;
-    private final InventoryMovmentRepository inventoryMovementRepository;
+    private final InventoryMovementWriter inventoryMovementWriter;
+    private final AvailabilityLedger availabilityLedger;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final ShipmentSlotAllocator shipmentSlotAllocator;
+    private final ShipmentWavePlanner shipmentWavePlanner;
+    private final TrackingNumberGenerator trackingNumberGenerator;
 
     private static final int DEFAULT_CUTOFF_HOUR = 14; // 14h
-    private static final int MAX_SHIPMENTS_PER_SLOT = 10; // Capacité maximale par créneau
 
     /**
      * US10 - Créer une expédition pour une commande RESERVED
@@ -65,10 +89,12 @@ public class ShipmentService {
 
         // 3. Calculer la date de départ planifiée selon le cut-off
         int cutoffHour = request.getCutoffHour() != null ? request.getCutoffHour() : DEFAULT_CUTOFF_HOUR;
-        Instant plannedDepartureDate = calculatePlannedDepartureDate(cutoffHour);
+        LocalDateTime requestedDeparture = ShipmentSlotAllocator.requestedDeparture(LocalDateTime.now(), cutoffHour);
 
-        // 4. Vérifier la capacité du slot d'expédition
-        plannedDepartureDate = checkAndAdjustSlotCapacity(plannedDepartureDate);
+        // 4. Réserver une place au premier créneau libre du transporteur (capacité par transporteur)
+        Instant plannedDepartureDate = shipmentSlotAllocator.book(carrier, requestedDeparture, DEFAULT_CUTOFF_HOUR)
+                .atZone(ZoneId.systemDefault())
+                .toInstant();
 
         // 5. Créer le Shipment avec status PLANNED
         Shipment shipment = new Shipment();
@@ -82,7 +108,7 @@ public class ShipmentService {
         if (request.getTrackingNumber() != null && !request.getTrackingNumber().isBlank()) {
             shipment.setTrackingNumber(request.getTrackingNumber());
         } else {
-            shipment.setTrackingNumber(generateTrackingNumber(carrier));
+            shipment.setTrackingNumber(trackingNumberGenerator.next(carrier));
         }
 
         shipment = shipmentRepository.save(shipment);
@@ -91,6 +117,40 @@ public class ShipmentService {
         return new ShipmentResponseDto(shipment);
     }
 
+    /**
+     * Planification par vague : une expédition PLANNED pour chaque commande RESERVED qui n'en a pas,
+     * avancement renvoyé en NDJSON après chaque lot.
+     * Les transporteurs sont vérifiés avant l'ouverture du flux, pour qu'une erreur garde son statut HTTP.
+     */
+    public StreamingResponseBody planWave(ShipmentWaveRequestDto request) {
+        List<Carrier> carriers;
+        if (request.getCarrierIds() == null || request.getCarrierIds().isEmpty()) {
+            carriers = carrierRepository.findByActiveTrue();
+            if (carriers.isEmpty()) {
+                throw new BusinessRuleException("Aucun transporteur actif pour planifier la vague");
+            }
+        } else {
+            Map<UUID, Carrier> byId = carrierRepository.findAllById(request.getCarrierIds()).stream()
+                    .collect(Collectors.toMap(Carrier::getId, Function.identity()));
+            carriers = new ArrayList<>(request.getCarrierIds().size());
+            for (UUID carrierId : new LinkedHashSet<>(request.getCarrierIds())) {
+                Carrier carrier = byId.get(carrierId);
+                if (carrier == null) {
+                    throw new ResourceNotFoundException("Transporteur non trouvé avec l'ID : " + carrierId);
+                }
+                if (!carrier.isActive()) {
+                    throw new BusinessRuleException("Le transporteur " + carrier.getName() + " n'est pas actif");
+                }
+                carriers.add(carrier);
+            }
+        }
+
+        int cutoffHour = request.getCutoffHour() != null ? request.getCutoffHour() : DEFAULT_CUTOFF_HOUR;
+        LocalDateTime requestedDeparture = ShipmentSlotAllocator.requestedDeparture(LocalDateTime.now(), cutoffHour);
+        return ndjsonStreamer.<ShipmentWaveProgressDto>progress(progress ->
+                shipmentWavePlanner.plan(carriers, requestedDeparture, cutoffHour, DEFAULT_CUTOFF_HOUR, progress));
+    }
+
     /**
      * US11 - Marquer l'expédition comme SHIPPED
      * Critères :
@@ -99,39 +159,85 @@ public class ShipmentService {
      */
     @Transactional
     public ShipmentResponseDto markAsShipped(UUID shipmentId) {
-        // 1. Charger le Shipment
-        Shipment shipment = shipmentRepository.findById(shipmentId)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Expédition non trouvée avec l'ID : " + shipmentId));
+        return shipAll(List.of(shipmentId)).get(0);
+    }
 
-        // 2. Vérifier que le Shipment est PLANNED
-        if (shipment.getStatus() != ShipmentStatus.PLANNED) {
-            throw new BusinessRuleException(
-                    "L'expédition doit être PLANNED pour être marquée comme SHIPPED. Statut actuel : " + shipment.getStatus());
+    /**
+     * US11 - Marquer un lot d'expéditions comme SHIPPED (fermeture d'un camion), toutes ou aucune
+     * Deux lectures pour tout le lot : les expéditions avec commandes et lignes, puis les inventaires
+     * concernés. Les décréments sont appliqués en mémoire puis écrits par lots : mouvements en JDBC,
+     * inventaires par le batching Hibernate.
+     */
+    @Transactional
+    public List<ShipmentResponseDto> shipAll(List<UUID> shipmentIds) {
+        if (new HashSet<>(shipmentIds).size() != shipmentIds.size()) {
+            throw new BusinessRuleException("Une expédition ne peut figurer qu'une fois dans le lot");
         }
 
-        // 3. Vérifier que la commande est RESERVED
-        SalesOrder salesOrder = shipment.getSalesOrder();
-        if (salesOrder.getStatus() != SOStatus.RESERVED) {
-            throw new BusinessRuleException(
-                    "La commande doit être RESERVED. Statut actuel : " + salesOrder.getStatus());
+        // 1. Charger les expéditions et vérifier les statuts
+        Map<UUID, Shipment> loaded = shipmentRepository.findWithLinesByIdIn(shipmentIds).stream()
+                .collect(Collectors.toMap(Shipment::getId, Function.identity()));
+        List<Shipment> shipments = new ArrayList<>(shipmentIds.size());
+        Set<UUID> salesOrderIds = new HashSet<>();
+        Set<UUID> productIds = new HashSet<>();
+        Set<UUID> warehouseIds = new HashSet<>();
+        for (int index = 0; index < shipmentIds.size(); index++) {
+            Shipment shipment = loaded.get(shipmentIds.get(index));
+            if (shipment == null) {
+                throw new ResourceNotFoundException(
+                        "Expédition non trouvée avec l'ID : " + shipmentIds.get(index));
+            }
+            if (shipment.getStatus() != ShipmentStatus.PLANNED) {
+                throw new BusinessRuleException(prefix(shipmentIds, index) +
+                        "L'expédition doit être PLANNED pour être marquée comme SHIPPED. Statut actuel : " + shipment.getStatus());
+            }
+            SalesOrder salesOrder = shipment.getSalesOrder();
+            if (salesOrder.getStatus() != SOStatus.RESERVED) {
+                throw new BusinessRuleException(prefix(shipmentIds, index) +
+                        "La commande doit être RESERVED. Statut actuel : " + salesOrder.getStatus());
+            }
+            // Les statuts sont vérifiés avant toute écriture : une seconde expédition de la même commande
+            // passerait le contrôle puis serait marquée SHIPPED sans rien décrémenter
+            if (!salesOrderIds.add(salesOrder.getId())) {
+                throw new BusinessRuleException(prefix(shipmentIds, index) +
+                        "La commande " + salesOrder.getId() + " est déjà expédiée par une autre expédition du lot");
+            }
+            for (SalesOrderLine line : salesOrder.getLines()) {
+                if (line.getQtyReserved() > 0) {
+                    productIds.add(line.getProduct().getId());
+                    warehouseIds.add(line.getWarehouse().getId());
+                }
+            }
+            shipments.add(shipment);
         }
 
-        // 4. Changer le status du Shipment à SHIPPED
-        shipment.setStatus(ShipmentStatus.SHIPPED);
-        shipment.setActualDepartureDate(Instant.now());
-        shipment.setShippedAt(Instant.now()); // Pour compatibilité
-
-        // 5. Changer le status de la SalesOrder à SHIPPED
-        salesOrder.setStatus(SOStatus.SHIPPED);
+        // 2. Inventaires de tout le lot en une requête
+        Map<StockKey, Inventory> inventories = productIds.isEmpty() ? Map.of() : inventoryRepository
+                .findByProduct_IdInAndWarehouse_IdIn(productIds, warehouseIds).stream()
+                .collect(Collectors.toMap(
+                        inventory -> new StockKey(inventory.getProduct().getId(), inventory.getWarehouse().getId()),
+                        Function.identity(), (first, second) -> first));
+
+        // 3. Statuts SHIPPED, mouvements OUTBOUND et décréments en mémoire
+        Instant now = Instant.now();
+        List<InventoryMovement> movements = new ArrayList<>();
+        Map<StockKey, Long> shipped = new LinkedHashMap<>();
+        for (Shipment shipment : shipments) {
+            shipment.setStatus(ShipmentStatus.SHIPPED);
+            shipment.setActualDepartureDate(now);
+            shipment.setShippedAt(now); // Pour compatibilité
+            shipment.getSalesOrder().setStatus(SOStatus.SHIPPED);
+            createOutboundMovements(shipment, inventories, now, movements, shipped);
+        }
 
-        // 6. Créer les mouvements OUTBOUND et diminuer qtyReserved
-        createOutboundMovements(salesOrder, shipment);
+        // 4. Écritures par lots
+        inventoryRepository.saveAll(shipped.keySet().stream().map(inventories::get).toList());
+        inventoryMovementWriter.append(movements);
+        shipped.forEach((key, qty) -> availabilityLedger.recordChange(key.productId(), key.warehouseId(), -qty, -qty));
+        shipmentRepository.saveAll(shipments);
+        salesOrderRepository.saveAll(shipments.stream().map(Shipment::getSalesOrder).toList());
 
-        shipmentRepository.save(shipment);
-        salesOrderRepository.save(salesOrder);
-
-        return new ShipmentResponseDto(shipment);
+        return shipments.stream().map(ShipmentResponseDto::new).toList();
     }
 
     /**
@@ -167,140 +273,60 @@ public class ShipmentService {
         return new ShipmentResponseDto(shipment);
     }
 
-    /**
-     * Calculer la date de départ planifiée selon le cut-off
-     * - Si avant le cut-off → même jour
-     * - Si après le cut-off → prochain jour ouvré
-     */
-    private Instant calculatePlannedDepartureDate(int cutoffHour) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime plannedDate;
-
-        if (now.getHour() >= cutoffHour) {
-            // Après le cut-off → prochain jour ouvré
-            plannedDate = getNextBusinessDay(now.toLocalDate()).atTime(9, 0);
-        } else {
-            // Avant le cut-off → même jour à l'heure du cut-off
-            plannedDate = now.toLocalDate().atTime(cutoffHour, 0);
-        }
-
-        return plannedDate.atZone(ZoneId.systemDefault()).toInstant();
-    }
-
-    /**
-     * Obtenir le prochain jour ouvré (lundi-vendredi)
-     */
-    private LocalDate getNextBusinessDay(LocalDate date) {
-        LocalDate next = date.plusDays(1);
-
-        // Si c'est samedi (6) ou dimanche (7), aller au lundi
-        while (next.getDayOfWeek() == DayOfWeek.SATURDAY ||
-                next.getDayOfWeek() == DayOfWeek.SUNDAY) {
-            next = next.plusDays(1);
-        }
-
-        return next;
-    }
-
-    /**
-     * Vérifier la capacité du slot d'expédition
-     * Si le slot est plein → replanifier au prochain slot
-     */
-    private Instant checkAndAdjustSlotCapacity(Instant plannedDate) {
-        LocalDate plannedLocalDate = plannedDate.atZone(ZoneId.systemDefault()).toLocalDate();
-        LocalDateTime startOfDay = plannedLocalDate.atStartOfDay();
-        LocalDateTime endOfDay = plannedLocalDate.atTime(23, 59, 59);
-
-        Instant startInstant = startOfDay.atZone(ZoneId.systemDefault()).toInstant();
-        Instant endInstant = endOfDay.atZone(ZoneId.systemDefault()).toInstant();
-
-        // Compter les shipments planifiés pour ce jour
-        long count = shipmentRepository.countByPlannedDepartureDateBetween(startInstant, endInstant);
-
-        if (count >= MAX_SHIPMENTS_PER_SLOT) {
-            // Slot plein → replanifier au prochain jour ouvré
-            LocalDate nextDay = getNextBusinessDay(plannedLocalDate);
-            return nextDay.atTime(DEFAULT_CUTOFF_HOUR, 0)
-                    .atZone(ZoneId.systemDefault())
-                    .toInstant();
-        }
-
-        return plannedDate;
-    }
-
     /**
      * Créer les mouvements OUTBOUND et diminuer qtyReserved
+     * - Diminuer qtyReserved
+     * - Diminuer qtyOnHand (le stock quitte physiquement l'entrepôt)
      */
-    private void createOutboundMovements(SalesOrder salesOrder, Shipment shipment) {
-        for (SalesOrderLine line : salesOrder.getLines()) {
-            if (line.getQtyReserved() <= 0) {
+    private void createOutboundMovements(Shipment shipment, Map<StockKey, Inventory> inventories, Instant now,
+                                         List<InventoryMovement> movements, Map<StockKey, Long> shipped) {
+        for (SalesOrderLine line : shipment.getSalesOrder().getLines()) {
+            long qty = line.getQtyReserved();
+            if (qty <= 0) {
                 continue; // Pas de quantité réservée à expédier
             }
 
+            StockKey key = new StockKey(line.getProduct().getId(), line.getWarehouse().getId());
+            Inventory inventory = inventories.get(key);
+            if (inventory == null) {
+                throw new ResourceNotFoundException(
+                        "Inventaire non trouvé pour produit " + line.getProduct().getSku() +
+                                " dans l'entrepôt " + line.getWarehouse().getCode());
+            }
+
+            // Diminuer qtyReserved
+            long newQtyReserved = inventory.getQtyReserved() - qty;
+            if (newQtyReserved < 0) {
+                throw new BusinessRuleException(
+                        "Quantité réservée insuffisante pour " + line.getProduct().getSku());
+            }
+            // Diminuer qtyOnHand (stock physique qui quitte l'entrepôt)
+            long newQtyOnHand = inventory.getQtyOnHand() - qty;
+            if (newQtyOnHand < 0) {
+                throw new BusinessRuleException(
+                        "Quantité physique insuffisante pour " + line.getProduct().getSku());
+            }
+            inventory.setQtyReserved(newQtyReserved);
+            inventory.setQtyOnHand(newQtyOnHand);
+            shipped.merge(key, qty, Long::sum);
+
             // Créer le mouvement OUTBOUND
             InventoryMovement movement = new InventoryMovement();
             movement.setType(MovementType.OUTBOUND);
             movement.setProduct(line.getProduct());
             movement.setWarehouse(line.getWarehouse());
-            movement.setQuantity(line.getQtyReserved());
-            movement.setOccurredAt(Instant.now());
+            movement.setQuantity(qty);
+            movement.setOccurredAt(now);
             movement.setReferenceDoc("SHIPMENT-" + shipment.getId());
+            movements.add(movement);
 
-            inventoryMovementRepository.save(movement);
-
-            // Mettre à jour l'inventaire
-            updateInventoryAfterShipment(line);
+            // Remettre qtyReserved de la ligne à 0 (expédié)
+            line.setQtyReserved(0);
         }
     }
 
-    /**
-     * Mettre à jour l'inventaire après expédition
-     * - Diminuer qtyReserved
-     * - Diminuer qtyOnHand (le stock quitte physiquement l'entrepôt)
-     */
-    private void updateInventoryAfterShipment(SalesOrderLine line) {
-        List<Inventory> inventories = inventoryRepository
-                .findByProduct_IdAndWarehouse_Id(line.getProduct().getId(), line.getWarehouse().getId());
-        
-        if (inventories.isEmpty()) {
-            throw new ResourceNotFoundException(
-                    "Inventaire non trouvé pour produit " + line.getProduct().getSku() +
-                            " dans l'entrepôt " + line.getWarehouse().getCode());
-        }
-        
-        Inventory inventory = inventories.get(0);
-
-        // Diminuer qtyReserved
-        long newQtyReserved = inventory.getQtyReserved() - line.getQtyReserved();
-        if (newQtyReserved < 0) {
-            throw new BusinessRuleException(
-                    "Quantité réservée insuffisante pour " + line.getProduct().getSku());
-        }
-        inventory.setQtyReserved(newQtyReserved);
-
-        // Diminuer qtyOnHand (stock physique qui quitte l'entrepôt)
-        long newQtyOnHand = inventory.getQtyOnHand() - line.getQtyReserved();
-        if (newQtyOnHand < 0) {
-            throw new BusinessRuleException(
-                    "Quantité physique insuffisante pour " + line.getProduct().getSku());
-        }
-        inventory.setQtyOnHand(newQtyOnHand);
-
-        // qtyAvailable = qtyOnHand - qtyReserved (calculé au runtime si nécessaire)
-
-        inventoryRepository.save(inventory);
-
-        // Remettre qtyReserved de la ligne à 0 (expédié)
-        line.setQtyReserved(0);
-    }
-
-    /**
-     * Générer un numéro de suivi unique
-     */
-    private String generateTrackingNumber(Carrier carrier) {
-        String prefix = carrier.getName().substring(0, Math.min(3, carrier.getName().length())).toUpperCase();
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        return prefix + "-" + timestamp.substring(timestamp.length() - 8);
+    private static String prefix(List<UUID> shipmentIds, int index) {
+        return shipmentIds.size() > 1 ? "Expédition " + index + " : " : "";
     }
 
     // ===== Méthodes de consultation =====
@@ -311,6 +337,17 @@ public class ShipmentService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public KeysetPageDto<ShipmentResponseDto> findPage(UUID after, Integer limit) {
+        Limit pageLimit = KeysetPaging.limit(limit);
+        List<Shipment> rows = shipmentRepository.findByIdGreaterThanOrderByIdAsc(KeysetPaging.after(after), pageLimit);
+        return KeysetPaging.page(rows, pageLimit, Shipment::getId, ShipmentResponseDto::new);
+    }
+
+    public StreamingResponseBody streamAll() {
+        return ndjsonStreamer.stream(shipmentRepository::streamAll, ShipmentResponseDto::new);
+    }
+
     public ShipmentResponseDto findById(UUID id) {
         Shipment shipment = shipmentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(
@@ -0,0 +1,48 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.response.StockAtResponseDto;
+import com.example.stockgestion.exception.ResourceNotFoundException;
+import com.example.stockgestion.repositories.InventoryMovmentRepository;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.repositories.StockSnapshotRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.repositories.projections.StockCheckpoint;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Stock physique à une date passée : dernier point de reprise avant la date, plus la variation
+ * des seuls mouvements qui le suivent (au plus une journée avec les points quotidiens).
+ */
+@Service
+@AllArgsConstructor
+public class StockHistoryService {
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final InventoryMovmentRepository inventoryMovmentRepository;
+    private final ProductRepository productRepository;
+    private final WareHouseRepository wareHouseRepository;
+
+    @Transactional(readOnly = true)
+    public StockAtResponseDto getOnHandAt(UUID productId, UUID warehouseId, Instant at) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product", "id", productId);
+        }
+        if (!wareHouseRepository.existsById(warehouseId)) {
+            throw new ResourceNotFoundException("WareHouse", "id", warehouseId);
+        }
+        Instant instant = at != null ? at : Instant.now();
+
+        Optional<StockCheckpoint> checkpoint = stockSnapshotRepository.findLatestBefore(productId, warehouseId, instant);
+        Instant from = checkpoint.map(StockCheckpoint::takenAt).orElse(Instant.EPOCH);
+        long base = checkpoint.map(StockCheckpoint::qtyOnHand).orElse(0L);
+        long delta = inventoryMovmentRepository.sumDelta(productId, warehouseId, from, instant);
+
+        return new StockAtResponseDto(productId, warehouseId, instant, base + delta,
+                checkpoint.map(StockCheckpoint::takenAt).orElse(null));
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.request.TransferRequestDto;
+import com.example.stockgestion.Dto.response.TransferResponseDto;
+import com.example.stockgestion.events.StockReceivedEvent;
+import com.example.stockgestion.exception.BusinessRuleException;
+import com.example.stockgestion.exception.ResourceNotFoundException;
+import com.example.stockgestion.models.Inventory;
+import com.example.stockgestion.models.InventoryMovement;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.MovementType;
+import com.example.stockgestion.repositories.InventoryRepository;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import com.example.stockgestion.services.helpers.StockKey;
+import com.example.stockgestion.services.helpers.UuidV7;
+import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transferts de stock entre entrepôts.
+ *
+ * La sortie de l'entrepôt source et l'entrée dans l'entrepôt destination sont écrites dans la même
+ * transaction, sous verrou des deux lignes d'inventaire : le stock n'est jamais compté deux fois ni perdu
+ * entre les deux. Les lignes sont verrouillées dans l'ordre StockKey.LOCK_ORDER, comme les réservations
+ * par lot, pour que deux transferts croisés entre les mêmes entrepôts s'attendent au lieu de s'interbloquer.
+ */
+@Service
+@AllArgsConstructor
+public class TransferService {
+    private final InventoryRepository inventoryRepository;
+    private final ProductRepository productRepository;
+    private final WareHouseRepository wareHouseRepository;
+    private final InventoryMovementWriter inventoryMovementWriter;
+    private final AvailabilityLedger availabilityLedger;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public TransferResponseDto transfer(TransferRequestDto dto) {
+        return transferAll(List.of(dto)).get(0);
+    }
+
+    /**
+     * Applique les transferts dans l'ordre reçu, tous ou aucun
+     */
+    @Transactional
+    public List<TransferResponseDto> transferAll(List<TransferRequestDto> requests) {
+        Set<UUID> productIds = new HashSet<>();
+        Set<UUID> warehouseIds = new HashSet<>();
+        for (int index = 0; index < requests.size(); index++) {
+            TransferRequestDto request = requests.get(index);
+            if (request.getFromWarehouseId().equals(request.getToWarehouseId())) {
+                throw new BusinessRuleException(prefix(requests, index)
+                        + "L'entrepôt source et l'entrepôt destination doivent être différents");
+            }
+            productIds.add(request.getProductId());
+            warehouseIds.add(request.getFromWarehouseId());
+            warehouseIds.add(request.getToWarehouseId());
+        }
+        Map<UUID, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        Map<UUID, WareHouse> warehouses = wareHouseRepository.findAllById(warehouseIds).stream()
+                .collect(Collectors.toMap(WareHouse::getId, Function.identity()));
+        productIds.stream().filter(id -> !products.containsKey(id)).findFirst().ifPresent(id -> {
+            throw new ResourceNotFoundException("Product", "id", id);
+        });
+        warehouseIds.stream().filter(id -> !warehouses.containsKey(id)).findFirst().ifPresent(id -> {
+            throw new ResourceNotFoundException("WareHouse", "id", id);
+        });
+
+        Map<StockKey, Inventory> inventories = lockInventories(requests);
+        Map<StockKey, Long> onHandDeltas = new LinkedHashMap<>();
+        Map<StockKey, Long> receivedByDestination = new LinkedHashMap<>();
+        List<InventoryMovement> movements = new ArrayList<>(requests.size() * 2);
+        Instant now = Instant.now();
+
+        for (int index = 0; index < requests.size(); index++) {
+            TransferRequestDto request = requests.get(index);
+            Product product = products.get(request.getProductId());
+            StockKey from = new StockKey(request.getProductId(), request.getFromWarehouseId());
+            StockKey to = new StockKey(request.getProductId(), request.getToWarehouseId());
+            long qty = request.getQuantity();
+
+            // Le stock réservé reste dans l'entrepôt source : seul le disponible peut partir
+            Inventory source = inventories.get(from);
+            long available = source != null ? source.getQtyOnHand() - source.getQtyReserved() : 0;
+            if (available < qty) {
+                throw new BusinessRuleException(prefix(requests, index)
+                        + "Stock insuffisant pour transfert: demandé=" + qty + ", disponible=" + available);
+            }
+            Inventory destination = inventories.computeIfAbsent(to, key -> Inventory.builder()
+                    .product(product)
+                    .warehouse(warehouses.get(key.warehouseId()))
+                    .qtyOnHand(0)
+                    .qtyReserved(0)
+                    .build());
+            source.setQtyOnHand(source.getQtyOnHand() - qty);
+            destination.setQtyOnHand(destination.getQtyOnHand() + qty);
+            onHandDeltas.merge(from, -qty, Long::sum);
+            onHandDeltas.merge(to, qty, Long::sum);
+            receivedByDestination.merge(to, qty, Long::sum);
+
+            String reference = request.getReferenceDoc() != null ? request.getReferenceDoc() : "TRANSFER-" + UuidV7.next();
+            movements.add(movement(product, warehouses.get(from.warehouseId()), MovementType.OUTBOUND, qty, now, reference));
+            movements.add(movement(product, warehouses.get(to.warehouseId()), MovementType.INBOUND, qty, now, reference));
+        }
+
+        inventoryRepository.saveAll(new ArrayList<>(inventories.values()));
+        inventoryMovementWriter.append(movements);
+        onHandDeltas.forEach((key, delta) -> availabilityLedger.recordChange(key.productId(), key.warehouseId(), delta, 0));
+        // Traité après commit : sert les backorders en attente sur l'entrepôt destination
+        receivedByDestination.forEach((key, qty) ->
+                eventPublisher.publishEvent(new StockReceivedEvent(key.productId(), key.warehouseId(), qty)));
+
+        List<TransferResponseDto> responses = new ArrayList<>(requests.size());
+        for (int index = 0; index < requests.size(); index++) {
+            TransferRequestDto request = requests.get(index);
+            InventoryMovement outbound = movements.get(2 * index);
+            InventoryMovement inbound = movements.get(2 * index + 1);
+            responses.add(new TransferResponseDto(request.getProductId(), request.getFromWarehouseId(),
+                    request.getToWarehouseId(), request.getQuantity(), outbound.getReferenceDoc(),
+                    outbound.getOccurredAt(), outbound.getId(), inbound.getId()));
+        }
+        return responses;
+    }
+
+    // Une requête FOR UPDATE par couple, dans l'ordre global de verrouillage
+    private Map<StockKey, Inventory> lockInventories(List<TransferRequestDto> requests) {
+        Set<StockKey> keys = new TreeSet<>(StockKey.LOCK_ORDER);
+        for (TransferRequestDto request : requests) {
+            keys.add(new StockKey(request.getProductId(), request.getFromWarehouseId()));
+            keys.add(new StockKey(request.getProductId(), request.getToWarehouseId()));
+        }
+        Map<StockKey, Inventory> inventories = new HashMap<>();
+        for (StockKey key : keys) {
+            inventoryRepository.findForUpdate(key.productId(), key.warehouseId())
+                    .ifPresent(inventory -> inventories.put(key, inventory));
+        }
+        return inventories;
+    }
+
+    private static InventoryMovement movement(Product product, WareHouse warehouse, MovementType type, long qty,
+                                              Instant occurredAt, String reference) {
+        InventoryMovement movement = new InventoryMovement();
+        movement.setProduct(product);
+        movement.setWarehouse(warehouse);
+        movement.setType(type);
+        movement.setQuantity(qty);
+        movement.setOccurredAt(occurredAt);
+        movement.setReferenceDoc(reference);
+        return movement;
+    }
+
+    private static String prefix(List<TransferRequestDto> requests, int index) {
+        return requests.size() > 1 ? "Transfert " + index + " : " : "";
+    }
+}
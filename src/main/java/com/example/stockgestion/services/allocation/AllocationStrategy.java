@@ -0,0 +1,25 @@
+package com.example.stockgestion.services.allocation;
+
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.enums.AllocationStrategyType;
+import com.example.stockgestion.services.helpers.WarehouseAvailability;
+
+import java.util.List;
+
+/**
+ * SPI d'allocation multi-entrepôts : une stratégie ordonne les entrepôts candidats,
+ * la réservation les consomme ensuite dans cet ordre jusqu'à couvrir la quantité demandée.
+ * Toute implémentation déclarée comme bean Spring est sélectionnable via son type.
+ */
+public interface AllocationStrategy {
+
+    AllocationStrategyType type();
+
+    /**
+     * @param candidates entrepôts du produit, triés par disponible décroissant
+     * @param requestedQty quantité de la ligne
+     * @param client client de la commande (peut porter des préférences)
+     * @return les entrepôts dans l'ordre où les consommer ; le premier sert aussi d'entrepôt de backorder
+     */
+    List<WarehouseAvailability> rank(List<WarehouseAvailability> candidates, long requestedQty, Client client);
+}
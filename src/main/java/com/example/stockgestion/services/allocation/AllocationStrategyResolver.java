@@ -0,0 +1,37 @@
+package com.example.stockgestion.services.allocation;
+
+import com.example.stockgestion.exception.BusinessRuleException;
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.enums.AllocationStrategyType;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Choisit la stratégie d'une commande : celle de la requête, sinon celle du client, sinon GREEDY
+ */
+@Component
+public class AllocationStrategyResolver {
+    private final Map<AllocationStrategyType, AllocationStrategy> strategies = new EnumMap<>(AllocationStrategyType.class);
+
+    public AllocationStrategyResolver(List<AllocationStrategy> strategies) {
+        strategies.forEach(strategy -> this.strategies.put(strategy.type(), strategy));
+    }
+
+    public AllocationStrategy resolve(AllocationStrategyType requested, Client client) {
+        AllocationStrategyType type = requested;
+        if (type == null && client != null) {
+            type = client.getAllocationStrategy();
+        }
+        if (type == null) {
+            type = AllocationStrategyType.GREEDY;
+        }
+        AllocationStrategy strategy = strategies.get(type);
+        if (strategy == null) {
+            throw new BusinessRuleException("Stratégie d'allocation non disponible : " + type);
+        }
+        return strategy;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.stockgestion.services.allocation;
+
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.enums.AllocationStrategyType;
+import com.example.stockgestion.services.helpers.WarehouseAvailability;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Entrepôts préférés du client d'abord (dans l'ordre de sa liste de priorité),
+ * puis les autres par disponible décroissant. Sans préférence, équivaut à GREEDY.
+ */
+@Component
+public class ClientProximityAllocationStrategy implements AllocationStrategy {
+
+    @Override
+    public AllocationStrategyType type() {
+        return AllocationStrategyType.CLIENT_PROXIMITY;
+    }
+
+    @Override
+    public List<WarehouseAvailability> rank(List<WarehouseAvailability> candidates, long requestedQty, Client client) {
+        List<UUID> priority = client != null ? client.getWarehousePriority() : null;
+        if (priority == null || priority.isEmpty()) {
+            return candidates;
+        }
+
+        // Une seule passe sur les candidats ; la table ne contient que les entrepôts préférés
+        Map<UUID, Integer> rankByWarehouse = new HashMap<>(priority.size() * 2);
+        for (int i = 0; i < priority.size(); i++) {
+            rankByWarehouse.putIfAbsent(priority.get(i), i);
+        }
+        WarehouseAvailability[] preferred = new WarehouseAvailability[priority.size()];
+        List<WarehouseAvailability> others = new ArrayList<>(candidates.size());
+        for (WarehouseAvailability candidate : candidates) {
+            Integer rank = rankByWarehouse.get(candidate.warehouseId());
+            if (rank != null) {
+                preferred[rank] = candidate;
+            } else {
+                others.add(candidate);
+            }
+        }
+
+        List<WarehouseAvailability> ranked = new ArrayList<>(candidates.size());
+        for (WarehouseAvailability candidate : preferred) {
+            if (candidate != null) {
+                ranked.add(candidate);
+            }
+        }
+        ranked.addAll(others);
+        return ranked;
+    }
+}
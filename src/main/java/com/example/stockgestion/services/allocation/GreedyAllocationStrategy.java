@@ -0,0 +1,25 @@
+package com.example.stockgestion.services.allocation;
+
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.enums.AllocationStrategyType;
+import com.example.stockgestion.services.helpers.WarehouseAvailability;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Le plus disponible d'abord : les candidats arrivent déjà dans cet ordre
+ */
+@Component
+public class GreedyAllocationStrategy implements AllocationStrategy {
+
+    @Override
+    public AllocationStrategyType type() {
+        return AllocationStrategyType.GREEDY;
+    }
+
+    @Override
+    public List<WarehouseAvailability> rank(List<WarehouseAvailability> candidates, long requestedQty, Client client) {
+        return candidates;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.stockgestion.services.allocation;
+
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.enums.AllocationStrategyType;
+import com.example.stockgestion.services.helpers.WarehouseAvailability;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimise le nombre de lignes (donc de mouvements de sortie) :
+ * à chaque étape, le plus petit entrepôt qui couvre tout le reste ; à défaut, le plus gros.
+ * Prendre le plus gros tant que rien ne couvre donne le nombre minimal d'entrepôts,
+ * et finir par le plus petit qui suffit évite d'entamer inutilement les gros stocks.
+ */
+@Component
+public class MinSplitAllocationStrategy implements AllocationStrategy {
+
+    @Override
+    public AllocationStrategyType type() {
+        return AllocationStrategyType.MIN_SPLIT;
+    }
+
+    @Override
+    public List<WarehouseAvailability> rank(List<WarehouseAvailability> candidates, long requestedQty, Client client) {
+        // candidates est trié par disponible décroissant : le plus gros restant est toujours en tête
+        List<WarehouseAvailability> remaining = new ArrayList<>(candidates);
+        List<WarehouseAvailability> ranked = new ArrayList<>(candidates.size());
+        long remainingQty = requestedQty;
+
+        while (remainingQty > 0 && !remaining.isEmpty() && remaining.get(0).available() > 0) {
+            int pick = bestFitIndex(remaining, remainingQty);
+            WarehouseAvailability chosen = remaining.remove(pick);
+            ranked.add(chosen);
+            remainingQty -= chosen.available();
+        }
+        ranked.addAll(remaining);
+        return ranked;
+    }
+
+    // Dernier index (donc plus petit disponible) qui couvre qty, sinon 0 (le plus gros)
+    private int bestFitIndex(List<WarehouseAvailability> sortedDesc, long qty) {
+        int low = 0;
+        int high = sortedDesc.size() - 1;
+        int best = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sortedDesc.get(mid).available() >= qty) {
+                best = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return best;
+    }
+}
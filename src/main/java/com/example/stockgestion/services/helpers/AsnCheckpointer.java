@@ -0,0 +1,222 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.events.StockReceivedEvent;
+import com.example.stockgestion.models.AdvanceShippingNotice;
+import com.example.stockgestion.models.AdvanceShippingNoticeLine;
+import com.example.stockgestion.models.Inventory;
+import com.example.stockgestion.models.InventoryMovement;
+import com.example.stockgestion.models.PurchaseOrder;
+import com.example.stockgestion.models.PurchaseOrderLine;
+import com.example.stockgestion.models.enums.ASNStatus;
+import com.example.stockgestion.models.enums.MovementType;
+import com.example.stockgestion.models.enums.POStatus;
+import com.example.stockgestion.repositories.AdvanceShippingNoticeRepository;
+import com.example.stockgestion.repositories.InventoryRepository;
+import com.example.stockgestion.repositories.PurchaseOrderLineRepository;
+import com.example.stockgestion.repositories.PurchaseOrderRepository;
+import com.example.stockgestion.repositories.ReceivingScanRepository;
+import com.example.stockgestion.repositories.projections.PendingReceipt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Report périodique des scans de réception en base (points de reprise).
+ *
+ * Le tampon est vidé d'un coup puis reporté dans une seule transaction : pour chaque couple (avis, produit),
+ * une mise à jour de la ligne d'avis, de la ligne de commande et de l'inventaire et un mouvement INBOUND,
+ * quel que soit le nombre de scans. Les scans reportés sont marqués dans le journal dans la même transaction ;
+ * si elle échoue, les quantités retournent dans le tampon pour le report suivant.
+ */
+@Component
+public class AsnCheckpointer implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(AsnCheckpointer.class);
+
+    static final String MARK_SQL = "UPDATE receiving_scans SET checkpointed = true WHERE checkpointed = false AND id < ?";
+
+    private final ReceivingScanBuffer buffer;
+    private final ReceivingScanRepository receivingScanRepository;
+    private final AdvanceShippingNoticeRepository asnRepository;
+    private final PurchaseOrderRepository purchaseOrderRepository;
+    private final PurchaseOrderLineRepository purchaseOrderLineRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryMovementWriter inventoryMovementWriter;
+    private final AvailabilityLedger availabilityLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+
+    public AsnCheckpointer(ReceivingScanBuffer buffer, ReceivingScanRepository receivingScanRepository,
+                           AdvanceShippingNoticeRepository asnRepository, PurchaseOrderRepository purchaseOrderRepository,
+                           PurchaseOrderLineRepository purchaseOrderLineRepository, InventoryRepository inventoryRepository,
+                           InventoryMovementWriter inventoryMovementWriter, AvailabilityLedger availabilityLedger,
+                           ApplicationEventPublisher eventPublisher, JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager) {
+        this.buffer = buffer;
+        this.receivingScanRepository = receivingScanRepository;
+        this.asnRepository = asnRepository;
+        this.purchaseOrderRepository = purchaseOrderRepository;
+        this.purchaseOrderLineRepository = purchaseOrderLineRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryMovementWriter = inventoryMovementWriter;
+        this.availabilityLedger = availabilityLedger;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    // Avant le démarrage du serveur web et des reports planifiés : aucun scan ne peut arriver pendant le rejeu
+    @Override
+    public void afterSingletonsInstantiated() {
+        recover();
+    }
+
+    /**
+     * Rejoue les scans journalisés mais pas encore reportés (arrêt de l'instance entre deux reports).
+     * Le tampon est remplacé par le journal, et le rejeu est sérialisé avec les reports.
+     */
+    public synchronized void recover() {
+        List<PendingReceipt> receipts = buffer.reload(receivingScanRepository::sumPending);
+        if (!receipts.isEmpty()) {
+            log.info("Réception sur avis : {} couples avis/produit en attente de report rejoués", receipts.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${receiving.asn.checkpoint-interval:5000}")
+    public void scheduledCheckpoint() {
+        checkpoint();
+    }
+
+    /**
+     * Reporte en base tous les scans en attente ; les reports sont sérialisés
+     *
+     * @return le nombre de couples (avis, produit) reportés
+     */
+    public synchronized int checkpoint() {
+        ScanDrain drain = buffer.drain();
+        if (drain.isEmpty()) {
+            return 0;
+        }
+        try {
+            transaction.executeWithoutResult(status -> apply(drain));
+        } catch (RuntimeException e) {
+            buffer.restore(drain.received());
+            throw e;
+        }
+        log.debug("Réception sur avis : {} couples avis/produit reportés", drain.received().size());
+        return drain.received().size();
+    }
+
+    private void apply(ScanDrain drain) {
+        Set<UUID> asnIds = new HashSet<>();
+        drain.received().keySet().forEach(key -> asnIds.add(key.asnId()));
+        Map<UUID, AdvanceShippingNotice> asns = asnRepository.findWithLinesByIdIn(asnIds).stream()
+                .filter(asn -> asn.getStatus() == ASNStatus.OPEN)
+                .collect(Collectors.toMap(AdvanceShippingNotice::getId, Function.identity()));
+
+        // Scan validé avant la clôture mais journalisé après son report : l'avis est clôturé, rien n'est reporté
+        Map<ScanKey, Long> received = new LinkedHashMap<>();
+        Set<UUID> productIds = new HashSet<>();
+        drain.received().forEach((key, qty) -> {
+            if (asns.containsKey(key.asnId())) {
+                received.put(key, qty);
+                productIds.add(key.productId());
+            } else {
+                log.warn("Réception sur avis : {} unités du produit {} scannées après la clôture de l'avis {}, ignorées",
+                        qty, key.productId(), key.asnId());
+            }
+        });
+        if (received.isEmpty()) {
+            jdbcTemplate.update(MARK_SQL, drain.watermark());
+            return;
+        }
+        Map<UUID, PurchaseOrder> purchaseOrders = new HashMap<>();
+        Set<UUID> warehouseIds = new HashSet<>();
+        asns.values().forEach(asn -> {
+            purchaseOrders.put(asn.getPurchaseOrder().getId(), asn.getPurchaseOrder());
+            warehouseIds.add(asn.getWarehouse().getId());
+        });
+
+        // Lignes de commande par bon de commande puis par produit ; toutes chargées pour recalculer le statut
+        Map<UUID, Map<UUID, PurchaseOrderLine>> poLines = new HashMap<>();
+        purchaseOrderLineRepository.findByPurchaseOrder_IdIn(purchaseOrders.keySet()).forEach(line ->
+                poLines.computeIfAbsent(line.getPurchaseOrder().getId(), id -> new HashMap<>())
+                        .putIfAbsent(line.getProduct().getId(), line));
+        Map<StockKey, Inventory> inventories = new HashMap<>();
+        inventoryRepository.findByProduct_IdInAndWarehouse_IdIn(productIds, warehouseIds).forEach(inventory ->
+                inventories.put(new StockKey(inventory.getProduct().getId(), inventory.getWarehouse().getId()), inventory));
+
+        Instant now = Instant.now();
+        List<PurchaseOrderLine> poLinesToUpdate = new ArrayList<>(received.size());
+        List<InventoryMovement> movements = new ArrayList<>(received.size());
+        Map<StockKey, Long> receivedByStock = new LinkedHashMap<>();
+        received.forEach((key, qty) -> {
+            AdvanceShippingNotice asn = asns.get(key.asnId());
+            AdvanceShippingNoticeLine asnLine = asn.getLines().stream()
+                    .filter(line -> line.getProduct().getId().equals(key.productId()))
+                    .findFirst()
+                    .orElseThrow();
+            asnLine.setQtyReceived(asnLine.getQtyReceived() + qty);
+
+            PurchaseOrderLine poLine = poLines.get(asn.getPurchaseOrder().getId()).get(key.productId());
+            poLine.setQtyReceived(poLine.getQtyReceived() + qty);
+            poLinesToUpdate.add(poLine);
+
+            StockKey stockKey = new StockKey(key.productId(), asn.getWarehouse().getId());
+            Inventory inventory = inventories.computeIfAbsent(stockKey, k -> Inventory.builder()
+                    .product(asnLine.getProduct())
+                    .warehouse(asn.getWarehouse())
+                    .qtyOnHand(0)
+                    .qtyReserved(0)
+                    .build());
+            inventory.setQtyOnHand(inventory.getQtyOnHand() + qty);
+            receivedByStock.merge(stockKey, qty, Long::sum);
+
+            InventoryMovement movement = new InventoryMovement();
+            movement.setProduct(asnLine.getProduct());
+            movement.setWarehouse(asn.getWarehouse());
+            movement.setType(MovementType.INBOUND);
+            movement.setQuantity(qty);
+            movement.setOccurredAt(now);
+            movement.setReferenceDoc("ASN-" + asn.getReference());
+            movements.add(movement);
+        });
+
+        purchaseOrders.forEach((id, purchaseOrder) -> {
+            boolean allLinesCompleted = poLines.getOrDefault(id, Map.of()).values().stream()
+                    .allMatch(line -> line.getQtyReceived() >= line.getQuantity());
+            purchaseOrder.setStatus(allLinesCompleted ? POStatus.RECEIVED : POStatus.PARTIALLY_RECEIVED);
+        });
+
+        // Les lignes d'avis suivent leur avis (cascade)
+        asnRepository.saveAll(asns.values());
+        purchaseOrderLineRepository.saveAll(poLinesToUpdate);
+        inventoryRepository.saveAll(new ArrayList<>(inventories.values()));
+        purchaseOrderRepository.saveAll(purchaseOrders.values());
+        inventoryMovementWriter.append(movements);
+        jdbcTemplate.update(MARK_SQL, drain.watermark());
+        // Un événement par couple produit/entrepôt, traité après commit (BackorderFulfilmentDispatcher)
+        receivedByStock.forEach((key, qty) -> {
+            availabilityLedger.recordChange(key.productId(), key.warehouseId(), qty, 0);
+            eventPublisher.publishEvent(new StockReceivedEvent(key.productId(), key.warehouseId(), qty));
+        });
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.repositories.InventoryRepository;
+import com.example.stockgestion.repositories.projections.StockLevel;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ledger en mémoire des compteurs qtyOnHand / qtyReserved par couple (produit, entrepôt).
+ *
+ * Chargé au démarrage puis tenu à jour en write-through par les services qui écrivent l'inventaire.
+ * La réservation décide l'allocation ici (CAS sans verrou, un compteur par couple) et n'envoie
+ * à la base que les deltas retenus ; l'UPDATE conditionnel reste l'arbitre final.
+ *
+ * Les variations de stock sont appliquées après commit pour ne jamais exposer une entrée non validée ;
+ * une réservation est prise immédiatement (pour départager les créateurs concurrents) dans un compteur de prises
+ * en cours, reportée sur qtyReserved au commit et rendue en cas de rollback. Une resynchronisation ne réécrit que
+ * l'état validé, sans toucher aux prises en cours.
+ */
+@Component
+@RequiredArgsConstructor
+public class AvailabilityLedger implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityLedger.class);
+
+    private final InventoryRepository inventoryRepository;
+    private final ConcurrentHashMap<UUID, ProductStock> stocks = new ConcurrentHashMap<>();
+
+    // Avant le démarrage du serveur web : aucune réservation ne peut prendre dans un ledger encore vide
+    @Override
+    public void afterSingletonsInstantiated() {
+        loadAll();
+    }
+
+    /**
+     * Charge l'état validé de tout l'inventaire. Les slots existants sont réécrits en place par set() :
+     * les prises en cours restent comptées et seront reportées ou rendues sur le même slot.
+     */
+    public void loadAll() {
+        List<StockLevel> levels = inventoryRepository.findAllStockLevels();
+        for (StockLevel level : levels) {
+            stocks.computeIfAbsent(level.productId(), id -> new ProductStock()).set(level);
+        }
+        log.info("Ledger de disponibilité chargé : {} lignes d'inventaire, {} produits", levels.size(), stocks.size());
+    }
+
+    /**
+     * Charge en une seule requête les produits encore absents du ledger (intake par lot)
+     */
+    public void preload(Collection<UUID> productIds) {
+        Map<UUID, ProductStock> missing = new HashMap<>();
+        for (UUID productId : productIds) {
+            if (!stocks.containsKey(productId)) {
+                missing.put(productId, new ProductStock());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (StockLevel level : inventoryRepository.findStockLevelsByProductIdIn(missing.keySet())) {
+            missing.get(level.productId()).set(level);
+        }
+        missing.forEach(stocks::putIfAbsent);
+    }
+
+    public long available(UUID productId, UUID warehouseId) {
+        Slot slot = slot(productId, warehouseId);
+        return slot != null ? slot.available() : 0;
+    }
+
+    /**
+     * Entrepôts du produit triés par disponible décroissant
+     */
+    public List<WarehouseAvailability> availabilities(UUID productId) {
+        Slot[] slots = stock(productId).slots;
+        List<WarehouseAvailability> result = new ArrayList<>(slots.length);
+        for (Slot slot : slots) {
+            refreshIfStale(productId, slot);
+            result.add(new WarehouseAvailability(slot.warehouseId, slot.available()));
+        }
+        result.sort(Comparator.comparingLong(WarehouseAvailability::available).reversed());
+        return result;
+    }
+
+    /**
+     * Prend qty unités dans le ledger si le disponible le permet. N'écrit rien en base.
+     * La prise reste en cours jusqu'à settleOnCompletion ou cancelReservation.
+     */
+    public boolean tryReserve(UUID productId, UUID warehouseId, long qty) {
+        Slot slot = slot(productId, warehouseId);
+        if (slot == null) {
+            return false;
+        }
+        // taken ne fait que croître : le CAS échoue dès qu'une autre prise passe entre la lecture et l'écriture.
+        // released est lu avant reserved, qu'un report augmente en premier : une prise reportée reste comptée
+        while (true) {
+            long taken = slot.taken.get();
+            long held = taken - slot.released.get();
+            if (slot.onHand.get() - slot.reserved.get() - held < qty) {
+                return false;
+            }
+            if (slot.taken.compareAndSet(taken, taken + qty)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Annule immédiatement une prise en cours faite par tryReserve (la base a refusé le delta)
+     */
+    public void cancelReservation(UUID productId, UUID warehouseId, long qty) {
+        Slot slot = held(productId, warehouseId);
+        if (slot != null) {
+            slot.released.addAndGet(qty);
+        }
+    }
+
+    /**
+     * La réservation a été écrite en base : la reporter sur qtyReserved au commit, la rendre au rollback.
+     * Hors transaction, l'écriture est déjà validée et la prise est reportée tout de suite.
+     */
+    public void settleOnCompletion(UUID productId, UUID warehouseId, long qty) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            settle(productId, warehouseId, qty, true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                settle(productId, warehouseId, qty, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    /**
+     * La base a refusé une prise déjà protégée par settleOnCompletion et la transaction va être annulée :
+     * le rollback la rendra. Hors transaction, la prise a déjà été reportée et elle est retirée tout de suite.
+     */
+    public void cancelUnlessRolledBack(UUID productId, UUID warehouseId, long qty) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(productId, warehouseId, 0, -qty);
+        }
+    }
+
+    /**
+     * Réaligne un couple contredit par la base une fois la transaction annulée : seul ce couple est marqué,
+     * puis relu en place à sa prochaine lecture. Les autres couples du produit et les prises en cours restent.
+     */
+    public void resyncAfterRollback(UUID productId, UUID warehouseId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            resync(productId, warehouseId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                Slot slot = held(productId, warehouseId);
+                if (status != STATUS_COMMITTED && slot != null) {
+                    slot.stale = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * Reporte une écriture faite en base sur les compteurs, après commit de la transaction courante
+     */
+    public void recordChange(UUID productId, UUID warehouseId, long onHandDelta, long reservedDelta) {
+        if (onHandDelta == 0 && reservedDelta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(productId, warehouseId, onHandDelta, reservedDelta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(productId, warehouseId, onHandDelta, reservedDelta);
+            }
+        });
+    }
+
+    /**
+     * Réaligne un couple sur la base quand celle-ci a contredit le ledger. Seul l'état validé est réécrit :
+     * les prises en cours d'autres transactions restent comptées et seront reportées ou rendues par elles.
+     */
+    public void resync(UUID productId, UUID warehouseId) {
+        inventoryRepository.findStockLevel(productId, warehouseId)
+                .ifPresent(level -> stock(productId).set(level));
+    }
+
+    // Un produit absent n'est pas chargé ici : sa première lecture verra déjà la ligne validée
+    private void apply(UUID productId, UUID warehouseId, long onHandDelta, long reservedDelta) {
+        ProductStock stock = stocks.get(productId);
+        if (stock == null) {
+            return;
+        }
+        Slot slot = stock.getOrCreate(warehouseId);
+        slot.onHand.addAndGet(onHandDelta);
+        slot.reserved.addAndGet(reservedDelta);
+    }
+
+    // Réserve d'abord la prise en qtyReserved, puis la retire des prises en cours : le disponible ne monte jamais entre les deux
+    private void settle(UUID productId, UUID warehouseId, long qty, boolean committed) {
+        Slot slot = held(productId, warehouseId);
+        if (slot == null) {
+            return;
+        }
+        if (committed) {
+            slot.reserved.addAndGet(qty);
+        }
+        slot.released.addAndGet(qty);
+    }
+
+    private Slot slot(UUID productId, UUID warehouseId) {
+        Slot slot = stock(productId).find(warehouseId);
+        if (slot != null) {
+            refreshIfStale(productId, slot);
+        }
+        return slot;
+    }
+
+    // Relecture hors de la transaction annulée ; le marqueur est levé avant la lecture pour ne pas perdre un nouveau refus
+    private void refreshIfStale(UUID productId, Slot slot) {
+        if (!slot.stale) {
+            return;
+        }
+        slot.stale = false;
+        inventoryRepository.findStockLevel(productId, slot.warehouseId).ifPresent(slot::set);
+    }
+
+    private Slot held(UUID productId, UUID warehouseId) {
+        ProductStock stock = stocks.get(productId);
+        return stock != null ? stock.find(warehouseId) : null;
+    }
+
+    // Un produit absent du chargement initial est lu une fois depuis la base
+    private ProductStock stock(UUID productId) {
+        return stocks.computeIfAbsent(productId, this::loadProduct);
+    }
+
+    private ProductStock loadProduct(UUID productId) {
+        ProductStock stock = new ProductStock();
+        inventoryRepository.findStockLevelsByProductId(productId).forEach(stock::set);
+        return stock;
+    }
+
+    /**
+     * Compteurs d'un produit : tableau copy-on-write de slots, un par entrepôt.
+     * Les slots sont partagés entre les copies, donc aucune mise à jour n'est perdue à l'ajout d'un entrepôt.
+     */
+    static final class ProductStock {
+        private volatile Slot[] slots = new Slot[0];
+
+        Slot find(UUID warehouseId) {
+            for (Slot slot : slots) {
+                if (slot.warehouseId.equals(warehouseId)) {
+                    return slot;
+                }
+            }
+            return null;
+        }
+
+        synchronized Slot getOrCreate(UUID warehouseId) {
+            Slot slot = find(warehouseId);
+            if (slot == null) {
+                slot = new Slot(warehouseId);
+                Slot[] grown = Arrays.copyOf(slots, slots.length + 1);
+                grown[slots.length] = slot;
+                slots = grown;
+            }
+            return slot;
+        }
+
+        void set(StockLevel level) {
+            getOrCreate(level.warehouseId()).set(level);
+        }
+    }
+
+    static final class Slot {
+        private final UUID warehouseId;
+        private final AtomicLong onHand = new AtomicLong();
+        private final AtomicLong reserved = new AtomicLong();
+        // Prises des transactions non terminées (taken - released) : jamais lues en base, donc jamais écrasées par set().
+        // Deux compteurs croissants plutôt qu'un solde : un solde revenu à la même valeur tromperait le CAS de tryReserve
+        private final AtomicLong taken = new AtomicLong();
+        private final AtomicLong released = new AtomicLong();
+        // Contredit par la base dans une transaction annulée : relu à la prochaine lecture
+        private volatile boolean stale;
+
+        Slot(UUID warehouseId) {
+            this.warehouseId = warehouseId;
+        }
+
+        long available() {
+            long held = taken.get() - released.get();
+            return onHand.get() - reserved.get() - held;
+        }
+
+        void set(StockLevel level) {
+            onHand.set(level.qtyOnHand());
+            reserved.set(level.qtyReserved());
+        }
+    }
+}
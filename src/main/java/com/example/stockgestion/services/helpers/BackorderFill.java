@@ -0,0 +1,9 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.models.SalesOrderLine;
+
+/**
+ * Quantité servie à une ligne en backorder par une réception
+ */
+public record BackorderFill(SalesOrderLine line, long qty) {
+}
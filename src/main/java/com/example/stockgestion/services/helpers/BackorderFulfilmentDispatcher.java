@@ -0,0 +1,141 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.BackorderFulfilmentProperties;
+import com.example.stockgestion.events.StockReceivedEvent;
+import com.example.stockgestion.repositories.BackorderEntryRepository;
+import com.example.stockgestion.repositories.InventoryRepository;
+import com.example.stockgestion.repositories.projections.StockLevel;
+import com.example.stockgestion.services.SalesOrderService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sert les backorders hors du thread de réception, une fois la réception commitée.
+ *
+ * Les réceptions sont regroupées par couple (produit, entrepôt) : une seule passe tourne à la fois
+ * par couple, et toutes les réceptions arrivées pendant une passe n'en déclenchent qu'une de plus.
+ * La passe relit le disponible en base, donc une passe couvre toutes les réceptions regroupées.
+ */
+@Component
+public class BackorderFulfilmentDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(BackorderFulfilmentDispatcher.class);
+
+    private final SalesOrderService salesOrderService;
+    private final BackorderEntryRepository backorderEntryRepository;
+    private final InventoryRepository inventoryRepository;
+    private final Executor executor;
+    private final int maxAttempts;
+    private final ConcurrentHashMap<StockKey, AtomicInteger> pendingPasses = new ConcurrentHashMap<>();
+
+    public BackorderFulfilmentDispatcher(SalesOrderService salesOrderService,
+                                         BackorderEntryRepository backorderEntryRepository,
+                                         InventoryRepository inventoryRepository,
+                                         BackorderFulfilmentProperties properties) {
+        this(salesOrderService, backorderEntryRepository, inventoryRepository,
+                newExecutor(properties), properties.getMaxAttempts());
+    }
+
+    BackorderFulfilmentDispatcher(SalesOrderService salesOrderService,
+                                  BackorderEntryRepository backorderEntryRepository,
+                                  InventoryRepository inventoryRepository,
+                                  Executor executor, int maxAttempts) {
+        this.salesOrderService = salesOrderService;
+        this.backorderEntryRepository = backorderEntryRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.executor = executor;
+        this.maxAttempts = maxAttempts;
+    }
+
+    // Pool borné : une file pleine fait exécuter la passe par le thread appelant plutôt que de la perdre
+    private static ThreadPoolTaskExecutor newExecutor(BackorderFulfilmentProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getWorkers());
+        executor.setMaxPoolSize(properties.getWorkers());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("backorder-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockReceived(StockReceivedEvent event) {
+        schedule(event.productId(), event.WarehouseId());
+    }
+
+    /**
+     * Une réception commitée avant un arrêt n'a peut-être pas été servie : une passe par couple
+     * ayant à la fois des backorders en file et du disponible
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void resumePendingBackorders() {
+        List<UUID> productIds = backorderEntryRepository.findQueuedProductIds();
+        if (productIds.isEmpty()) {
+            return;
+        }
+        for (StockLevel level : inventoryRepository.findStockLevelsByProductIdIn(productIds)) {
+            if (level.qtyOnHand() - level.qtyReserved() > 0) {
+                schedule(level.productId(), level.warehouseId());
+            }
+        }
+    }
+
+    public void schedule(UUID productId, UUID warehouseId) {
+        StockKey key = new StockKey(productId, warehouseId);
+        AtomicInteger pending = pendingPasses.computeIfAbsent(key, k -> new AtomicInteger());
+        if (pending.getAndIncrement() == 0) {
+            executor.execute(() -> drain(key, pending));
+        }
+    }
+
+    // Rejoue tant que des réceptions sont arrivées pendant la passe précédente
+    private void drain(StockKey key, AtomicInteger pending) {
+        int seen;
+        do {
+            seen = pending.get();
+            fulfil(key);
+        } while (pending.addAndGet(-seen) > 0);
+    }
+
+    private void fulfil(StockKey key) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                salesOrderService.fulfilBackorders(key.productId(), key.warehouseId());
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                log.debug("Conflit de version sur l'inventaire {} (tentative {}/{})", key, attempt, maxAttempts);
+            } catch (RuntimeException e) {
+                log.error("Échec du service des backorders pour {}", key, e);
+                return;
+            }
+        }
+        log.warn("Backorders non servis pour {} après {} tentatives ; reprise à la prochaine réception", key, maxAttempts);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+    }
+}
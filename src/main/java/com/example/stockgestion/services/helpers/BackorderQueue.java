@@ -0,0 +1,296 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.models.BackorderEntry;
+import com.example.stockgestion.models.SalesOrder;
+import com.example.stockgestion.models.SalesOrderLine;
+import com.example.stockgestion.models.enums.SOStatus;
+import com.example.stockgestion.repositories.BackorderEntryRepository;
+import com.example.stockgestion.repositories.SalesOrderLineRepository;
+import com.example.stockgestion.repositories.projections.QueuedBackorder;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * File FIFO des backorders par produit, persistée dans backorder_queue et tenue en mémoire.
+ *
+ * Une réception ne dépile que les entrées couvertes par la quantité reçue, puis charge leurs lignes
+ * et commandes en une seule requête. Comme pour le ledger de disponibilité, les ajouts et suppressions
+ * sont reportés en mémoire après commit ; une prise est faite immédiatement et rendue en cas de rollback.
+ */
+@Component
+@RequiredArgsConstructor
+public class BackorderQueue {
+    private static final Logger log = LoggerFactory.getLogger(BackorderQueue.class);
+
+    // Seules ces commandes attendent encore du stock
+    public static final Set<SOStatus> OPEN_STATUSES = EnumSet.of(SOStatus.BACKORDERED, SOStatus.PARTIALLY_RESERVED);
+
+    private static final Comparator<Node> FIFO = Comparator.comparing((Node node) -> node.createdAt)
+            .thenComparing(node -> node.entryId);
+
+    private final BackorderEntryRepository backorderEntryRepository;
+    private final SalesOrderLineRepository salesOrderLineRepository;
+    private final ConcurrentHashMap<UUID, PriorityQueue<Node>> queues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Node> nodes = new ConcurrentHashMap<>();
+
+    // Avant la reprise des backorders au démarrage, qui s'appuie sur la file en mémoire
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional
+    public void loadAll() {
+        if (backorderEntryRepository.count() == 0) {
+            backfillFromLines();
+        }
+        List<QueuedBackorder> queued = backorderEntryRepository.findAllQueued();
+        queues.clear();
+        nodes.clear();
+        queued.forEach(entry -> add(new Node(entry.entryId(), entry.productId(), entry.createdAt(), entry.qtyRemaining())));
+        log.info("File de backorders chargée : {} entrées, {} produits", queued.size(), queues.size());
+    }
+
+    /**
+     * Met en file les lignes en backorder de commandes qui viennent d'être enregistrées
+     */
+    public void enqueue(Collection<SalesOrder> orders) {
+        List<BackorderEntry> entries = new ArrayList<>();
+        for (SalesOrder order : orders) {
+            for (SalesOrderLine line : order.getLines()) {
+                if (line.getQtyBackordered() > 0) {
+                    entries.add(toEntry(order, line));
+                }
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<BackorderEntry> saved = backorderEntryRepository.saveAll(entries);
+        afterCommit(() -> saved.forEach(entry -> add(new Node(entry.getId(), entry.getProduct().getId(),
+                entry.getCreatedAt(), entry.getQtyRemaining()))));
+    }
+
+    /**
+     * Dépile au plus qty unités de backorder du produit, dans l'ordre d'arrivée des lignes.
+     * Les entrées servies sont décrémentées (supprimées si soldées) ; les entrées de commandes
+     * qui n'attendent plus de stock (annulées, livrées) sont purgées sans rien consommer.
+     */
+    public List<BackorderFill> claim(UUID productId, long qty) {
+        List<BackorderFill> fills = new ArrayList<>();
+        long remaining = qty;
+        while (remaining > 0) {
+            Map<UUID, Long> taken = take(productId, remaining);
+            if (taken.isEmpty()) {
+                break;
+            }
+            Map<UUID, BackorderEntry> entries = new HashMap<>();
+            backorderEntryRepository.findAllWithLineAndOrderByIdIn(new ArrayList<>(taken.keySet()))
+                    .forEach(entry -> entries.put(entry.getId(), entry));
+
+            List<BackorderEntry> toSave = new ArrayList<>();
+            List<BackorderEntry> toDelete = new ArrayList<>();
+            for (Map.Entry<UUID, Long> claimed : taken.entrySet()) {
+                BackorderEntry entry = entries.get(claimed.getKey());
+                // Entrée déjà supprimée en base, ou commande qui n'attend plus de stock : purgée sans rien consommer
+                if (entry == null || !OPEN_STATUSES.contains(entry.getSalesOrder().getStatus())) {
+                    if (entry != null) {
+                        toDelete.add(entry);
+                    }
+                    forget(claimed.getKey());
+                    continue;
+                }
+                entry.setQtyRemaining(entry.getQtyRemaining() - claimed.getValue());
+                (entry.getQtyRemaining() > 0 ? toSave : toDelete).add(entry);
+                fills.add(new BackorderFill(entry.getSalesOrderLine(), claimed.getValue()));
+                remaining -= claimed.getValue();
+            }
+            if (!toSave.isEmpty()) {
+                backorderEntryRepository.saveAll(toSave);
+            }
+            if (!toDelete.isEmpty()) {
+                backorderEntryRepository.deleteAll(toDelete);
+            }
+        }
+        return fills;
+    }
+
+    /**
+     * Retire de la file toutes les entrées d'une commande (annulation)
+     */
+    public void remove(UUID salesOrderId) {
+        List<UUID> entryIds = backorderEntryRepository.findIdsBySalesOrderId(salesOrderId);
+        if (entryIds.isEmpty()) {
+            return;
+        }
+        backorderEntryRepository.deleteAllByIdInBatch(entryIds);
+        afterCommit(() -> entryIds.forEach(this::forget));
+    }
+
+    public long pending(UUID productId) {
+        PriorityQueue<Node> queue = queues.get(productId);
+        if (queue == null) {
+            return 0;
+        }
+        synchronized (queue) {
+            return queue.stream().mapToLong(node -> node.remaining).sum();
+        }
+    }
+
+    // Entrées suivies en mémoire (en file ou prises par une transaction en cours)
+    int tracked() {
+        return nodes.size();
+    }
+
+    // Prend en mémoire, tête de file d'abord, et rend la prise si la transaction est annulée
+    private Map<UUID, Long> take(UUID productId, long qty) {
+        Map<UUID, Long> taken = new LinkedHashMap<>();
+        PriorityQueue<Node> queue = queues.get(productId);
+        if (queue == null) {
+            return taken;
+        }
+        synchronized (queue) {
+            long remaining = qty;
+            while (remaining > 0 && !queue.isEmpty()) {
+                Node head = queue.peek();
+                long takenQty = Math.min(head.remaining, remaining);
+                head.remaining -= takenQty;
+                remaining -= takenQty;
+                if (head.remaining == 0) {
+                    queue.poll();
+                    head.queued = false;
+                    // Soldée : supprimée en base par claim, oubliée une fois le commit fait
+                    afterCommit(() -> nodes.computeIfPresent(head.entryId,
+                            (id, node) -> node == head && !node.queued ? null : node));
+                }
+                taken.put(head.entryId, takenQty);
+                onRollback(() -> restore(head, takenQty));
+            }
+        }
+        return taken;
+    }
+
+    private void restore(Node node, long qty) {
+        PriorityQueue<Node> queue = queues.computeIfAbsent(node.productId, id -> new PriorityQueue<>(FIFO));
+        synchronized (queue) {
+            node.remaining += qty;
+            if (!node.queued) {
+                queue.offer(node);
+                node.queued = true;
+                nodes.put(node.entryId, node);
+            }
+        }
+    }
+
+    private void add(Node node) {
+        PriorityQueue<Node> queue = queues.computeIfAbsent(node.productId, id -> new PriorityQueue<>(FIFO));
+        synchronized (queue) {
+            queue.offer(node);
+            node.queued = true;
+        }
+        nodes.put(node.entryId, node);
+    }
+
+    private void forget(UUID entryId) {
+        Node node = nodes.remove(entryId);
+        if (node == null) {
+            return;
+        }
+        PriorityQueue<Node> queue = queues.get(node.productId);
+        if (queue != null) {
+            synchronized (queue) {
+                queue.remove(node);
+                node.queued = false;
+            }
+        }
+    }
+
+    private BackorderEntry toEntry(SalesOrder order, SalesOrderLine line) {
+        return BackorderEntry.builder()
+                .salesOrder(order)
+                .salesOrderLine(line)
+                .product(line.getProduct())
+                .qtyRemaining(line.getQtyBackordered())
+                .createdAt(line.getCreatedAt() != null ? line.getCreatedAt() : Instant.now())
+                .build();
+    }
+
+    // Backorders créés avant la file dédiée : une entrée par ligne et un reliquat par commande
+    private void backfillFromLines() {
+        List<SalesOrderLine> lines = salesOrderLineRepository.findOpenBackorderedLines(OPEN_STATUSES);
+        if (lines.isEmpty()) {
+            return;
+        }
+        Map<SalesOrder, Long> remainingByOrder = new HashMap<>();
+        List<BackorderEntry> entries = new ArrayList<>(lines.size());
+        for (SalesOrderLine line : lines) {
+            entries.add(toEntry(line.getSalesOrder(), line));
+            remainingByOrder.merge(line.getSalesOrder(), line.getQtyBackordered(), Long::sum);
+        }
+        remainingByOrder.forEach(SalesOrder::setQtyBackorderedRemaining);
+        backorderEntryRepository.saveAll(entries);
+        log.info("Reprise de {} lignes en backorder dans la file dédiée", entries.size());
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static final class Node {
+        private final UUID entryId;
+        private final UUID productId;
+        private final Instant createdAt;
+        private long remaining;
+        private boolean queued;
+
+        Node(UUID entryId, UUID productId, Instant createdAt, long remaining) {
+            this.entryId = entryId;
+            this.productId = productId;
+            this.createdAt = createdAt;
+            this.remaining = remaining;
+        }
+    }
+}
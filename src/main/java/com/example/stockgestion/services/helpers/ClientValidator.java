@@ -2,25 +2,33 @@ package com.example.stockgestion.services.helpers;
 
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.Client;
-import com.example.stockgestion.repositories.ClientRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 /**
- * Helper pour valider les clients
+ * Helper pour valider les clients, lus dans le cache des données de référence
  */
 @Component
 @AllArgsConstructor
 public class ClientValidator {
-    private final ClientRepository clientRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     /**
      * Valide et récupère un client par son ID
      */
     public Client validateAndGet(UUID clientId) {
-        return clientRepository.findById(clientId)
+        return referenceDataCache.findClient(clientId)
             .orElseThrow(() -> new ResourceNotFoundException("Client", "id", clientId));
     }
+
+    /**
+     * Tous les clients d'un lot, indexés par ID ; une requête au plus pour les absents du cache (les IDs inconnus sont absents)
+     */
+    public Map<UUID, Client> getAllById(Collection<UUID> clientIds) {
+        return referenceDataCache.findClients(clientIds);
+    }
 }
@@ -0,0 +1,69 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.InventoryMovementProperties;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * Crée à l'avance les partitions mensuelles de inventory_movements, quand la table a été
+ * partitionnée (db/inventory_movements_partitioning.sql). Sans partitionnement, ou hors PostgreSQL, ne fait rien.
+ * Au démarrage puis chaque jour : une instance qui tourne plusieurs mois garde toujours ses partitions d'avance.
+ */
+@Component
+@RequiredArgsConstructor
+public class InventoryMovementPartitions {
+    private static final Logger log = LoggerFactory.getLogger(InventoryMovementPartitions.class);
+
+    private static final String IS_PARTITIONED_SQL = "SELECT count(*) FROM pg_partitioned_table p "
+            + "JOIN pg_class c ON c.oid = p.partrelid WHERE c.relname = 'inventory_movements'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryMovementProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${inventory.movements.partitions-cron:0 45 0 * * *}", zone = "UTC")
+    public void ensurePartitions() {
+        if (!isPartitioned()) {
+            return;
+        }
+        YearMonth month = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i < properties.getPartitionsAhead(); i++) {
+            createPartition(month.plusMonths(i));
+        }
+    }
+
+    boolean isPartitioned() {
+        try {
+            Integer count = jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Integer.class);
+            return count != null && count > 0;
+        } catch (DataAccessException e) {
+            log.debug("Catalogue PostgreSQL indisponible, inventory_movements considérée comme non partitionnée", e);
+            return false;
+        }
+    }
+
+    void createPartition(YearMonth month) {
+        String sql = "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF inventory_movements "
+                + "FOR VALUES FROM ('" + month.atDay(1) + " 00:00:00+00') TO ('" + month.plusMonths(1).atDay(1) + " 00:00:00+00')";
+        try {
+            jdbcTemplate.execute(sql);
+        } catch (DataAccessException e) {
+            // Typiquement : la partition par défaut contient déjà des lignes de ce mois
+            log.warn("Partition {} non créée : {}", partitionName(month), e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("inventory_movements_%d_%02d", month.getYear(), month.getMonthValue());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.InventoryMovementProperties;
+import com.example.stockgestion.models.InventoryMovement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Seule voie d'écriture du journal des mouvements, qui est en ajout seul.
+ *
+ * Les lignes sont insérées par lots JDBC dans la transaction courante, sans passer par le contexte
+ * de persistance : pas de dirty checking ni d'entités gardées en mémoire jusqu'au commit, et un seul
+ * aller-retour par lot (multi-values avec reWriteBatchedInserts côté PostgreSQL).
+ * Les identifiants sont des UUID v7, croissants dans le temps.
+ */
+@Component
+@RequiredArgsConstructor
+public class InventoryMovementWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO inventory_movements "
+            + "(id, product_id, warehouse_id, type, quantity, occurred_at, reference_doc) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryMovementProperties properties;
+
+    public InventoryMovement append(InventoryMovement movement) {
+        append(List.of(movement));
+        return movement;
+    }
+
+    /**
+     * Insère les mouvements et leur attribue un identifiant ; l'horodatage manquant vaut maintenant
+     */
+    public void append(List<InventoryMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        for (InventoryMovement movement : movements) {
+            movement.setId(UuidV7.next());
+            if (movement.getOccurredAt() == null) {
+                movement.setOccurredAt(now);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, movements, properties.getBatchSize(), (ps, movement) -> {
+            ps.setObject(1, movement.getId());
+            ps.setObject(2, movement.getProduct().getId());
+            ps.setObject(3, movement.getWarehouse().getId());
+            ps.setString(4, movement.getType().name());
+            ps.setLong(5, movement.getQuantity());
+            ps.setObject(6, movement.getOccurredAt().atOffset(ZoneOffset.UTC));
+            ps.setString(7, movement.getReferenceDoc());
+        });
+    }
+}
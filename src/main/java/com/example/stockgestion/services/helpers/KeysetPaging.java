@@ -0,0 +1,47 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.KeysetPageDto;
+import com.example.stockgestion.exception.BusinessRuleException;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Pagination par curseur (keyset) sur l'identifiant : WHERE id > :after ORDER BY id LIMIT :limit.
+ * Le coût d'une page ne dépend pas de sa position, contrairement à OFFSET.
+ */
+public final class KeysetPaging {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    // Plus petit UUID : sert de curseur pour la première page
+    private static final UUID FIRST = new UUID(0L, 0L);
+
+    private KeysetPaging() {
+    }
+
+    public static UUID after(UUID cursor) {
+        return cursor != null ? cursor : FIRST;
+    }
+
+    public static Limit limit(Integer requested) {
+        if (requested == null) {
+            return Limit.of(DEFAULT_LIMIT);
+        }
+        if (requested < 1) {
+            throw new BusinessRuleException("limit doit être supérieur à 0");
+        }
+        return Limit.of(Math.min(requested, MAX_LIMIT));
+    }
+
+    /**
+     * Page mappée ; le curseur suivant est l'id de la dernière ligne si la page est pleine
+     */
+    public static <E, T> KeysetPageDto<T> page(List<E> rows, Limit limit, Function<E, UUID> id, Function<E, T> mapper) {
+        UUID nextCursor = rows.size() == limit.max() ? id.apply(rows.get(rows.size() - 1)) : null;
+        return new KeysetPageDto<>(rows.stream().map(mapper).toList(), nextCursor);
+    }
+}
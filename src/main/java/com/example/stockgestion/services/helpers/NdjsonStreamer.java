@@ -0,0 +1,121 @@
+package com.example.stockgestion.services.helpers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Export application/x-ndjson : une ligne JSON par entité, lue depuis un Stream de repository.
+ *
+ * Le curseur JDBC est parcouru dans une transaction en lecture seule ouverte par le thread d'écriture ;
+ * tous les FLUSH_EVERY entités, la sortie est vidée et le contexte de persistance aussi (entités écrites et
+ * références partagées : produits, entrepôts, clients), si bien que la mémoire ne dépend pas de la taille de la table.
+ *
+ * Un agrégat chargé avec sa collection (commande et lignes) ne passe pas par un curseur : un vidage tombé entre
+ * deux lignes SQL d'une même commande la ferait sortir deux fois, incomplète. Il est exporté par pages keyset
+ * d'identifiants (streamPages), chaque page étant chargée entière puis vidée.
+ */
+@Component
+public class NdjsonStreamer {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+    static final int FLUSH_EVERY = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter writer;
+
+    public NdjsonStreamer(PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writer = objectMapper.writer();
+    }
+
+    public <E> StreamingResponseBody stream(Supplier<Stream<E>> rows, Function<E, ?> mapper) {
+        return output -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<E> stream = rows.get()) {
+                int written = 0;
+                Iterator<E> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    E row = iterator.next();
+                    output.write(writer.writeValueAsBytes(mapper.apply(row)));
+                    output.write('\n');
+                    if (++written % FLUSH_EVERY == 0) {
+                        output.flush();
+                        entityManager.clear();
+                    }
+                }
+                output.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Export par pages keyset de FLUSH_EVERY identifiants : chaque page est chargée avec ses collections,
+     * écrite, puis la sortie et le contexte de persistance sont vidés à la frontière de page
+     */
+    public <E> StreamingResponseBody streamPages(BiFunction<UUID, Limit, List<UUID>> ids,
+                                                 Function<List<UUID>, List<E>> page, Function<E, ?> mapper) {
+        Limit limit = Limit.of(FLUSH_EVERY);
+        return output -> readOnlyTransaction.executeWithoutResult(status -> {
+            try {
+                UUID after = KeysetPaging.after(null);
+                while (true) {
+                    List<UUID> pageIds = ids.apply(after, limit);
+                    if (pageIds.isEmpty()) {
+                        break;
+                    }
+                    for (E row : page.apply(pageIds)) {
+                        output.write(writer.writeValueAsBytes(mapper.apply(row)));
+                        output.write('\n');
+                    }
+                    output.flush();
+                    entityManager.clear();
+                    if (pageIds.size() < FLUSH_EVERY) {
+                        break;
+                    }
+                    after = pageIds.get(pageIds.size() - 1);
+                }
+                output.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Suivi d'un traitement long : chaque objet passé au Consumer est écrit sur sa ligne et envoyé aussitôt
+     */
+    public <T> StreamingResponseBody progress(Consumer<Consumer<T>> work) {
+        return output -> work.accept(line -> {
+            try {
+                output.write(writer.writeValueAsBytes(line));
+                output.write('\n');
+                output.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
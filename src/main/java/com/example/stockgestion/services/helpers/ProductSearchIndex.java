@@ -0,0 +1,687 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.ProductResponseDto;
+import com.example.stockgestion.Dto.response.ProductSearchResponseDto;
+import com.example.stockgestion.config.ProductSearchProperties;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.repositories.projections.ProductSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Index de recherche des produits en mémoire : préfixe de SKU, mots du nom et de la catégorie, filtre et
+ * décompte par catégorie.
+ *
+ * Construit au démarrage depuis une projection des produits, puis tenu à jour par ProductService après commit
+ * de chaque création, modification, désactivation ou suppression. Chaque produit reçoit un numéro interne ;
+ * les SKU sont dans une table triée (préfixe = sous-table), les numéros de produits par mot dans des tableaux
+ * triés copy-on-write. La recherche les lit sans verrou, les écritures (rares) sont sérialisées et remplacent
+ * les tableaux touchés.
+ *
+ * Textes normalisés en minuscules sans accents. Le dernier mot saisi peut être incomplet (préfixe) ; un mot
+ * sans chiffre d'au moins 4 lettres absent du vocabulaire est cherché à une faute près (suppression,
+ * insertion, substitution ou inversion de deux lettres) grâce à la table de ses variantes à une lettre en moins.
+ */
+@Component
+public class ProductSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    static final int PREFIX_MIN_LENGTH = 2;
+    static final int FUZZY_MIN_LENGTH = 4;
+
+    private static final int SCORE_SKU_EXACT = 1000;
+    private static final int SCORE_SKU_PREFIX = 100;
+    private static final int SCORE_TERM_EXACT = 10;
+    private static final int SCORE_TERM_APPROX = 4;
+
+    private static final int ANY_CATEGORY = -1;
+    private static final int NO_CATEGORY = -2;
+    private static final int[] NONE = new int[0];
+    private static final String[] NO_TERMS = new String[0];
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+
+    // État d'un produit dans les 2 bits bas de sa colonne, numéro de catégorie (+ 1) au-dessus
+    private static final int ABSENT = 0;
+    private static final int INACTIVE = 1;
+    private static final int ACTIVE = 2;
+    private static final int STATE_MASK = 3;
+
+    // Meilleur score d'abord, puis ordre des SKU
+    private static final Comparator<Hit> BY_RELEVANCE = Comparator.comparingInt(Hit::score).reversed()
+            .thenComparing(hit -> hit.product().sku());
+    // Moins bon en tête de file : plus petit score, puis numéro le plus grand
+    private static final Comparator<Hit> WORST_FIRST = Comparator.comparingInt(Hit::score)
+            .thenComparing(Comparator.comparingInt(Hit::ordinal).reversed());
+
+    private final ProductRepository productRepository;
+    private final ProductSearchProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile Segment segment = new Segment();
+
+    public ProductSearchIndex(ProductRepository productRepository, ProductSearchProperties properties,
+                              PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.properties = properties;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<ProductSummary> products = productRepository.streamSummaries()) {
+                rebuild(products);
+            }
+        });
+        log.info("Index de recherche des produits construit : {} produits, {} mots, {} ms",
+                size(), segment.terms.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Indexe le produit (création, modification, désactivation) après commit de la transaction courante
+     */
+    public void put(Product product) {
+        ProductSummary summary = new ProductSummary(product.getId(), product.getSku(), product.getName(),
+                product.getCategory(), Boolean.TRUE.equals(product.getActive()), product.getPrice());
+        afterCommit(() -> index(summary));
+    }
+
+    /**
+     * Retire le produit de l'index après commit de la transaction courante
+     */
+    public void remove(UUID productId) {
+        afterCommit(() -> unindex(productId));
+    }
+
+    public int size() {
+        return segment.ordinals.size();
+    }
+
+    /**
+     * Produits correspondant à tous les mots de query, ou dont le SKU commence par query ; ceux de la
+     * catégorie seulement si query est vide
+     *
+     * @param category filtre optionnel ; les décomptes par catégorie sont calculés avant ce filtre
+     * @param limit    nombre de produits renvoyés, les plus pertinents
+     */
+    public ProductSearchResponseDto search(String query, String category, boolean includeInactive, int limit) {
+        Segment current = segment;
+        Columns columns = current.columns;
+        String text = query != null ? normalize(query).strip() : "";
+        List<String> queryTerms = tokens(text);
+        String categoryKey = key(category);
+
+        int[] candidates;
+        int[] byTerms = NONE;
+        int[] skuMatches = NONE;
+        Cursor[] exact = new Cursor[queryTerms.size()];
+        if (queryTerms.isEmpty()) {
+            candidates = categoryKey != null ? current.categories.getOrDefault(categoryKey, NONE) : NONE;
+        } else {
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String term = queryTerms.get(i);
+                int[] postings = current.terms.getOrDefault(term, NONE);
+                exact[i] = new Cursor(postings);
+                int[] matches = union(postings, expand(current, term, i == queryTerms.size() - 1));
+                byTerms = i == 0 ? matches : intersect(byTerms, matches);
+            }
+            skuMatches = skuPrefix(current, text);
+            candidates = union(byTerms, skuMatches);
+        }
+        Integer exactSku = current.skus.get(text);
+        Cursor skuCursor = new Cursor(skuMatches);
+        Cursor termCursor = new Cursor(byTerms);
+        // Sans SKU correspondant, tous les candidats viennent des mots : aucun test d'appartenance par candidat
+        boolean termsOnly = skuMatches.length == 0;
+
+        // Catégories par numéro : décompte dans un tableau, sans table de hachage par produit
+        int filter = categoryKey == null ? ANY_CATEGORY : current.categoryIds.getOrDefault(categoryKey, NO_CATEGORY);
+        int[] counts = new int[current.categoryNames.length];
+        PriorityQueue<Hit> best = new PriorityQueue<>(WORST_FIRST);
+        int total = 0;
+        for (int ordinal : candidates) {
+            int meta = ordinal < columns.meta.length ? columns.meta[ordinal] : ABSENT;
+            int state = meta & STATE_MASK;
+            if (state == ABSENT || (!includeInactive && state == INACTIVE)) {
+                continue;
+            }
+            int docCategory = (meta >> 2) - 1;
+            if (docCategory >= 0 && docCategory < counts.length) {
+                counts[docCategory]++;
+            }
+            if (filter != ANY_CATEGORY && docCategory != filter) {
+                continue;
+            }
+            total++;
+            int score = exactSku != null && exactSku == ordinal ? SCORE_SKU_EXACT
+                    : !termsOnly && skuCursor.contains(ordinal) ? SCORE_SKU_PREFIX : 0;
+            if (termsOnly || termCursor.contains(ordinal)) {
+                for (Cursor postings : exact) {
+                    score += postings.contains(ordinal) ? SCORE_TERM_EXACT : SCORE_TERM_APPROX;
+                }
+            }
+            // À score égal, le plus petit numéro (ordre des SKU au chargement) est retenu : un candidat qui
+            // ne passe pas devant le moins bon des limit premiers ne lit pas son document
+            if (best.size() < limit || outranks(score, ordinal, best.peek())) {
+                Doc doc = columns.docs[ordinal];
+                if (doc == null) {
+                    continue;
+                }
+                if (best.size() == limit) {
+                    best.poll();
+                }
+                best.add(new Hit(doc.product(), score, ordinal));
+            }
+        }
+
+        Map<String, Integer> facets = new TreeMap<>();
+        String[] names = current.categoryNames;
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                facets.merge(names[id], counts[id], Integer::sum);
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(BY_RELEVANCE);
+        List<ProductResponseDto> products = hits.stream().map(hit -> toDto(hit.product())).toList();
+        return new ProductSearchResponseDto(products, total, facets);
+    }
+
+    synchronized void rebuild(Stream<ProductSummary> products) {
+        Segment fresh = new Segment();
+        Map<String, Postings> terms = new HashMap<>();
+        Map<String, Postings> categories = new HashMap<>();
+        products.forEach(product -> {
+            Doc doc = fresh.doc(product);
+            int ordinal = fresh.append(doc);
+            fresh.skus.put(doc.skuKey(), ordinal);
+            for (String term : termsOf(product)) {
+                terms.computeIfAbsent(term, t -> new Postings()).add(ordinal);
+            }
+            if (doc.categoryKey() != null) {
+                categories.computeIfAbsent(doc.categoryKey(), c -> new Postings()).add(ordinal);
+            }
+        });
+        terms.forEach((term, postings) -> {
+            fresh.terms.put(term, postings.toArray());
+            fresh.addVariants(term);
+        });
+        categories.forEach((categoryKey, postings) -> fresh.categories.put(categoryKey, postings.toArray()));
+        segment = fresh;
+    }
+
+    synchronized void index(ProductSummary product) {
+        Segment current = segment;
+        Doc doc = current.doc(product);
+        Integer ordinal = current.ordinals.get(product.id());
+        if (ordinal == null) {
+            link(current, current.append(doc), doc);
+            return;
+        }
+        unlink(current, ordinal, current.columns.docs[ordinal]);
+        current.columns.set(ordinal, doc);
+        link(current, ordinal, doc);
+    }
+
+    synchronized void unindex(UUID productId) {
+        Segment current = segment;
+        Integer ordinal = current.ordinals.remove(productId);
+        if (ordinal == null) {
+            return;
+        }
+        unlink(current, ordinal, current.columns.docs[ordinal]);
+        current.columns.clear(ordinal);
+    }
+
+    private static void link(Segment segment, int ordinal, Doc doc) {
+        segment.skus.put(doc.skuKey(), ordinal);
+        for (String term : termsOf(doc.product())) {
+            int[] previous = segment.terms.get(term);
+            segment.terms.put(term, insert(previous != null ? previous : NONE, ordinal));
+            if (previous == null) {
+                segment.addVariants(term);
+            }
+        }
+        if (doc.categoryKey() != null) {
+            segment.categories.put(doc.categoryKey(),
+                    insert(segment.categories.getOrDefault(doc.categoryKey(), NONE), ordinal));
+        }
+    }
+
+    private static void unlink(Segment segment, int ordinal, Doc doc) {
+        segment.skus.remove(doc.skuKey(), ordinal);
+        for (String term : termsOf(doc.product())) {
+            int[] remaining = without(segment.terms.getOrDefault(term, NONE), ordinal);
+            if (remaining.length > 0) {
+                segment.terms.put(term, remaining);
+            } else if (segment.terms.remove(term) != null) {
+                segment.removeVariants(term);
+            }
+        }
+        if (doc.categoryKey() != null) {
+            int[] remaining = without(segment.categories.getOrDefault(doc.categoryKey(), NONE), ordinal);
+            if (remaining.length > 0) {
+                segment.categories.put(doc.categoryKey(), remaining);
+            } else {
+                segment.categories.remove(doc.categoryKey());
+            }
+        }
+    }
+
+    // Mots commençant par term (dernier mot saisi), sinon mots à une faute près si term est inconnu.
+    // Un préfixe court s'arrête aussi au plafond de produits : le décompte ne parcourt jamais tout le catalogue
+    private int[] expand(Segment segment, String term, boolean prefix) {
+        List<int[]> postings = new ArrayList<>();
+        if (prefix && term.length() >= PREFIX_MIN_LENGTH) {
+            int taken = 0;
+            for (int[] posting : segment.terms.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                if (postings.size() == properties.getMaxExpansions() || taken >= properties.getMaxPrefixPostings()) {
+                    break;
+                }
+                postings.add(posting);
+                taken += posting.length;
+            }
+        }
+        if (postings.isEmpty() && !segment.terms.containsKey(term) && fuzzy(term)) {
+            for (String neighbour : segment.neighbours(term)) {
+                if (postings.size() == properties.getMaxExpansions()) {
+                    break;
+                }
+                postings.add(segment.terms.getOrDefault(neighbour, NONE));
+            }
+        }
+        return unionAll(postings, segment.columns.docs.length);
+    }
+
+    private int[] skuPrefix(Segment segment, String text) {
+        if (text.length() < PREFIX_MIN_LENGTH) {
+            Integer ordinal = segment.skus.get(text);
+            return ordinal != null ? new int[]{ordinal} : NONE;
+        }
+        int[] matches = segment.skus.subMap(text, true, text + Character.MAX_VALUE, false).values().stream()
+                .limit(properties.getMaxSkuMatches())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    private static boolean outranks(int score, int ordinal, Hit worst) {
+        return score > worst.score() || (score == worst.score() && ordinal < worst.ordinal());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static ProductResponseDto toDto(ProductSummary product) {
+        return new ProductResponseDto(product.id(), product.sku(), product.name(), product.category(),
+                product.active(), product.price());
+    }
+
+    static String normalize(String text) {
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokens(String normalized) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> termsOf(ProductSummary product) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (product.name() != null) {
+            terms.addAll(tokens(normalize(product.name())));
+        }
+        if (product.category() != null) {
+            terms.addAll(tokens(normalize(product.category())));
+        }
+        return terms;
+    }
+
+    private static String key(String value) {
+        return value == null || value.isBlank() ? null : normalize(value).strip();
+    }
+
+    // Les références chiffrées (tailles, dimensions) ne sont jamais cherchées de façon approchée
+    private static boolean fuzzy(String term) {
+        return term.length() >= FUZZY_MIN_LENGTH && term.chars().noneMatch(Character::isDigit);
+    }
+
+    private static List<String> variants(String term) {
+        Set<String> variants = new LinkedHashSet<>();
+        for (int i = 0; i < term.length(); i++) {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return new ArrayList<>(variants);
+    }
+
+    /**
+     * Distance d'édition au plus 1, inversion de deux lettres voisines comprise
+     */
+    static boolean withinOneEdit(String a, String b) {
+        if (a.equals(b)) {
+            return true;
+        }
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < Math.min(la, lb) && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (la == lb) {
+            return a.regionMatches(i + 1, b, i + 1, la - i - 1)
+                    || (i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.regionMatches(i + 2, b, i + 2, la - i - 2));
+        }
+        return la > lb ? a.regionMatches(i + 1, b, i, lb - i) : b.regionMatches(i + 1, a, i, la - i);
+    }
+
+    // ----- Tableaux triés de numéros de produits -----
+
+    private static int[] insert(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index >= 0) {
+            return sorted;
+        }
+        int at = -index - 1;
+        int[] grown = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, grown, 0, at);
+        grown[at] = value;
+        System.arraycopy(sorted, at, grown, at + 1, sorted.length - at);
+        return grown;
+    }
+
+    private static int[] without(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return sorted;
+        }
+        int[] shrunk = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, shrunk, 0, index);
+        System.arraycopy(sorted, index + 1, shrunk, index, sorted.length - index - 1);
+        return shrunk;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                merged[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                merged[n++] = b[j++];
+            } else {
+                merged[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            merged[n++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[n++] = b[j++];
+        }
+        return Arrays.copyOf(merged, n);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] common = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                common[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, n);
+    }
+
+    private static int[] unionAll(List<int[]> postings, int capacity) {
+        if (postings.isEmpty()) {
+            return NONE;
+        }
+        if (postings.size() == 1) {
+            return postings.get(0);
+        }
+        BitSet ordinals = new BitSet(capacity);
+        for (int[] posting : postings) {
+            for (int ordinal : posting) {
+                ordinals.set(ordinal);
+            }
+        }
+        int[] merged = new int[ordinals.cardinality()];
+        int n = 0;
+        for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+            merged[n++] = ordinal;
+        }
+        return merged;
+    }
+
+    record Doc(ProductSummary product, String skuKey, String categoryKey, int category) {
+    }
+
+    /**
+     * Parcours croissant d'un tableau trié de numéros : les candidats étant eux aussi croissants, chaque
+     * test reprend là où le précédent s'est arrêté (recherche exponentielle puis dichotomique)
+     */
+    private static final class Cursor {
+        private final int[] values;
+        private int at;
+
+        Cursor(int[] values) {
+            this.values = values;
+        }
+
+        boolean contains(int value) {
+            int step = 1;
+            while (at + step < values.length && values[at + step] < value) {
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(values, at, Math.min(at + step + 1, values.length), value);
+            at = index >= 0 ? index : -index - 1;
+            return index >= 0;
+        }
+    }
+
+    private record Hit(ProductSummary product, int score, int ordinal) {
+    }
+
+    /**
+     * Colonnes par numéro de produit, agrandies ensemble par copie ; la boucle de recherche ne lit que meta
+     * (état et catégorie dans un même int), le document seulement pour les produits retenus
+     */
+    private static final class Columns {
+        private final Doc[] docs;
+        private final int[] meta;
+
+        Columns(int capacity) {
+            docs = new Doc[capacity];
+            meta = new int[capacity];
+        }
+
+        Columns grow() {
+            Columns grown = new Columns(Math.max(16, docs.length * 2));
+            System.arraycopy(docs, 0, grown.docs, 0, docs.length);
+            System.arraycopy(meta, 0, grown.meta, 0, meta.length);
+            return grown;
+        }
+
+        void set(int ordinal, Doc doc) {
+            docs[ordinal] = doc;
+            int category = doc.category() >= 0 ? doc.category() + 1 : 0;
+            meta[ordinal] = category << 2 | (doc.product().active() ? ACTIVE : INACTIVE);
+        }
+
+        void clear(int ordinal) {
+            meta[ordinal] = ABSENT;
+            docs[ordinal] = null;
+        }
+    }
+
+    private static final class Postings {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * État de l'index ; remplacé d'un bloc par rebuild, modifié en place (sous le verrou de l'index) sinon
+     */
+    static final class Segment {
+        private volatile Columns columns = new Columns(0);
+        private int next;
+        private final ConcurrentHashMap<UUID, Integer> ordinals = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<String, Integer> skus = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<String, int[]> terms = new ConcurrentSkipListMap<>();
+        private final ConcurrentHashMap<String, int[]> categories = new ConcurrentHashMap<>();
+        // Numéro de catégorie (jamais réattribué) et libellé affiché dans les décomptes
+        private final ConcurrentHashMap<String, Integer> categoryIds = new ConcurrentHashMap<>();
+        private volatile String[] categoryNames = NO_TERMS;
+        // Variante à une lettre en moins -> mots du vocabulaire qui la produisent (recherche approchée)
+        private final ConcurrentHashMap<String, String[]> variants = new ConcurrentHashMap<>();
+
+        Doc doc(ProductSummary product) {
+            String categoryKey = key(product.category());
+            int category = NO_CATEGORY;
+            if (categoryKey != null) {
+                category = categoryIds.computeIfAbsent(categoryKey, k -> {
+                    String[] grown = Arrays.copyOf(categoryNames, categoryNames.length + 1);
+                    grown[categoryNames.length] = product.category();
+                    categoryNames = grown;
+                    return categoryNames.length - 1;
+                });
+            }
+            return new Doc(product, key(product.sku()), categoryKey, category);
+        }
+
+        int append(Doc doc) {
+            int ordinal = next++;
+            Columns current = columns;
+            if (ordinal < current.docs.length) {
+                current.set(ordinal, doc);
+            } else {
+                Columns grown = current.grow();
+                grown.set(ordinal, doc);
+                columns = grown;
+            }
+            ordinals.put(doc.product().id(), ordinal);
+            return ordinal;
+        }
+
+        void addVariants(String term) {
+            if (!fuzzy(term)) {
+                return;
+            }
+            for (String variant : variants(term)) {
+                variants.merge(variant, new String[]{term}, (existing, added) -> {
+                    String[] grown = Arrays.copyOf(existing, existing.length + 1);
+                    grown[existing.length] = term;
+                    return grown;
+                });
+            }
+        }
+
+        void removeVariants(String term) {
+            if (!fuzzy(term)) {
+                return;
+            }
+            for (String variant : variants(term)) {
+                variants.computeIfPresent(variant, (key, existing) -> {
+                    String[] remaining = Arrays.stream(existing).filter(t -> !t.equals(term)).toArray(String[]::new);
+                    return remaining.length > 0 ? remaining : null;
+                });
+            }
+        }
+
+        /**
+         * Mots du vocabulaire à une faute près de term : term + une lettre, term - une lettre, ou une
+         * variante commune (substitution, inversion), vérifiés un à un
+         */
+        Set<String> neighbours(String term) {
+            Set<String> candidates = new LinkedHashSet<>();
+            Collections.addAll(candidates, variants.getOrDefault(term, NO_TERMS));
+            for (String variant : variants(term)) {
+                if (terms.containsKey(variant)) {
+                    candidates.add(variant);
+                }
+                Collections.addAll(candidates, variants.getOrDefault(variant, NO_TERMS));
+            }
+            candidates.removeIf(candidate -> candidate.equals(term) || !withinOneEdit(term, candidate));
+            return candidates;
+        }
+    }
+}
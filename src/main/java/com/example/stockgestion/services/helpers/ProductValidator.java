@@ -3,29 +3,37 @@ package com.example.stockgestion.services.helpers;
 import com.example.stockgestion.exception.BusinessRuleException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.Product;
-import com.example.stockgestion.repositories.ProductRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 /**
- * Helper pour valider les produits
+ * Helper pour valider les produits, lus dans le cache des données de référence
  */
 @Component
 @AllArgsConstructor
 public class ProductValidator {
-    private final ProductRepository productRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     /**
      * Valide et récupère un produit par son ID
      */
     public Product validateAndGet(UUID productId) {
-        return productRepository.findById(productId)
+        return referenceDataCache.findProduct(productId)
             .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
     }
 
+    /**
+     * Tous les produits d'un lot, indexés par ID ; une requête au plus pour les absents du cache (les IDs inconnus sont absents)
+     */
+    public Map<UUID, Product> getAllById(Collection<UUID> productIds) {
+        return referenceDataCache.findProducts(productIds);
+    }
+
     /**
      * Valide et récupère le prix d'un produit
      */
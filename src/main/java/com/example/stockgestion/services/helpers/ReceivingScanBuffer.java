@@ -0,0 +1,106 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.repositories.projections.PendingReceipt;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Tampon des scans de réception entre deux points de reprise.
+ *
+ * Chaque scan est d'abord inséré dans le journal receiving_scans (un INSERT JDBC, hors contexte de
+ * persistance), puis ajouté au compteur en mémoire de son couple (avis, produit) : rien n'est perdu
+ * si l'instance s'arrête avant le report, le journal est rejoué au démarrage (AsnCheckpointer.recover),
+ * avant que le serveur web n'accepte des scans.
+ *
+ * Les scans s'enregistrent sous verrou partagé, le report vide le tampon sous verrou exclusif : au moment
+ * du vidage, tout scan écrit dans le journal est compté, et son identifiant (UUID v7, croissant) est
+ * inférieur au repère du vidage. Le compteur tient sur une seule instance, comme le ledger de disponibilité.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReceivingScanBuffer {
+
+    static final String INSERT_SQL = "INSERT INTO receiving_scans "
+            + "(id, scan_ref, asn_id, product_id, quantity, scanned_at, checkpointed) VALUES (?, ?, ?, ?, ?, ?, false)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentHashMap<ScanKey, Long> pending = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Journalise le scan puis le compte en attente de report
+     *
+     * @return false si un scan de même référence a déjà été reçu (rien n'est compté)
+     */
+    public boolean record(String scanRef, UUID asnId, UUID productId, long quantity, Instant scannedAt) {
+        lock.readLock().lock();
+        try {
+            try {
+                jdbcTemplate.update(INSERT_SQL, UuidV7.next(), scanRef, asnId, productId, quantity,
+                        scannedAt.atOffset(ZoneOffset.UTC));
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+            pending.merge(new ScanKey(asnId, productId), quantity, Long::sum);
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retire toutes les quantités en attente, à reporter en base par l'appelant
+     */
+    public ScanDrain drain() {
+        lock.writeLock().lock();
+        try {
+            Map<ScanKey, Long> received = new HashMap<>(pending);
+            pending.clear();
+            return new ScanDrain(received, UuidV7.next());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remet en attente des quantités retirées par un report en échec
+     */
+    public void restore(Map<ScanKey, Long> received) {
+        received.forEach((key, quantity) -> pending.merge(key, quantity, Long::sum));
+    }
+
+    /**
+     * Remplace le tampon par les scans non reportés du journal. La lecture se fait sous verrou exclusif :
+     * un scan est soit dans le journal lu, soit compté après, jamais les deux.
+     *
+     * @return les quantités lues dans le journal
+     */
+    public List<PendingReceipt> reload(Supplier<List<PendingReceipt>> journal) {
+        lock.writeLock().lock();
+        try {
+            List<PendingReceipt> receipts = journal.get();
+            pending.clear();
+            receipts.forEach(receipt -> pending.merge(new ScanKey(receipt.asnId(), receipt.productId()),
+                    receipt.quantity(), Long::sum));
+            return receipts;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long pending(UUID asnId, UUID productId) {
+        return pending.getOrDefault(new ScanKey(asnId, productId), 0L);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.ReferenceCacheProperties;
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.repositories.ClientRepository;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cache local en lecture traversante des données de référence : produits, entrepôts et clients,
+ * qui ne changent que quelques fois par jour mais sont relus à chaque commande ou mouvement.
+ *
+ * Taille bornée par type (éviction des moins utilisés) et durée de vie fixe, qui borne le retard
+ * d'une autre instance sur une modification. Sur cette instance, les écritures (ProductService,
+ * ClientService) évincent l'entrée tout de suite puis à nouveau après commit, pour qu'une lecture
+ * concurrente ne remette pas l'ancienne version en cache. Les ids inconnus ne sont pas mis en cache.
+ *
+ * Les entités renvoyées sont détachées et partagées entre requêtes : lecture seule, on ne les modifie
+ * jamais (les services d'écriture relisent l'entité par son repository). Les clients sont chargés avec
+ * leurs entrepôts préférés, lus par l'allocation hors de la session qui les a chargés.
+ * Succès, échecs et évictions sont exposés par Micrometer (cache.gets, cache.evictions, cache=reference.*).
+ */
+@Component
+public class ReferenceDataCache {
+
+    private final LoadingCache<UUID, Product> products;
+    private final LoadingCache<UUID, WareHouse> warehouses;
+    private final LoadingCache<UUID, Client> clients;
+
+    @Autowired
+    public ReferenceDataCache(ProductRepository productRepository, WareHouseRepository wareHouseRepository,
+                              ClientRepository clientRepository, ReferenceCacheProperties properties,
+                              MeterRegistry meterRegistry) {
+        this(productRepository, wareHouseRepository, clientRepository, properties, Ticker.systemTicker());
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "reference.products");
+        CaffeineCacheMetrics.monitor(meterRegistry, warehouses, "reference.warehouses");
+        CaffeineCacheMetrics.monitor(meterRegistry, clients, "reference.clients");
+    }
+
+    ReferenceDataCache(ProductRepository productRepository, WareHouseRepository wareHouseRepository,
+                       ClientRepository clientRepository, ReferenceCacheProperties properties, Ticker ticker) {
+        this.products = build(properties, ticker, ids -> byId(productRepository.findAllById(ids), Product::getId));
+        this.warehouses = build(properties, ticker, ids -> byId(wareHouseRepository.findAllById(ids), WareHouse::getId));
+        this.clients = build(properties, ticker,
+                ids -> byId(clientRepository.findWithWarehousePriorityByIdIn(ids), Client::getId));
+    }
+
+    public Optional<Product> findProduct(UUID id) {
+        return Optional.ofNullable(products.get(id));
+    }
+
+    public Optional<WareHouse> findWarehouse(UUID id) {
+        return Optional.ofNullable(warehouses.get(id));
+    }
+
+    public Optional<Client> findClient(UUID id) {
+        return Optional.ofNullable(clients.get(id));
+    }
+
+    /**
+     * Produits d'un lot indexés par ID ; une seule requête IN pour les absents du cache (les IDs inconnus sont absents)
+     */
+    public Map<UUID, Product> findProducts(Collection<UUID> ids) {
+        return products.getAll(ids);
+    }
+
+    public Map<UUID, WareHouse> findWarehouses(Collection<UUID> ids) {
+        return warehouses.getAll(ids);
+    }
+
+    public Map<UUID, Client> findClients(Collection<UUID> ids) {
+        return clients.getAll(ids);
+    }
+
+    public void evictProduct(UUID id) {
+        evict(products, id);
+    }
+
+    public void evictWarehouse(UUID id) {
+        evict(warehouses, id);
+    }
+
+    public void evictClient(UUID id) {
+        evict(clients, id);
+    }
+
+    private static <T> LoadingCache<UUID, T> build(ReferenceCacheProperties properties, Ticker ticker,
+                                                   Function<Set<UUID>, Map<UUID, T>> loadAll) {
+        return Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(properties.getTtl()))
+                .ticker(ticker)
+                .recordStats()
+                .build(new CacheLoader<UUID, T>() {
+                    @Override
+                    public T load(UUID id) {
+                        return loadAll.apply(Set.of(id)).get(id);
+                    }
+
+                    @Override
+                    public Map<UUID, T> loadAll(Set<? extends UUID> ids) {
+                        return loadAll.apply(Set.copyOf(ids));
+                    }
+                });
+    }
+
+    private static <T> Map<UUID, T> byId(List<T> entities, Function<T, UUID> id) {
+        return entities.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+
+    private static void evict(LoadingCache<UUID, ?> cache, UUID id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+}
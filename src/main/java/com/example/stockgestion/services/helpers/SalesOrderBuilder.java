@@ -28,12 +28,13 @@ public class SalesOrderBuilder {
     }
 
     /**
-     * Finalise une commande (set status, lines, totalPrice)
+     * Finalise une commande (set status, lines, totalPrice, reliquat en backorder)
      */
     public void finalize(SalesOrder order, List<SalesOrderLine> lines, BigDecimal totalPrice,
                         SOStatus status) {
         order.setStatus(status);
         order.setLines(lines);
         order.setTotalPrice(totalPrice);
+        order.setQtyBackorderedRemaining(lines.stream().mapToLong(SalesOrderLine::getQtyBackordered).sum());
     }
 }
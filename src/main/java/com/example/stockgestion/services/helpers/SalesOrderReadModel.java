@@ -0,0 +1,91 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.ClientResponseDto;
+import com.example.stockgestion.Dto.response.ProductResponseDto;
+import com.example.stockgestion.Dto.response.SalesOrderLineResponseDto;
+import com.example.stockgestion.Dto.response.SalesOrderResponseDto;
+import com.example.stockgestion.Dto.response.WareHouseResponseDto;
+import com.example.stockgestion.repositories.SalesOrderLineRepository;
+import com.example.stockgestion.repositories.SalesOrderRepository;
+import com.example.stockgestion.repositories.projections.SalesOrderHeader;
+import com.example.stockgestion.repositories.projections.SalesOrderLineRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Modèle de lecture des commandes client, construit à partir de projections JPQL.
+ *
+ * Une requête pour les en-têtes (commande + client) et une pour les lignes (ligne + produit + entrepôt),
+ * quel que soit le nombre de commandes : aucune entité n'est chargée, donc aucun chargement paresseux.
+ * Les lectures par ids sont découpées par tranches pour rester sous la limite de paramètres du driver.
+ */
+@Component
+@RequiredArgsConstructor
+public class SalesOrderReadModel {
+
+    static final int IN_CHUNK = 1000;
+
+    private final SalesOrderRepository salesOrderRepository;
+    private final SalesOrderLineRepository salesOrderLineRepository;
+
+    public List<SalesOrderResponseDto> findAll() {
+        return assemble(salesOrderRepository.findAllHeaders(), salesOrderLineRepository.findAllLineRows());
+    }
+
+    /**
+     * Commandes demandées, dans l'ordre des ids ; les ids inconnus sont ignorés
+     */
+    public List<SalesOrderResponseDto> findByIds(List<UUID> ids) {
+        List<SalesOrderResponseDto> orders = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + IN_CHUNK, ids.size()));
+            orders.addAll(assemble(salesOrderRepository.findHeadersByIdIn(chunk),
+                    salesOrderLineRepository.findLineRowsBySalesOrderIdIn(chunk)));
+        }
+        return orders;
+    }
+
+    public Optional<SalesOrderResponseDto> findById(UUID id) {
+        return findByIds(List.of(id)).stream().findFirst();
+    }
+
+    private List<SalesOrderResponseDto> assemble(Collection<SalesOrderHeader> headers, Collection<SalesOrderLineRow> rows) {
+        Map<UUID, SalesOrderResponseDto> orders = new LinkedHashMap<>();
+        for (SalesOrderHeader header : headers) {
+            orders.put(header.id(), new SalesOrderResponseDto(
+                    header.id(),
+                    new ClientResponseDto(header.clientId(), header.clientName()),
+                    header.status(),
+                    header.createdAt(),
+                    header.totalPrice(),
+                    new ArrayList<>(),
+                    List.of()));
+        }
+        for (SalesOrderLineRow row : rows) {
+            SalesOrderResponseDto order = orders.get(row.salesOrderId());
+            if (order != null) {
+                order.getLines().add(toLine(row));
+            }
+        }
+        return new ArrayList<>(orders.values());
+    }
+
+    private SalesOrderLineResponseDto toLine(SalesOrderLineRow row) {
+        return new SalesOrderLineResponseDto(
+                row.id(),
+                new ProductResponseDto(row.productId(), row.sku(), row.productName(), row.category(), row.active(), row.price()),
+                new WareHouseResponseDto(row.warehouseId(), row.warehouseCode(), row.warehouseName()),
+                row.quantity(),
+                row.qtyReserved(),
+                row.qtyBackordered(),
+                row.unitPrice());
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.stockgestion.services.helpers;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Quantités retirées du tampon pour un point de reprise. Tous les scans du journal d'identifiant
+ * inférieur à watermark y sont comptés, et aucun autre.
+ */
+public record ScanDrain(Map<ScanKey, Long> received, UUID watermark) {
+
+    public boolean isEmpty() {
+        return received.isEmpty();
+    }
+}
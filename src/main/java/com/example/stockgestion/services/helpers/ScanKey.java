@@ -0,0 +1,9 @@
+package com.example.stockgestion.services.helpers;
+
+import java.util.UUID;
+
+/**
+ * Compteur de scans en attente : un produit d'un avis d'expédition
+ */
+public record ScanKey(UUID asnId, UUID productId) {
+}
@@ -0,0 +1,179 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.ShipmentSlotProperties;
+import com.example.stockgestion.exception.BusinessRuleException;
+import com.example.stockgestion.models.Carrier;
+import com.example.stockgestion.models.ShipmentSlot;
+import com.example.stockgestion.repositories.ShipmentSlotRepository;
+import com.example.stockgestion.repositories.projections.SlotFill;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Attribution des créneaux de départ par compteur persistant (shipment_slots).
+ *
+ * Les créneaux candidats sont le créneau demandé puis, jour ouvré après jour ouvré, celui de l'heure
+ * de repli. Leur remplissage est lu en une seule requête sur tout l'horizon de recherche ; la place est
+ * ensuite prise par un UPDATE conditionnel, qui reste l'arbitre entre planifications concurrentes.
+ */
+@Component
+public class ShipmentSlotAllocator {
+
+    private final ShipmentSlotRepository shipmentSlotRepository;
+    private final ShipmentSlotProperties properties;
+    private final TransactionTemplate newTransaction;
+
+    public ShipmentSlotAllocator(ShipmentSlotRepository shipmentSlotRepository, ShipmentSlotProperties properties,
+                                 PlatformTransactionManager transactionManager) {
+        this.shipmentSlotRepository = shipmentSlotRepository;
+        this.properties = properties;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Réserve une place pour le transporteur au premier créneau libre à partir de requested
+     *
+     * @param fallbackHour heure des créneaux des jours suivants
+     * @return date et heure de départ du créneau obtenu
+     */
+    public LocalDateTime book(Carrier carrier, LocalDateTime requested, int fallbackHour) {
+        int capacity = capacityOf(carrier);
+        List<LocalDateTime> candidates = candidates(requested, fallbackHour);
+        LocalDate last = candidates.get(candidates.size() - 1).toLocalDate();
+
+        Map<LocalDateTime, Integer> booked = new HashMap<>();
+        for (ShipmentSlot slot : shipmentSlotRepository.findByCarrier_IdAndSlotDateBetween(
+                carrier.getId(), requested.toLocalDate(), last)) {
+            booked.put(slot.getSlotDate().atTime(slot.getSlotHour(), 0), slot.getBooked());
+        }
+
+        for (LocalDateTime candidate : candidates) {
+            Integer count = booked.get(candidate);
+            if (count != null && count >= capacity) {
+                continue;
+            }
+            if (count == null) {
+                createSlot(carrier, candidate);
+            }
+            // 0 : une planification concurrente a pris la dernière place entre la lecture et l'écriture
+            if (shipmentSlotRepository.bookIfAvailable(carrier.getId(), candidate.toLocalDate(),
+                    candidate.getHour(), capacity) == 1) {
+                return candidate;
+            }
+        }
+        throw new BusinessRuleException("Aucun créneau disponible pour le transporteur " + carrier.getName()
+                + " dans les " + properties.getSearchDays() + " jours ouvrés suivant le " + requested.toLocalDate());
+    }
+
+    /**
+     * Réserve count places réparties sur les transporteurs, au plus tôt : chaque créneau candidat est rempli
+     * transporteur après transporteur, dans l'ordre de la liste, avant de passer au suivant.
+     * Une seule lecture du remplissage pour tous les transporteurs ; relue seulement si une planification
+     * concurrente a pris des places entre-temps.
+     *
+     * @return les places obtenues, moins que count si l'horizon de recherche est plein
+     */
+    public List<SlotBooking> bookMany(List<Carrier> carriers, LocalDateTime requested, int fallbackHour, int count) {
+        List<LocalDateTime> candidates = candidates(requested, fallbackHour);
+        LocalDate last = candidates.get(candidates.size() - 1).toLocalDate();
+        List<UUID> carrierIds = carriers.stream().map(Carrier::getId).toList();
+
+        List<SlotBooking> bookings = new ArrayList<>();
+        int remaining = count;
+        boolean raced = true;
+        while (remaining > 0 && raced) {
+            raced = false;
+            Map<UUID, Map<LocalDateTime, Integer>> booked = new HashMap<>();
+            for (SlotFill fill : shipmentSlotRepository.findFillByCarrierIds(carrierIds, requested.toLocalDate(), last)) {
+                booked.computeIfAbsent(fill.carrierId(), id -> new HashMap<>())
+                        .put(fill.slotDate().atTime(fill.slotHour(), 0), fill.booked());
+            }
+
+            scan:
+            for (LocalDateTime candidate : candidates) {
+                for (Carrier carrier : carriers) {
+                    Integer current = booked.getOrDefault(carrier.getId(), Map.of()).get(candidate);
+                    int take = Math.min(capacityOf(carrier) - (current != null ? current : 0), remaining);
+                    if (take <= 0) {
+                        continue;
+                    }
+                    if (current == null) {
+                        createSlot(carrier, candidate);
+                    }
+                    if (shipmentSlotRepository.bookManyIfAvailable(carrier.getId(), candidate.toLocalDate(),
+                            candidate.getHour(), take, capacityOf(carrier)) == 0) {
+                        raced = true;
+                        break scan;
+                    }
+                    bookings.add(new SlotBooking(carrier, candidate, take));
+                    remaining -= take;
+                    if (remaining == 0) {
+                        break scan;
+                    }
+                }
+            }
+        }
+        return bookings;
+    }
+
+    /**
+     * Créneau demandé selon le cut-off : le jour même à l'heure du cut-off avant celui-ci,
+     * sinon le prochain jour ouvré à 9h
+     */
+    public static LocalDateTime requestedDeparture(LocalDateTime now, int cutoffHour) {
+        if (now.getHour() >= cutoffHour) {
+            return nextBusinessDay(now.toLocalDate()).atTime(9, 0);
+        }
+        return now.toLocalDate().atTime(cutoffHour, 0);
+    }
+
+    int capacityOf(Carrier carrier) {
+        return carrier.getSlotCapacity() != null ? carrier.getSlotCapacity() : properties.getDefaultCapacity();
+    }
+
+    List<LocalDateTime> candidates(LocalDateTime requested, int fallbackHour) {
+        List<LocalDateTime> candidates = new ArrayList<>(properties.getSearchDays() + 1);
+        candidates.add(requested.withMinute(0).withSecond(0).withNano(0));
+        LocalDate day = requested.toLocalDate();
+        for (int i = 0; i < properties.getSearchDays(); i++) {
+            day = nextBusinessDay(day);
+            candidates.add(day.atTime(fallbackHour, 0));
+        }
+        return candidates;
+    }
+
+    // Transaction séparée : un doublon concurrent n'invalide pas la transaction de l'appelant
+    private void createSlot(Carrier carrier, LocalDateTime slot) {
+        try {
+            newTransaction.executeWithoutResult(status -> shipmentSlotRepository.saveAndFlush(ShipmentSlot.builder()
+                    .carrier(carrier)
+                    .slotDate(slot.toLocalDate())
+                    .slotHour(slot.getHour())
+                    .booked(0)
+                    .build()));
+        } catch (DataIntegrityViolationException e) {
+            // Créé entre-temps par une autre planification
+        }
+    }
+
+    static LocalDate nextBusinessDay(LocalDate date) {
+        LocalDate next = date.plusDays(1);
+        while (next.getDayOfWeek() == DayOfWeek.SATURDAY || next.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            next = next.plusDays(1);
+        }
+        return next;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.ShipmentWaveProgressDto;
+import com.example.stockgestion.config.ShipmentWaveProperties;
+import com.example.stockgestion.exception.ConflictException;
+import com.example.stockgestion.models.Carrier;
+import com.example.stockgestion.models.enums.ShipmentStatus;
+import com.example.stockgestion.repositories.SalesOrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Planification par vague : une expédition PLANNED pour chaque commande RESERVED qui n'en a pas encore.
+ *
+ * Les commandes sont parcourues par page keyset, un lot par transaction. Pour un lot, les créneaux sont
+ * réservés en une fois sur tous les transporteurs (ShipmentSlotAllocator.bookMany, capacité par créneau
+ * respectée) puis les expéditions sont insérées par lots JDBC, sans passer par le contexte de persistance.
+ * Les compteurs de créneaux et les expéditions d'un lot sont donc validés ou annulés ensemble.
+ */
+@Component
+public class ShipmentWavePlanner {
+    private static final Logger log = LoggerFactory.getLogger(ShipmentWavePlanner.class);
+
+    static final String INSERT_SQL = "INSERT INTO shipments "
+            + "(id, sales_order_id, carrier_id, status, tracking_number, planned_departure_date, cutoff_hour) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final SalesOrderRepository salesOrderRepository;
+    private final ShipmentSlotAllocator shipmentSlotAllocator;
+    private final TrackingNumberGenerator trackingNumberGenerator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final ShipmentWaveProperties properties;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ShipmentWavePlanner(SalesOrderRepository salesOrderRepository, ShipmentSlotAllocator shipmentSlotAllocator,
+                               TrackingNumberGenerator trackingNumberGenerator, JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager, ShipmentWaveProperties properties) {
+        this.salesOrderRepository = salesOrderRepository;
+        this.shipmentSlotAllocator = shipmentSlotAllocator;
+        this.trackingNumberGenerator = trackingNumberGenerator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    /**
+     * Planifie toutes les commandes en attente ; s'arrête au premier lot qui ne trouve plus de créneau libre
+     *
+     * @param carriers     transporteurs actifs, remplis dans cet ordre
+     * @param requested    premier créneau candidat, calculé selon le cut-off
+     * @param fallbackHour heure des créneaux des jours suivants
+     * @param progress     reçoit l'avancement après chaque lot
+     * @return l'avancement final (done = true)
+     */
+    public ShipmentWaveProgressDto plan(List<Carrier> carriers, LocalDateTime requested, int cutoffHour,
+                                        int fallbackHour, Consumer<ShipmentWaveProgressDto> progress) {
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException("Une vague de planification des expéditions est déjà en cours");
+        }
+        try {
+            Instant startedAt = Instant.now();
+            ShipmentWaveProgressDto state = new ShipmentWaveProgressDto(startedAt, 0, 0, 0, 0, false, null);
+            UUID after = KeysetPaging.after(null);
+            while (true) {
+                List<UUID> orderIds = salesOrderRepository.findReservedWithoutShipmentIdsAfter(
+                        after, Limit.of(properties.getChunkSize()));
+                if (orderIds.isEmpty()) {
+                    break;
+                }
+                Integer planned = transaction.execute(status ->
+                        planChunk(orderIds, carriers, requested, cutoffHour, fallbackHour));
+                state.setChunks(state.getChunks() + 1);
+                state.setPlanned(state.getPlanned() + planned);
+                state.setDurationMs(Instant.now().toEpochMilli() - startedAt.toEpochMilli());
+                if (planned < orderIds.size()) {
+                    // Reste du lot et pages suivantes non parcourues
+                    state.setUnplanned(salesOrderRepository.countReservedWithoutShipment());
+                    state.setMessage("Aucun créneau libre pour les commandes restantes dans l'horizon de recherche");
+                    break;
+                }
+                progress.accept(state);
+                after = orderIds.get(orderIds.size() - 1);
+            }
+            state.setDone(true);
+            state.setDurationMs(Instant.now().toEpochMilli() - startedAt.toEpochMilli());
+            progress.accept(state);
+            log.info("Vague de planification : {} expéditions en {} lots, {} commandes sans créneau, {} ms",
+                    state.getPlanned(), state.getChunks(), state.getUnplanned(), state.getDurationMs());
+            return state;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Les commandes du lot sans place (horizon plein) restent sans expédition
+    private int planChunk(List<UUID> orderIds, List<Carrier> carriers, LocalDateTime requested, int cutoffHour,
+                          int fallbackHour) {
+        List<SlotBooking> bookings = shipmentSlotAllocator.bookMany(carriers, requested, fallbackHour, orderIds.size());
+        List<Object[]> rows = new ArrayList<>(orderIds.size());
+        for (SlotBooking booking : bookings) {
+            Carrier carrier = booking.carrier();
+            Object departure = booking.departure().atZone(ZoneId.systemDefault()).toInstant().atOffset(ZoneOffset.UTC);
+            for (int i = 0; i < booking.count(); i++) {
+                rows.add(new Object[]{UuidV7.next(), orderIds.get(rows.size()), carrier.getId(),
+                        ShipmentStatus.PLANNED.name(), trackingNumberGenerator.next(carrier),
+                        departure, cutoffHour});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        return rows.size();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.models.Carrier;
+
+import java.time.LocalDateTime;
+
+/**
+ * Places prises d'un coup dans un créneau de départ d'un transporteur
+ */
+public record SlotBooking(Carrier carrier, LocalDateTime departure, int count) {
+}
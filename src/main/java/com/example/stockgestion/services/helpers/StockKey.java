@@ -0,0 +1,14 @@
+package com.example.stockgestion.services.helpers;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Clé d'une ligne d'inventaire : couple (produit, entrepôt)
+ */
+public record StockKey(UUID productId, UUID warehouseId) {
+
+    // Ordre stable d'écriture des lignes, pour que deux lots concurrents verrouillent dans le même ordre
+    public static final Comparator<StockKey> LOCK_ORDER =
+            Comparator.comparing(StockKey::productId).thenComparing(StockKey::warehouseId);
+}
@@ -0,0 +1,198 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.ReconciliationReportDto;
+import com.example.stockgestion.Dto.response.StockDriftDto;
+import com.example.stockgestion.config.StockReconciliationProperties;
+import com.example.stockgestion.exception.ConflictException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rapprochement du stock physique (inventories.qty_on_hand) avec la somme des mouvements du journal.
+ *
+ * Un entrepôt est une unité de travail : les entrepôts sont répartis sur un ForkJoinPool dédié, et chacun
+ * est lu dans une transaction en lecture seule REPEATABLE READ, pour que le journal et les inventaires
+ * soient vus au même instant malgré les écritures concurrentes. L'agrégation par produit est faite par la
+ * base ; seul le résultat, une ligne par produit, est parcouru sur un curseur serveur (fetch size).
+ * Les quantités de sortie ayant été enregistrées avec les deux signes, le signe vient du type de mouvement.
+ */
+@Component
+public class StockReconciliationJob {
+    private static final Logger log = LoggerFactory.getLogger(StockReconciliationJob.class);
+
+    static final String WAREHOUSES_SQL = "SELECT id FROM warehouses";
+    static final String LEDGER_SQL = "SELECT product_id, SUM(CASE type WHEN 'INBOUND' THEN ABS(quantity) "
+            + "WHEN 'OUTBOUND' THEN -ABS(quantity) ELSE quantity END) FROM inventory_movements "
+            + "WHERE warehouse_id = ? GROUP BY product_id";
+    static final String BALANCE_SQL = "SELECT product_id, qty_on_hand FROM inventories WHERE warehouse_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final StockReconciliationProperties properties;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong driftedPairs = new AtomicLong();
+    private final AtomicLong driftUnits = new AtomicLong();
+    private final AtomicLong lastSuccess = new AtomicLong();
+    private final Timer duration;
+    private volatile ReconciliationReportDto lastReport;
+
+    public StockReconciliationJob(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry, StockReconciliationProperties properties) {
+        this.properties = properties;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getFetchSize());
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        Gauge.builder("stock.reconciliation.drifted.pairs", driftedPairs, AtomicLong::get)
+                .description("Couples produit/entrepôt dont le stock diffère du journal au dernier rapprochement")
+                .register(meterRegistry);
+        Gauge.builder("stock.reconciliation.drift.units", driftUnits, AtomicLong::get)
+                .description("Somme des écarts en valeur absolue au dernier rapprochement")
+                .register(meterRegistry);
+        Gauge.builder("stock.reconciliation.last.success", lastSuccess, AtomicLong::get)
+                .description("Fin du dernier rapprochement réussi (secondes epoch)")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.duration = Timer.builder("stock.reconciliation.duration")
+                .description("Durée d'un rapprochement complet")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${stock.reconciliation.cron:0 30 1 * * *}", zone = "UTC")
+    public void nightlyReconciliation() {
+        try {
+            reconcileAll();
+        } catch (ConflictException e) {
+            log.info("Rapprochement nocturne ignoré : {}", e.getMessage());
+        }
+    }
+
+    public Optional<ReconciliationReportDto> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    /**
+     * Rapproche tous les entrepôts et publie le rapport ; un seul rapprochement à la fois
+     */
+    public ReconciliationReportDto reconcileAll() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException("Un rapprochement du stock est déjà en cours");
+        }
+        try {
+            Instant startedAt = Instant.now();
+            long start = System.nanoTime();
+            List<UUID> warehouseIds = jdbcTemplate.queryForList(WAREHOUSES_SQL, UUID.class);
+
+            WarehouseScan total = new WarehouseScan(properties.getMaxReportedDrifts());
+            ForkJoinPool pool = new ForkJoinPool(Math.max(1, properties.getParallelism()));
+            try {
+                List<ForkJoinTask<WarehouseScan>> tasks = warehouseIds.stream()
+                        .map(warehouseId -> pool.submit(() -> scan(warehouseId)))
+                        .toList();
+                tasks.forEach(task -> total.merge(task.join()));
+            } finally {
+                pool.shutdown();
+            }
+
+            long nanos = System.nanoTime() - start;
+            duration.record(Duration.ofNanos(nanos));
+            ReconciliationReportDto report = new ReconciliationReportDto(startedAt, nanos / 1_000_000,
+                    warehouseIds.size(), total.pairsChecked, total.driftedPairs, total.driftUnits, total.drifts);
+            publish(report);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    WarehouseScan scan(UUID warehouseId) {
+        return snapshotTransaction.execute(status -> {
+            Map<UUID, Long> ledger = new HashMap<>();
+            jdbcTemplate.query(LEDGER_SQL, rs -> {
+                ledger.put(rs.getObject(1, UUID.class), rs.getLong(2));
+            }, warehouseId);
+
+            WarehouseScan scan = new WarehouseScan(properties.getMaxReportedDrifts());
+            jdbcTemplate.query(BALANCE_SQL, rs -> {
+                UUID productId = rs.getObject(1, UUID.class);
+                Long ledgerQty = ledger.remove(productId);
+                scan.check(productId, warehouseId, rs.getLong(2), ledgerQty != null ? ledgerQty : 0);
+            }, warehouseId);
+            // Mouvements sans ligne d'inventaire
+            ledger.forEach((productId, ledgerQty) -> scan.check(productId, warehouseId, 0, ledgerQty));
+            return scan;
+        });
+    }
+
+    private void publish(ReconciliationReportDto report) {
+        lastReport = report;
+        driftedPairs.set(report.getDriftedPairs());
+        driftUnits.set(report.getDriftUnits());
+        lastSuccess.set(Instant.now().getEpochSecond());
+        if (report.getDriftedPairs() > 0) {
+            log.warn("Rapprochement du stock : {} couples en écart ({} unités) sur {} vérifiés en {} ms",
+                    report.getDriftedPairs(), report.getDriftUnits(), report.getPairsChecked(), report.getDurationMs());
+        } else {
+            log.info("Rapprochement du stock : {} couples conformes en {} ms",
+                    report.getPairsChecked(), report.getDurationMs());
+        }
+    }
+
+    static final class WarehouseScan {
+        private final int maxDrifts;
+        private long pairsChecked;
+        private long driftedPairs;
+        private long driftUnits;
+        private final List<StockDriftDto> drifts = new ArrayList<>();
+
+        WarehouseScan(int maxDrifts) {
+            this.maxDrifts = maxDrifts;
+        }
+
+        void check(UUID productId, UUID warehouseId, long qtyOnHand, long ledgerQty) {
+            pairsChecked++;
+            long drift = qtyOnHand - ledgerQty;
+            if (drift == 0) {
+                return;
+            }
+            driftedPairs++;
+            driftUnits += Math.abs(drift);
+            if (drifts.size() < maxDrifts) {
+                drifts.add(new StockDriftDto(productId, warehouseId, qtyOnHand, ledgerQty, drift));
+            }
+        }
+
+        void merge(WarehouseScan other) {
+            pairsChecked += other.pairsChecked;
+            driftedPairs += other.driftedPairs;
+            driftUnits += other.driftUnits;
+            other.drifts.stream().limit(Math.max(0, maxDrifts - drifts.size())).forEach(drifts::add);
+        }
+    }
+}
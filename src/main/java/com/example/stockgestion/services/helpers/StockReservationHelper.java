@@ -1,5 +1,6 @@
 package com.example.stockgestion.services.helpers;
 
+import com.example.stockgestion.exception.ConflictException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.Inventory;
 import com.example.stockgestion.models.Product;
@@ -8,54 +9,88 @@ import com.example.stockgestion.models.SalesOrderLine;
 import com.example.stockgestion.models.WareHouse;
 import com.example.stockgestion.repositories.InventoryRepository;
 import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.services.allocation.AllocationStrategy;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Component
 @AllArgsConstructor
 public class StockReservationHelper {
+    // Nombre de relectures tolérées quand un autre créateur de commande a consommé le stock entre-temps
+    static final int MAX_RESERVATION_ATTEMPTS = 3;
+
     private final InventoryRepository inventoryRepository;
     private final WareHouseRepository wareHouseRepository;
+    private final AvailabilityLedger availabilityLedger;
 
 
-    public List<Inventory> getInventoriesSortedByAvailability(Product product) {
-        List<Inventory> inventories = inventoryRepository.findByProduct_Id(product.getId());
-        inventories.sort(Comparator.comparingLong(inv -> 
-            -(inv.getQtyOnHand() - inv.getQtyReserved())
-        ));
-        return inventories;
+    public List<WarehouseAvailability> getWarehousesSortedByAvailability(Product product) {
+        return availabilityLedger.availabilities(product.getId());
     }
 
 
+    /**
+     * Répartit la quantité demandée sur les entrepôts du ledger, dans l'ordre choisi par la stratégie,
+     * puis met le reste en backorder. Aucune lecture de la table inventories.
+     */
     public ReservationResult reserveAcrossWarehouses(
             SalesOrder order,
             Product product,
             BigDecimal unitPrice,
             long requestedQty,
-            List<Inventory> inventories,
-            List<Inventory> inventoriesToUpdate
+            AllocationStrategy strategy
     ) {
+        return allocate(order, product, unitPrice, requestedQty, strategy, this::reserveInWarehouse);
+    }
+
+
+    /**
+     * Variante lot : la réservation n'est prise que dans le ledger et les quantités sont cumulées
+     * par couple dans pendingDeltas, écrites ensuite en une passe par applyPendingReservations.
+     * Chaque prise est rendue au ledger si la transaction est annulée, quelle qu'en soit la cause.
+     */
+    public ReservationResult allocateInLedger(
+            SalesOrder order,
+            Product product,
+            BigDecimal unitPrice,
+            long requestedQty,
+            AllocationStrategy strategy,
+            Map<StockKey, Long> pendingDeltas
+    ) {
+        return allocate(order, product, unitPrice, requestedQty, strategy, (productId, warehouseId, wantedQty) -> {
+            long taken = takeFromLedger(productId, warehouseId, wantedQty);
+            if (taken > 0) {
+                pendingDeltas.merge(new StockKey(productId, warehouseId), taken, Long::sum);
+            }
+            return taken;
+        });
+    }
+
+
+    private ReservationResult allocate(SalesOrder order, Product product, BigDecimal unitPrice, long requestedQty,
+                                       AllocationStrategy strategy, WarehouseReserver reserver) {
+        List<WarehouseAvailability> candidates =
+                strategy.rank(getWarehousesSortedByAvailability(product), requestedQty, order.getClient());
         List<SalesOrderLine> lines = new ArrayList<>();
         long remainingQty = requestedQty;
         boolean hasReserved = false;
 
         // Réserver dans chaque warehouse disponible
-        for (Inventory inventory : inventories) {
+        for (WarehouseAvailability candidate : candidates) {
             if (remainingQty <= 0) break;
-            
-            long availableQty = calculateAvailableQty(inventory);
-            if (availableQty <= 0) continue;
+            if (candidate.available() <= 0) continue;
 
-            long qtyToReserve = Math.min(availableQty, remainingQty);
-            
-            reserveInventory(inventory, qtyToReserve, inventoriesToUpdate);
-            SalesOrderLine line = buildReservedLine(order, product, inventory.getWarehouse(), 
-                                                     qtyToReserve, unitPrice);
+            long qtyToReserve = reserver.reserve(product.getId(), candidate.warehouseId(), remainingQty);
+            if (qtyToReserve <= 0) continue;
+
+            WareHouse warehouse = wareHouseRepository.getReferenceById(candidate.warehouseId());
+            SalesOrderLine line = buildReservedLine(order, product, warehouse, qtyToReserve, unitPrice);
             lines.add(line);
             
             remainingQty -= qtyToReserve;
@@ -65,7 +100,7 @@ public class StockReservationHelper {
         // Créer backorder si stock insuffisant
         boolean hasBackorder = false;
         if (remainingQty > 0) {
-            WareHouse fallbackWarehouse = findFallbackWarehouse(inventories);
+            WareHouse fallbackWarehouse = findFallbackWarehouse(candidates);
             SalesOrderLine backorderLine = buildBackorderLine(order, product, fallbackWarehouse, 
                                                               remainingQty, unitPrice);
             lines.add(backorderLine);
@@ -81,9 +116,75 @@ public class StockReservationHelper {
     }
 
 
-    public void reserveInventory(Inventory inventory, long qty, List<Inventory> inventoriesToUpdate) {
-        inventory.setQtyReserved(inventory.getQtyReserved() + qty);
-        inventoriesToUpdate.add(inventory);
+    /**
+     * Réserve jusqu'à wantedQty unités : décision dans le ledger, puis delta envoyé
+     * via un UPDATE conditionnel (jamais de sur-réservation, même si le ledger est en retard).
+     * Si la base refuse, la prise est annulée, le couple resynchronisé et on réessaie (borné).
+     * Retourne la quantité effectivement réservée.
+     */
+    public long reserveInWarehouse(UUID productId, UUID warehouseId, long wantedQty) {
+        for (int attempt = 0; attempt < MAX_RESERVATION_ATTEMPTS; attempt++) {
+            long qtyToReserve = Math.min(availabilityLedger.available(productId, warehouseId), wantedQty);
+            if (qtyToReserve <= 0) {
+                return 0;
+            }
+            if (!availabilityLedger.tryReserve(productId, warehouseId, qtyToReserve)) {
+                continue;
+            }
+            int updated;
+            try {
+                updated = inventoryRepository.reserveIfAvailable(productId, warehouseId, qtyToReserve);
+            } catch (RuntimeException e) {
+                availabilityLedger.cancelReservation(productId, warehouseId, qtyToReserve);
+                throw e;
+            }
+            if (updated == 1) {
+                availabilityLedger.settleOnCompletion(productId, warehouseId, qtyToReserve);
+                return qtyToReserve;
+            }
+            availabilityLedger.cancelReservation(productId, warehouseId, qtyToReserve);
+            availabilityLedger.resync(productId, warehouseId);
+        }
+        return 0;
+    }
+
+
+    private long takeFromLedger(UUID productId, UUID warehouseId, long wantedQty) {
+        for (int attempt = 0; attempt < MAX_RESERVATION_ATTEMPTS; attempt++) {
+            long qtyToReserve = Math.min(availabilityLedger.available(productId, warehouseId), wantedQty);
+            if (qtyToReserve <= 0) {
+                return 0;
+            }
+            if (availabilityLedger.tryReserve(productId, warehouseId, qtyToReserve)) {
+                availabilityLedger.settleOnCompletion(productId, warehouseId, qtyToReserve);
+                return qtyToReserve;
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * Écrit les réservations cumulées d'un lot : un UPDATE conditionnel par couple (produit, entrepôt),
+     * dans un ordre stable. Si la base refuse un couple (ledger en retard sur une autre instance),
+     * le lot est rejeté : le rollback annule les couples déjà écrits et rend au ledger les prises
+     * d'allocateInLedger, puis seul le couple refusé est relu, en place.
+     */
+    public void applyPendingReservations(Map<StockKey, Long> pendingDeltas) {
+        List<StockKey> keys = new ArrayList<>(pendingDeltas.keySet());
+        keys.sort(StockKey.LOCK_ORDER);
+        for (int i = 0; i < keys.size(); i++) {
+            StockKey key = keys.get(i);
+            long qty = pendingDeltas.get(key);
+            if (inventoryRepository.reserveIfAvailable(key.productId(), key.warehouseId(), qty) == 1) {
+                continue;
+            }
+            for (StockKey pending : keys.subList(i, keys.size())) {
+                availabilityLedger.cancelUnlessRolledBack(pending.productId(), pending.warehouseId(), pendingDeltas.get(pending));
+            }
+            availabilityLedger.resyncAfterRollback(key.productId(), key.warehouseId());
+            throw new ConflictException("Le stock a changé pendant le traitement du lot, veuillez renvoyer le lot.");
+        }
     }
 
 
@@ -115,9 +216,9 @@ public class StockReservationHelper {
     }
 
 
-    public WareHouse findFallbackWarehouse(List<Inventory> inventories) {
-        if (!inventories.isEmpty()) {
-            return inventories.get(0).getWarehouse();
+    public WareHouse findFallbackWarehouse(List<WarehouseAvailability> candidates) {
+        if (!candidates.isEmpty()) {
+            return wareHouseRepository.getReferenceById(candidates.get(0).warehouseId());
         }
         
         List<WareHouse> allWarehouses = wareHouseRepository.findAll();
@@ -129,9 +230,8 @@ public class StockReservationHelper {
     }
 
 
-    public void saveInventoriesInBatch(List<Inventory> inventoriesToUpdate) {
-        if (!inventoriesToUpdate.isEmpty()) {
-            inventoryRepository.saveAll(inventoriesToUpdate);
-        }
+    @FunctionalInterface
+    private interface WarehouseReserver {
+        long reserve(UUID productId, UUID warehouseId, long wantedQty);
     }
 }
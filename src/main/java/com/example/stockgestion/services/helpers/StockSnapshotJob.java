@@ -0,0 +1,118 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.models.StockSnapshot;
+import com.example.stockgestion.repositories.InventoryMovmentRepository;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.repositories.StockSnapshotRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.repositories.projections.StockCheckpoint;
+import com.example.stockgestion.repositories.projections.StockDelta;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Prise quotidienne des points de reprise du stock physique (stock_snapshots).
+ *
+ * Le point est daté du début de la journée UTC et non de l'heure d'exécution, pour que les transactions
+ * encore ouvertes à minuit aient commité avant le calcul. Seuls les couples qui ont bougé depuis le point
+ * précédent reçoivent un nouveau point : leur dernier stock connu plus la variation depuis leur propre dernier
+ * point, qui peut être plus ancien que le dernier point de la table (mouvement antidaté entre les deux).
+ * Après une interruption, un seul point couvre toute la période manquée.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockSnapshotJob {
+    private static final Logger log = LoggerFactory.getLogger(StockSnapshotJob.class);
+
+    // Taille des listes IN pour relire les points précédents
+    private static final int IN_CHUNK = 1000;
+
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final InventoryMovmentRepository inventoryMovmentRepository;
+    private final ProductRepository productRepository;
+    private final WareHouseRepository wareHouseRepository;
+
+    @Scheduled(cron = "${stock.snapshots.cron:0 15 0 * * *}", zone = "UTC")
+    @Transactional
+    public void takeDailySnapshots() {
+        takeSnapshots(LocalDate.now(ZoneOffset.UTC).atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    /**
+     * Enregistre un point de reprise à la date donnée pour chaque couple ayant bougé depuis le précédent
+     *
+     * @return nombre de points écrits
+     */
+    @Transactional
+    public int takeSnapshots(Instant checkpoint) {
+        Instant from = stockSnapshotRepository.findLatestTakenAt().orElse(Instant.EPOCH);
+        if (!checkpoint.isAfter(from)) {
+            return 0;
+        }
+        List<StockDelta> deltas = inventoryMovmentRepository.sumDeltasBetween(from, checkpoint);
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        Map<StockKey, StockCheckpoint> latest = new HashMap<>();
+        List<UUID> productIds = deltas.stream().map(StockDelta::productId).distinct().toList();
+        for (int i = 0; i < productIds.size(); i += IN_CHUNK) {
+            stockSnapshotRepository.findLatestByProductIdIn(productIds.subList(i, Math.min(i + IN_CHUNK, productIds.size())))
+                    .forEach(snapshot -> latest.put(key(snapshot), snapshot));
+        }
+
+        // Base de chaque couple : son dernier point, plus ses mouvements entre ce point et from s'il est plus ancien
+        Map<StockKey, Long> previous = new HashMap<>();
+        latest.forEach((key, snapshot) -> previous.put(key, snapshot.qtyOnHand()));
+        Instant since = from;
+        Set<UUID> lagging = new LinkedHashSet<>();
+        for (StockDelta delta : deltas) {
+            StockCheckpoint snapshot = latest.get(new StockKey(delta.productId(), delta.warehouseId()));
+            Instant takenAt = snapshot != null ? snapshot.takenAt() : Instant.EPOCH;
+            if (takenAt.isBefore(from)) {
+                lagging.add(delta.productId());
+                since = takenAt.isBefore(since) ? takenAt : since;
+            }
+        }
+        List<UUID> laggingIds = List.copyOf(lagging);
+        for (int i = 0; i < laggingIds.size(); i += IN_CHUNK) {
+            inventoryMovmentRepository.sumDeltasSinceLatestSnapshot(
+                            laggingIds.subList(i, Math.min(i + IN_CHUNK, laggingIds.size())), since, from)
+                    .forEach(missed -> previous.merge(new StockKey(missed.productId(), missed.warehouseId()),
+                            missed.delta(), Long::sum));
+        }
+
+        List<StockSnapshot> snapshots = new ArrayList<>(deltas.size());
+        for (StockDelta delta : deltas) {
+            long base = previous.getOrDefault(new StockKey(delta.productId(), delta.warehouseId()), 0L);
+            snapshots.add(StockSnapshot.builder()
+                    .product(productRepository.getReferenceById(delta.productId()))
+                    .warehouse(wareHouseRepository.getReferenceById(delta.warehouseId()))
+                    .takenAt(checkpoint)
+                    .qtyOnHand(base + delta.delta())
+                    .build());
+        }
+        stockSnapshotRepository.saveAll(snapshots);
+        log.info("Points de reprise du stock au {} : {} couples", checkpoint, snapshots.size());
+        return snapshots.size();
+    }
+
+    private static StockKey key(StockCheckpoint snapshot) {
+        return new StockKey(snapshot.productId(), snapshot.warehouseId());
+    }
+}
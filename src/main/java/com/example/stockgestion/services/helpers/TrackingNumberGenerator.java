@@ -0,0 +1,105 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.TrackingNumberProperties;
+import com.example.stockgestion.models.Carrier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Numéros de suivi uniques entre threads et entre instances, sans verrou.
+ *
+ * Identifiant sur 63 bits à la Snowflake : 41 bits de millisecondes depuis 2024, 10 bits de numéro
+ * d'instance, 12 bits de séquence. Millisecondes et séquence forment un seul compteur logique avancé par
+ * compare-and-set : au-delà de 4096 numéros dans la milliseconde, il emprunte la suivante au lieu
+ * d'attendre, et un retour en arrière de l'horloge ne le fait jamais reculer.
+ * Le numéro est préfixé comme avant par le transporteur et suivi d'une clé de Luhn, qui détecte
+ * une erreur de saisie sur un chiffre ou l'inversion de deux chiffres voisins.
+ */
+@Component
+public class TrackingNumberGenerator {
+
+    static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int DIGITS = 19; // Long.MAX_VALUE
+
+    private final long node;
+    private final LongSupplier clock;
+    // (millisecondes depuis EPOCH << SEQUENCE_BITS) | séquence du dernier identifiant émis
+    private final AtomicLong last = new AtomicLong();
+
+    @Autowired
+    public TrackingNumberGenerator(TrackingNumberProperties properties) {
+        this(properties.getNodeId(), System::currentTimeMillis);
+    }
+
+    TrackingNumberGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("shipment.tracking.node-id doit être compris entre 0 et " + MAX_NODE_ID);
+        }
+        this.node = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    /**
+     * Numéro de suivi : 3 premières lettres du transporteur, identifiant sur 19 chiffres, clé de Luhn
+     */
+    public String next(Carrier carrier) {
+        String name = carrier.getName();
+        String prefix = name.substring(0, Math.min(3, name.length())).toUpperCase();
+        String id = Long.toString(nextId());
+        StringBuilder number = new StringBuilder(prefix.length() + 1 + DIGITS + 1).append(prefix).append('-');
+        for (int i = id.length(); i < DIGITS; i++) {
+            number.append('0');
+        }
+        number.append(id);
+        return number.append(luhn(number, prefix.length() + 1)).toString();
+    }
+
+    long nextId() {
+        long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+        long tick = last.updateAndGet(previous -> Math.max(now, previous + 1));
+        return (tick >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | node | (tick & SEQUENCE_MASK);
+    }
+
+    /**
+     * Vérifie la clé de Luhn d'un numéro produit par next (chiffres après le tiret)
+     */
+    public static boolean hasValidCheckDigit(String trackingNumber) {
+        int dash = trackingNumber.lastIndexOf('-');
+        if (dash < 0 || trackingNumber.length() - dash - 1 != DIGITS + 1) {
+            return false;
+        }
+        for (int i = dash + 1; i < trackingNumber.length(); i++) {
+            if (!Character.isDigit(trackingNumber.charAt(i))) {
+                return false;
+            }
+        }
+        CharSequence payload = trackingNumber.subSequence(0, trackingNumber.length() - 1);
+        return luhn(payload, dash + 1) == trackingNumber.charAt(trackingNumber.length() - 1);
+    }
+
+    // Clé de Luhn des chiffres de digits à partir de start ; un chiffre sur deux doublé en partant de la droite
+    private static char luhn(CharSequence digits, int start) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = digits.length() - 1; i >= start; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+}
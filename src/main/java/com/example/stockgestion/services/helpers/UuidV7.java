@@ -0,0 +1,50 @@
+package com.example.stockgestion.services.helpers;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Identifiants UUID version 7 (RFC 9562) : 48 bits de millisecondes en tête, puis un compteur
+ * sur 12 bits et 62 bits aléatoires. Les identifiants d'un même processus sont strictement croissants,
+ * ce qui garde les insertions en fin d'index au lieu de les disperser comme un UUID v4.
+ */
+public final class UuidV7 {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int MAX_COUNTER = 0xFFF;
+
+    private static long lastMillis = -1;
+    private static int counter;
+
+    private UuidV7() {
+    }
+
+    public static UUID next() {
+        long millis;
+        int sequence;
+        synchronized (UuidV7.class) {
+            millis = Math.max(System.currentTimeMillis(), lastMillis);
+            if (millis == lastMillis) {
+                // Même milliseconde : on incrémente le compteur, on emprunte la milliseconde suivante s'il déborde
+                if (++counter > MAX_COUNTER) {
+                    millis++;
+                    counter = 0;
+                }
+            } else {
+                counter = 0;
+            }
+            lastMillis = millis;
+            sequence = counter;
+        }
+        long msb = (millis << 16) | (0x7L << 12) | sequence;
+        long lsb = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Milliseconde de création encodée dans un UUID v7
+     */
+    public static long timestamp(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.stockgestion.services.helpers;
+
+import java.util.UUID;
+
+/**
+ * Disponible (qtyOnHand - qtyReserved) d'un produit dans un entrepôt, lu depuis le ledger
+ */
+public record WarehouseAvailability(UUID warehouseId, long available) {
+}
@@ -0,0 +1,67 @@
+-- Passage de inventory_movements à une table partitionnée par mois sur occurred_at (PostgreSQL 12+).
+--
+-- À exécuter une seule fois, application arrêtée :
+--   psql -d stockgestiondb -f inventory_movements_partitioning.sql
+-- Les partitions des mois suivants sont ensuite créées au démarrage par InventoryMovementPartitions
+-- (inventory.movements.partitions-ahead). La clé primaire inclut occurred_at, comme l'exige PostgreSQL
+-- pour une table partitionnée ; les identifiants restent uniques (UUID v7).
+
+BEGIN;
+
+ALTER TABLE inventory_movements RENAME TO inventory_movements_legacy;
+ALTER TABLE inventory_movements_legacy RENAME CONSTRAINT inventory_movements_pkey TO inventory_movements_legacy_pkey;
+DROP INDEX IF EXISTS idx_inventory_movements_product_warehouse_type;
+DROP INDEX IF EXISTS idx_inventory_movements_product_warehouse_occurred;
+DROP INDEX IF EXISTS idx_inventory_movements_product_type;
+DROP INDEX IF EXISTS idx_inventory_movements_warehouse_type;
+DROP INDEX IF EXISTS idx_inventory_movements_type;
+DROP INDEX IF EXISTS idx_inventory_movements_occurred_at;
+
+CREATE TABLE inventory_movements (
+    id            uuid                     NOT NULL,
+    product_id    uuid                     NOT NULL REFERENCES products (id),
+    warehouse_id  uuid                     NOT NULL REFERENCES warehouses (id),
+    type          varchar(20)              NOT NULL CHECK (type IN ('INBOUND', 'OUTBOUND', 'ADJUSTMENT')),
+    quantity      bigint                   NOT NULL,
+    occurred_at   timestamp(6) with time zone NOT NULL,
+    reference_doc varchar(255),
+    PRIMARY KEY (id, occurred_at)
+) PARTITION BY RANGE (occurred_at);
+
+-- Index déclarés sur la table mère : PostgreSQL les crée sur chaque partition
+CREATE INDEX idx_inventory_movements_product_warehouse_type ON inventory_movements (product_id, warehouse_id, type, occurred_at);
+CREATE INDEX idx_inventory_movements_product_warehouse_occurred ON inventory_movements (product_id, warehouse_id, occurred_at);
+CREATE INDEX idx_inventory_movements_product_type ON inventory_movements (product_id, type, occurred_at);
+CREATE INDEX idx_inventory_movements_warehouse_type ON inventory_movements (warehouse_id, type, occurred_at);
+CREATE INDEX idx_inventory_movements_type ON inventory_movements (type, occurred_at);
+CREATE INDEX idx_inventory_movements_occurred_at ON inventory_movements (occurred_at);
+
+-- Une partition par mois déjà présent dans l'historique, plus le mois courant
+DO $$
+DECLARE
+    month_start timestamptz;
+BEGIN
+    FOR month_start IN
+        SELECT DISTINCT date_trunc('month', occurred_at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC'
+        FROM inventory_movements_legacy
+        UNION
+        SELECT date_trunc('month', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC'
+    LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF inventory_movements FOR VALUES FROM (%L) TO (%L)',
+            'inventory_movements_' || to_char(month_start AT TIME ZONE 'UTC', 'YYYY_MM'),
+            month_start,
+            month_start + interval '1 month');
+    END LOOP;
+END $$;
+
+-- Filet de sécurité pour une date hors des partitions créées (import, horloge décalée)
+CREATE TABLE inventory_movements_default PARTITION OF inventory_movements DEFAULT;
+
+INSERT INTO inventory_movements (id, product_id, warehouse_id, type, quantity, occurred_at, reference_doc)
+SELECT id, product_id, warehouse_id, type, quantity, occurred_at, reference_doc
+FROM inventory_movements_legacy;
+
+DROP TABLE inventory_movements_legacy;
+
+COMMIT;
@@ -0,0 +1,21 @@
+-- Initialisation des compteurs de créneaux (shipment_slots) à partir des expéditions existantes (PostgreSQL).
+-- Toutes les expéditions du créneau sont comptées, quel que soit leur statut : comme ShipmentService, qui ne
+-- libère jamais la place d'une expédition une fois planifiée (partie, livrée ou non).
+--
+-- À exécuter une seule fois, après le premier démarrage qui crée la table, application arrêtée, et avec le
+-- fuseau horaire de l'application pour que date et heure de créneau soient celles calculées par ShipmentService :
+--   PGTZ=Europe/Paris psql -d stockgestiondb -f shipment_slots_backfill.sql
+
+BEGIN;
+
+INSERT INTO shipment_slots (id, carrier_id, slot_date, slot_hour, booked)
+SELECT gen_random_uuid(), carrier_id,
+       planned_departure_date::date,
+       extract(hour FROM planned_departure_date)::int,
+       count(*)
+FROM shipments
+WHERE planned_departure_date IS NOT NULL
+GROUP BY carrier_id, planned_departure_date::date, extract(hour FROM planned_departure_date)
+ON CONFLICT (carrier_id, slot_date, slot_hour) DO UPDATE SET booked = EXCLUDED.booked;
+
+COMMIT;
@@ -0,0 +1,139 @@
+package com.example.stockgestion.Dto.response;
+
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.SalesOrder;
+import com.example.stockgestion.models.SalesOrderLine;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.SOStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compare le mapping réflexif de ModelMapper aux constructeurs des DTO sur 10 000 commandes
+ * de 1 à 5 lignes (graine fixe), et vérifie que les deux produisent le même contenu.
+ * Hors de mvn test : lancé avec -Pbenchmark.
+ */
+@Tag("benchmark")
+class OrderMappingBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderMappingBenchmarkTest.class);
+
+    private static final int ORDERS = 10_000;
+    private static final int WARMUP_ROUNDS = 5;
+
+    private final Random random = new Random(42);
+    private List<SalesOrder> orders;
+
+    @BeforeEach
+    void setUp() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Product product = new Product();
+            product.setId(UUID.randomUUID());
+            product.setSku("SKU-" + i);
+            product.setName("Produit " + i);
+            product.setCategory("CAT-" + (i % 5));
+            product.setActive(true);
+            product.setPrice(BigDecimal.valueOf(10 + i));
+            products.add(product);
+        }
+        List<WareHouse> warehouses = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            WareHouse warehouse = new WareHouse();
+            warehouse.setId(UUID.randomUUID());
+            warehouse.setCode("WH-" + i);
+            warehouse.setName("Entrepôt " + i);
+            warehouses.add(warehouse);
+        }
+        Client client = new Client();
+        client.setId(UUID.randomUUID());
+        client.setName("Client");
+
+        orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            SalesOrder order = new SalesOrder();
+            order.setId(UUID.randomUUID());
+            order.setClient(client);
+            order.setStatus(SOStatus.RESERVED);
+            order.setCreatedAt(Instant.now());
+            List<SalesOrderLine> lines = new ArrayList<>();
+            BigDecimal total = BigDecimal.ZERO;
+            for (int l = 0, count = 1 + random.nextInt(5); l < count; l++) {
+                Product product = products.get(random.nextInt(products.size()));
+                long qty = 1 + random.nextInt(20);
+                lines.add(SalesOrderLine.builder()
+                        .id(UUID.randomUUID())
+                        .salesOrder(order)
+                        .product(product)
+                        .warehouse(warehouses.get(random.nextInt(warehouses.size())))
+                        .quantity(qty)
+                        .qtyReserved(qty)
+                        .unitPrice(product.getPrice())
+                        .build());
+                total = total.add(product.getPrice().multiply(BigDecimal.valueOf(qty)));
+            }
+            order.setLines(lines);
+            order.setTotalPrice(total);
+            orders.add(order);
+        }
+    }
+
+    @Test
+    void compareModelMapperAndConstructors_On10000Orders() {
+        ModelMapper modelMapper = new ModelMapper();
+        Function<SalesOrder, SalesOrderResponseDto> reflective = order -> modelMapper.map(order, SalesOrderResponseDto.class);
+        Function<SalesOrder, SalesOrderResponseDto> constructor = SalesOrderResponseDto::new;
+
+        long reflectiveNanos = measure(reflective);
+        long constructorNanos = measure(constructor);
+        log.info("Mapping {} {} ns/order", "ModelMapper", reflectiveNanos / ORDERS);
+        log.info("Mapping {} {} ns/order", "constructor", constructorNanos / ORDERS);
+
+        assertSameContent(reflective.apply(orders.get(0)), constructor.apply(orders.get(0)));
+        assertTrue(constructorNanos < reflectiveNanos,
+                "constructor=" + constructorNanos + "ns ModelMapper=" + reflectiveNanos + "ns");
+    }
+
+    private long measure(Function<SalesOrder, SalesOrderResponseDto> mapper) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            orders.forEach(mapper::apply);
+        }
+        long start = System.nanoTime();
+        List<SalesOrderResponseDto> mapped = orders.stream().map(mapper).toList();
+        long elapsed = System.nanoTime() - start;
+        assertEquals(ORDERS, mapped.size());
+        return elapsed;
+    }
+
+    private void assertSameContent(SalesOrderResponseDto expected, SalesOrderResponseDto actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getClient().getId(), actual.getClient().getId());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getTotalPrice(), actual.getTotalPrice());
+        assertEquals(expected.getLines().size(), actual.getLines().size());
+        for (int i = 0; i < expected.getLines().size(); i++) {
+            SalesOrderLineResponseDto expectedLine = expected.getLines().get(i);
+            SalesOrderLineResponseDto actualLine = actual.getLines().get(i);
+            assertEquals(expectedLine.getId(), actualLine.getId());
+            assertEquals(expectedLine.getProduct().getSku(), actualLine.getProduct().getSku());
+            assertEquals(expectedLine.getWarehouse().getCode(), actualLine.getWarehouse().getCode());
+            assertEquals(expectedLine.getQuantity(), actualLine.getQuantity());
+            assertEquals(expectedLine.getUnitPrice(), actualLine.getUnitPrice());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.stockgestion.controlleurs;
+
+import com.example.stockgestion.Dto.response.AsnResponseDto;
+import com.example.stockgestion.config.JwtConfigProperties;
+import com.example.stockgestion.config.SecurityConfig;
+import com.example.stockgestion.models.enums.Role;
+import com.example.stockgestion.security.JwtPrincipal;
+import com.example.stockgestion.security.JwtPrincipalCache;
+import com.example.stockgestion.security.JwtService;
+import com.example.stockgestion.services.AsnService;
+import com.example.stockgestion.services.UserDetailsServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Règles d'accès de /api/asns, à travers le filtre JWT réel (principal servi par le cache des jetons)
+ */
+@WebMvcTest(AsnController.class)
+@Import({SecurityConfig.class, JwtConfigProperties.class})
+class AsnControllerSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private AsnService asnService;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    @MockitoBean
+    private JwtPrincipalCache principalCache;
+
+    @MockitoBean
+    private UserDetailsServiceImpl userDetailsService;
+
+    private String tokenFor(Role role) {
+        String token = "token-" + role.name();
+        when(principalCache.get(token)).thenReturn(new JwtPrincipal(role.name().toLowerCase() + "@test", role, null));
+        return "Bearer " + token;
+    }
+
+    @Test
+    void getAsn_ShouldBeForbidden_ForClient() throws Exception {
+        mockMvc.perform(get("/api/asns/{id}", UUID.randomUUID())
+                        .header("Authorization", tokenFor(Role.CLIENT)))
+                .andExpect(status().isForbidden());
+
+        verify(asnService, never()).getAsnById(any());
+    }
+
+    @Test
+    void getAsn_ShouldBeAllowed_ForWarehouseManager() throws Exception {
+        // Given
+        UUID asnId = UUID.randomUUID();
+        when(asnService.getAsnById(asnId)).thenReturn(new AsnResponseDto());
+
+        // When & Then
+        mockMvc.perform(get("/api/asns/{id}", asnId)
+                        .header("Authorization", tokenFor(Role.WAREHOUSE_MANAGER)))
+                .andExpect(status().isOk());
+    }
+}
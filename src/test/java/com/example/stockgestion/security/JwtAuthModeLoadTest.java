@@ -0,0 +1,129 @@
+package com.example.stockgestion.security;
+
+import com.example.stockgestion.config.JwtConfigProperties;
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.User;
+import com.example.stockgestion.models.enums.Role;
+import com.example.stockgestion.repositories.UserRepository;
+import com.example.stockgestion.services.ClientDataService;
+import com.example.stockgestion.services.UserDetailsServiceImpl;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Charge sur le chemin d'authentification de GET /api/sales-orders (filtre JWT puis filtre client),
+ * en mode DATABASE puis CLAIMS : requêtes/s et nombre de lectures d'utilisateur en base.
+ * Le dépôt utilisateur est simulé : l'écart réel en production s'ajoute d'un aller-retour Postgres par lecture.
+ * Hors de mvn test : lancé avec -Pbenchmark.
+ */
+@Tag("benchmark")
+class JwtAuthModeLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthModeLoadTest.class);
+
+    private static final int USERS = 50;
+    private static final int REQUESTS = 20_000;
+    private static final int WARMUP_REQUESTS = 5_000;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void compareAuthModes_OnSalesOrdersListing() throws Exception {
+        long[] database = run(JwtAuthMode.DATABASE);
+        long[] claims = run(JwtAuthMode.CLAIMS);
+
+        log.info("Auth {} {} req/s, {} user lookups", "DATABASE", Math.round(rate(database)), database[1]);
+        log.info("Auth {} {} req/s, {} user lookups", "CLAIMS", Math.round(rate(claims)), claims[1]);
+
+        // DATABASE : une lecture par jeton pour le filtre, puis une par requête pour le filtre client
+        assertTrue(database[1] >= REQUESTS);
+        assertEquals(0, claims[1]);
+    }
+
+    private double rate(long[] result) {
+        return REQUESTS / (result[0] / 1e9);
+    }
+
+    // Retourne {durée des requêtes mesurées en ns, lectures d'utilisateur pendant la mesure}
+    private long[] run(JwtAuthMode mode) throws Exception {
+        JwtConfigProperties config = new JwtConfigProperties();
+        config.setAuthMode(mode);
+        JwtService jwtService = new JwtService(config);
+
+        Map<String, User> usersByEmail = new HashMap<>();
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = clientUser("client" + i + "@example.com");
+            usersByEmail.put(user.getEmail(), user);
+            tokens.add(jwtService.generateAccessToken(
+                    new org.springframework.security.core.userdetails.User(user.getEmail(), "x", List.of()),
+                    user.getRole().name(), user.getClient().getId()));
+        }
+
+        AtomicLong lookups = new AtomicLong();
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(anyString())).thenAnswer(invocation -> {
+            lookups.incrementAndGet();
+            return Optional.ofNullable(usersByEmail.get(invocation.<String>getArgument(0)));
+        });
+        UserDetailsServiceImpl userDetailsService = new UserDetailsServiceImpl(userRepository);
+        ClientDataService clientDataService = new ClientDataService(userDetailsService);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, userDetailsService,
+                new JwtPrincipalCache(config), config);
+        // Le contrôleur applique le filtre client une fois authentifié
+        FilterChain chain = (request, response) -> assertTrue(clientDataService.getClientFilter().isPresent());
+
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            request(filter, chain, tokens.get(i % USERS));
+        }
+        lookups.set(0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            request(filter, chain, tokens.get(i % USERS));
+        }
+        return new long[] {System.nanoTime() - start, lookups.get()};
+    }
+
+    private void request(JwtAuthenticationFilter filter, FilterChain chain, String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/sales-orders");
+        request.setServletPath("/api/sales-orders");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+    }
+
+    private User clientUser(String email) {
+        Client client = new Client();
+        client.setId(UUID.randomUUID());
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("x");
+        user.setRole(Role.CLIENT);
+        user.setClient(client);
+        user.setActive(true);
+        return user;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.stockgestion.security;
+
+import com.example.stockgestion.config.JwtConfigProperties;
+import com.example.stockgestion.models.enums.Role;
+import com.example.stockgestion.services.UserDetailsServiceImpl;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private JwtConfigProperties config;
+    private JwtService jwtService;
+    private JwtPrincipalCache principalCache;
+    private JwtAuthenticationFilter filter;
+    private UserDetails alice;
+
+    @BeforeEach
+    void setUp() {
+        config = new JwtConfigProperties();
+        config.setSecret("0123456789abcdef0123456789abcdef0123456789abcdef");
+        jwtService = new JwtService(config);
+        principalCache = new JwtPrincipalCache(config);
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, principalCache, config);
+        alice = new User("alice@example.com", "x", List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+    }
+
+    @Test
+    void repeatedRequests_ShouldLoadUserOnce() throws Exception {
+        // Given
+        when(userDetailsService.loadUserByUsername("alice@example.com")).thenReturn(alice);
+        String token = jwtService.generateAccessToken(alice, "ADMIN", null);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            authenticate(token);
+            assertEquals("alice@example.com", SecurityContextHolder.getContext().getAuthentication().getName());
+        }
+
+        // Then
+        verify(userDetailsService, times(1)).loadUserByUsername("alice@example.com");
+    }
+
+    @Test
+    void evictedUser_ShouldBeLoadedAgain() throws Exception {
+        // Given
+        when(userDetailsService.loadUserByUsername("alice@example.com")).thenReturn(alice);
+        String token = jwtService.generateAccessToken(alice, "ADMIN", null);
+        authenticate(token);
+
+        // When
+        principalCache.evictUser("alice@example.com");
+        authenticate(token);
+
+        // Then
+        verify(userDetailsService, times(2)).loadUserByUsername("alice@example.com");
+    }
+
+    @Test
+    void tamperedToken_ShouldNotAuthenticate() throws Exception {
+        // Given
+        String token = jwtService.generateAccessToken(alice, "ADMIN", null);
+
+        // When
+        authenticate(token.substring(0, token.length() - 2) + "xx");
+
+        // Then
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void claimsMode_ShouldAuthenticateFromTokenClaims_WithoutUserLookup() throws Exception {
+        // Given
+        config.setAuthMode(JwtAuthMode.CLAIMS);
+        UUID clientId = UUID.randomUUID();
+        String token = jwtService.generateAccessToken(alice, "CLIENT", clientId);
+
+        // When
+        authenticate(token);
+
+        // Then
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        JwtPrincipal principal = assertInstanceOf(JwtPrincipal.class, authentication.getPrincipal());
+        assertEquals("alice@example.com", principal.getUsername());
+        assertEquals(Role.CLIENT, principal.getRole());
+        assertEquals(clientId, principal.getClientId());
+        assertEquals("ROLE_CLIENT", authentication.getAuthorities().iterator().next().getAuthority());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void claimsMode_ShouldRejectExpiredToken() throws Exception {
+        // Given: jeton déjà expiré
+        config.setAuthMode(JwtAuthMode.CLAIMS);
+        config.setAccessTokenExpiry(-1000);
+        String token = jwtService.generateAccessToken(alice, "ADMIN", null);
+
+        // When
+        authenticate(token);
+
+        // Then
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
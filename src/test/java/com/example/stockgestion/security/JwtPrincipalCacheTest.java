@@ -0,0 +1,123 @@
+package com.example.stockgestion.security;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtPrincipalCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Instant start = Instant.parse("2026-01-01T00:00:00Z");
+    private JwtPrincipalCache cache;
+    private UserDetails alice;
+    private UserDetails bob;
+
+    @BeforeEach
+    void setUp() {
+        Ticker ticker = nanos::get;
+        // L'horloge avance avec le ticker
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(java.time.ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return start.plusNanos(nanos.get());
+            }
+        };
+        cache = new JwtPrincipalCache(100, TimeUnit.MINUTES.toMillis(5), ticker, clock);
+        alice = new User("alice@example.com", "x", List.of());
+        bob = new User("bob@example.com", "x", List.of());
+    }
+
+    private Date inMinutes(long minutes) {
+        return Date.from(start.plusSeconds(minutes * 60));
+    }
+
+    private void advanceMinutes(long minutes) {
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(minutes));
+    }
+
+    @Test
+    void get_ShouldReturnPrincipal_OfVerifiedToken() {
+        cache.put("token-a", alice, inMinutes(60));
+
+        assertSame(alice, cache.get("token-a"));
+        assertNull(cache.get("token-unknown"));
+    }
+
+    @Test
+    void entry_ShouldExpire_AfterTtl() {
+        // Given: jeton valable 1h, TTL 5 min
+        cache.put("token-a", alice, inMinutes(60));
+
+        // When
+        advanceMinutes(6);
+
+        // Then
+        assertNull(cache.get("token-a"));
+    }
+
+    @Test
+    void entry_ShouldNeverOutliveTokenExpiration() {
+        // Given: jeton qui expire avant le TTL
+        cache.put("token-a", alice, inMinutes(2));
+
+        // When
+        advanceMinutes(3);
+
+        // Then
+        assertNull(cache.get("token-a"));
+    }
+
+    @Test
+    void put_ShouldIgnoreExpiredToken() {
+        cache.put("token-a", alice, Date.from(start.minusSeconds(1)));
+
+        assertNull(cache.get("token-a"));
+    }
+
+    @Test
+    void evictUser_ShouldDropOnlyThatUsersTokens() {
+        // Given
+        cache.put("token-a1", alice, inMinutes(60));
+        cache.put("token-a2", alice, inMinutes(60));
+        cache.put("token-b", bob, inMinutes(60));
+
+        // When
+        cache.evictUser("alice@example.com");
+
+        // Then
+        assertNull(cache.get("token-a1"));
+        assertNull(cache.get("token-a2"));
+        assertSame(bob, cache.get("token-b"));
+    }
+
+    @Test
+    void cache_ShouldBeBounded() {
+        for (int i = 0; i < 500; i++) {
+            cache.put("token-" + i, alice, inMinutes(60));
+        }
+
+        assertTrue(cache.size() <= 100);
+    }
+}
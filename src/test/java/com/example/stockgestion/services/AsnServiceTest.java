@@ -0,0 +1,204 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.request.AsnLineRequestDto;
+import com.example.stockgestion.Dto.request.AsnRequestDto;
+import com.example.stockgestion.Dto.request.ScanRequestDto;
+import com.example.stockgestion.Dto.response.AsnResponseDto;
+import com.example.stockgestion.Dto.response.ScanResponseDto;
+import com.example.stockgestion.config.AsnReceivingProperties;
+import com.example.stockgestion.exception.BusinessRuleException;
+import com.example.stockgestion.exception.ConflictException;
+import com.example.stockgestion.models.*;
+import com.example.stockgestion.models.enums.ASNStatus;
+import com.example.stockgestion.models.enums.POStatus;
+import com.example.stockgestion.repositories.AdvanceShippingNoticeRepository;
+import com.example.stockgestion.repositories.PurchaseOrderRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.services.helpers.AsnCheckpointer;
+import com.example.stockgestion.services.helpers.ReceivingScanBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsnServiceTest {
+
+    @Mock
+    private AdvanceShippingNoticeRepository asnRepository;
+
+    @Mock
+    private PurchaseOrderRepository purchaseOrderRepository;
+
+    @Mock
+    private WareHouseRepository wareHouseRepository;
+
+    @Mock
+    private ReceivingScanBuffer receivingScanBuffer;
+
+    @Mock
+    private AsnCheckpointer asnCheckpointer;
+
+    @Spy
+    private AsnReceivingProperties properties = new AsnReceivingProperties();
+
+    @InjectMocks
+    private AsnService asnService;
+
+    private Product product;
+    private WareHouse warehouse;
+    private PurchaseOrder purchaseOrder;
+    private AdvanceShippingNotice asn;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName("Carton");
+
+        warehouse = new WareHouse();
+        warehouse.setId(UUID.randomUUID());
+
+        purchaseOrder = new PurchaseOrder();
+        purchaseOrder.setId(UUID.randomUUID());
+        purchaseOrder.setStatus(POStatus.APPROVED);
+        PurchaseOrderLine poLine = new PurchaseOrderLine();
+        poLine.setPurchaseOrder(purchaseOrder);
+        poLine.setProduct(product);
+        poLine.setQuantity(100);
+        purchaseOrder.setLines(new ArrayList<>(List.of(poLine)));
+
+        asn = new AdvanceShippingNotice();
+        asn.setId(UUID.randomUUID());
+        asn.setPurchaseOrder(purchaseOrder);
+        asn.setWarehouse(warehouse);
+        asn.setReference("ASN-42");
+        asn.setStatus(ASNStatus.OPEN);
+        AdvanceShippingNoticeLine asnLine = new AdvanceShippingNoticeLine();
+        asnLine.setAsn(asn);
+        asnLine.setProduct(product);
+        asnLine.setQtyExpected(100);
+        asn.getLines().add(asnLine);
+    }
+
+    private AsnRequestDto request(UUID productId) {
+        return new AsnRequestDto(purchaseOrder.getId(), warehouse.getId(), "ASN-42",
+                List.of(new AsnLineRequestDto(productId, 100)));
+    }
+
+    @Test
+    void createAsn_ShouldCreateOpenAsn_ForProductsOfThePurchaseOrder() {
+        // Given
+        when(purchaseOrderRepository.findWithLinesById(purchaseOrder.getId())).thenReturn(Optional.of(purchaseOrder));
+        when(wareHouseRepository.findById(warehouse.getId())).thenReturn(Optional.of(warehouse));
+        when(asnRepository.existsByReference("ASN-42")).thenReturn(false);
+        when(asnRepository.save(any(AdvanceShippingNotice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        AsnResponseDto result = asnService.createAsn(request(product.getId()));
+
+        // Then
+        assertEquals(ASNStatus.OPEN, result.getStatus());
+        assertEquals(1, result.getLines().size());
+        assertEquals(100, result.getLines().get(0).getQtyExpected());
+        assertEquals(0, result.getLines().get(0).getQtyReceived());
+    }
+
+    @Test
+    void createAsn_ShouldReject_ProductNotOnPurchaseOrder() {
+        // Given
+        when(purchaseOrderRepository.findWithLinesById(purchaseOrder.getId())).thenReturn(Optional.of(purchaseOrder));
+        when(wareHouseRepository.findById(warehouse.getId())).thenReturn(Optional.of(warehouse));
+        when(asnRepository.existsByReference("ASN-42")).thenReturn(false);
+
+        // When & Then
+        assertThrows(BusinessRuleException.class, () -> asnService.createAsn(request(UUID.randomUUID())));
+        verify(asnRepository, never()).save(any());
+    }
+
+    @Test
+    void createAsn_ShouldReject_DuplicateReference() {
+        // Given
+        when(purchaseOrderRepository.findWithLinesById(purchaseOrder.getId())).thenReturn(Optional.of(purchaseOrder));
+        when(wareHouseRepository.findById(warehouse.getId())).thenReturn(Optional.of(warehouse));
+        when(asnRepository.existsByReference("ASN-42")).thenReturn(true);
+
+        // When & Then
+        assertThrows(ConflictException.class, () -> asnService.createAsn(request(product.getId())));
+    }
+
+    @Test
+    void createAsn_ShouldReject_ReceivedPurchaseOrder() {
+        // Given
+        purchaseOrder.setStatus(POStatus.RECEIVED);
+        when(purchaseOrderRepository.findWithLinesById(purchaseOrder.getId())).thenReturn(Optional.of(purchaseOrder));
+
+        // When & Then
+        assertThrows(BusinessRuleException.class, () -> asnService.createAsn(request(product.getId())));
+    }
+
+    @Test
+    void scan_ShouldRecordScan_AndLoadAsnOnlyOnce() {
+        // Given
+        when(asnRepository.findWithLinesById(asn.getId())).thenReturn(Optional.of(asn));
+        when(receivingScanBuffer.record(eq("S-1"), eq(asn.getId()), eq(product.getId()), eq(1L), any(Instant.class)))
+                .thenReturn(true);
+        when(receivingScanBuffer.record(eq("S-2"), eq(asn.getId()), eq(product.getId()), eq(6L), any(Instant.class)))
+                .thenReturn(false);
+
+        // When
+        ScanResponseDto first = asnService.scan(asn.getId(), new ScanRequestDto("S-1", product.getId(), null, null));
+        ScanResponseDto resent = asnService.scan(asn.getId(), new ScanRequestDto("S-2", product.getId(), 6, null));
+
+        // Then : un seul chargement de l'avis, aucun accès aux commandes ni à l'inventaire
+        assertEquals(1, first.getQuantity());
+        assertFalse(first.isDuplicate());
+        assertTrue(resent.isDuplicate());
+        verify(asnRepository, times(1)).findWithLinesById(asn.getId());
+        verifyNoInteractions(purchaseOrderRepository, asnCheckpointer);
+    }
+
+    @Test
+    void scan_ShouldReject_ProductNotAnnounced() {
+        // Given
+        when(asnRepository.findWithLinesById(asn.getId())).thenReturn(Optional.of(asn));
+
+        // When & Then
+        assertThrows(BusinessRuleException.class,
+                () -> asnService.scan(asn.getId(), new ScanRequestDto("S-1", UUID.randomUUID(), 1, null)));
+        verifyNoInteractions(receivingScanBuffer);
+    }
+
+    @Test
+    void closeAsn_ShouldCheckpointBeforeClosing_ThenRejectScans() {
+        // Given
+        when(asnRepository.findWithLinesById(asn.getId())).thenReturn(Optional.of(asn));
+
+        // When
+        AsnResponseDto result = asnService.closeAsn(asn.getId());
+
+        // Then
+        assertEquals(ASNStatus.CLOSED, result.getStatus());
+        assertNotNull(result.getClosedAt());
+        InOrder inOrder = inOrder(asnCheckpointer, asnRepository);
+        inOrder.verify(asnCheckpointer).checkpoint();
+        inOrder.verify(asnRepository).save(asn);
+        assertThrows(BusinessRuleException.class,
+                () -> asnService.scan(asn.getId(), new ScanRequestDto("S-9", product.getId(), 1, null)));
+        verify(receivingScanBuffer, never()).record(any(), any(), any(), anyLong(), any());
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.request.SalesOrderLineRequestDto;
+import com.example.stockgestion.Dto.request.SalesOrderRequestDto;
+import com.example.stockgestion.config.ReferenceCacheProperties;
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.Inventory;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.services.allocation.AllocationStrategyResolver;
+import com.example.stockgestion.services.allocation.ClientProximityAllocationStrategy;
+import com.example.stockgestion.services.allocation.GreedyAllocationStrategy;
+import com.example.stockgestion.services.allocation.MinSplitAllocationStrategy;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.BackorderQueue;
+import com.example.stockgestion.services.helpers.ClientValidator;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import com.example.stockgestion.services.helpers.NdjsonStreamer;
+import com.example.stockgestion.services.helpers.OrderStatusHelper;
+import com.example.stockgestion.services.helpers.ProductValidator;
+import com.example.stockgestion.services.helpers.ReferenceDataCache;
+import com.example.stockgestion.services.helpers.SalesOrderBuilder;
+import com.example.stockgestion.services.helpers.SalesOrderReadModel;
+import com.example.stockgestion.services.helpers.StockReservationHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cache de second niveau du catalogue sur base H2 embarquée (statistiques Hibernate) : requêtes SQL d'un intake
+ * de 1 000 commandes, une transaction par commande comme l'API, cache ignoré puis utilisé, et cache de
+ * requêtes de findBySku / existsBySku. Les données sont commitées.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import({SalesOrderService.class, ClientValidator.class, ProductValidator.class, ReferenceDataCache.class,
+        ReferenceCacheProperties.class, StockReservationHelper.class, AvailabilityLedger.class,
+        OrderStatusHelper.class, SalesOrderBuilder.class, SalesOrderReadModel.class,
+        AllocationStrategyResolver.class, GreedyAllocationStrategy.class, MinSplitAllocationStrategy.class,
+        ClientProximityAllocationStrategy.class, CatalogSecondLevelCacheTest.MetricsConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogSecondLevelCacheTest {
+
+    private static final int ORDERS = 1_000;
+    private static final int WAREHOUSES = 3;
+
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockitoBean
+    private BackorderQueue backorderQueue;
+
+    @MockitoBean
+    private InventoryMovementWriter inventoryMovementWriter;
+
+    @MockitoBean
+    private NdjsonStreamer ndjsonStreamer;
+
+    @Autowired
+    private SalesOrderService salesOrderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private Statistics statistics;
+    private final List<Client> clients = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            for (int i = 0; i < 10; i++) {
+                Client client = new Client();
+                client.setName("Client cache " + i);
+                entityManager.persist(client);
+                clients.add(client);
+            }
+            List<WareHouse> warehouses = new ArrayList<>();
+            for (int i = 0; i < WAREHOUSES; i++) {
+                WareHouse warehouse = new WareHouse();
+                warehouse.setCode("WH-CACHE-" + i);
+                warehouse.setName("Entrepôt " + i);
+                entityManager.persist(warehouse);
+                warehouses.add(warehouse);
+            }
+            for (int i = 0; i < 20; i++) {
+                Product product = new Product();
+                product.setSku("CACHE-" + i);
+                product.setName("Produit " + i);
+                product.setActive(true);
+                product.setPrice(BigDecimal.TEN);
+                entityManager.persist(product);
+                products.add(product);
+                for (WareHouse warehouse : warehouses) {
+                    entityManager.persist(Inventory.builder()
+                            .product(product)
+                            .warehouse(warehouse)
+                            .qtyOnHand(100_000)
+                            .qtyReserved(0)
+                            .build());
+                }
+            }
+        });
+        SessionFactory sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM sales_order_lines");
+        jdbcTemplate.update("DELETE FROM sales_orders");
+        jdbcTemplate.update("DELETE FROM inventories");
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM warehouses");
+        jdbcTemplate.update("DELETE FROM clients");
+    }
+
+    @Test
+    void intake_ShouldStopReadingWarehouses_OnceTheyAreCached() {
+        // Given : caches applicatifs (produits, clients, ledger) déjà chauds pour les deux passes
+        intake(CacheMode.IGNORE, 20);
+
+        // When
+        long before = intake(CacheMode.IGNORE, ORDERS);
+        long after = intake(CacheMode.NORMAL, ORDERS);
+        long warehouseHits = statistics.getDomainDataRegionStatistics("warehouses").getHitCount();
+
+        // Then : sans cache, une lecture d'entrepôt par commande pour la réponse ; avec, une par entrepôt
+        assertTrue(before - after >= ORDERS - WAREHOUSES, "avant=" + before + ", après=" + after);
+        assertTrue(warehouseHits >= ORDERS - WAREHOUSES, "succès=" + warehouseHits);
+    }
+
+    @Test
+    void findBySku_ShouldBeServedByQueryCache_UntilProductsChange() {
+        // Given
+        String sku = products.get(0).getSku();
+        transaction.executeWithoutResult(status -> {
+            productRepository.findBySku(sku);
+            productRepository.existsBySku(sku);
+        });
+        statistics.clear();
+
+        // When
+        Product cached = transaction.execute(status -> productRepository.findBySku(sku));
+        Boolean exists = transaction.execute(status -> productRepository.existsBySku(sku));
+
+        // Then : aucun accès base
+        assertEquals(products.get(0).getId(), cached.getId());
+        assertTrue(exists);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getQueryCacheHitCount());
+
+        // When : une écriture sur products invalide les résultats
+        transaction.executeWithoutResult(status -> productRepository.findById(cached.getId())
+                .orElseThrow().setName("Renommé"));
+        statistics.clear();
+        Product reloaded = transaction.execute(status -> productRepository.findBySku(sku));
+
+        // Then
+        assertEquals("Renommé", reloaded.getName());
+        assertEquals(0, statistics.getQueryCacheHitCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // Une transaction par commande d'une ligne ; renvoie le nombre de requêtes SQL préparées
+    private long intake(CacheMode cacheMode, int orders) {
+        statistics.clear();
+        for (int i = 0; i < orders; i++) {
+            SalesOrderRequestDto request = new SalesOrderRequestDto(clients.get(i % clients.size()).getId(),
+                    List.of(new SalesOrderLineRequestDto(products.get(i % products.size()).getId(), 1)));
+            transaction.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setCacheMode(cacheMode);
+                salesOrderService.createSalesOrder(request);
+            });
+        }
+        return statistics.getPrepareStatementCount();
+    }
+}
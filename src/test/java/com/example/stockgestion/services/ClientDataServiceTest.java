@@ -0,0 +1,95 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.User;
+import com.example.stockgestion.models.enums.Role;
+import com.example.stockgestion.security.JwtPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientDataServiceTest {
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    @InjectMocks
+    private ClientDataService clientDataService;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void authenticateAs(Object principal) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    @Test
+    void getClientFilter_ShouldReadClaimsPrincipal_WithoutUserLookup() {
+        // Given
+        UUID clientId = UUID.randomUUID();
+        authenticateAs(new JwtPrincipal("client@example.com", Role.CLIENT, clientId));
+
+        // When
+        Optional<UUID> filter = clientDataService.getClientFilter();
+
+        // Then
+        assertEquals(Optional.of(clientId), filter);
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void getClientFilter_ShouldLoadUser_WhenPrincipalComesFromDatabase() {
+        // Given
+        Client client = new Client();
+        client.setId(UUID.randomUUID());
+        User user = new User();
+        user.setEmail("client@example.com");
+        user.setRole(Role.CLIENT);
+        user.setClient(client);
+        authenticateAs(new org.springframework.security.core.userdetails.User("client@example.com", "x", List.of()));
+        when(userDetailsService.loadUserEntityByEmail("client@example.com")).thenReturn(user);
+
+        // When
+        Optional<UUID> filter = clientDataService.getClientFilter();
+
+        // Then
+        assertEquals(Optional.of(client.getId()), filter);
+    }
+
+    @Test
+    void ensureClientAccess_ShouldRejectOtherClientsData() {
+        // Given
+        authenticateAs(new JwtPrincipal("client@example.com", Role.CLIENT, UUID.randomUUID()));
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> clientDataService.ensureClientAccess(UUID.randomUUID()));
+        assertEquals("Access denied: You can only access your own data", exception.getMessage());
+    }
+
+    @Test
+    void ensureClientAccess_ShouldAllowAdmin() {
+        // Given
+        authenticateAs(new JwtPrincipal("admin@example.com", Role.ADMIN, null));
+
+        // When & Then
+        assertDoesNotThrow(() -> clientDataService.ensureClientAccess(UUID.randomUUID()));
+        assertFalse(clientDataService.isClientRole());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.request.ClientAllocationRequestDto;
+import com.example.stockgestion.Dto.response.ClientAllocationResponseDto;
+import com.example.stockgestion.exception.BusinessRuleException;
+import com.example.stockgestion.exception.ResourceNotFoundException;
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.AllocationStrategyType;
+import com.example.stockgestion.repositories.ClientRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.services.helpers.ReferenceDataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientServiceTest {
+
+    @Mock
+    private ClientRepository clientRepository;
+
+    @Mock
+    private WareHouseRepository wareHouseRepository;
+
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
+    @InjectMocks
+    private ClientService clientService;
+
+    private Client client;
+    private WareHouse warehouse1, warehouse2;
+
+    @BeforeEach
+    void setUp() {
+        client = new Client();
+        client.setId(UUID.randomUUID());
+
+        warehouse1 = new WareHouse();
+        warehouse1.setId(UUID.randomUUID());
+        warehouse2 = new WareHouse();
+        warehouse2.setId(UUID.randomUUID());
+    }
+
+    @Test
+    void updateAllocationPreferences_ShouldStoreStrategyAndPriority() {
+        // Given
+        List<UUID> priority = List.of(warehouse2.getId(), warehouse1.getId());
+        when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
+        when(wareHouseRepository.findAllById(any())).thenReturn(List.of(warehouse1, warehouse2));
+        when(clientRepository.save(client)).thenReturn(client);
+
+        // When
+        ClientAllocationResponseDto response = clientService.updateAllocationPreferences(client.getId(),
+                new ClientAllocationRequestDto(AllocationStrategyType.CLIENT_PROXIMITY, priority));
+
+        // Then: l'ordre de priorité est conservé
+        assertEquals(AllocationStrategyType.CLIENT_PROXIMITY, response.getAllocationStrategy());
+        assertEquals(priority, response.getWarehousePriority());
+        assertEquals(priority, client.getWarehousePriority());
+        verify(referenceDataCache).evictClient(client.getId());
+    }
+
+    @Test
+    void updateAllocationPreferences_ShouldFail_WhenWarehouseIsUnknown() {
+        // Given
+        UUID unknown = UUID.randomUUID();
+        when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
+        when(wareHouseRepository.findAllById(any())).thenReturn(List.of(warehouse1));
+
+        // When & Then
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () ->
+                clientService.updateAllocationPreferences(client.getId(),
+                        new ClientAllocationRequestDto(null, List.of(warehouse1.getId(), unknown))));
+        assertTrue(exception.getMessage().contains(unknown.toString()));
+        verify(clientRepository, never()).save(any());
+    }
+
+    @Test
+    void updateAllocationPreferences_ShouldFail_WhenWarehouseIsDuplicated() {
+        // Given
+        when(clientRepository.findById(client.getId())).thenReturn(Optional.of(client));
+
+        // When & Then
+        assertThrows(BusinessRuleException.class, () ->
+                clientService.updateAllocationPreferences(client.getId(),
+                        new ClientAllocationRequestDto(null, List.of(warehouse1.getId(), warehouse1.getId()))));
+        verify(clientRepository, never()).save(any());
+    }
+
+    @Test
+    void updateAllocationPreferences_ShouldFail_WhenClientNotFound() {
+        // Given
+        when(clientRepository.findById(client.getId())).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(ResourceNotFoundException.class, () ->
+                clientService.updateAllocationPreferences(client.getId(), new ClientAllocationRequestDto()));
+    }
+}
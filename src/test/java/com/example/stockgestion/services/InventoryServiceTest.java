@@ -1,9 +1,12 @@
 package com.example.stockgestion.services;
 
+import com.example.stockgestion.Dto.request.InventoryMovementBatchRequestDto;
 import com.example.stockgestion.Dto.request.InventoryMovementRequestDto;
 import com.example.stockgestion.Dto.request.InventoryRequestDto;
+import com.example.stockgestion.Dto.response.InventoryMovementBatchResponseDto;
 import com.example.stockgestion.Dto.response.InventoryMovementResponseDto;
 import com.example.stockgestion.Dto.response.InventoryResponseDto;
+import com.example.stockgestion.Dto.response.KeysetPageDto;
 import com.example.stockgestion.exception.BusinessRuleException;
 import com.example.stockgestion.exception.ConflictException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
@@ -13,17 +16,23 @@ import com.example.stockgestion.models.Product;
 import com.example.stockgestion.models.WareHouse;
 import com.example.stockgestion.models.enums.MovementType;
 import com.example.stockgestion.repositories.*;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import com.example.stockgestion.services.helpers.KeysetPaging;
+import com.example.stockgestion.services.helpers.ReferenceDataCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -37,6 +46,9 @@ class InventoryServiceTest {
     @Mock
     private InventoryRepository inventoryRepository;
 
+    @Mock
+    private AvailabilityLedger availabilityLedger;
+
     @Mock
     private ProductRepository productRepository;
 
@@ -44,7 +56,13 @@ class InventoryServiceTest {
     private WareHouseRepository wareHouseRepository;
 
     @Mock
-    private InventoryMovmentRepository inventoryMovmentRepository;
+    private ReferenceDataCache referenceDataCache;
+
+    @Mock
+    private InventoryMovementWriter inventoryMovementWriter;
+
+    @Mock
+    private StockSnapshotRepository stockSnapshotRepository;
 
     @Mock
     private SalesOrderRepository salesOrderRepository;
@@ -197,6 +215,38 @@ class InventoryServiceTest {
         verify(inventoryRepository).findAll();
     }
 
+    @Test
+    void getInventoriesPage_ShouldReturnNextCursor_WhenPageIsFull() {
+        // Given
+        Inventory inventory2 = new Inventory();
+        inventory2.setId(UUID.randomUUID());
+        inventory2.setProduct(product);
+        inventory2.setWarehouse(warehouse);
+        when(inventoryRepository.findByIdGreaterThanOrderByIdAsc(new UUID(0L, 0L), Limit.of(2)))
+                .thenReturn(List.of(inventory, inventory2));
+
+        // When
+        KeysetPageDto<InventoryResponseDto> page = inventoryService.getInventoriesPage(null, 2);
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        assertEquals(inventory2.getId(), page.getNextCursor());
+    }
+
+    @Test
+    void getInventoriesPage_ShouldEndPaging_OnShortPage() {
+        // Given
+        when(inventoryRepository.findByIdGreaterThanOrderByIdAsc(inventoryId, Limit.of(KeysetPaging.DEFAULT_LIMIT)))
+                .thenReturn(List.of(inventory));
+
+        // When
+        KeysetPageDto<InventoryResponseDto> page = inventoryService.getInventoriesPage(inventoryId, null);
+
+        // Then
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
     @Test
     void getByProductId_ShouldReturnList() {
         // Given
@@ -235,12 +285,12 @@ class InventoryServiceTest {
         movementDto.setQuantity(50L);
         movementDto.setOccurredAt(Instant.now());
 
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList(inventory));
         when(inventoryRepository.save(any(Inventory.class))).thenReturn(inventory);
-        when(inventoryMovmentRepository.save(any(InventoryMovement.class)))
+        when(inventoryMovementWriter.append(any(InventoryMovement.class)))
                 .thenAnswer(inv -> inv.getArgument(0));
 
         // When
@@ -260,12 +310,12 @@ class InventoryServiceTest {
         movementDto.setType(MovementType.OUTBOUND);
         movementDto.setQuantity(30L);
 
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList(inventory));
         when(inventoryRepository.save(any(Inventory.class))).thenReturn(inventory);
-        when(inventoryMovmentRepository.save(any(InventoryMovement.class)))
+        when(inventoryMovementWriter.append(any(InventoryMovement.class)))
                 .thenAnswer(inv -> inv.getArgument(0));
 
         // When
@@ -276,6 +326,57 @@ class InventoryServiceTest {
         verify(inventoryRepository).save(argThat(inv -> inv.getQtyOnHand() == 70)); // 100 - 30
     }
 
+    @Test
+    void createMovement_ShouldShiftLaterSnapshots_WhenBackdated() {
+        // Given: sortie antidatée de 10 jours
+        Instant occurredAt = Instant.now().minusSeconds(10 * 24 * 3600);
+        InventoryMovementRequestDto movementDto = new InventoryMovementRequestDto();
+        movementDto.setProductId(productId);
+        movementDto.setWarehouseId(warehouseId);
+        movementDto.setType(MovementType.OUTBOUND);
+        movementDto.setQuantity(30L);
+        movementDto.setOccurredAt(occurredAt);
+
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
+                .thenReturn(Arrays.asList(inventory));
+        when(inventoryMovementWriter.append(any(InventoryMovement.class)))
+                .thenAnswer(inv -> inv.getArgument(0));
+        when(stockSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.of(Instant.now().minusSeconds(3600)));
+
+        // When
+        inventoryService.createMovement(movementDto);
+
+        // Then
+        verify(stockSnapshotRepository).shiftAfter(productId, warehouseId, occurredAt, -30L);
+    }
+
+    @Test
+    void createMovement_ShouldNotTouchSnapshots_WhenNotBackdated() {
+        // Given
+        InventoryMovementRequestDto movementDto = new InventoryMovementRequestDto();
+        movementDto.setProductId(productId);
+        movementDto.setWarehouseId(warehouseId);
+        movementDto.setType(MovementType.INBOUND);
+        movementDto.setQuantity(5L);
+        movementDto.setOccurredAt(Instant.now());
+
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
+                .thenReturn(Arrays.asList(inventory));
+        when(inventoryMovementWriter.append(any(InventoryMovement.class)))
+                .thenAnswer(inv -> inv.getArgument(0));
+        when(stockSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.of(Instant.now().minusSeconds(3600)));
+
+        // When
+        inventoryService.createMovement(movementDto);
+
+        // Then: plus récent que le dernier point de reprise, aucune mise à jour des points
+        verify(stockSnapshotRepository, never()).shiftAfter(any(), any(), any(), anyLong());
+    }
+
     @Test
     void createMovement_ShouldFail_WhenOutboundExceedsStock() {
         // Given
@@ -285,8 +386,8 @@ class InventoryServiceTest {
         movementDto.setType(MovementType.OUTBOUND);
         movementDto.setQuantity(150L); // More than available
 
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList(inventory));
 
@@ -307,12 +408,12 @@ class InventoryServiceTest {
         movementDto.setType(MovementType.ADJUSTMENT);
         movementDto.setQuantity(20L); // Positive adjustment
 
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList(inventory));
         when(inventoryRepository.save(any(Inventory.class))).thenReturn(inventory);
-        when(inventoryMovmentRepository.save(any(InventoryMovement.class)))
+        when(inventoryMovementWriter.append(any(InventoryMovement.class)))
                 .thenAnswer(inv -> inv.getArgument(0));
 
         // When
@@ -332,8 +433,8 @@ class InventoryServiceTest {
         movementDto.setType(MovementType.ADJUSTMENT);
         movementDto.setQuantity(-150L); // Negative adjustment exceeding stock
 
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList(inventory));
 
@@ -354,12 +455,12 @@ class InventoryServiceTest {
         movementDto.setType(MovementType.INBOUND);
         movementDto.setQuantity(50L);
 
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList()); // No existing inventory
         when(inventoryRepository.save(any(Inventory.class))).thenReturn(inventory);
-        when(inventoryMovmentRepository.save(any(InventoryMovement.class)))
+        when(inventoryMovementWriter.append(any(InventoryMovement.class)))
                 .thenAnswer(inv -> inv.getArgument(0));
 
         // When
@@ -498,4 +599,141 @@ class InventoryServiceTest {
 
         assertTrue(exception.getMessage().contains("already exists"));
     }
+
+    private InventoryMovementRequestDto movementRequest(UUID product, MovementType type, long quantity) {
+        InventoryMovementRequestDto request = new InventoryMovementRequestDto();
+        request.setProductId(product);
+        request.setWarehouseId(warehouseId);
+        request.setType(type);
+        request.setQuantity(quantity);
+        return request;
+    }
+
+    @Test
+    void createMovementsBatch_ShouldWriteNetDeltaOncePerPair() {
+        // Given: 100 en stock, +50 puis -120 (possible grâce à l'entrée du même lot) puis ajustement -5
+        InventoryMovementBatchRequestDto batch = new InventoryMovementBatchRequestDto(List.of(
+                movementRequest(productId, MovementType.INBOUND, 50),
+                movementRequest(productId, MovementType.OUTBOUND, 120),
+                movementRequest(productId, MovementType.ADJUSTMENT, -5)), true);
+
+        when(referenceDataCache.findProducts(any())).thenReturn(Map.of(product.getId(), product));
+        when(referenceDataCache.findWarehouses(any())).thenReturn(Map.of(warehouse.getId(), warehouse));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_IdIn(any(), any())).thenReturn(List.of(inventory));
+        when(stockSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.empty());
+
+        // When
+        InventoryMovementBatchResponseDto response = inventoryService.createMovementsBatch(batch);
+
+        // Then
+        assertEquals(3, response.getApplied());
+        assertEquals(0, response.getRejected());
+        assertEquals(25, inventory.getQtyOnHand());
+        verify(inventoryRepository).saveAll(List.of(inventory));
+        verify(availabilityLedger).recordChange(productId, warehouseId, -75, 0);
+        verify(inventoryMovementWriter).append(argThat((List<InventoryMovement> movements) -> movements.size() == 3));
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void createMovementsBatch_ShouldRejectWholeBatch_WhenAtomicAndOneMovementInvalid() {
+        // Given
+        InventoryMovementBatchRequestDto batch = new InventoryMovementBatchRequestDto(List.of(
+                movementRequest(productId, MovementType.INBOUND, 10),
+                movementRequest(productId, MovementType.OUTBOUND, 500)), true);
+
+        when(referenceDataCache.findProducts(any())).thenReturn(Map.of(product.getId(), product));
+        when(referenceDataCache.findWarehouses(any())).thenReturn(Map.of(warehouse.getId(), warehouse));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_IdIn(any(), any())).thenReturn(List.of(inventory));
+
+        // When & Then
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class,
+                () -> inventoryService.createMovementsBatch(batch));
+        assertTrue(exception.getMessage().startsWith("Mouvement 1 : Stock insuffisant"));
+        verify(inventoryRepository, never()).saveAll(any());
+        verifyNoInteractions(inventoryMovementWriter);
+    }
+
+    @Test
+    void createMovementsBatch_ShouldRejectOnlyInvalidMovements_WhenNotAtomic() {
+        // Given: produit inconnu, sortie de quantité nulle, puis une entrée valide sur un couple sans inventaire
+        UUID unknownProductId = UUID.randomUUID();
+        Product newProduct = new Product();
+        newProduct.setId(UUID.randomUUID());
+        InventoryMovementBatchRequestDto batch = new InventoryMovementBatchRequestDto(List.of(
+                movementRequest(unknownProductId, MovementType.INBOUND, 10),
+                movementRequest(productId, MovementType.OUTBOUND, 0),
+                movementRequest(newProduct.getId(), MovementType.INBOUND, 7)), false);
+
+        when(referenceDataCache.findProducts(any())).thenReturn(Map.of(product.getId(), product, newProduct.getId(), newProduct));
+        when(referenceDataCache.findWarehouses(any())).thenReturn(Map.of(warehouse.getId(), warehouse));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_IdIn(any(), any())).thenReturn(List.of(inventory));
+        when(stockSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.empty());
+
+        // When
+        InventoryMovementBatchResponseDto response = inventoryService.createMovementsBatch(batch);
+
+        // Then
+        assertEquals(1, response.getApplied());
+        assertEquals(2, response.getRejected());
+        assertTrue(response.getResults().get(0).getError().contains(unknownProductId.toString()));
+        assertNotNull(response.getResults().get(1).getError());
+        assertNull(response.getResults().get(2).getError());
+        assertEquals(100, inventory.getQtyOnHand());
+        verify(inventoryRepository).saveAll(argThat((List<Inventory> saved) -> saved.size() == 1
+                && saved.get(0).getProduct() == newProduct && saved.get(0).getQtyOnHand() == 7));
+    }
+
+    @Test
+    void createMovementsBatch_ShouldShiftSnapshotsOnlyForMovementsBeforeLatestCheckpoint() {
+        // Given
+        Instant checkpoint = Instant.parse("2026-03-10T00:00:00Z");
+        InventoryMovementRequestDto backdated = movementRequest(productId, MovementType.INBOUND, 4);
+        backdated.setOccurredAt(checkpoint.minusSeconds(3600));
+        InventoryMovementRequestDto recent = movementRequest(productId, MovementType.INBOUND, 6);
+        recent.setOccurredAt(checkpoint.plusSeconds(3600));
+        InventoryMovementBatchRequestDto batch = new InventoryMovementBatchRequestDto(List.of(backdated, recent), true);
+
+        when(referenceDataCache.findProducts(any())).thenReturn(Map.of(product.getId(), product));
+        when(referenceDataCache.findWarehouses(any())).thenReturn(Map.of(warehouse.getId(), warehouse));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_IdIn(any(), any())).thenReturn(List.of(inventory));
+        when(stockSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.of(checkpoint));
+
+        // When
+        inventoryService.createMovementsBatch(batch);
+
+        // Then
+        verify(stockSnapshotRepository).shiftAfter(productId, warehouseId, backdated.getOccurredAt(), 4L);
+        verify(stockSnapshotRepository, never()).shiftAfter(any(), any(), eq(recent.getOccurredAt()), anyLong());
+    }
+
+    @Test
+    void createMovementsBatch_ShouldShiftSnapshotsOncePerPairAndDate() {
+        // Given : trois mouvements antidatés à la même heure, un quatrième à une autre heure
+        Instant checkpoint = Instant.parse("2026-03-10T00:00:00Z");
+        Instant sameHour = checkpoint.minusSeconds(7200);
+        InventoryMovementRequestDto first = movementRequest(productId, MovementType.INBOUND, 10);
+        first.setOccurredAt(sameHour);
+        InventoryMovementRequestDto second = movementRequest(productId, MovementType.OUTBOUND, 3);
+        second.setOccurredAt(sameHour);
+        InventoryMovementRequestDto third = movementRequest(productId, MovementType.INBOUND, 5);
+        third.setOccurredAt(sameHour);
+        InventoryMovementRequestDto other = movementRequest(productId, MovementType.INBOUND, 2);
+        other.setOccurredAt(checkpoint.minusSeconds(3600));
+        InventoryMovementBatchRequestDto batch = new InventoryMovementBatchRequestDto(
+                List.of(first, second, third, other), true);
+
+        when(referenceDataCache.findProducts(any())).thenReturn(Map.of(product.getId(), product));
+        when(referenceDataCache.findWarehouses(any())).thenReturn(Map.of(warehouse.getId(), warehouse));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_IdIn(any(), any())).thenReturn(List.of(inventory));
+        when(stockSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.of(checkpoint));
+
+        // When
+        inventoryService.createMovementsBatch(batch);
+
+        // Then
+        verify(stockSnapshotRepository).shiftAfter(productId, warehouseId, sameHour, 12L);
+        verify(stockSnapshotRepository).shiftAfter(productId, warehouseId, other.getOccurredAt(), 2L);
+        verify(stockSnapshotRepository, times(2)).shiftAfter(any(), any(), any(), anyLong());
+    }
 }
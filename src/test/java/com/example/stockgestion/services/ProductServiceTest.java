@@ -2,6 +2,9 @@ package com.example.stockgestion.services;
 
 import com.example.stockgestion.Dto.request.ProductRequestDto;
 import com.example.stockgestion.Dto.response.ProductResponseDto;
+import com.example.stockgestion.Dto.response.ProductSearchResponseDto;
+import com.example.stockgestion.config.ProductSearchProperties;
+import com.example.stockgestion.exception.BusinessRuleException;
 import com.example.stockgestion.exception.ConflictException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.Product;
@@ -10,21 +13,27 @@ import com.example.stockgestion.models.SalesOrderLine;
 import com.example.stockgestion.models.enums.SOStatus;
 import com.example.stockgestion.repositories.ProductRepository;
 import com.example.stockgestion.repositories.SalesOrderLineRepository;
+import com.example.stockgestion.services.helpers.ProductSearchIndex;
+import com.example.stockgestion.services.helpers.ReferenceDataCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +45,15 @@ class ProductServiceTest {
     @Mock
     private SalesOrderLineRepository salesOrderLineRepository;
 
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Spy
+    private ProductSearchProperties productSearchProperties = new ProductSearchProperties();
+
     @InjectMocks
     private ProductService productService;
 
@@ -76,6 +94,7 @@ class ProductServiceTest {
         assertNotNull(result);
         verify(productRepository).existsBySku(productRequestDto.getSku());
         verify(productRepository).save(any(Product.class));
+        verify(productSearchIndex).put(product);
     }
 
     @Test
@@ -168,6 +187,8 @@ class ProductServiceTest {
         assertNotNull(result);
         verify(productRepository).findById(productId);
         verify(productRepository).save(any(Product.class));
+        verify(referenceDataCache).evictProduct(productId);
+        verify(productSearchIndex).put(product);
     }
 
     @Test
@@ -231,6 +252,8 @@ class ProductServiceTest {
         // Then
         verify(productRepository).findById(productId);
         verify(productRepository).delete(product);
+        verify(referenceDataCache).evictProduct(productId);
+        verify(productSearchIndex).remove(productId);
     }
 
     @Test
@@ -312,4 +335,27 @@ class ProductServiceTest {
         
         assertTrue(exception.getMessage().contains("ne peut pas être désactivé"));
     }
+
+    @Test
+    void searchProducts_ShouldCapLimit_AndUseDefault() {
+        // Given
+        ProductSearchResponseDto response = new ProductSearchResponseDto(List.of(), 0, Map.of());
+        when(productSearchIndex.search(any(), any(), anyBoolean(), anyInt())).thenReturn(response);
+
+        // When
+        productService.searchProducts("ecr", null, false, 5_000);
+        productService.searchProducts("ecr", "Electronics", true, null);
+
+        // Then
+        verify(productSearchIndex).search("ecr", null, false, productSearchProperties.getMaxLimit());
+        verify(productSearchIndex).search("ecr", "Electronics", true, productSearchProperties.getDefaultLimit());
+    }
+
+    @Test
+    void searchProducts_ShouldFail_WhenNoCriteriaOrInvalidLimit() {
+        // When & Then
+        assertThrows(BusinessRuleException.class, () -> productService.searchProducts(" ", null, false, null));
+        assertThrows(BusinessRuleException.class, () -> productService.searchProducts("ecr", null, false, 0));
+        verifyNoInteractions(productSearchIndex);
+    }
 }
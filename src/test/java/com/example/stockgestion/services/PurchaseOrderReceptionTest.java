@@ -3,21 +3,27 @@ package com.example.stockgestion.services;
 import com.example.stockgestion.Dto.request.ReceivedLineDto;
 import com.example.stockgestion.Dto.request.ReceiveRequestDto;
 import com.example.stockgestion.Dto.response.PurchaseOrderResponseDto;
+import com.example.stockgestion.events.StockReceivedEvent;
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.*;
 import com.example.stockgestion.models.enums.MovementType;
 import com.example.stockgestion.models.enums.POStatus;
 import com.example.stockgestion.repositories.*;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import com.example.stockgestion.services.helpers.ReferenceDataCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -30,25 +36,22 @@ class PurchaseOrderReceptionTest {
     private PurchaseOrderRepository purchaseOrderRepository;
 
     @Mock
-    private PurchaseOrderLineRepository purchaseOrderLineRepository;
+    private AvailabilityLedger availabilityLedger;
 
     @Mock
-    private SupplierRepository supplierRepository;
+    private PurchaseOrderLineRepository purchaseOrderLineRepository;
 
     @Mock
-    private ProductRepository productRepository;
+    private SupplierRepository supplierRepository;
 
     @Mock
-    private WareHouseRepository wareHouseRepository;
+    private ReferenceDataCache referenceDataCache;
 
     @Mock
     private InventoryRepository inventoryRepository;
 
     @Mock
-    private InventoryMovmentRepository inventoryMovmentRepository;
-
-    @Mock
-    private ModelMapper modelMapper;
+    private InventoryMovementWriter inventoryMovementWriter;
 
     @Mock
     private ApplicationEventPublisher eventPublisher;
@@ -85,6 +88,7 @@ class PurchaseOrderReceptionTest {
         purchaseOrder = new PurchaseOrder();
         purchaseOrder.setId(orderId);
         purchaseOrder.setStatus(POStatus.APPROVED);
+        purchaseOrder.setSupplier(new Supplier());
         purchaseOrder.setLines(Arrays.asList(line));
 
         inventory = new Inventory();
@@ -106,17 +110,13 @@ class PurchaseOrderReceptionTest {
         requestDto.setWarehouseId(warehouseId);
         requestDto.setReceivedLineDto(Arrays.asList(receivedLineDto));
 
-        when(purchaseOrderRepository.findById(orderId)).thenReturn(Optional.of(purchaseOrder));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(purchaseOrder));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProducts(Set.of(productId))).thenReturn(Map.of(product.getId(), product));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_Id(Set.of(productId), warehouseId))
                 .thenReturn(Arrays.asList(inventory));
         when(purchaseOrderRepository.save(any(PurchaseOrder.class))).thenReturn(purchaseOrder);
 
-        PurchaseOrderResponseDto responseDto = new PurchaseOrderResponseDto();
-        when(modelMapper.map(any(PurchaseOrder.class), eq(PurchaseOrderResponseDto.class)))
-                .thenReturn(responseDto);
-
         // When
         PurchaseOrderResponseDto result = purchaseOrderService.receptionOrder(orderId, requestDto);
 
@@ -124,7 +124,7 @@ class PurchaseOrderReceptionTest {
         assertNotNull(result);
         verify(purchaseOrderLineRepository).saveAll(anyList());
         verify(inventoryRepository).saveAll(anyList());
-        verify(inventoryMovmentRepository).saveAll(anyList());
+        verify(inventoryMovementWriter).append(anyList());
         verify(eventPublisher, atLeastOnce()).publishEvent(any(Object.class));
     }
 
@@ -140,23 +140,19 @@ class PurchaseOrderReceptionTest {
         requestDto.setWarehouseId(warehouseId);
         requestDto.setReceivedLineDto(Arrays.asList(receivedLineDto));
 
-        when(purchaseOrderRepository.findById(orderId)).thenReturn(Optional.of(purchaseOrder));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(purchaseOrder));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProducts(Set.of(productId))).thenReturn(Map.of(product.getId(), product));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_Id(Set.of(productId), warehouseId))
                 .thenReturn(Arrays.asList(inventory));
         when(purchaseOrderRepository.save(any(PurchaseOrder.class))).thenReturn(purchaseOrder);
 
-        PurchaseOrderResponseDto responseDto = new PurchaseOrderResponseDto();
-        when(modelMapper.map(any(PurchaseOrder.class), eq(PurchaseOrderResponseDto.class)))
-                .thenReturn(responseDto);
-
         // When
         purchaseOrderService.receptionOrder(orderId, requestDto);
 
         // Then
         verify(inventoryRepository).saveAll(anyList());
-        verify(inventoryMovmentRepository).saveAll(anyList());
+        verify(inventoryMovementWriter).append(anyList());
     }
 
     @Test
@@ -171,17 +167,13 @@ class PurchaseOrderReceptionTest {
         requestDto.setWarehouseId(warehouseId);
         requestDto.setReceivedLineDto(Arrays.asList(receivedLineDto));
 
-        when(purchaseOrderRepository.findById(orderId)).thenReturn(Optional.of(purchaseOrder));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(purchaseOrder));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProducts(Set.of(productId))).thenReturn(Map.of(product.getId(), product));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_Id(Set.of(productId), warehouseId))
                 .thenReturn(Collections.emptyList());
         when(purchaseOrderRepository.save(any(PurchaseOrder.class))).thenReturn(purchaseOrder);
 
-        PurchaseOrderResponseDto responseDto = new PurchaseOrderResponseDto();
-        when(modelMapper.map(any(PurchaseOrder.class), eq(PurchaseOrderResponseDto.class)))
-                .thenReturn(responseDto);
-
         // When
         purchaseOrderService.receptionOrder(orderId, requestDto);
 
@@ -204,9 +196,9 @@ class PurchaseOrderReceptionTest {
         requestDto.setWarehouseId(warehouseId);
         requestDto.setReceivedLineDto(Arrays.asList(receivedLineDto));
 
-        when(purchaseOrderRepository.findById(orderId)).thenReturn(Optional.of(purchaseOrder));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
-        when(productRepository.findById(productId)).thenReturn(Optional.empty());
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(purchaseOrder));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProducts(Set.of(productId))).thenReturn(Map.of());
 
         // When & Then
         assertThrows(ResourceNotFoundException.class, () ->
@@ -229,11 +221,9 @@ class PurchaseOrderReceptionTest {
         Product wrongProduct = new Product();
         wrongProduct.setId(wrongProductId);
 
-        when(purchaseOrderRepository.findById(orderId)).thenReturn(Optional.of(purchaseOrder));
-        when(wareHouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
-        when(productRepository.findById(wrongProductId)).thenReturn(Optional.of(wrongProduct));
-        when(inventoryRepository.findByProduct_IdAndWarehouse_Id(wrongProductId, warehouseId))
-                .thenReturn(Collections.emptyList());
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(purchaseOrder));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProducts(Set.of(wrongProductId))).thenReturn(Map.of(wrongProduct.getId(), wrongProduct));
 
         // When & Then
         assertThrows(ResourceNotFoundException.class, () ->
@@ -248,7 +238,7 @@ class PurchaseOrderReceptionTest {
         ReceiveRequestDto requestDto = new ReceiveRequestDto();
         requestDto.setWarehouseId(warehouseId);
 
-        when(purchaseOrderRepository.findById(orderId)).thenReturn(Optional.of(purchaseOrder));
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(purchaseOrder));
 
         // When & Then
         assertThrows(ResourceNotFoundException.class, () ->
@@ -263,10 +253,88 @@ class PurchaseOrderReceptionTest {
         ReceiveRequestDto requestDto = new ReceiveRequestDto();
         requestDto.setWarehouseId(warehouseId);
 
-        when(purchaseOrderRepository.findById(orderId)).thenReturn(Optional.of(purchaseOrder));
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(purchaseOrder));
 
         // When & Then
         assertThrows(ResourceNotFoundException.class, () ->
                 purchaseOrderService.receptionOrder(orderId, requestDto));
     }
+
+    @Test
+    void receptionOrder_ShouldPublishOneEventPerProduct_AfterInventoryIsSaved() {
+        // Given: le même produit reçu en deux lignes
+        ReceivedLineDto first = new ReceivedLineDto();
+        first.setProductId(productId);
+        first.setPoLine(line.getId());
+        first.setQuantityReceived(30);
+        ReceivedLineDto second = new ReceivedLineDto();
+        second.setProductId(productId);
+        second.setPoLine(line.getId());
+        second.setQuantityReceived(20);
+
+        ReceiveRequestDto requestDto = new ReceiveRequestDto();
+        requestDto.setWarehouseId(warehouseId);
+        requestDto.setReceivedLineDto(Arrays.asList(first, second));
+
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(purchaseOrder));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProducts(Set.of(productId))).thenReturn(Map.of(product.getId(), product));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_Id(Set.of(productId), warehouseId))
+                .thenReturn(Arrays.asList(inventory));
+        when(purchaseOrderRepository.save(any(PurchaseOrder.class))).thenReturn(purchaseOrder);
+
+        // When
+        purchaseOrderService.receptionOrder(orderId, requestDto);
+
+        // Then
+        InOrder inOrder = inOrder(inventoryRepository, eventPublisher);
+        inOrder.verify(inventoryRepository).saveAll(anyList());
+        inOrder.verify(eventPublisher).publishEvent(new StockReceivedEvent(productId, warehouseId, 50));
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void receptionOrder_LargeReceipt_ShouldUseSetBasedLookupsAndOneEventPerProduct() {
+        // Given : conteneur de 2000 lignes sur 500 produits, dont la moitié sans inventaire dans l'entrepôt
+        List<PurchaseOrderLine> poLines = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+        List<Inventory> existing = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Product p = new Product();
+            p.setId(UUID.randomUUID());
+            products.add(p);
+            PurchaseOrderLine poLine = new PurchaseOrderLine();
+            poLine.setProduct(p);
+            poLine.setQuantity(40);
+            poLines.add(poLine);
+            if (i % 2 == 0) {
+                existing.add(Inventory.builder().product(p).warehouse(warehouse).qtyOnHand(5).qtyReserved(0).build());
+            }
+        }
+        purchaseOrder.setLines(poLines);
+        List<ReceivedLineDto> received = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            received.add(new ReceivedLineDto(products.get(i % 500).getId(), UUID.randomUUID(), 10));
+        }
+
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(purchaseOrder));
+        when(referenceDataCache.findWarehouse(warehouseId)).thenReturn(Optional.of(warehouse));
+        when(referenceDataCache.findProducts(any())).thenReturn(products.stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity())));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_Id(any(), eq(warehouseId))).thenReturn(existing);
+        when(purchaseOrderRepository.save(any(PurchaseOrder.class))).thenReturn(purchaseOrder);
+
+        // When
+        purchaseOrderService.receptionOrder(orderId, new ReceiveRequestDto(warehouseId, received));
+
+        // Then : une requête par table, un lot par table, un événement par produit
+        verify(referenceDataCache, times(1)).findProducts(any());
+        verify(inventoryRepository, times(1)).findByProduct_IdInAndWarehouse_Id(any(), any());
+        verify(inventoryRepository).saveAll(argThat((List<Inventory> inventories) -> inventories.size() == 500
+                && inventories.stream().allMatch(inv -> inv.getQtyOnHand() == (existing.contains(inv) ? 45 : 40))));
+        verify(inventoryMovementWriter).append(argThat((List<InventoryMovement> movements) -> movements.size() == 2000));
+        verify(eventPublisher, times(500)).publishEvent(any(StockReceivedEvent.class));
+        verify(availabilityLedger, times(500)).recordChange(any(), eq(warehouseId), eq(40L), eq(0L));
+        assertEquals(POStatus.RECEIVED, purchaseOrder.getStatus());
+    }
 }
@@ -7,16 +7,19 @@ import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.*;
 import com.example.stockgestion.models.enums.POStatus;
 import com.example.stockgestion.repositories.*;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import com.example.stockgestion.services.helpers.ReferenceDataCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -32,6 +35,8 @@ class PurchaseOrderServiceTest {
     @Mock
     private ApplicationEventPublisher eventPublisher;
     @Mock
+    private AvailabilityLedger availabilityLedger;
+    @Mock
     private PurchaseOrderRepository purchaseOrderRepository;
     @Mock
     private PurchaseOrderLineRepository purchaseOrderLineRepository;
@@ -40,13 +45,9 @@ class PurchaseOrderServiceTest {
     @Mock
     private SupplierRepository supplierRepository;
     @Mock
-    private ProductRepository productRepository;
-    @Mock
-    private ModelMapper modelMapper;
-    @Mock
-    private WareHouseRepository wareHouseRepository;
+    private ReferenceDataCache referenceDataCache;
     @Mock
-    private InventoryMovmentRepository inventoryMovmentRepository;
+    private InventoryMovementWriter inventoryMovementWriter;
 
     @InjectMocks
     private PurchaseOrderService purchaseOrderService;
@@ -75,6 +76,7 @@ class PurchaseOrderServiceTest {
         purchaseOrder.setId(orderId);
         purchaseOrder.setSupplier(supplier);
         purchaseOrder.setStatus(POStatus.APPROVED);
+        purchaseOrder.setLines(new ArrayList<>());
     }
 
     @Test
@@ -89,13 +91,9 @@ class PurchaseOrderServiceTest {
         requestDto.setSupplierId(supplierId);
         requestDto.setLines(Arrays.asList(lineDto));
 
-        PurchaseOrderResponseDto responseDto = new PurchaseOrderResponseDto();
-
         when(supplierRepository.findById(supplierId)).thenReturn(Optional.of(supplier));
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
         when(purchaseOrderRepository.save(any(PurchaseOrder.class))).thenReturn(purchaseOrder);
-        when(modelMapper.map(any(PurchaseOrder.class), eq(PurchaseOrderResponseDto.class)))
-                .thenReturn(responseDto);
 
         // When
         PurchaseOrderResponseDto result = purchaseOrderService.createPurchaseOrder(requestDto);
@@ -103,7 +101,7 @@ class PurchaseOrderServiceTest {
         // Then
         assertNotNull(result);
         verify(supplierRepository).findById(supplierId);
-        verify(productRepository).findById(productId);
+        verify(referenceDataCache).findProduct(productId);
         verify(purchaseOrderRepository).save(any(PurchaseOrder.class));
     }
 
@@ -124,11 +122,7 @@ class PurchaseOrderServiceTest {
     @Test
     void getAllPurchaseOrders_ShouldReturnList() {
         // Given
-        when(purchaseOrderRepository.findAll()).thenReturn(Arrays.asList(purchaseOrder));
-
-        PurchaseOrderResponseDto responseDto = new PurchaseOrderResponseDto();
-        when(modelMapper.map(any(PurchaseOrder.class), eq(PurchaseOrderResponseDto.class)))
-                .thenReturn(responseDto);
+        when(purchaseOrderRepository.findAllWithLines()).thenReturn(Arrays.asList(purchaseOrder));
 
         // When
         List<PurchaseOrderResponseDto> result = purchaseOrderService.getAllPurchaseOrders();
@@ -136,30 +130,26 @@ class PurchaseOrderServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(purchaseOrderRepository).findAll();
+        verify(purchaseOrderRepository).findAllWithLines();
     }
 
     @Test
     void getPurchaseOrderById_ShouldReturnOrder() {
         // Given
-        when(purchaseOrderRepository.findById(orderId)).thenReturn(Optional.of(purchaseOrder));
-        
-        PurchaseOrderResponseDto responseDto = new PurchaseOrderResponseDto();
-        when(modelMapper.map(any(PurchaseOrder.class), eq(PurchaseOrderResponseDto.class)))
-                .thenReturn(responseDto);
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(purchaseOrder));
 
         // When
         PurchaseOrderResponseDto result = purchaseOrderService.getPurchaseOrderById(orderId);
 
         // Then
         assertNotNull(result);
-        verify(purchaseOrderRepository).findById(orderId);
+        verify(purchaseOrderRepository).findWithLinesById(orderId);
     }
 
     @Test
     void getPurchaseOrderById_WhenNotFound_ShouldThrowException() {
         // Given
-        when(purchaseOrderRepository.findById(orderId)).thenReturn(Optional.empty());
+        when(purchaseOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(ResourceNotFoundException.class,
@@ -179,7 +169,7 @@ class PurchaseOrderServiceTest {
         requestDto.setLines(Arrays.asList(lineDto));
 
         when(supplierRepository.findById(supplierId)).thenReturn(Optional.of(supplier));
-        when(productRepository.findById(productId)).thenReturn(Optional.empty());
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(ResourceNotFoundException.class,
@@ -208,21 +198,17 @@ class PurchaseOrderServiceTest {
         requestDto.setSupplierId(supplierId);
         requestDto.setLines(Arrays.asList(lineDto1, lineDto2));
 
-        PurchaseOrderResponseDto responseDto = new PurchaseOrderResponseDto();
-
         when(supplierRepository.findById(supplierId)).thenReturn(Optional.of(supplier));
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
-        when(productRepository.findById(productId2)).thenReturn(Optional.of(product2));
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findProduct(productId2)).thenReturn(Optional.of(product2));
         when(purchaseOrderRepository.save(any(PurchaseOrder.class))).thenReturn(purchaseOrder);
-        when(modelMapper.map(any(PurchaseOrder.class), eq(PurchaseOrderResponseDto.class)))
-                .thenReturn(responseDto);
 
         // When
         PurchaseOrderResponseDto result = purchaseOrderService.createPurchaseOrder(requestDto);
 
         // Then
         assertNotNull(result);
-        verify(productRepository, times(2)).findById(any(UUID.class));
+        verify(referenceDataCache, times(2)).findProduct(any(UUID.class));
     }
 
     @Test
@@ -230,16 +216,10 @@ class PurchaseOrderServiceTest {
         // Given
         PurchaseOrder order2 = new PurchaseOrder();
         order2.setId(UUID.randomUUID());
+        order2.setSupplier(supplier);
+        order2.setLines(new ArrayList<>());
         
-        when(purchaseOrderRepository.findAll()).thenReturn(Arrays.asList(purchaseOrder, order2));
-
-        PurchaseOrderResponseDto responseDto1 = new PurchaseOrderResponseDto();
-        PurchaseOrderResponseDto responseDto2 = new PurchaseOrderResponseDto();
-        
-        when(modelMapper.map(eq(purchaseOrder), eq(PurchaseOrderResponseDto.class)))
-                .thenReturn(responseDto1);
-        when(modelMapper.map(eq(order2), eq(PurchaseOrderResponseDto.class)))
-                .thenReturn(responseDto2);
+        when(purchaseOrderRepository.findAllWithLines()).thenReturn(Arrays.asList(purchaseOrder, order2));
 
         // When
         List<PurchaseOrderResponseDto> result = purchaseOrderService.getAllPurchaseOrders();
@@ -247,13 +227,13 @@ class PurchaseOrderServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(2, result.size());
-        verify(purchaseOrderRepository).findAll();
+        verify(purchaseOrderRepository).findAllWithLines();
     }
 
     @Test
     void getAllPurchaseOrders_WhenEmpty_ShouldReturnEmptyList() {
         // Given
-        when(purchaseOrderRepository.findAll()).thenReturn(Arrays.asList());
+        when(purchaseOrderRepository.findAllWithLines()).thenReturn(Arrays.asList());
 
         // When
         List<PurchaseOrderResponseDto> result = purchaseOrderService.getAllPurchaseOrders();
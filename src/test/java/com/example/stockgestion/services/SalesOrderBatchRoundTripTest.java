@@ -0,0 +1,164 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.request.SalesOrderBatchRequestDto;
+import com.example.stockgestion.Dto.request.SalesOrderLineRequestDto;
+import com.example.stockgestion.Dto.request.SalesOrderRequestDto;
+import com.example.stockgestion.Dto.response.SalesOrderBatchResponseDto;
+import com.example.stockgestion.config.ReferenceCacheProperties;
+import com.example.stockgestion.models.*;
+import com.example.stockgestion.repositories.*;
+import com.example.stockgestion.repositories.projections.StockLevel;
+import com.example.stockgestion.services.allocation.AllocationStrategyResolver;
+import com.example.stockgestion.services.allocation.GreedyAllocationStrategy;
+import com.example.stockgestion.services.helpers.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.Invocation;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compare les aller-retours base par commande entre l'intake unitaire et l'intake par lot.
+ * Chaque appel de repository compte pour un aller-retour (getReferenceById n'en fait pas) ;
+ * les INSERT sont comptés en lots JDBC de BATCH_SIZE, comme configuré dans application.properties.
+ */
+class SalesOrderBatchRoundTripTest {
+
+    private static final int ORDERS = 2_000;
+    private static final int PRODUCTS = 20;
+    private static final int WAREHOUSES = 3;
+    private static final int BATCH_SIZE = 50;
+
+    private final List<Client> clients = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+    private final List<WareHouse> warehouses = new ArrayList<>();
+    private List<SalesOrderRequestDto> requests;
+
+    private ClientRepository clientRepository;
+    private ProductRepository productRepository;
+    private InventoryRepository inventoryRepository;
+    private WareHouseRepository wareHouseRepository;
+    private SalesOrderRepository salesOrderRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 50; i++) {
+            Client client = new Client();
+            client.setId(UUID.randomUUID());
+            clients.add(client);
+        }
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setId(UUID.randomUUID());
+            product.setName("P" + i);
+            product.setPrice(BigDecimal.TEN);
+            products.add(product);
+        }
+        for (int i = 0; i < WAREHOUSES; i++) {
+            WareHouse warehouse = new WareHouse();
+            warehouse.setId(UUID.randomUUID());
+            warehouses.add(warehouse);
+        }
+        requests = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            requests.add(new SalesOrderRequestDto(clients.get(i % clients.size()).getId(), List.of(
+                    new SalesOrderLineRequestDto(products.get(i % PRODUCTS).getId(), 2),
+                    new SalesOrderLineRequestDto(products.get((i + 7) % PRODUCTS).getId(), 3))));
+        }
+    }
+
+    @Test
+    void batchIntake_ShouldUseAtLeast20TimesFewerRoundTripsPerOrder() {
+        // Given
+        SalesOrderService singleService = newService();
+        long singleInserts = 0;
+        for (SalesOrderRequestDto request : requests) {
+            singleService.createSalesOrder(request);
+            // Une commande et ses lignes : un lot d'INSERT par table
+            singleInserts += 2;
+        }
+        // save n'est pas un aller-retour en soi : ses INSERT sont comptés ci-dessus
+        long singleRoundTrips = repositoryCalls() - ORDERS + singleInserts;
+
+        SalesOrderService batchService = newService();
+        SalesOrderBatchResponseDto response = batchService.createSalesOrdersBatch(new SalesOrderBatchRequestDto(requests));
+        long batchInserts = ceilDiv(ORDERS, BATCH_SIZE) + ceilDiv(ORDERS * 2L, BATCH_SIZE);
+        long batchRoundTrips = repositoryCalls() - 1 + batchInserts;
+
+        double ratio = (double) singleRoundTrips / batchRoundTrips;
+
+        // Then
+        assertEquals(ORDERS, response.getCreated());
+        assertTrue(ratio >= 20, "single=" + singleRoundTrips + ", batch=" + batchRoundTrips + ", ratio=" + ratio);
+    }
+
+    private long ceilDiv(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private long repositoryCalls() {
+        long calls = 0;
+        for (Object repository : List.of(clientRepository, productRepository, inventoryRepository, salesOrderRepository)) {
+            calls += mockingDetails(repository).getInvocations().size();
+        }
+        for (Invocation invocation : mockingDetails(wareHouseRepository).getInvocations()) {
+            if (!invocation.getMethod().getName().equals("getReferenceById")) {
+                calls++;
+            }
+        }
+        return calls;
+    }
+
+    private SalesOrderService newService() {
+        clientRepository = mock(ClientRepository.class);
+        productRepository = mock(ProductRepository.class);
+        inventoryRepository = mock(InventoryRepository.class);
+        wareHouseRepository = mock(WareHouseRepository.class);
+        salesOrderRepository = mock(SalesOrderRepository.class);
+
+        when(clientRepository.findWithWarehousePriorityByIdIn(any())).thenReturn(clients);
+        when(productRepository.findAllById(any())).thenReturn(products);
+        when(inventoryRepository.findStockLevelsByProductId(any())).thenAnswer(invocation ->
+                levelsFor(List.of((UUID) invocation.getArgument(0))));
+        when(inventoryRepository.findStockLevelsByProductIdIn(any())).thenAnswer(invocation ->
+                levelsFor(invocation.getArgument(0)));
+        when(inventoryRepository.reserveIfAvailable(any(), any(), anyLong())).thenReturn(1);
+        when(wareHouseRepository.getReferenceById(any())).thenAnswer(invocation ->
+                warehouses.stream().filter(w -> w.getId().equals(invocation.getArgument(0))).findFirst().orElseThrow());
+        when(salesOrderRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(salesOrderRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        AvailabilityLedger ledger = new AvailabilityLedger(inventoryRepository);
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(productRepository, mock(WareHouseRepository.class),
+                clientRepository, new ReferenceCacheProperties(), new SimpleMeterRegistry());
+        return new SalesOrderService(salesOrderRepository, inventoryRepository,
+                new ClientValidator(referenceDataCache), new ProductValidator(referenceDataCache),
+                new StockReservationHelper(inventoryRepository, wareHouseRepository, ledger), ledger,
+                new OrderStatusHelper(), new SalesOrderBuilder(),
+                mock(InventoryMovementWriter.class), mock(SalesOrderLineRepository.class),
+                new AllocationStrategyResolver(List.of(new GreedyAllocationStrategy())),
+                new BackorderQueue(mock(BackorderEntryRepository.class), mock(SalesOrderLineRepository.class)),
+                new SalesOrderReadModel(salesOrderRepository, mock(SalesOrderLineRepository.class)),
+                mock(NdjsonStreamer.class));
+    }
+
+    private List<StockLevel> levelsFor(Collection<UUID> productIds) {
+        List<StockLevel> levels = new ArrayList<>();
+        for (UUID productId : productIds) {
+            for (WareHouse warehouse : warehouses) {
+                levels.add(new StockLevel(productId, warehouse.getId(), 1_000_000, 0));
+            }
+        }
+        return levels;
+    }
+}
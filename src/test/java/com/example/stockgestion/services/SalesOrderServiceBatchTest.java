@@ -0,0 +1,198 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.request.SalesOrderBatchRequestDto;
+import com.example.stockgestion.Dto.request.SalesOrderLineRequestDto;
+import com.example.stockgestion.Dto.request.SalesOrderRequestDto;
+import com.example.stockgestion.Dto.response.SalesOrderBatchResponseDto;
+import com.example.stockgestion.Dto.response.SalesOrderBatchResultDto;
+import com.example.stockgestion.exception.ConflictException;
+import com.example.stockgestion.models.*;
+import com.example.stockgestion.models.enums.SOStatus;
+import com.example.stockgestion.repositories.InventoryRepository;
+import com.example.stockgestion.repositories.SalesOrderLineRepository;
+import com.example.stockgestion.repositories.SalesOrderRepository;
+import com.example.stockgestion.services.allocation.AllocationStrategyResolver;
+import com.example.stockgestion.services.helpers.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesOrderServiceBatchTest {
+
+    @Mock
+    private SalesOrderRepository salesOrderRepository;
+
+    @Mock
+    private AvailabilityLedger availabilityLedger;
+
+    @Mock
+    private BackorderQueue backorderQueue;
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private InventoryMovementWriter inventoryMovementWriter;
+
+    @Mock
+    private SalesOrderLineRepository salesOrderLineRepository;
+
+    @Mock
+    private ClientValidator clientValidator;
+
+    @Mock
+    private ProductValidator productValidator;
+
+    @Mock
+    private StockReservationHelper stockReservationHelper;
+
+    @Mock
+    private OrderStatusHelper orderStatusHelper;
+
+    @Mock
+    private SalesOrderBuilder salesOrderBuilder;
+
+    @Mock
+    private AllocationStrategyResolver allocationStrategyResolver;
+
+    @InjectMocks
+    private SalesOrderService salesOrderService;
+
+    private Client client;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        client = new Client();
+        client.setId(UUID.randomUUID());
+
+        product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName("Test Product");
+        product.setPrice(new BigDecimal("10.00"));
+    }
+
+    private SalesOrderRequestDto order(UUID clientId, UUID productId, long qty) {
+        return new SalesOrderRequestDto(clientId, List.of(new SalesOrderLineRequestDto(productId, qty)));
+    }
+
+    private void givenBuilderCreatesOrders() {
+        when(salesOrderBuilder.initialize(client)).thenAnswer(invocation -> {
+            SalesOrder order = new SalesOrder();
+            order.setClient(client);
+            return order;
+        });
+        doAnswer(invocation -> {
+            SalesOrder order = invocation.getArgument(0);
+            order.setLines(invocation.getArgument(1));
+            order.setStatus(invocation.getArgument(3));
+            return null;
+        }).when(salesOrderBuilder).finalize(any(), anyList(), any(), any());
+        when(orderStatusHelper.determineStatus(anyBoolean(), anyBoolean())).thenReturn(SOStatus.RESERVED);
+    }
+
+    @Test
+    void createSalesOrdersBatch_ShouldPreloadReferencesOnce_AndAllocateInArrivalOrder() {
+        // Given: 3 commandes du même client sur le même produit
+        SalesOrderBatchRequestDto request = new SalesOrderBatchRequestDto(List.of(
+                order(client.getId(), product.getId(), 5),
+                order(client.getId(), product.getId(), 7),
+                order(client.getId(), product.getId(), 9)));
+        when(clientValidator.getAllById(Set.of(client.getId()))).thenReturn(Map.of(client.getId(), client));
+        when(productValidator.getAllById(Set.of(product.getId()))).thenReturn(Map.of(product.getId(), product));
+        givenBuilderCreatesOrders();
+        when(stockReservationHelper.allocateInLedger(any(), eq(product), eq(product.getPrice()), anyLong(), any(), anyMap()))
+                .thenReturn(new ReservationResult(new ArrayList<>(), true, false));
+
+        // When
+        SalesOrderBatchResponseDto response = salesOrderService.createSalesOrdersBatch(request);
+
+        // Then
+        assertEquals(3, response.getCreated());
+        assertEquals(0, response.getRejected());
+        verify(clientValidator, never()).validateAndGet(any());
+        verify(productValidator, never()).validateAndGet(any());
+        verify(availabilityLedger).preload(Set.of(product.getId()));
+
+        InOrder inOrder = inOrder(stockReservationHelper, salesOrderRepository);
+        inOrder.verify(stockReservationHelper).allocateInLedger(any(), any(), any(), eq(5L), any(), anyMap());
+        inOrder.verify(stockReservationHelper).allocateInLedger(any(), any(), any(), eq(7L), any(), anyMap());
+        inOrder.verify(stockReservationHelper).allocateInLedger(any(), any(), any(), eq(9L), any(), anyMap());
+        inOrder.verify(stockReservationHelper).applyPendingReservations(anyMap());
+        inOrder.verify(salesOrderRepository).saveAll(anyCollection());
+        verify(salesOrderRepository, never()).save(any());
+    }
+
+    @Test
+    void createSalesOrdersBatch_ShouldRejectInvalidOrdersIndividually() {
+        // Given: client inconnu en position 1, produit sans prix en position 2
+        UUID unknownClient = UUID.randomUUID();
+        Product noPrice = new Product();
+        noPrice.setId(UUID.randomUUID());
+        noPrice.setName("Sans prix");
+        SalesOrderBatchRequestDto request = new SalesOrderBatchRequestDto(List.of(
+                order(client.getId(), product.getId(), 5),
+                order(unknownClient, product.getId(), 5),
+                order(client.getId(), noPrice.getId(), 5)));
+        when(clientValidator.getAllById(anyCollection())).thenReturn(Map.of(client.getId(), client));
+        when(productValidator.getAllById(anyCollection()))
+                .thenReturn(Map.of(product.getId(), product, noPrice.getId(), noPrice));
+        givenBuilderCreatesOrders();
+        when(stockReservationHelper.allocateInLedger(any(), any(), any(), anyLong(), any(), anyMap()))
+                .thenReturn(new ReservationResult(new ArrayList<>(), true, false));
+
+        // When
+        SalesOrderBatchResponseDto response = salesOrderService.createSalesOrdersBatch(request);
+
+        // Then
+        assertEquals(1, response.getCreated());
+        assertEquals(2, response.getRejected());
+        List<SalesOrderBatchResultDto> results = response.getResults();
+        assertEquals(SOStatus.RESERVED, results.get(0).getStatus());
+        assertTrue(results.get(1).getError().contains(unknownClient.toString()));
+        assertTrue(results.get(2).getError().contains("Sans prix"));
+        assertEquals(2, results.get(2).getIndex());
+
+        // Une commande rejetée ne réserve jamais de stock
+        verify(stockReservationHelper, times(1)).allocateInLedger(any(), any(), any(), anyLong(), any(), anyMap());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SalesOrder>> savedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(salesOrderRepository).saveAll(savedCaptor.capture());
+        assertEquals(1, savedCaptor.getValue().size());
+    }
+
+    @Test
+    void createSalesOrdersBatch_ShouldNotSaveOrders_WhenStockChangedDuringBatch() {
+        // Given
+        SalesOrderBatchRequestDto request = new SalesOrderBatchRequestDto(List.of(order(client.getId(), product.getId(), 5)));
+        when(clientValidator.getAllById(anyCollection())).thenReturn(Map.of(client.getId(), client));
+        when(productValidator.getAllById(anyCollection())).thenReturn(Map.of(product.getId(), product));
+        givenBuilderCreatesOrders();
+        when(stockReservationHelper.allocateInLedger(any(), any(), any(), anyLong(), any(), anyMap()))
+                .thenReturn(new ReservationResult(new ArrayList<>(), true, false));
+        doThrow(new ConflictException("stock changé")).when(stockReservationHelper).applyPendingReservations(anyMap());
+
+        // When & Then
+        assertThrows(ConflictException.class, () -> salesOrderService.createSalesOrdersBatch(request));
+        verify(salesOrderRepository, never()).saveAll(any());
+    }
+}
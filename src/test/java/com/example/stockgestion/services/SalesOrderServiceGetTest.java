@@ -1,17 +1,21 @@
 package com.example.stockgestion.services;
 
+import com.example.stockgestion.Dto.response.KeysetPageDto;
 import com.example.stockgestion.Dto.response.SalesOrderResponseDto;
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.Client;
 import com.example.stockgestion.models.SalesOrder;
 import com.example.stockgestion.repositories.SalesOrderRepository;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.BackorderQueue;
+import com.example.stockgestion.services.helpers.SalesOrderReadModel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
 
 import java.util.Arrays;
 import java.util.List;
@@ -20,7 +24,6 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,7 +33,13 @@ class SalesOrderServiceGetTest {
     private SalesOrderRepository salesOrderRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private AvailabilityLedger availabilityLedger;
+
+    @Mock
+    private BackorderQueue backorderQueue;
+
+    @Mock
+    private SalesOrderReadModel salesOrderReadModel;
 
     @InjectMocks
     private SalesOrderService salesOrderService;
@@ -55,13 +64,9 @@ class SalesOrderServiceGetTest {
     @Test
     void getSalesOrderById_ShouldReturnOrder() {
         // Given
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.of(salesOrder));
-        
         SalesOrderResponseDto responseDto = new SalesOrderResponseDto();
         responseDto.setId(orderId);
-        
-        when(modelMapper.map(any(SalesOrder.class), eq(SalesOrderResponseDto.class)))
-                .thenReturn(responseDto);
+        when(salesOrderReadModel.findById(orderId)).thenReturn(Optional.of(responseDto));
 
         // When
         SalesOrderResponseDto result = salesOrderService.getSalesOrderById(orderId);
@@ -69,13 +74,14 @@ class SalesOrderServiceGetTest {
         // Then
         assertNotNull(result);
         assertEquals(orderId, result.getId());
-        verify(salesOrderRepository).findById(orderId);
+        verify(salesOrderReadModel).findById(orderId);
+        verify(salesOrderRepository, never()).findById(any());
     }
 
     @Test
     void getSalesOrderById_WhenNotFound_ShouldThrowException() {
         // Given
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.empty());
+        when(salesOrderReadModel.findById(orderId)).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(ResourceNotFoundException.class,
@@ -85,20 +91,11 @@ class SalesOrderServiceGetTest {
     @Test
     void getAllSalesOrders_ShouldReturnList() {
         // Given
-        Client client1 = new Client();
-        client1.setId(UUID.randomUUID());
-        
-        SalesOrder order1 = new SalesOrder();
+        SalesOrderResponseDto order1 = new SalesOrderResponseDto();
         order1.setId(UUID.randomUUID());
-        order1.setClient(client1);
-        order1.setLines(Arrays.asList());
-        
-        SalesOrder order2 = new SalesOrder();
-        order2.setId(UUID.randomUUID());
-        order2.setClient(client);
-        order2.setLines(Arrays.asList());
-
-        when(salesOrderRepository.findAll()).thenReturn(Arrays.asList(order1, order2));
+        SalesOrderResponseDto order2 = new SalesOrderResponseDto();
+        order2.setId(orderId);
+        when(salesOrderReadModel.findAll()).thenReturn(Arrays.asList(order1, order2));
 
         // When
         List<SalesOrderResponseDto> result = salesOrderService.getAllSalesOrders();
@@ -106,13 +103,13 @@ class SalesOrderServiceGetTest {
         // Then
         assertNotNull(result);
         assertEquals(2, result.size());
-        verify(salesOrderRepository).findAll();
+        verify(salesOrderRepository, never()).findAll();
     }
 
     @Test
     void getAllSalesOrders_WhenEmpty_ShouldReturnEmptyList() {
         // Given
-        when(salesOrderRepository.findAll()).thenReturn(Arrays.asList());
+        when(salesOrderReadModel.findAll()).thenReturn(Arrays.asList());
 
         // When
         List<SalesOrderResponseDto> result = salesOrderService.getAllSalesOrders();
@@ -121,4 +118,21 @@ class SalesOrderServiceGetTest {
         assertNotNull(result);
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    void getSalesOrdersPage_ShouldReadPageIdsThroughReadModel() {
+        // Given
+        UUID nextId = UUID.randomUUID();
+        SalesOrderResponseDto order = new SalesOrderResponseDto();
+        order.setId(nextId);
+        when(salesOrderRepository.findIdsAfter(orderId, Limit.of(1))).thenReturn(List.of(nextId));
+        when(salesOrderReadModel.findByIds(List.of(nextId))).thenReturn(List.of(order));
+
+        // When
+        KeysetPageDto<SalesOrderResponseDto> page = salesOrderService.getSalesOrdersPage(orderId, 1);
+
+        // Then
+        assertEquals(List.of(order), page.getItems());
+        assertEquals(nextId, page.getNextCursor());
+    }
 }
@@ -6,9 +6,11 @@ import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.*;
 import com.example.stockgestion.models.enums.MovementType;
 import com.example.stockgestion.models.enums.SOStatus;
-import com.example.stockgestion.repositories.InventoryMovmentRepository;
 import com.example.stockgestion.repositories.InventoryRepository;
 import com.example.stockgestion.repositories.SalesOrderRepository;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.BackorderQueue;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,7 +19,6 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -35,13 +36,16 @@ class SalesOrderServiceStatusTransitionTest {
     private SalesOrderRepository salesOrderRepository;
 
     @Mock
-    private InventoryRepository inventoryRepository;
+    private AvailabilityLedger availabilityLedger;
 
     @Mock
-    private InventoryMovmentRepository inventoryMovmentRepository;
+    private BackorderQueue backorderQueue;
 
     @Mock
-    private ModelMapper modelMapper;
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private InventoryMovementWriter inventoryMovementWriter;
 
     @InjectMocks
     private SalesOrderService salesOrderService;
@@ -108,7 +112,7 @@ class SalesOrderServiceStatusTransitionTest {
         // Given: Commande avec statut RESERVED
         salesOrder.setStatus(SOStatus.RESERVED);
         
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.of(salesOrder));
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(salesOrder));
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(List.of(inventory));
 
@@ -120,15 +124,12 @@ class SalesOrderServiceStatusTransitionTest {
         ArgumentCaptor<List<InventoryMovement>> movementCaptor = ArgumentCaptor.forClass(List.class);
 
         SalesOrder savedOrder = new SalesOrder();
+        savedOrder.setClient(client);
+        savedOrder.setLines(List.of());
         savedOrder.setId(orderId);
         savedOrder.setStatus(SOStatus.DELIVERED);
         when(salesOrderRepository.save(any(SalesOrder.class))).thenReturn(savedOrder);
 
-        SalesOrderResponseDto responseDto = new SalesOrderResponseDto();
-        responseDto.setId(orderId);
-        responseDto.setStatus(SOStatus.DELIVERED);
-        when(modelMapper.map(savedOrder, SalesOrderResponseDto.class)).thenReturn(responseDto);
-
         // When
         SalesOrderResponseDto result = salesOrderService.shipOrder(orderId);
 
@@ -151,7 +152,7 @@ class SalesOrderServiceStatusTransitionTest {
         assertEquals(0, updatedInventory.getQtyReserved());  // 50 - 50 = 0
 
         // Vérifier qu'un mouvement d'inventaire a été créé
-        verify(inventoryMovmentRepository).saveAll(movementCaptor.capture());
+        verify(inventoryMovementWriter).append(movementCaptor.capture());
         List<InventoryMovement> capturedMovements = movementCaptor.getValue();
         assertEquals(1, capturedMovements.size());
         
@@ -168,20 +169,18 @@ class SalesOrderServiceStatusTransitionTest {
         // Given: Commande avec statut PARTIALLY_RESERVED
         salesOrder.setStatus(SOStatus.PARTIALLY_RESERVED);
         
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.of(salesOrder));
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(salesOrder));
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(List.of(inventory));
 
         ArgumentCaptor<SalesOrder> orderCaptor = ArgumentCaptor.forClass(SalesOrder.class);
         
         SalesOrder savedOrder = new SalesOrder();
+        savedOrder.setClient(client);
+        savedOrder.setLines(List.of());
         savedOrder.setStatus(SOStatus.DELIVERED);
         when(salesOrderRepository.save(any(SalesOrder.class))).thenReturn(savedOrder);
 
-        SalesOrderResponseDto responseDto = new SalesOrderResponseDto();
-        responseDto.setStatus(SOStatus.DELIVERED);
-        when(modelMapper.map(savedOrder, SalesOrderResponseDto.class)).thenReturn(responseDto);
-
         // When
         SalesOrderResponseDto result = salesOrderService.shipOrder(orderId);
 
@@ -198,7 +197,7 @@ class SalesOrderServiceStatusTransitionTest {
         // Given: Commande avec statut CREATED (non expédiable)
         salesOrder.setStatus(SOStatus.CREATED);
         
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.of(salesOrder));
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(salesOrder));
 
         // When & Then
         BusinessRuleException exception = assertThrows(BusinessRuleException.class, 
@@ -209,7 +208,7 @@ class SalesOrderServiceStatusTransitionTest {
         // Vérifier qu'aucune sauvegarde n'a eu lieu
         verify(salesOrderRepository, never()).save(any());
         verify(inventoryRepository, never()).saveAll(any());
-        verify(inventoryMovmentRepository, never()).saveAll(any());
+        verify(inventoryMovementWriter, never()).append(anyList());
     }
 
     @Test
@@ -217,7 +216,7 @@ class SalesOrderServiceStatusTransitionTest {
         // Given: Commande déjà livrée
         salesOrder.setStatus(SOStatus.DELIVERED);
         
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.of(salesOrder));
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(salesOrder));
 
         // When & Then
         BusinessRuleException exception = assertThrows(BusinessRuleException.class, 
@@ -231,7 +230,7 @@ class SalesOrderServiceStatusTransitionTest {
         // Given: Commande avec statut RESERVED
         salesOrder.setStatus(SOStatus.RESERVED);
         
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.of(salesOrder));
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(salesOrder));
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(List.of(inventory));
 
@@ -240,15 +239,12 @@ class SalesOrderServiceStatusTransitionTest {
         ArgumentCaptor<List<Inventory>> inventoryCaptor = ArgumentCaptor.forClass(List.class);
 
         SalesOrder savedOrder = new SalesOrder();
+        savedOrder.setClient(client);
+        savedOrder.setLines(List.of());
         savedOrder.setId(orderId);
         savedOrder.setStatus(SOStatus.CANCELED);
         when(salesOrderRepository.save(any(SalesOrder.class))).thenReturn(savedOrder);
 
-        SalesOrderResponseDto responseDto = new SalesOrderResponseDto();
-        responseDto.setId(orderId);
-        responseDto.setStatus(SOStatus.CANCELED);
-        when(modelMapper.map(savedOrder, SalesOrderResponseDto.class)).thenReturn(responseDto);
-
         // When
         SalesOrderResponseDto result = salesOrderService.cancelOrder(orderId);
 
@@ -276,20 +272,18 @@ class SalesOrderServiceStatusTransitionTest {
         // Given: Commande avec statut PARTIALLY_RESERVED
         salesOrder.setStatus(SOStatus.PARTIALLY_RESERVED);
         
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.of(salesOrder));
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(salesOrder));
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(List.of(inventory));
 
         ArgumentCaptor<SalesOrder> orderCaptor = ArgumentCaptor.forClass(SalesOrder.class);
         
         SalesOrder savedOrder = new SalesOrder();
+        savedOrder.setClient(client);
+        savedOrder.setLines(List.of());
         savedOrder.setStatus(SOStatus.CANCELED);
         when(salesOrderRepository.save(any(SalesOrder.class))).thenReturn(savedOrder);
 
-        SalesOrderResponseDto responseDto = new SalesOrderResponseDto();
-        responseDto.setStatus(SOStatus.CANCELED);
-        when(modelMapper.map(savedOrder, SalesOrderResponseDto.class)).thenReturn(responseDto);
-
         // When
         SalesOrderResponseDto result = salesOrderService.cancelOrder(orderId);
 
@@ -308,18 +302,16 @@ class SalesOrderServiceStatusTransitionTest {
         orderLine.setQtyBackordered(50L);
         salesOrder.setStatus(SOStatus.BACKORDERED);
         
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.of(salesOrder));
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(salesOrder));
 
         ArgumentCaptor<SalesOrder> orderCaptor = ArgumentCaptor.forClass(SalesOrder.class);
         
         SalesOrder savedOrder = new SalesOrder();
+        savedOrder.setClient(client);
+        savedOrder.setLines(List.of());
         savedOrder.setStatus(SOStatus.CANCELED);
         when(salesOrderRepository.save(any(SalesOrder.class))).thenReturn(savedOrder);
 
-        SalesOrderResponseDto responseDto = new SalesOrderResponseDto();
-        responseDto.setStatus(SOStatus.CANCELED);
-        when(modelMapper.map(savedOrder, SalesOrderResponseDto.class)).thenReturn(responseDto);
-
         // When
         SalesOrderResponseDto result = salesOrderService.cancelOrder(orderId);
 
@@ -339,7 +331,7 @@ class SalesOrderServiceStatusTransitionTest {
         // Given: Commande déjà livrée
         salesOrder.setStatus(SOStatus.DELIVERED);
         
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.of(salesOrder));
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(salesOrder));
 
         // When & Then
         BusinessRuleException exception = assertThrows(BusinessRuleException.class, 
@@ -357,11 +349,7 @@ class SalesOrderServiceStatusTransitionTest {
         // Given: Commande déjà annulée
         salesOrder.setStatus(SOStatus.CANCELED);
         
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.of(salesOrder));
-
-        SalesOrderResponseDto responseDto = new SalesOrderResponseDto();
-        responseDto.setStatus(SOStatus.CANCELED);
-        when(modelMapper.map(salesOrder, SalesOrderResponseDto.class)).thenReturn(responseDto);
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.of(salesOrder));
 
         // When
         SalesOrderResponseDto result = salesOrderService.cancelOrder(orderId);
@@ -377,7 +365,7 @@ class SalesOrderServiceStatusTransitionTest {
     @Test
     void shipOrder_WithNonExistentOrder_ShouldThrowResourceNotFoundException() {
         // Given: Commande inexistante
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.empty());
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.empty());
 
         // When & Then
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, 
@@ -390,7 +378,7 @@ class SalesOrderServiceStatusTransitionTest {
     @Test
     void cancelOrder_WithNonExistentOrder_ShouldThrowResourceNotFoundException() {
         // Given: Commande inexistante
-        when(salesOrderRepository.findById(orderId)).thenReturn(Optional.empty());
+        when(salesOrderRepository.findWithLinesById(orderId)).thenReturn(Optional.empty());
 
         // When & Then
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, 
@@ -1,6 +1,5 @@
 package com.example.stockgestion.services;
 
-import com.example.stockgestion.events.StockReceivedEvent;
 import com.example.stockgestion.models.*;
 import com.example.stockgestion.models.enums.SOStatus;
 import com.example.stockgestion.repositories.*;
@@ -11,11 +10,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import java.util.*;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,16 +25,19 @@ class SalesOrderServiceStockEventTest {
     private SalesOrderRepository salesOrderRepository;
 
     @Mock
-    private InventoryRepository inventoryRepository;
+    private AvailabilityLedger availabilityLedger;
 
     @Mock
-    private SalesOrderLineRepository salesOrderLineRepository;
+    private BackorderQueue backorderQueue;
+
+    @Mock
+    private InventoryRepository inventoryRepository;
 
     @Mock
-    private InventoryMovmentRepository inventoryMovmentRepository;
+    private SalesOrderLineRepository salesOrderLineRepository;
 
     @Mock
-    private ModelMapper modelMapper;
+    private InventoryMovementWriter inventoryMovementWriter;
 
     @Mock
     private ClientValidator clientValidator;
@@ -93,116 +96,123 @@ class SalesOrderServiceStockEventTest {
     }
 
     @Test
-    void handleStockReceived_WhenNoInventory_ShouldReturnEarly() {
+    void fulfilBackorders_WhenNoInventory_ShouldReturnEarly() {
         // Given
-        StockReceivedEvent event = new StockReceivedEvent(productId, warehouseId, 100);
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Collections.emptyList());
 
         // When
-        salesOrderService.handleStockReceived(event);
+        salesOrderService.fulfilBackorders(productId, warehouseId);
 
         // Then
-        verify(salesOrderLineRepository, never()).findByProductIdAndQtyBackorderedGreaterThanOrderByCreatedAtAsc(any(), anyInt());
+        verify(backorderQueue, never()).claim(any(), anyLong());
         verify(inventoryRepository, never()).save(any());
     }
 
     @Test
-    void handleStockReceived_WhenNoAvailableStock_ShouldReturnEarly() {
+    void fulfilBackorders_WhenNoAvailableStock_ShouldReturnEarly() {
         // Given
         inventory.setQtyOnHand(50);
         inventory.setQtyReserved(50); // Pas de stock disponible
         
-        StockReceivedEvent event = new StockReceivedEvent(productId, warehouseId, 100);
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList(inventory));
 
         // When
-        salesOrderService.handleStockReceived(event);
+        salesOrderService.fulfilBackorders(productId, warehouseId);
 
         // Then
-        verify(salesOrderLineRepository, never()).findByProductIdAndQtyBackorderedGreaterThanOrderByCreatedAtAsc(any(), anyInt());
+        verify(backorderQueue, never()).claim(any(), anyLong());
         verify(inventoryRepository, never()).save(any());
     }
 
     @Test
-    void handleStockReceived_WhenNoBackorders_ShouldNotUpdateLines() {
+    void fulfilBackorders_WhenNoBackorders_ShouldNotUpdateLines() {
         // Given
-        StockReceivedEvent event = new StockReceivedEvent(productId, warehouseId, 100);
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList(inventory));
-        when(salesOrderLineRepository.findByProductIdAndQtyBackorderedGreaterThanOrderByCreatedAtAsc(productId, 0))
-                .thenReturn(Collections.emptyList());
+        when(backorderQueue.claim(productId, 80)).thenReturn(Collections.emptyList());
 
         // When
-        salesOrderService.handleStockReceived(event);
+        salesOrderService.fulfilBackorders(productId, warehouseId);
 
         // Then
         verify(salesOrderLineRepository, never()).saveAll(any());
         verify(salesOrderRepository, never()).saveAll(any());
+        verify(inventoryRepository, never()).save(any());
     }
 
     @Test
-    void handleStockReceived_WhenBackordersExist_ShouldAllocateStock() {
-        // Given
-        salesOrder.setLines(Arrays.asList(backorderedLine));
-        
-        StockReceivedEvent event = new StockReceivedEvent(productId, warehouseId, 100);
+    void fulfilBackorders_ShouldClaimOnlyAvailableQty_AndNeverScanLines() {
+        // Given: 80 disponibles (100 - 20)
+        salesOrder.setQtyBackorderedRemaining(50);
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList(inventory));
-        when(salesOrderLineRepository.findByProductIdAndQtyBackorderedGreaterThanOrderByCreatedAtAsc(productId, 0))
-                .thenReturn(Arrays.asList(backorderedLine));
+        when(backorderQueue.claim(productId, 80)).thenReturn(List.of(new BackorderFill(backorderedLine, 50)));
+        when(orderStatusHelper.determineStatus(false, true)).thenReturn(SOStatus.RESERVED);
 
         // When
-        salesOrderService.handleStockReceived(event);
+        salesOrderService.fulfilBackorders(productId, warehouseId);
 
         // Then
-        verify(salesOrderLineRepository).saveAll(anyList());
+        assertEquals(0, backorderedLine.getQtyBackordered());
+        assertEquals(60, backorderedLine.getQtyReserved());
+        assertEquals(70, inventory.getQtyReserved());
+        verify(salesOrderLineRepository).saveAll(List.of(backorderedLine));
         verify(inventoryRepository).save(inventory);
+        verify(availabilityLedger).recordChange(productId, warehouseId, 0, 50);
+        verifyNoMoreInteractions(salesOrderLineRepository);
     }
 
     @Test
-    void handleStockReceived_WhenPartialAllocation_ShouldUpdateCorrectly() {
-        // Given
+    void fulfilBackorders_WhenPartialAllocation_ShouldKeepRemainingCounter() {
+        // Given: seulement 10 disponibles pour 50 en backorder
         inventory.setQtyOnHand(100);
-        inventory.setQtyReserved(90); // Seulement 10 disponibles
-        backorderedLine.setQtyBackordered(50);
-        salesOrder.setLines(Arrays.asList(backorderedLine));
-        
-        StockReceivedEvent event = new StockReceivedEvent(productId, warehouseId, 100);
+        inventory.setQtyReserved(90);
+        salesOrder.setQtyBackorderedRemaining(50);
+
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList(inventory));
-        when(salesOrderLineRepository.findByProductIdAndQtyBackorderedGreaterThanOrderByCreatedAtAsc(productId, 0))
-                .thenReturn(Arrays.asList(backorderedLine));
+        when(backorderQueue.claim(productId, 10)).thenReturn(List.of(new BackorderFill(backorderedLine, 10)));
+        when(orderStatusHelper.determineStatus(true, true)).thenReturn(SOStatus.PARTIALLY_RESERVED);
 
         // When
-        salesOrderService.handleStockReceived(event);
+        salesOrderService.fulfilBackorders(productId, warehouseId);
 
         // Then
+        assertEquals(40, backorderedLine.getQtyBackordered());
+        assertEquals(40, salesOrder.getQtyBackorderedRemaining());
+        assertEquals(SOStatus.PARTIALLY_RESERVED, salesOrder.getStatus());
         verify(inventoryRepository).save(any(Inventory.class));
         verify(salesOrderLineRepository).saveAll(anyList());
     }
 
     @Test
-    void handleStockReceived_WhenOrderFullyFulfilled_ShouldChangeStatus() {
-        // Given
-        backorderedLine.setQtyBackordered(10); // Petit backorder
-        inventory.setQtyOnHand(100);
-        inventory.setQtyReserved(0); // Beaucoup de stock disponible
-        salesOrder.setLines(Arrays.asList(backorderedLine));
-        
-        StockReceivedEvent event = new StockReceivedEvent(productId, warehouseId, 100);
+    void fulfilBackorders_WhenOrderFullyFulfilled_ShouldChangeStatusFromCounter() {
+        // Given: la commande a deux lignes en backorder, servies par la même réception
+        SalesOrderLine secondLine = new SalesOrderLine();
+        secondLine.setId(UUID.randomUUID());
+        secondLine.setProduct(product);
+        secondLine.setQtyBackordered(5);
+        secondLine.setSalesOrder(salesOrder);
+        backorderedLine.setQtyBackordered(10);
+        salesOrder.setQtyBackorderedRemaining(15);
+        inventory.setQtyReserved(0);
+
         when(inventoryRepository.findByProduct_IdAndWarehouse_Id(productId, warehouseId))
                 .thenReturn(Arrays.asList(inventory));
-        when(salesOrderLineRepository.findByProductIdAndQtyBackorderedGreaterThanOrderByCreatedAtAsc(productId, 0))
-                .thenReturn(Arrays.asList(backorderedLine));
+        when(backorderQueue.claim(productId, 100)).thenReturn(List.of(
+                new BackorderFill(backorderedLine, 10), new BackorderFill(secondLine, 5)));
+        when(orderStatusHelper.determineStatus(true, true)).thenReturn(SOStatus.PARTIALLY_RESERVED);
+        when(orderStatusHelper.determineStatus(false, true)).thenReturn(SOStatus.RESERVED);
 
         // When
-        salesOrderService.handleStockReceived(event);
+        salesOrderService.fulfilBackorders(productId, warehouseId);
 
-        // Then
-        verify(salesOrderRepository).saveAll(anyList());
-        verify(salesOrderLineRepository).saveAll(anyList());
-        verify(inventoryRepository).save(any(Inventory.class));
+        // Then: statut déduit du reliquat, sans parcourir les lignes de la commande
+        assertEquals(0, salesOrder.getQtyBackorderedRemaining());
+        assertEquals(SOStatus.RESERVED, salesOrder.getStatus());
+        verify(salesOrderRepository).saveAll(List.of(salesOrder));
+        verify(availabilityLedger).recordChange(productId, warehouseId, 0, 15);
     }
 }
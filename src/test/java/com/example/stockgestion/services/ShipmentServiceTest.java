@@ -1,6 +1,7 @@
 package com.example.stockgestion.services;
 
 import com.example.stockgestion.Dto.request.ShipmentRequestDto;
+import com.example.stockgestion.Dto.request.ShipmentWaveRequestDto;
 import com.example.stockgestion.Dto.response.ShipmentResponseDto;
 import com.example.stockgestion.exception.BusinessRuleException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
@@ -9,6 +10,11 @@ import com.example.stockgestion.models.enums.MovementType;
 import com.example.stockgestion.models.enums.SOStatus;
 import com.example.stockgestion.models.enums.ShipmentStatus;
 import com.example.stockgestion.repositories.*;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import com.example.stockgestion.services.helpers.ShipmentSlotAllocator;
+import com.example.stockgestion.services.helpers.ShipmentWavePlanner;
+import com.example.stockgestion.services.helpers.TrackingNumberGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -25,6 +31,7 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -42,6 +49,9 @@ class ShipmentServiceTest {
     @Mock
     private ShipmentRepository shipmentRepository;
 
+    @Mock
+    private AvailabilityLedger availabilityLedger;
+
     @Mock
     private SalesOrderRepository salesOrderRepository;
 
@@ -52,7 +62,16 @@ class ShipmentServiceTest {
     private InventoryRepository inventoryRepository;
 
     @Mock
-    private InventoryMovmentRepository inventoryMovementRepository;
+    private InventoryMovementWriter inventoryMovementWriter;
+
+    @Mock
+    private ShipmentSlotAllocator shipmentSlotAllocator;
+
+    @Mock
+    private ShipmentWavePlanner shipmentWavePlanner;
+
+    @Mock
+    private TrackingNumberGenerator trackingNumberGenerator;
 
     @InjectMocks
     private ShipmentService shipmentService;
@@ -130,7 +149,7 @@ class ShipmentServiceTest {
 
         when(salesOrderRepository.findById(salesOrder.getId())).thenReturn(Optional.of(salesOrder));
         when(carrierRepository.findById(carrier.getId())).thenReturn(Optional.of(carrier));
-        when(shipmentRepository.countByPlannedDepartureDateBetween(any(), any())).thenReturn(0L);
+        when(shipmentSlotAllocator.book(eq(carrier), any(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
         when(shipmentRepository.save(any(Shipment.class))).thenAnswer(invocation -> {
             Shipment s = invocation.getArgument(0);
             s.setId(UUID.randomUUID());
@@ -181,7 +200,7 @@ class ShipmentServiceTest {
 
         when(salesOrderRepository.findById(salesOrder.getId())).thenReturn(Optional.of(salesOrder));
         when(carrierRepository.findById(carrier.getId())).thenReturn(Optional.of(carrier));
-        when(shipmentRepository.countByPlannedDepartureDateBetween(any(), any())).thenReturn(0L);
+        when(shipmentSlotAllocator.book(eq(carrier), any(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
         when(shipmentRepository.save(any(Shipment.class))).thenAnswer(invocation -> {
             Shipment s = invocation.getArgument(0);
             s.setId(UUID.randomUUID());
@@ -214,10 +233,9 @@ class ShipmentServiceTest {
         shipment.setStatus(ShipmentStatus.PLANNED);
         shipment.setTrackingNumber("DHL-12345");
 
-        when(shipmentRepository.findById(shipment.getId())).thenReturn(Optional.of(shipment));
-        when(inventoryRepository.findByProduct_IdAndWarehouse_Id(product.getId(), warehouse.getId()))
+        when(shipmentRepository.findWithLinesByIdIn(List.of(shipment.getId()))).thenReturn(List.of(shipment));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_IdIn(Set.of(product.getId()), Set.of(warehouse.getId())))
                 .thenReturn(List.of(inventory));
-        when(shipmentRepository.save(any(Shipment.class))).thenReturn(shipment);
 
         // When
         ShipmentResponseDto result = shipmentService.markAsShipped(shipment.getId());
@@ -229,12 +247,12 @@ class ShipmentServiceTest {
         assertNotNull(result.getShippedAt());
 
         // Vérifier que le mouvement OUTBOUND a été créé
-        verify(inventoryMovementRepository, times(1)).save(any(InventoryMovement.class));
+        verify(inventoryMovementWriter, times(1)).append(argThat((List<InventoryMovement> movements) -> movements.size() == 1));
 
         // Vérifier que l'inventaire a été mis à jour
         assertEquals(0L, inventory.getQtyReserved());
         assertEquals(90L, inventory.getQtyOnHand()); // 100 - 10
-        verify(inventoryRepository, times(1)).save(inventory);
+        verify(inventoryRepository, times(1)).saveAll(List.of(inventory));
 
         // Vérifier que qtyReserved de la ligne est à 0
         assertEquals(0, salesOrderLine.getQtyReserved());
@@ -250,18 +268,19 @@ class ShipmentServiceTest {
         shipment.setCarrier(carrier);
         shipment.setStatus(ShipmentStatus.PLANNED);
 
-        when(shipmentRepository.findById(shipment.getId())).thenReturn(Optional.of(shipment));
-        when(inventoryRepository.findByProduct_IdAndWarehouse_Id(product.getId(), warehouse.getId()))
+        when(shipmentRepository.findWithLinesByIdIn(List.of(shipment.getId()))).thenReturn(List.of(shipment));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_IdIn(Set.of(product.getId()), Set.of(warehouse.getId())))
                 .thenReturn(List.of(inventory));
 
         // When
         shipmentService.markAsShipped(shipment.getId());
 
         // Then
-        ArgumentCaptor<InventoryMovement> movementCaptor = ArgumentCaptor.forClass(InventoryMovement.class);
-        verify(inventoryMovementRepository).save(movementCaptor.capture());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<InventoryMovement>> movementCaptor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryMovementWriter).append(movementCaptor.capture());
 
-        InventoryMovement movement = movementCaptor.getValue();
+        InventoryMovement movement = movementCaptor.getValue().get(0);
         assertEquals(MovementType.OUTBOUND, movement.getType());
         assertEquals(10L, movement.getQuantity());
         assertTrue(movement.getReferenceDoc().contains("SHIPMENT-"));
@@ -278,7 +297,7 @@ class ShipmentServiceTest {
         shipment.setSalesOrder(salesOrder);
         shipment.setStatus(ShipmentStatus.SHIPPED); // Déjà SHIPPED
 
-        when(shipmentRepository.findById(shipment.getId())).thenReturn(Optional.of(shipment));
+        when(shipmentRepository.findWithLinesByIdIn(List.of(shipment.getId()))).thenReturn(List.of(shipment));
 
         // When & Then
         BusinessRuleException exception = assertThrows(
@@ -378,7 +397,7 @@ class ShipmentServiceTest {
     void testMarkNonExistentShipmentAsShipped() {
         // Given
         UUID shipmentId = UUID.randomUUID();
-        when(shipmentRepository.findById(shipmentId)).thenReturn(Optional.empty());
+        when(shipmentRepository.findWithLinesByIdIn(List.of(shipmentId))).thenReturn(List.of());
 
         // When & Then
         assertThrows(
@@ -386,4 +405,125 @@ class ShipmentServiceTest {
                 () -> shipmentService.markAsShipped(shipmentId)
         );
     }
+
+    @Test
+    @DisplayName("Given un transporteur inactif dans la vague, When planifier la vague, Then BusinessRuleException avant le flux")
+    void testPlanWaveWithInactiveCarrier() {
+        // Given
+        Carrier inactive = new Carrier();
+        inactive.setId(UUID.randomUUID());
+        inactive.setName("UPS");
+        inactive.setActive(false);
+        when(carrierRepository.findAllById(List.of(carrier.getId(), inactive.getId()))).thenReturn(List.of(carrier, inactive));
+
+        // When & Then
+        assertThrows(
+                BusinessRuleException.class,
+                () -> shipmentService.planWave(new ShipmentWaveRequestDto(List.of(carrier.getId(), inactive.getId()), null))
+        );
+        verifyNoInteractions(shipmentWavePlanner);
+    }
+
+    @Test
+    @DisplayName("Given aucun transporteur actif, When planifier la vague, Then BusinessRuleException")
+    void testPlanWaveWithoutActiveCarrier() {
+        // Given
+        when(carrierRepository.findByActiveTrue()).thenReturn(List.of());
+
+        // When & Then
+        assertThrows(
+                BusinessRuleException.class,
+                () -> shipmentService.planWave(new ShipmentWaveRequestDto(null, 14))
+        );
+        verifyNoInteractions(shipmentWavePlanner);
+    }
+
+    private Shipment plannedShipmentOfNewOrder(long qty) {
+        SalesOrderLine line = new SalesOrderLine();
+        line.setId(UUID.randomUUID());
+        line.setProduct(product);
+        line.setWarehouse(warehouse);
+        line.setQuantity(qty);
+        line.setQtyReserved(qty);
+        SalesOrder order = SalesOrder.builder()
+                .id(UUID.randomUUID())
+                .status(SOStatus.RESERVED)
+                .lines(List.of(line))
+                .build();
+        line.setSalesOrder(order);
+        Shipment shipment = new Shipment();
+        shipment.setId(UUID.randomUUID());
+        shipment.setSalesOrder(order);
+        shipment.setCarrier(carrier);
+        shipment.setStatus(ShipmentStatus.PLANNED);
+        return shipment;
+    }
+
+    @Test
+    @DisplayName("US11 - Given un camion de 2 expéditions sur le même stock, When expédier le lot, Then une lecture et une écriture par table")
+    void testShipAllLoadsAndWritesOnce() {
+        // Given : 100 en stock, 20 réservés pour les deux commandes
+        inventory.setQtyReserved(20);
+        Shipment first = plannedShipmentOfNewOrder(10);
+        Shipment second = plannedShipmentOfNewOrder(10);
+        List<UUID> ids = List.of(first.getId(), second.getId());
+        when(shipmentRepository.findWithLinesByIdIn(ids)).thenReturn(List.of(second, first));
+        when(inventoryRepository.findByProduct_IdInAndWarehouse_IdIn(any(), any())).thenReturn(List.of(inventory));
+
+        // When
+        List<ShipmentResponseDto> result = shipmentService.shipAll(ids);
+
+        // Then : réponses dans l'ordre demandé, décréments cumulés sur la même ligne d'inventaire
+        assertEquals(ids, result.stream().map(ShipmentResponseDto::getId).toList());
+        assertEquals(80L, inventory.getQtyOnHand());
+        assertEquals(0L, inventory.getQtyReserved());
+        verify(inventoryRepository, times(1)).findByProduct_IdInAndWarehouse_IdIn(any(), any());
+        verify(inventoryRepository, times(1)).saveAll(List.of(inventory));
+        verify(inventoryMovementWriter, times(1)).append(argThat((List<InventoryMovement> movements) -> movements.size() == 2));
+        verify(availabilityLedger).recordChange(product.getId(), warehouse.getId(), -20, -20);
+        assertEquals(SOStatus.SHIPPED, second.getSalesOrder().getStatus());
+    }
+
+    @Test
+    @DisplayName("US11 - Given une expédition non PLANNED dans le lot, When expédier le lot, Then BusinessRuleException et rien n'est écrit")
+    void testShipAllIsAllOrNothing() {
+        // Given
+        Shipment first = plannedShipmentOfNewOrder(10);
+        Shipment second = plannedShipmentOfNewOrder(10);
+        second.setStatus(ShipmentStatus.DELIVERED);
+        List<UUID> ids = List.of(first.getId(), second.getId());
+        when(shipmentRepository.findWithLinesByIdIn(ids)).thenReturn(List.of(first, second));
+
+        // When & Then
+        BusinessRuleException exception = assertThrows(
+                BusinessRuleException.class,
+                () -> shipmentService.shipAll(ids)
+        );
+        assertTrue(exception.getMessage().startsWith("Expédition 1 : "));
+        assertEquals(ShipmentStatus.PLANNED, first.getStatus());
+        verifyNoInteractions(inventoryRepository, inventoryMovementWriter, availabilityLedger);
+    }
+
+    @Test
+    @DisplayName("US11 - Given deux expéditions de la même commande dans le lot, When expédier le lot, Then BusinessRuleException et rien n'est écrit")
+    void testShipAllRejectsSameOrderTwice() {
+        // Given
+        Shipment first = plannedShipmentOfNewOrder(10);
+        Shipment second = new Shipment();
+        second.setId(UUID.randomUUID());
+        second.setSalesOrder(first.getSalesOrder());
+        second.setCarrier(carrier);
+        second.setStatus(ShipmentStatus.PLANNED);
+        List<UUID> ids = List.of(first.getId(), second.getId());
+        when(shipmentRepository.findWithLinesByIdIn(ids)).thenReturn(List.of(first, second));
+
+        // When & Then
+        BusinessRuleException exception = assertThrows(
+                BusinessRuleException.class,
+                () -> shipmentService.shipAll(ids)
+        );
+        assertTrue(exception.getMessage().startsWith("Expédition 1 : "));
+        assertEquals(SOStatus.RESERVED, first.getSalesOrder().getStatus());
+        verifyNoInteractions(inventoryRepository, inventoryMovementWriter, availabilityLedger);
+    }
 }
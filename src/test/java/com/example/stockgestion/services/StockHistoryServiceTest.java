@@ -0,0 +1,97 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.response.StockAtResponseDto;
+import com.example.stockgestion.exception.ResourceNotFoundException;
+import com.example.stockgestion.repositories.InventoryMovmentRepository;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.repositories.StockSnapshotRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.repositories.projections.StockCheckpoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockHistoryServiceTest {
+
+    @Mock
+    private StockSnapshotRepository stockSnapshotRepository;
+
+    @Mock
+    private InventoryMovmentRepository inventoryMovmentRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private WareHouseRepository wareHouseRepository;
+
+    @InjectMocks
+    private StockHistoryService stockHistoryService;
+
+    private UUID productId;
+    private UUID warehouseId;
+    private Instant at;
+
+    @BeforeEach
+    void setUp() {
+        productId = UUID.randomUUID();
+        warehouseId = UUID.randomUUID();
+        at = Instant.parse("2025-06-30T15:00:00Z");
+    }
+
+    @Test
+    void getOnHandAt_ShouldReplayOnlyMovementsAfterCheckpoint() {
+        // Given: point de reprise à minuit, 12 unités nettes depuis
+        Instant checkpoint = Instant.parse("2025-06-30T00:00:00Z");
+        when(productRepository.existsById(productId)).thenReturn(true);
+        when(wareHouseRepository.existsById(warehouseId)).thenReturn(true);
+        when(stockSnapshotRepository.findLatestBefore(productId, warehouseId, at))
+                .thenReturn(Optional.of(new StockCheckpoint(productId, warehouseId, checkpoint, 100)));
+        when(inventoryMovmentRepository.sumDelta(productId, warehouseId, checkpoint, at)).thenReturn(12L);
+
+        // When
+        StockAtResponseDto result = stockHistoryService.getOnHandAt(productId, warehouseId, at);
+
+        // Then
+        assertEquals(112, result.getQtyOnHand());
+        assertEquals(checkpoint, result.getCheckpointAt());
+        assertEquals(at, result.getAt());
+    }
+
+    @Test
+    void getOnHandAt_ShouldReplayWholeLedger_WhenNoCheckpoint() {
+        // Given
+        when(productRepository.existsById(productId)).thenReturn(true);
+        when(wareHouseRepository.existsById(warehouseId)).thenReturn(true);
+        when(stockSnapshotRepository.findLatestBefore(productId, warehouseId, at)).thenReturn(Optional.empty());
+        when(inventoryMovmentRepository.sumDelta(productId, warehouseId, Instant.EPOCH, at)).thenReturn(40L);
+
+        // When
+        StockAtResponseDto result = stockHistoryService.getOnHandAt(productId, warehouseId, at);
+
+        // Then
+        assertEquals(40, result.getQtyOnHand());
+        assertNull(result.getCheckpointAt());
+    }
+
+    @Test
+    void getOnHandAt_ShouldFail_WhenProductNotFound() {
+        when(productRepository.existsById(productId)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> stockHistoryService.getOnHandAt(productId, warehouseId, at));
+        verify(inventoryMovmentRepository, never()).sumDelta(any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.request.TransferRequestDto;
+import com.example.stockgestion.config.InventoryMovementProperties;
+import com.example.stockgestion.models.Inventory;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Transferts croisés entre les deux mêmes entrepôts, en parallèle, sur base H2 embarquée : ni interblocage
+ * ni unité perdue ou comptée deux fois. Les données sont commitées, chaque thread a sa propre transaction.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({TransferService.class, AvailabilityLedger.class, TransferConcurrencyTest.WriterConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferConcurrencyTest {
+
+    private static final int THREADS = 4;
+    private static final int TRANSFERS_PER_THREAD = 50;
+    private static final long INITIAL_STOCK = 1000;
+
+    @TestConfiguration
+    static class WriterConfig {
+        @Bean
+        InventoryMovementWriter inventoryMovementWriter(DataSource dataSource) {
+            return new InventoryMovementWriter(new JdbcTemplate(dataSource), new InventoryMovementProperties());
+        }
+    }
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Product product;
+    private WareHouse first;
+    private WareHouse second;
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            product = new Product();
+            product.setSku("TRF-1");
+            product.setName("Produit transféré");
+            product.setActive(true);
+            entityManager.persist(product);
+            first = new WareHouse();
+            first.setCode("TRF-A");
+            first.setName("Entrepôt A");
+            entityManager.persist(first);
+            second = new WareHouse();
+            second.setCode("TRF-B");
+            second.setName("Entrepôt B");
+            entityManager.persist(second);
+            entityManager.persist(Inventory.builder().product(product).warehouse(first)
+                    .qtyOnHand(INITIAL_STOCK).qtyReserved(0).build());
+            entityManager.persist(Inventory.builder().product(product).warehouse(second)
+                    .qtyOnHand(INITIAL_STOCK).qtyReserved(0).build());
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM inventory_movements");
+        jdbcTemplate.update("DELETE FROM inventories");
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM warehouses");
+    }
+
+    @Test
+    void crossingTransfers_ShouldNeitherDeadlockNorLoseStock() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < THREADS; t++) {
+            // La moitié des threads transfère de A vers B, l'autre de B vers A
+            UUID from = t % 2 == 0 ? first.getId() : second.getId();
+            UUID to = t % 2 == 0 ? second.getId() : first.getId();
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        transferService.transfer(new TransferRequestDto(product.getId(), from, to, 1 + i % 5, null));
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        assertTrue(failures.isEmpty(), () -> "Échecs : " + failures);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Long total = jdbcTemplate.queryForObject("SELECT SUM(qty_on_hand) FROM inventories WHERE product_id = ?",
+                Long.class, product.getId());
+        assertEquals(2 * INITIAL_STOCK, total);
+        Integer movements = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventory_movements", Integer.class);
+        assertEquals(2 * THREADS * TRANSFERS_PER_THREAD, movements);
+        Integer unpaired = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT reference_doc FROM inventory_movements "
+                + "GROUP BY reference_doc HAVING COUNT(*) <> 2 OR SUM(CASE type WHEN 'OUTBOUND' THEN 1 ELSE 0 END) <> 1) p",
+                Integer.class);
+        assertEquals(0, unpaired);
+
+        // Le stock de chaque entrepôt est le stock initial plus la somme de ses mouvements
+        for (WareHouse warehouse : List.of(first, second)) {
+            Long onHand = jdbcTemplate.queryForObject("SELECT qty_on_hand FROM inventories WHERE product_id = ? AND warehouse_id = ?",
+                    Long.class, product.getId(), warehouse.getId());
+            Long ledger = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(CASE type WHEN 'INBOUND' THEN quantity ELSE -quantity END), 0) "
+                    + "FROM inventory_movements WHERE warehouse_id = ?", Long.class, warehouse.getId());
+            assertEquals(INITIAL_STOCK + ledger, onHand);
+        }
+    }
+}
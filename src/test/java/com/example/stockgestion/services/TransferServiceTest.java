@@ -0,0 +1,193 @@
+package com.example.stockgestion.services;
+
+import com.example.stockgestion.Dto.request.TransferRequestDto;
+import com.example.stockgestion.Dto.response.TransferResponseDto;
+import com.example.stockgestion.events.StockReceivedEvent;
+import com.example.stockgestion.exception.BusinessRuleException;
+import com.example.stockgestion.exception.ResourceNotFoundException;
+import com.example.stockgestion.models.Inventory;
+import com.example.stockgestion.models.InventoryMovement;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.MovementType;
+import com.example.stockgestion.repositories.InventoryRepository;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.services.helpers.AvailabilityLedger;
+import com.example.stockgestion.services.helpers.InventoryMovementWriter;
+import com.example.stockgestion.services.helpers.StockKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferServiceTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private WareHouseRepository wareHouseRepository;
+
+    @Mock
+    private InventoryMovementWriter inventoryMovementWriter;
+
+    @Mock
+    private AvailabilityLedger availabilityLedger;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private TransferService transferService;
+
+    private Product product;
+    private WareHouse source;
+    private WareHouse destination;
+    private Inventory sourceInventory;
+    private Inventory destinationInventory;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setId(UUID.randomUUID());
+        source = new WareHouse();
+        source.setId(UUID.randomUUID());
+        destination = new WareHouse();
+        destination.setId(UUID.randomUUID());
+
+        sourceInventory = Inventory.builder().product(product).warehouse(source).qtyOnHand(100).qtyReserved(30).build();
+        destinationInventory = Inventory.builder().product(product).warehouse(destination).qtyOnHand(5).qtyReserved(0).build();
+    }
+
+    private void givenReferences() {
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(wareHouseRepository.findAllById(any())).thenReturn(List.of(source, destination));
+    }
+
+    @Test
+    void transfer_ShouldMoveStockAndWritePairedMovements() {
+        // Given
+        givenReferences();
+        when(inventoryRepository.findForUpdate(product.getId(), source.getId())).thenReturn(Optional.of(sourceInventory));
+        when(inventoryRepository.findForUpdate(product.getId(), destination.getId())).thenReturn(Optional.of(destinationInventory));
+
+        // When
+        TransferResponseDto response = transferService.transfer(
+                new TransferRequestDto(product.getId(), source.getId(), destination.getId(), 70, null));
+
+        // Then
+        assertEquals(30, sourceInventory.getQtyOnHand());
+        assertEquals(75, destinationInventory.getQtyOnHand());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<InventoryMovement>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryMovementWriter).append(captor.capture());
+        List<InventoryMovement> movements = captor.getValue();
+        assertEquals(2, movements.size());
+        assertEquals(MovementType.OUTBOUND, movements.get(0).getType());
+        assertEquals(source, movements.get(0).getWarehouse());
+        assertEquals(MovementType.INBOUND, movements.get(1).getType());
+        assertEquals(destination, movements.get(1).getWarehouse());
+        assertNotNull(response.getReferenceDoc());
+        assertEquals(response.getReferenceDoc(), movements.get(0).getReferenceDoc());
+        assertEquals(response.getReferenceDoc(), movements.get(1).getReferenceDoc());
+
+        verify(availabilityLedger).recordChange(product.getId(), source.getId(), -70, 0);
+        verify(availabilityLedger).recordChange(product.getId(), destination.getId(), 70, 0);
+        verify(eventPublisher).publishEvent(new StockReceivedEvent(product.getId(), destination.getId(), 70));
+    }
+
+    @Test
+    void transfer_ShouldLockRowsInGlobalOrder_WhateverTheDirection() {
+        // Given
+        givenReferences();
+        when(inventoryRepository.findForUpdate(any(), any())).thenAnswer(inv ->
+                Optional.of(inv.getArgument(1).equals(source.getId()) ? sourceInventory : destinationInventory));
+        destinationInventory.setQtyOnHand(50);
+        StockKey first = new StockKey(product.getId(), source.getId());
+        StockKey second = new StockKey(product.getId(), destination.getId());
+        if (StockKey.LOCK_ORDER.compare(first, second) > 0) {
+            StockKey swap = first;
+            first = second;
+            second = swap;
+        }
+
+        // When : deux transferts en sens opposés
+        transferService.transfer(new TransferRequestDto(product.getId(), source.getId(), destination.getId(), 10, "T1"));
+        transferService.transfer(new TransferRequestDto(product.getId(), destination.getId(), source.getId(), 10, "T2"));
+
+        // Then : même ordre de verrouillage pour les deux
+        InOrder inOrder = inOrder(inventoryRepository);
+        for (int i = 0; i < 2; i++) {
+            inOrder.verify(inventoryRepository).findForUpdate(first.productId(), first.warehouseId());
+            inOrder.verify(inventoryRepository).findForUpdate(second.productId(), second.warehouseId());
+        }
+    }
+
+    @Test
+    void transfer_ShouldCreateDestinationInventory_WhenMissing() {
+        // Given
+        givenReferences();
+        when(inventoryRepository.findForUpdate(product.getId(), source.getId())).thenReturn(Optional.of(sourceInventory));
+        when(inventoryRepository.findForUpdate(product.getId(), destination.getId())).thenReturn(Optional.empty());
+
+        // When
+        transferService.transfer(new TransferRequestDto(product.getId(), source.getId(), destination.getId(), 20, null));
+
+        // Then
+        verify(inventoryRepository).saveAll(argThat((List<Inventory> saved) -> saved.size() == 2
+                && saved.stream().anyMatch(i -> i.getWarehouse() == destination && i.getQtyOnHand() == 20)));
+    }
+
+    @Test
+    void transfer_ShouldFail_WhenReservedStockWouldLeave() {
+        // Given : 100 en stock dont 30 réservés
+        givenReferences();
+        when(inventoryRepository.findForUpdate(product.getId(), source.getId())).thenReturn(Optional.of(sourceInventory));
+        when(inventoryRepository.findForUpdate(product.getId(), destination.getId())).thenReturn(Optional.of(destinationInventory));
+
+        // When & Then
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> transferService.transfer(
+                new TransferRequestDto(product.getId(), source.getId(), destination.getId(), 71, null)));
+        assertTrue(exception.getMessage().contains("disponible=70"));
+        verifyNoInteractions(inventoryMovementWriter, eventPublisher);
+        verify(inventoryRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void transfer_ShouldFail_WhenSameWarehouse() {
+        assertThrows(BusinessRuleException.class, () -> transferService.transfer(
+                new TransferRequestDto(product.getId(), source.getId(), source.getId(), 1, null)));
+        verifyNoInteractions(inventoryRepository, inventoryMovementWriter);
+    }
+
+    @Test
+    void transferAll_ShouldFail_WhenWarehouseNotFound() {
+        // Given
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(wareHouseRepository.findAllById(any())).thenReturn(List.of(source));
+
+        // When & Then
+        assertThrows(ResourceNotFoundException.class, () -> transferService.transferAll(List.of(
+                new TransferRequestDto(product.getId(), source.getId(), destination.getId(), 1, null))));
+        verify(inventoryRepository, never()).findForUpdate(any(), any());
+    }
+}
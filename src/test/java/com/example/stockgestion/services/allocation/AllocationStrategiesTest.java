@@ -0,0 +1,81 @@
+package com.example.stockgestion.services.allocation;
+
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.services.helpers.WarehouseAvailability;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllocationStrategiesTest {
+
+    private WarehouseAvailability big, medium, small, empty;
+    private List<WarehouseAvailability> candidates;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        big = new WarehouseAvailability(UUID.randomUUID(), 100);
+        medium = new WarehouseAvailability(UUID.randomUUID(), 40);
+        small = new WarehouseAvailability(UUID.randomUUID(), 15);
+        empty = new WarehouseAvailability(UUID.randomUUID(), 0);
+        // Ordre fourni par le ledger : disponible décroissant
+        candidates = List.of(big, medium, small, empty);
+        client = new Client();
+        client.setId(UUID.randomUUID());
+    }
+
+    @Test
+    void greedy_ShouldKeepAvailabilityOrder() {
+        assertEquals(candidates, new GreedyAllocationStrategy().rank(candidates, 30, client));
+    }
+
+    @Test
+    void minSplit_ShouldPickSmallestWarehouseCoveringTheLine() {
+        // When
+        List<WarehouseAvailability> ranked = new MinSplitAllocationStrategy().rank(candidates, 30, client);
+
+        // Then: 40 suffit, inutile d'entamer le stock de 100
+        assertEquals(medium, ranked.get(0));
+        assertEquals(candidates.size(), ranked.size());
+    }
+
+    @Test
+    void minSplit_ShouldTakeLargestFirst_WhenNoWarehouseCoversTheLine() {
+        // When: 120 demandés, aucun entrepôt ne couvre seul
+        List<WarehouseAvailability> ranked = new MinSplitAllocationStrategy().rank(candidates, 120, client);
+
+        // Then: 100 puis le plus petit qui couvre les 20 restants (40), soit 2 lignes
+        assertEquals(List.of(big, medium, small, empty), ranked);
+    }
+
+    @Test
+    void minSplit_ShouldFinishWithBestFit() {
+        // When: 110 demandés -> 100 puis 15 suffit pour les 10 restants
+        List<WarehouseAvailability> ranked = new MinSplitAllocationStrategy().rank(candidates, 110, client);
+
+        // Then
+        assertEquals(big, ranked.get(0));
+        assertEquals(small, ranked.get(1));
+    }
+
+    @Test
+    void clientProximity_ShouldServePreferredWarehousesFirst() {
+        // Given: le client préfère small puis un entrepôt sans stock pour ce produit
+        client.setWarehousePriority(List.of(small.warehouseId(), UUID.randomUUID(), medium.warehouseId()));
+
+        // When
+        List<WarehouseAvailability> ranked = new ClientProximityAllocationStrategy().rank(candidates, 30, client);
+
+        // Then: préférés dans l'ordre du client, puis le reste par disponible décroissant
+        assertEquals(List.of(small, medium, big, empty), ranked);
+    }
+
+    @Test
+    void clientProximity_ShouldBehaveLikeGreedy_WithoutPreferences() {
+        assertEquals(candidates, new ClientProximityAllocationStrategy().rank(candidates, 30, client));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.stockgestion.services.allocation;
+
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.services.helpers.WarehouseAvailability;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compare le coût d'un classement et le nombre de lignes produites par stratégie,
+ * sur un catalogue de 200 entrepôts aux disponibles aléatoires (graine fixe).
+ * Les commandes consomment le stock l'une après l'autre : sur un instantané figé, GREEDY et MIN_SPLIT
+ * utilisent le même nombre d'entrepôts, l'écart vient de ce que GREEDY épuise d'abord les gros stocks.
+ * Hors de mvn test : lancé avec -Pbenchmark.
+ */
+@Tag("benchmark")
+class AllocationStrategyBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AllocationStrategyBenchmarkTest.class);
+
+    private static final int WAREHOUSES = 200;
+    private static final int ORDER_LINES = 150;
+    private static final int WARMUP_ROUNDS = 50;
+
+    private final Random random = new Random(42);
+    private Map<UUID, Long> initialStock;
+    private long[] requestedQtys;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        initialStock = new LinkedHashMap<>();
+        for (int i = 0; i < WAREHOUSES; i++) {
+            // Un quart des entrepôts est en rupture, les autres ont entre 1 et 500 unités
+            long available = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(500);
+            initialStock.put(UUID.randomUUID(), available);
+        }
+
+        requestedQtys = new long[ORDER_LINES];
+        for (int i = 0; i < ORDER_LINES; i++) {
+            requestedQtys[i] = 1 + random.nextInt(400);
+        }
+
+        // 10 entrepôts "proches" tirés au hasard, comme une liste de priorité client
+        List<UUID> warehouseIds = new ArrayList<>(initialStock.keySet());
+        List<UUID> priority = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            priority.add(warehouseIds.get(random.nextInt(WAREHOUSES)));
+        }
+        client = new Client();
+        client.setWarehousePriority(priority.stream().distinct().toList());
+    }
+
+    @Test
+    void compareStrategies_On200Warehouses() {
+        Map<String, AllocationStrategy> strategies = new LinkedHashMap<>();
+        strategies.put("GREEDY", new GreedyAllocationStrategy());
+        strategies.put("MIN_SPLIT", new MinSplitAllocationStrategy());
+        strategies.put("CLIENT_PROXIMITY", new ClientProximityAllocationStrategy());
+
+        Map<String, Double> averageLines = new LinkedHashMap<>();
+        for (Map.Entry<String, AllocationStrategy> entry : strategies.entrySet()) {
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                run(entry.getValue());
+            }
+            long[] result = run(entry.getValue());
+
+            double lines = (double) result[1] / ORDER_LINES;
+            averageLines.put(entry.getKey(), lines);
+            log.info("Allocation {} {} ns/rank, {} lines/order line", entry.getKey(), result[0] / ORDER_LINES,
+                    String.format(Locale.ROOT, "%.3f", lines));
+        }
+
+        assertTrue(averageLines.get("MIN_SPLIT") <= averageLines.get("GREEDY"),
+                "MIN_SPLIT=" + averageLines.get("MIN_SPLIT") + " GREEDY=" + averageLines.get("GREEDY"));
+    }
+
+    // Retourne {temps passé dans rank en ns, nombre total de lignes}
+    private long[] run(AllocationStrategy strategy) {
+        Map<UUID, Long> stock = new LinkedHashMap<>(initialStock);
+        long rankNanos = 0;
+        long totalLines = 0;
+        for (long requestedQty : requestedQtys) {
+            List<WarehouseAvailability> candidates = new ArrayList<>(stock.size());
+            stock.forEach((warehouseId, available) -> candidates.add(new WarehouseAvailability(warehouseId, available)));
+            candidates.sort(Comparator.comparingLong(WarehouseAvailability::available).reversed());
+
+            long start = System.nanoTime();
+            List<WarehouseAvailability> ranked = strategy.rank(candidates, requestedQty, client);
+            rankNanos += System.nanoTime() - start;
+
+            totalLines += consume(ranked, requestedQty, stock);
+        }
+        return new long[] {rankNanos, totalLines};
+    }
+
+    // Même règle que la réservation : on saute les entrepôts vides, le reliquat devient une ligne de backorder
+    private int consume(List<WarehouseAvailability> ranked, long requestedQty, Map<UUID, Long> stock) {
+        int lines = 0;
+        long remaining = requestedQty;
+        for (WarehouseAvailability candidate : ranked) {
+            if (remaining <= 0) {
+                break;
+            }
+            if (candidate.available() <= 0) {
+                continue;
+            }
+            long taken = Math.min(remaining, candidate.available());
+            stock.merge(candidate.warehouseId(), -taken, Long::sum);
+            remaining -= taken;
+            lines++;
+        }
+        return remaining > 0 ? lines + 1 : lines;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.stockgestion.services.allocation;
+
+import com.example.stockgestion.exception.BusinessRuleException;
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.enums.AllocationStrategyType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllocationStrategyResolverTest {
+
+    private AllocationStrategyResolver resolver;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new AllocationStrategyResolver(List.of(
+                new GreedyAllocationStrategy(), new MinSplitAllocationStrategy(), new ClientProximityAllocationStrategy()));
+        client = new Client();
+    }
+
+    @Test
+    void resolve_ShouldDefaultToGreedy() {
+        assertEquals(AllocationStrategyType.GREEDY, resolver.resolve(null, client).type());
+        assertEquals(AllocationStrategyType.GREEDY, resolver.resolve(null, null).type());
+    }
+
+    @Test
+    void resolve_ShouldUseClientStrategy_WhenRequestHasNone() {
+        client.setAllocationStrategy(AllocationStrategyType.CLIENT_PROXIMITY);
+
+        assertEquals(AllocationStrategyType.CLIENT_PROXIMITY, resolver.resolve(null, client).type());
+    }
+
+    @Test
+    void resolve_ShouldPreferRequestStrategy_OverClientStrategy() {
+        client.setAllocationStrategy(AllocationStrategyType.CLIENT_PROXIMITY);
+
+        assertEquals(AllocationStrategyType.MIN_SPLIT, resolver.resolve(AllocationStrategyType.MIN_SPLIT, client).type());
+    }
+
+    @Test
+    void resolve_ShouldFail_WhenStrategyIsNotRegistered() {
+        AllocationStrategyResolver greedyOnly = new AllocationStrategyResolver(List.of(new GreedyAllocationStrategy()));
+
+        assertThrows(BusinessRuleException.class, () -> greedyOnly.resolve(AllocationStrategyType.MIN_SPLIT, client));
+    }
+}
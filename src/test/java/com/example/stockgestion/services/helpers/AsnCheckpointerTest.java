@@ -0,0 +1,279 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.InventoryMovementProperties;
+import com.example.stockgestion.models.AdvanceShippingNotice;
+import com.example.stockgestion.models.AdvanceShippingNoticeLine;
+import com.example.stockgestion.models.Inventory;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.PurchaseOrder;
+import com.example.stockgestion.models.PurchaseOrderLine;
+import com.example.stockgestion.models.Supplier;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.ASNStatus;
+import com.example.stockgestion.models.enums.POStatus;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Scans de réception en parallèle puis report sur base H2 embarquée : chaque scan compté une seule fois,
+ * une seule mise à jour par couple avis/produit, et rejeu au démarrage des scans non reportés.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({AsnCheckpointer.class, ReceivingScanBuffer.class, AvailabilityLedger.class, InventoryMovementWriter.class,
+        InventoryMovementProperties.class, AsnCheckpointerTest.JdbcConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AsnCheckpointerTest {
+
+    private static final int THREADS = 8;
+    private static final int SCANS_PER_THREAD = 125;
+
+    @TestConfiguration
+    static class JdbcConfig {
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+
+    @Autowired
+    private AsnCheckpointer checkpointer;
+
+    @Autowired
+    private ReceivingScanBuffer buffer;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Product boxed;
+    private Product loose;
+    private WareHouse warehouse;
+    private PurchaseOrder purchaseOrder;
+    private AdvanceShippingNotice asn;
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Supplier supplier = new Supplier();
+            supplier.setName("Fournisseur ASN");
+            entityManager.persist(supplier);
+            boxed = product("ASN-1");
+            loose = product("ASN-2");
+            warehouse = new WareHouse();
+            warehouse.setCode("ASN-WH");
+            warehouse.setName("Quai ASN");
+            entityManager.persist(warehouse);
+            // Seul le premier produit a déjà une ligne d'inventaire
+            entityManager.persist(Inventory.builder().product(boxed).warehouse(warehouse)
+                    .qtyOnHand(10).qtyReserved(0).build());
+
+            purchaseOrder = new PurchaseOrder();
+            purchaseOrder.setSupplier(supplier);
+            purchaseOrder.setStatus(POStatus.APPROVED);
+            purchaseOrder.setLines(new ArrayList<>(List.of(poLine(boxed, 500), poLine(loose, 600))));
+            entityManager.persist(purchaseOrder);
+
+            asn = new AdvanceShippingNotice();
+            asn.setPurchaseOrder(purchaseOrder);
+            asn.setWarehouse(warehouse);
+            asn.setReference("ASN-0001");
+            asn.setStatus(ASNStatus.OPEN);
+            asn.getLines().add(asnLine(boxed, 500));
+            asn.getLines().add(asnLine(loose, 600));
+            entityManager.persist(asn);
+        });
+    }
+
+    private Product product(String sku) {
+        Product product = new Product();
+        product.setSku(sku);
+        product.setName("Produit " + sku);
+        product.setActive(true);
+        entityManager.persist(product);
+        return product;
+    }
+
+    private PurchaseOrderLine poLine(Product product, long quantity) {
+        PurchaseOrderLine line = new PurchaseOrderLine();
+        line.setPurchaseOrder(purchaseOrder);
+        line.setProduct(product);
+        line.setQuantity(quantity);
+        return line;
+    }
+
+    private AdvanceShippingNoticeLine asnLine(Product product, long qtyExpected) {
+        AdvanceShippingNoticeLine line = new AdvanceShippingNoticeLine();
+        line.setAsn(asn);
+        line.setProduct(product);
+        line.setQtyExpected(qtyExpected);
+        return line;
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Rien ne doit rester en attente pour le test suivant
+        buffer.drain();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM receiving_scans");
+        jdbcTemplate.update("DELETE FROM advance_shipping_notice_lines");
+        jdbcTemplate.update("DELETE FROM advance_shipping_notices");
+        jdbcTemplate.update("DELETE FROM inventory_movements");
+        jdbcTemplate.update("DELETE FROM inventories");
+        jdbcTemplate.update("DELETE FROM purchase_order_lines");
+        jdbcTemplate.update("DELETE FROM purchase_orders");
+        jdbcTemplate.update("DELETE FROM suppliers");
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM warehouses");
+    }
+
+    @Test
+    void concurrentScans_ShouldBeCheckpointedOncePerProduct() throws InterruptedException {
+        // Given : 1000 scans d'une unité en parallèle, moitié par produit
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < SCANS_PER_THREAD; i++) {
+                        Product product = i % 2 == 0 ? boxed : loose;
+                        buffer.record("T" + thread + "-" + i, asn.getId(), product.getId(), 1, Instant.now());
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        assertTrue(failures.isEmpty(), () -> "Échecs : " + failures);
+        // Scan renvoyé après une coupure : ignoré
+        assertFalse(buffer.record("T0-0", asn.getId(), boxed.getId(), 1, Instant.now()));
+        assertEquals(504, buffer.pending(asn.getId(), boxed.getId()));
+
+        // When
+        int reported = checkpointer.checkpoint();
+
+        // Then
+        assertEquals(2, reported);
+        assertEquals(0, buffer.pending(asn.getId(), boxed.getId()));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertEquals(List.of(504L, 496L), jdbcTemplate.queryForList(
+                "SELECT qty_received FROM purchase_order_lines ORDER BY quantity", Long.class));
+        assertEquals(List.of(504L, 496L), jdbcTemplate.queryForList(
+                "SELECT qty_received FROM advance_shipping_notice_lines ORDER BY qty_expected", Long.class));
+        assertEquals(514L, jdbcTemplate.queryForObject("SELECT qty_on_hand FROM inventories WHERE product_id = ?",
+                Long.class, boxed.getId()));
+        assertEquals(496L, jdbcTemplate.queryForObject("SELECT qty_on_hand FROM inventories WHERE product_id = ?",
+                Long.class, loose.getId()));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory_movements WHERE reference_doc = 'ASN-ASN-0001'", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM receiving_scans WHERE checkpointed = false", Integer.class));
+        assertEquals(POStatus.PARTIALLY_RECEIVED.name(), jdbcTemplate.queryForObject(
+                "SELECT status FROM purchase_orders WHERE id = ?", String.class, purchaseOrder.getId()));
+        // Rien de nouveau : aucun report
+        assertEquals(0, checkpointer.checkpoint());
+    }
+
+    @Test
+    void recover_ShouldReplayOnlyScansNotYetCheckpointed() {
+        // Given : un premier lot reporté, puis 3 scans perdus avec la mémoire de l'instance
+        buffer.record("R-1", asn.getId(), loose.getId(), 100, Instant.now());
+        checkpointer.checkpoint();
+        buffer.record("R-2", asn.getId(), loose.getId(), 200, Instant.now());
+        buffer.record("R-3", asn.getId(), loose.getId(), 200, Instant.now());
+        buffer.record("R-4", asn.getId(), boxed.getId(), 500, Instant.now());
+        buffer.drain();
+
+        // When
+        checkpointer.recover();
+        checkpointer.checkpoint();
+
+        // Then : tout est reçu, chaque scan une seule fois
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertEquals(List.of(500L, 500L), jdbcTemplate.queryForList(
+                "SELECT qty_received FROM purchase_order_lines ORDER BY quantity", Long.class));
+        assertEquals(510L, jdbcTemplate.queryForObject("SELECT qty_on_hand FROM inventories WHERE product_id = ?",
+                Long.class, boxed.getId()));
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory_movements WHERE reference_doc = 'ASN-ASN-0001'", Integer.class));
+        assertEquals(POStatus.PARTIALLY_RECEIVED.name(), jdbcTemplate.queryForObject(
+                "SELECT status FROM purchase_orders WHERE id = ?", String.class, purchaseOrder.getId()));
+    }
+
+    @Test
+    void recover_ShouldReplaceThePendingBuffer_NotAddTheJournalToIt() {
+        // Given : des scans déjà comptés en mémoire et journalisés, pas encore reportés
+        buffer.record("P-1", asn.getId(), loose.getId(), 150, Instant.now());
+        buffer.record("P-2", asn.getId(), boxed.getId(), 20, Instant.now());
+
+        // When
+        checkpointer.recover();
+        assertEquals(150, buffer.pending(asn.getId(), loose.getId()));
+        checkpointer.checkpoint();
+
+        // Then : chaque scan compté une seule fois
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertEquals(List.of(20L, 150L), jdbcTemplate.queryForList(
+                "SELECT qty_received FROM purchase_order_lines ORDER BY quantity", Long.class));
+        assertEquals(30L, jdbcTemplate.queryForObject("SELECT qty_on_hand FROM inventories WHERE product_id = ?",
+                Long.class, boxed.getId()));
+    }
+
+    @Test
+    void checkpoint_ShouldIgnoreScans_OfAnAsnClosedBeforeTheReport() {
+        // Given : scan validé avant la clôture, journalisé après le dernier report
+        buffer.record("C-1", asn.getId(), boxed.getId(), 5, Instant.now());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("UPDATE advance_shipping_notices SET status = 'CLOSED'");
+
+        // When
+        checkpointer.checkpoint();
+
+        // Then : rien n'est reporté, et le scan n'est pas rejoué au démarrage
+        assertEquals(List.of(0L, 0L), jdbcTemplate.queryForList(
+                "SELECT qty_received FROM purchase_order_lines ORDER BY quantity", Long.class));
+        assertEquals(10L, jdbcTemplate.queryForObject("SELECT qty_on_hand FROM inventories WHERE product_id = ?",
+                Long.class, boxed.getId()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventory_movements", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM receiving_scans WHERE checkpointed = false", Integer.class));
+    }
+}
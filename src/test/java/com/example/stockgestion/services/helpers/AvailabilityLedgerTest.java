@@ -0,0 +1,247 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.repositories.InventoryRepository;
+import com.example.stockgestion.repositories.projections.StockLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityLedgerTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @InjectMocks
+    private AvailabilityLedger availabilityLedger;
+
+    private UUID productId;
+    private UUID warehouse1, warehouse2;
+
+    @BeforeEach
+    void setUp() {
+        productId = UUID.randomUUID();
+        warehouse1 = UUID.randomUUID();
+        warehouse2 = UUID.randomUUID();
+        when(inventoryRepository.findAllStockLevels()).thenReturn(List.of(
+                new StockLevel(productId, warehouse1, 100, 20),
+                new StockLevel(productId, warehouse2, 50, 10)));
+        availabilityLedger.loadAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void loadAll_ShouldKeepInFlightHolds_WhenReloaded() {
+        // Given
+        assertTrue(availabilityLedger.tryReserve(productId, warehouse1, 10));
+
+        // When
+        availabilityLedger.loadAll();
+
+        // Then : la prise reste comptée puis se rend sur le même slot
+        assertEquals(70, availabilityLedger.available(productId, warehouse1));
+        availabilityLedger.cancelReservation(productId, warehouse1, 10);
+        assertEquals(80, availabilityLedger.available(productId, warehouse1));
+    }
+
+    @Test
+    void loadAll_ShouldExposeAvailabilitySortedDescending() {
+        // When
+        List<WarehouseAvailability> result = availabilityLedger.availabilities(productId);
+
+        // Then
+        assertEquals(List.of(new WarehouseAvailability(warehouse1, 80), new WarehouseAvailability(warehouse2, 40)), result);
+        verify(inventoryRepository, never()).findStockLevelsByProductId(any());
+    }
+
+    @Test
+    void availabilities_ShouldLoadUnknownProductLazily() {
+        // Given
+        UUID otherProduct = UUID.randomUUID();
+        when(inventoryRepository.findStockLevelsByProductId(otherProduct))
+                .thenReturn(List.of(new StockLevel(otherProduct, warehouse1, 7, 2)));
+
+        // When
+        long available = availabilityLedger.available(otherProduct, warehouse1);
+
+        // Then
+        assertEquals(5, available);
+        verify(inventoryRepository).findStockLevelsByProductId(otherProduct);
+    }
+
+    @Test
+    void tryReserve_ShouldRefuse_WhenAvailableIsInsufficient() {
+        // When & Then
+        assertTrue(availabilityLedger.tryReserve(productId, warehouse2, 40));
+        assertFalse(availabilityLedger.tryReserve(productId, warehouse2, 1));
+        assertFalse(availabilityLedger.tryReserve(productId, UUID.randomUUID(), 1));
+        assertEquals(0, availabilityLedger.available(productId, warehouse2));
+    }
+
+    @Test
+    void cancelReservation_ShouldGiveQuantityBack() {
+        // Given
+        availabilityLedger.tryReserve(productId, warehouse1, 30);
+
+        // When
+        availabilityLedger.cancelReservation(productId, warehouse1, 30);
+
+        // Then
+        assertEquals(80, availabilityLedger.available(productId, warehouse1));
+    }
+
+    @Test
+    void recordChange_ShouldApplyImmediately_WithoutTransaction() {
+        // When: réception de 25 unités hors transaction
+        availabilityLedger.recordChange(productId, warehouse2, 25, 0);
+
+        // Then
+        assertEquals(65, availabilityLedger.available(productId, warehouse2));
+    }
+
+    @Test
+    void recordChange_ShouldWaitForCommit_InsideTransaction() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When: réception de 25 unités
+        availabilityLedger.recordChange(productId, warehouse1, 25, 0);
+
+        // Then: rien n'est visible avant le commit
+        assertEquals(80, availabilityLedger.available(productId, warehouse1));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(105, availabilityLedger.available(productId, warehouse1));
+    }
+
+    @Test
+    void recordChange_ShouldCreateSlot_ForNewWarehouse() {
+        // Given
+        UUID newWarehouse = UUID.randomUUID();
+
+        // When
+        availabilityLedger.recordChange(productId, newWarehouse, 12, 0);
+
+        // Then
+        assertEquals(12, availabilityLedger.available(productId, newWarehouse));
+        assertEquals(3, availabilityLedger.availabilities(productId).size());
+    }
+
+    @Test
+    void recordChange_ShouldNotCountTwice_ForProductCreatedAfterStartup() {
+        // Given: inventaire créé pour un produit absent du chargement initial
+        UUID newProduct = UUID.randomUUID();
+        TransactionSynchronizationManager.initSynchronization();
+        availabilityLedger.recordChange(newProduct, warehouse1, 40, 5);
+        when(inventoryRepository.findStockLevelsByProductId(newProduct))
+                .thenReturn(List.of(new StockLevel(newProduct, warehouse1, 40, 5)));
+
+        // When: commit puis première lecture
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        // Then: la ligne validée est lue une seule fois
+        assertEquals(35, availabilityLedger.available(newProduct, warehouse1));
+    }
+
+    @Test
+    void settleOnCompletion_ShouldGiveReservationBack_WhenTransactionRollsBack() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        availabilityLedger.tryReserve(productId, warehouse1, 30);
+        availabilityLedger.settleOnCompletion(productId, warehouse1, 30);
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then
+        assertEquals(80, availabilityLedger.available(productId, warehouse1));
+    }
+
+    @Test
+    void settleOnCompletion_ShouldKeepReservation_WhenTransactionCommits() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        availabilityLedger.tryReserve(productId, warehouse1, 30);
+        availabilityLedger.settleOnCompletion(productId, warehouse1, 30);
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        // Then
+        assertEquals(50, availabilityLedger.available(productId, warehouse1));
+    }
+
+    @Test
+    void resync_ShouldKeepInFlightHolds_AndNotDriftWhenTheyRollBack() {
+        // Given: une autre transaction tient 30 unités non validées en WH1 (100 en stock, 20 réservés)
+        TransactionSynchronizationManager.initSynchronization();
+        availabilityLedger.tryReserve(productId, warehouse1, 30);
+        availabilityLedger.settleOnCompletion(productId, warehouse1, 30);
+        when(inventoryRepository.findStockLevel(productId, warehouse1))
+                .thenReturn(Optional.of(new StockLevel(productId, warehouse1, 100, 20)));
+
+        // When: resynchronisation pendant la prise, puis rollback de la transaction
+        availabilityLedger.resync(productId, warehouse1);
+        assertEquals(50, availabilityLedger.available(productId, warehouse1));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then: la prise rendue une seule fois, qtyReserved reste celui de la base
+        assertEquals(80, availabilityLedger.available(productId, warehouse1));
+    }
+
+    @Test
+    void tryReserve_WithConcurrentCallers_ShouldNeverExceedAvailable() throws Exception {
+        // Given: 80 disponibles, 16 threads qui prennent une unité à la fois
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong granted = new AtomicLong();
+        List<Future<?>> callers = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            callers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1_000; i++) {
+                    if (availabilityLedger.tryReserve(productId, warehouse1, 1)) {
+                        granted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // When
+        start.countDown();
+        for (Future<?> caller : callers) {
+            caller.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // Then
+        assertEquals(80, granted.get());
+        assertEquals(0, availabilityLedger.available(productId, warehouse1));
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.events.StockReceivedEvent;
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.Inventory;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.SalesOrder;
+import com.example.stockgestion.models.SalesOrderLine;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.SOStatus;
+import com.example.stockgestion.repositories.BackorderEntryRepository;
+import com.example.stockgestion.repositories.InventoryRepository;
+import com.example.stockgestion.services.SalesOrderService;
+import com.example.stockgestion.services.allocation.AllocationStrategyResolver;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * File du dispatcher saturée (capacité 0, worker occupé) : la passe est exécutée par le thread du listener
+ * AFTER_COMMIT de la réception. Elle doit écrire dans sa propre transaction, pas dans celle déjà commitée.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({SalesOrderService.class, BackorderQueue.class, OrderStatusHelper.class, AvailabilityLedger.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BackorderFulfilmentAfterCommitTest {
+
+    @MockitoBean
+    private ClientValidator clientValidator;
+    @MockitoBean
+    private ProductValidator productValidator;
+    @MockitoBean
+    private StockReservationHelper stockReservationHelper;
+    @MockitoBean
+    private SalesOrderBuilder salesOrderBuilder;
+    @MockitoBean
+    private InventoryMovementWriter inventoryMovementWriter;
+    @MockitoBean
+    private AllocationStrategyResolver allocationStrategyResolver;
+    @MockitoBean
+    private SalesOrderReadModel salesOrderReadModel;
+    @MockitoBean
+    private NdjsonStreamer ndjsonStreamer;
+
+    @Autowired
+    private SalesOrderService salesOrderService;
+
+    @Autowired
+    private BackorderQueue backorderQueue;
+
+    @Autowired
+    private BackorderEntryRepository backorderEntryRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Product product;
+    private WareHouse warehouse;
+    private ThreadPoolExecutor pool;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Client client = new Client();
+            client.setName("Client backorder");
+            entityManager.persist(client);
+            product = new Product();
+            product.setSku("BKO-1");
+            product.setName("Produit en backorder");
+            product.setActive(true);
+            product.setPrice(BigDecimal.TEN);
+            entityManager.persist(product);
+            warehouse = new WareHouse();
+            warehouse.setCode("BKO-WH");
+            warehouse.setName("Entrepôt backorder");
+            entityManager.persist(warehouse);
+            entityManager.persist(Inventory.builder().product(product).warehouse(warehouse)
+                    .qtyOnHand(0).qtyReserved(0).build());
+
+            SalesOrder order = new SalesOrder();
+            order.setClient(client);
+            order.setStatus(SOStatus.BACKORDERED);
+            order.setTotalPrice(BigDecimal.valueOf(50));
+            order.setQtyBackorderedRemaining(5);
+            order.setLines(List.of(SalesOrderLine.builder()
+                    .salesOrder(order)
+                    .product(product)
+                    .warehouse(warehouse)
+                    .quantity(5)
+                    .qtyBackordered(5)
+                    .unitPrice(BigDecimal.TEN)
+                    .build()));
+            entityManager.persist(order);
+            backorderQueue.enqueue(List.of(order));
+        });
+
+        // Capacité 0 et unique worker bloqué : toute passe est rejetée vers le thread appelant
+        pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        CountDownLatch busy = new CountDownLatch(1);
+        pool.execute(() -> {
+            busy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        busy.await();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        pool.shutdown();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM backorder_queue");
+        jdbcTemplate.update("DELETE FROM sales_order_lines");
+        jdbcTemplate.update("DELETE FROM sales_orders");
+        jdbcTemplate.update("DELETE FROM inventories");
+        jdbcTemplate.update("DELETE FROM clients");
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM warehouses");
+    }
+
+    @Test
+    void passRunOnTheAfterCommitThread_ShouldPersistTheFill() {
+        // Given
+        BackorderFulfilmentDispatcher dispatcher = new BackorderFulfilmentDispatcher(salesOrderService,
+                backorderEntryRepository, inventoryRepository, pool, 3);
+
+        // When: réception de 8 unités, la passe est déclenchée après son commit
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            entityManager.createQuery("UPDATE Inventory i SET i.qtyOnHand = 8").executeUpdate();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.onStockReceived(new StockReceivedEvent(product.getId(), warehouse.getId(), 8));
+                }
+            });
+        });
+
+        // Then
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertEquals(5L, jdbcTemplate.queryForObject("SELECT qty_reserved FROM sales_order_lines", Long.class));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT qty_backordered FROM sales_order_lines", Long.class));
+        assertEquals(5L, jdbcTemplate.queryForObject("SELECT qty_reserved FROM inventories", Long.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM backorder_queue", Integer.class));
+        assertEquals(0, backorderQueue.pending(product.getId()));
+    }
+}
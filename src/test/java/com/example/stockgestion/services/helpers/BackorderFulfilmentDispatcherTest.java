@@ -0,0 +1,163 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.events.StockReceivedEvent;
+import com.example.stockgestion.repositories.BackorderEntryRepository;
+import com.example.stockgestion.repositories.InventoryRepository;
+import com.example.stockgestion.repositories.projections.StockLevel;
+import com.example.stockgestion.services.SalesOrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BackorderFulfilmentDispatcherTest {
+
+    @Mock
+    private SalesOrderService salesOrderService;
+
+    @Mock
+    private BackorderEntryRepository backorderEntryRepository;
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    // Exécuteur manuel : les passes ne tournent que quand le test le décide
+    private final Queue<Runnable> submitted = new ArrayDeque<>();
+    private BackorderFulfilmentDispatcher dispatcher;
+    private UUID productId;
+    private UUID warehouseId;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new BackorderFulfilmentDispatcher(salesOrderService, backorderEntryRepository,
+                inventoryRepository, submitted::add, 3);
+        productId = UUID.randomUUID();
+        warehouseId = UUID.randomUUID();
+    }
+
+    private void runSubmitted() {
+        while (!submitted.isEmpty()) {
+            submitted.poll().run();
+        }
+    }
+
+    @Test
+    void onStockReceived_ShouldCoalesceReceiptsOfTheSameSku_IntoOnePass() {
+        // Given: 500 réceptions du même couple avant que le worker ne démarre
+        for (int i = 0; i < 500; i++) {
+            dispatcher.onStockReceived(new StockReceivedEvent(productId, warehouseId, 1));
+        }
+
+        // When
+        runSubmitted();
+
+        // Then
+        verify(salesOrderService, times(1)).fulfilBackorders(productId, warehouseId);
+    }
+
+    @Test
+    void onStockReceived_ShouldRunOnePassPerSku() {
+        // Given
+        UUID otherWarehouse = UUID.randomUUID();
+        dispatcher.onStockReceived(new StockReceivedEvent(productId, warehouseId, 1));
+        dispatcher.onStockReceived(new StockReceivedEvent(productId, otherWarehouse, 1));
+
+        // When
+        runSubmitted();
+
+        // Then
+        verify(salesOrderService).fulfilBackorders(productId, warehouseId);
+        verify(salesOrderService).fulfilBackorders(productId, otherWarehouse);
+    }
+
+    @Test
+    void receiptDuringPass_ShouldTriggerExactlyOneMorePass() {
+        // Given: deux réceptions arrivent pendant la première passe
+        doAnswer(invocation -> {
+            dispatcher.schedule(productId, warehouseId);
+            dispatcher.schedule(productId, warehouseId);
+            return null;
+        }).doNothing().when(salesOrderService).fulfilBackorders(productId, warehouseId);
+        dispatcher.schedule(productId, warehouseId);
+
+        // When
+        runSubmitted();
+
+        // Then: pas de seconde tâche en parallèle, la passe suivante est rejouée par le même worker
+        verify(salesOrderService, times(2)).fulfilBackorders(productId, warehouseId);
+        assertTrue(submitted.isEmpty());
+
+        // Et le couple redevient planifiable
+        dispatcher.schedule(productId, warehouseId);
+        assertEquals(1, submitted.size());
+    }
+
+    @Test
+    void pass_ShouldRetry_OnOptimisticLockConflict() {
+        // Given
+        doThrow(new ObjectOptimisticLockingFailureException("Inventory", UUID.randomUUID()))
+                .doNothing()
+                .when(salesOrderService).fulfilBackorders(productId, warehouseId);
+        dispatcher.schedule(productId, warehouseId);
+
+        // When
+        runSubmitted();
+
+        // Then
+        verify(salesOrderService, times(2)).fulfilBackorders(productId, warehouseId);
+    }
+
+    @Test
+    void pass_ShouldNotBlockTheSku_AfterFailure() {
+        // Given
+        doThrow(new IllegalStateException("boom")).when(salesOrderService).fulfilBackorders(productId, warehouseId);
+        dispatcher.schedule(productId, warehouseId);
+        runSubmitted();
+
+        // When
+        dispatcher.schedule(productId, warehouseId);
+
+        // Then
+        assertEquals(1, submitted.size());
+    }
+
+    @Test
+    void resumePendingBackorders_ShouldScheduleOnlyPairsWithAvailableStock() {
+        // Given
+        UUID emptyWarehouse = UUID.randomUUID();
+        when(backorderEntryRepository.findQueuedProductIds()).thenReturn(List.of(productId));
+        when(inventoryRepository.findStockLevelsByProductIdIn(List.of(productId))).thenReturn(List.of(
+                new StockLevel(productId, warehouseId, 10, 5),
+                new StockLevel(productId, emptyWarehouse, 10, 10)));
+
+        // When
+        dispatcher.resumePendingBackorders();
+        runSubmitted();
+
+        // Then
+        verify(salesOrderService).fulfilBackorders(productId, warehouseId);
+        verify(salesOrderService, never()).fulfilBackorders(productId, emptyWarehouse);
+    }
+
+    @Test
+    void resumePendingBackorders_ShouldDoNothing_WhenQueueIsEmpty() {
+        when(backorderEntryRepository.findQueuedProductIds()).thenReturn(List.of());
+
+        dispatcher.resumePendingBackorders();
+
+        verify(inventoryRepository, never()).findStockLevelsByProductIdIn(any());
+        assertTrue(submitted.isEmpty());
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.models.BackorderEntry;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.SalesOrder;
+import com.example.stockgestion.models.SalesOrderLine;
+import com.example.stockgestion.models.enums.SOStatus;
+import com.example.stockgestion.repositories.BackorderEntryRepository;
+import com.example.stockgestion.repositories.SalesOrderLineRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BackorderQueueTest {
+
+    @Mock
+    private BackorderEntryRepository backorderEntryRepository;
+
+    @Mock
+    private SalesOrderLineRepository salesOrderLineRepository;
+
+    private BackorderQueue backorderQueue;
+    private Product product;
+
+    // Table backorder_queue simulée
+    private final Map<UUID, BackorderEntry> table = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        backorderQueue = new BackorderQueue(backorderEntryRepository, salesOrderLineRepository);
+        product = new Product();
+        product.setId(UUID.randomUUID());
+
+        lenient().when(backorderEntryRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<BackorderEntry> entries = invocation.getArgument(0);
+            entries.forEach(entry -> {
+                if (entry.getId() == null) {
+                    entry.setId(UUID.randomUUID());
+                }
+                table.put(entry.getId(), entry);
+            });
+            return entries;
+        });
+        lenient().when(backorderEntryRepository.findAllWithLineAndOrderByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            return ids.stream().map(table::get).filter(entry -> entry != null).toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private SalesOrder backorderedOrder(long qty, Instant createdAt) {
+        SalesOrder order = new SalesOrder();
+        order.setId(UUID.randomUUID());
+        order.setStatus(SOStatus.BACKORDERED);
+        SalesOrderLine line = SalesOrderLine.builder()
+                .id(UUID.randomUUID())
+                .salesOrder(order)
+                .product(product)
+                .quantity(qty)
+                .qtyBackordered(qty)
+                .createdAt(createdAt)
+                .build();
+        order.setLines(new ArrayList<>(List.of(line)));
+        return order;
+    }
+
+    @Test
+    void claim_ShouldServeLinesInArrivalOrder() {
+        // Given: la commande la plus ancienne est mise en file en dernier
+        Instant now = Instant.now();
+        SalesOrder newer = backorderedOrder(30, now);
+        SalesOrder older = backorderedOrder(20, now.minusSeconds(60));
+        backorderQueue.enqueue(List.of(newer));
+        backorderQueue.enqueue(List.of(older));
+
+        // When
+        List<BackorderFill> fills = backorderQueue.claim(product.getId(), 35);
+
+        // Then: 20 pour la plus ancienne, 15 pour la suivante
+        assertEquals(2, fills.size());
+        assertEquals(older.getLines().get(0), fills.get(0).line());
+        assertEquals(20, fills.get(0).qty());
+        assertEquals(newer.getLines().get(0), fills.get(1).line());
+        assertEquals(15, fills.get(1).qty());
+        assertEquals(15, backorderQueue.pending(product.getId()));
+        // La ligne soldée n'est plus suivie en mémoire
+        assertEquals(1, backorderQueue.tracked());
+    }
+
+    @Test
+    void claim_ShouldOnlyLoadEntriesCoveredByReceivedQty() {
+        // Given: 3 lignes de 10 en attente
+        Instant now = Instant.now();
+        for (int i = 0; i < 3; i++) {
+            backorderQueue.enqueue(List.of(backorderedOrder(10, now.plusSeconds(i))));
+        }
+
+        // When
+        backorderQueue.claim(product.getId(), 10);
+
+        // Then: une seule entrée lue et soldée
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<UUID>> idsCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(backorderEntryRepository).findAllWithLineAndOrderByIdIn(idsCaptor.capture());
+        assertEquals(1, idsCaptor.getValue().size());
+        verify(backorderEntryRepository).deleteAll(anyList());
+        assertEquals(20, backorderQueue.pending(product.getId()));
+    }
+
+    @Test
+    void claim_ShouldPurgeClosedOrders_AndPassQtyToNextEntry() {
+        // Given: la première commande a été livrée entre-temps
+        Instant now = Instant.now();
+        SalesOrder delivered = backorderedOrder(10, now.minusSeconds(60));
+        SalesOrder waiting = backorderedOrder(10, now);
+        backorderQueue.enqueue(List.of(delivered, waiting));
+        delivered.setStatus(SOStatus.DELIVERED);
+
+        // When
+        List<BackorderFill> fills = backorderQueue.claim(product.getId(), 10);
+
+        // Then
+        assertEquals(1, fills.size());
+        assertEquals(waiting.getLines().get(0), fills.get(0).line());
+        assertEquals(0, backorderQueue.pending(product.getId()));
+    }
+
+    @Test
+    void claim_ShouldReturnNothing_WhenQueueIsEmpty() {
+        assertTrue(backorderQueue.claim(product.getId(), 100).isEmpty());
+        verify(backorderEntryRepository, never()).findAllWithLineAndOrderByIdIn(any());
+    }
+
+    @Test
+    void remove_ShouldDropOrderEntries() {
+        // Given
+        SalesOrder order = backorderedOrder(10, Instant.now());
+        backorderQueue.enqueue(List.of(order));
+        when(backorderEntryRepository.findIdsBySalesOrderId(order.getId())).thenReturn(new ArrayList<>(table.keySet()));
+
+        // When
+        backorderQueue.remove(order.getId());
+
+        // Then
+        verify(backorderEntryRepository).deleteAllByIdInBatch(anyList());
+        assertEquals(0, backorderQueue.pending(product.getId()));
+        assertTrue(backorderQueue.claim(product.getId(), 10).isEmpty());
+    }
+
+    @Test
+    void enqueue_ShouldIgnoreFullyReservedOrders() {
+        // Given
+        SalesOrder reserved = backorderedOrder(10, Instant.now());
+        reserved.getLines().get(0).setQtyBackordered(0);
+
+        // When
+        backorderQueue.enqueue(List.of(reserved));
+
+        // Then
+        verify(backorderEntryRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void loadAll_ShouldBackfillLegacyBackorders_AndSetRemainingCounters() {
+        // Given: table vide, deux lignes en backorder sur la même commande
+        SalesOrder order = backorderedOrder(10, Instant.now());
+        SalesOrderLine second = SalesOrderLine.builder()
+                .id(UUID.randomUUID()).salesOrder(order).product(product)
+                .quantity(5).qtyBackordered(5).createdAt(Instant.now()).build();
+        order.getLines().add(second);
+        when(backorderEntryRepository.count()).thenReturn(0L);
+        when(salesOrderLineRepository.findOpenBackorderedLines(BackorderQueue.OPEN_STATUSES)).thenReturn(order.getLines());
+
+        // When
+        backorderQueue.loadAll();
+
+        // Then
+        assertEquals(2, table.size());
+        assertEquals(15, order.getQtyBackorderedRemaining());
+        verify(backorderEntryRepository).findAllQueued();
+    }
+
+    @Test
+    void claim_ShouldForgetServedEntries_OnlyOnceCommitted() {
+        // Given
+        backorderQueue.enqueue(List.of(backorderedOrder(10, Instant.now())));
+        TransactionSynchronizationManager.initSynchronization();
+        backorderQueue.claim(product.getId(), 10);
+
+        // When: transaction annulée, l'entrée revient en file
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Then
+        assertEquals(10, backorderQueue.pending(product.getId()));
+        assertEquals(1, backorderQueue.tracked());
+
+        // When: nouvelle prise, commitée
+        TransactionSynchronizationManager.initSynchronization();
+        backorderQueue.claim(product.getId(), 10);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        // Then
+        assertEquals(0, backorderQueue.pending(product.getId()));
+        assertEquals(0, backorderQueue.tracked());
+    }
+}
@@ -2,7 +2,6 @@ package com.example.stockgestion.services.helpers;
 
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.Client;
-import com.example.stockgestion.repositories.ClientRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,7 +19,7 @@ import static org.mockito.Mockito.*;
 class ClientValidatorTest {
 
     @Mock
-    private ClientRepository clientRepository;
+    private ReferenceDataCache referenceDataCache;
 
     @InjectMocks
     private ClientValidator clientValidator;
@@ -39,7 +38,7 @@ class ClientValidatorTest {
     @Test
     void validateAndGet_ShouldReturnClient_WhenClientExists() {
         // Given
-        when(clientRepository.findById(clientId)).thenReturn(Optional.of(client));
+        when(referenceDataCache.findClient(clientId)).thenReturn(Optional.of(client));
 
         // When
         Client result = clientValidator.validateAndGet(clientId);
@@ -48,13 +47,13 @@ class ClientValidatorTest {
         assertNotNull(result);
         assertEquals(clientId, result.getId());
         assertEquals("Test Client", result.getName());
-        verify(clientRepository).findById(clientId);
+        verify(referenceDataCache).findClient(clientId);
     }
 
     @Test
     void validateAndGet_ShouldThrowException_WhenClientNotFound() {
         // Given
-        when(clientRepository.findById(clientId)).thenReturn(Optional.empty());
+        when(referenceDataCache.findClient(clientId)).thenReturn(Optional.empty());
 
         // When & Then
         ResourceNotFoundException exception = assertThrows(
@@ -64,6 +63,6 @@ class ClientValidatorTest {
 
         assertTrue(exception.getMessage().contains("Client"));
         assertTrue(exception.getMessage().contains("id"));
-        verify(clientRepository).findById(clientId);
+        verify(referenceDataCache).findClient(clientId);
     }
 }
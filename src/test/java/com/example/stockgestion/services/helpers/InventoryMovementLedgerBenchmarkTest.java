@@ -0,0 +1,159 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.InventoryMovementProperties;
+import com.example.stockgestion.models.InventoryMovement;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.MovementType;
+import com.example.stockgestion.repositories.InventoryMovmentRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Écriture et lecture du journal des mouvements sur base H2 embarquée : insertions par lots JDBC
+ * (InventoryMovementWriter) face au save JPA ligne à ligne, puis pages triées par date sur les index
+ * produit / entrepôt / type. Hors de mvn test : lancé avec -Pbenchmark, volume réglé avec -Dledger.rows
+ * (20 000 par défaut ; -Dledger.rows=1000000 pour la mesure complète).
+ * Le partitionnement PostgreSQL n'est pas couvert ici.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class InventoryMovementLedgerBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryMovementLedgerBenchmarkTest.class);
+
+    private static final int ROWS = Integer.getInteger("ledger.rows", 20_000);
+    private static final int CHUNK = 10_000;
+    // Le save JPA n'est mesuré que sur un échantillon
+    private static final int JPA_SAMPLE = 5_000;
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private InventoryMovmentRepository inventoryMovmentRepository;
+
+    private final Random random = new Random(42);
+    private InventoryMovementWriter writer;
+    private List<Product> products;
+    private List<WareHouse> warehouses;
+
+    @BeforeEach
+    void setUp() {
+        writer = new InventoryMovementWriter(new JdbcTemplate(dataSource), new InventoryMovementProperties());
+        products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Product product = new Product();
+            product.setSku("SKU-" + i);
+            product.setName("Produit " + i);
+            product.setActive(true);
+            entityManager.persist(product);
+            products.add(product);
+        }
+        warehouses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            WareHouse warehouse = new WareHouse();
+            warehouse.setCode("WH-" + i);
+            warehouse.setName("Entrepôt " + i);
+            entityManager.persist(warehouse);
+            warehouses.add(warehouse);
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void appendAndPage_OnLargeLedger() {
+        // Écriture par lots JDBC
+        long start = System.nanoTime();
+        for (int written = 0; written < ROWS; written += CHUNK) {
+            writer.append(movements(Math.min(CHUNK, ROWS - written)));
+        }
+        long batchNanos = System.nanoTime() - start;
+        log.info("Ledger {} {} rows {} rows/s", "JDBC batch", ROWS, Math.round(ROWS / (batchNanos / 1e9)));
+
+        // Référence : save JPA ligne à ligne, sur un échantillon
+        List<InventoryMovement> sample = movements(JPA_SAMPLE);
+        sample.forEach(movement -> movement.setId(UuidV7.next()));
+        start = System.nanoTime();
+        sample.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+        long jpaNanos = System.nanoTime() - start;
+        log.info("Ledger {} {} rows {} rows/s", "JPA persist", JPA_SAMPLE, Math.round(JPA_SAMPLE / (jpaNanos / 1e9)));
+
+        assertEquals(ROWS + JPA_SAMPLE, inventoryMovmentRepository.count());
+
+        // Pages triées par date, sur les recherches les plus sélectives
+        PageRequest page = PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "occurredAt"));
+        Product product = products.get(7);
+        WareHouse warehouse = warehouses.get(3);
+        measurePage("product", () -> inventoryMovmentRepository.findByProduct_Id(product.getId(), page));
+        measurePage("product+warehouse", () ->
+                inventoryMovmentRepository.findByProduct_IdAndWarehouse_Id(product.getId(), warehouse.getId(), page));
+        measurePage("product+warehouse+type", () -> inventoryMovmentRepository.findByProduct_IdAndWarehouse_IdAndType(
+                product.getId(), warehouse.getId(), MovementType.OUTBOUND, page));
+        measurePage("warehouse+type", () ->
+                inventoryMovmentRepository.findByWarehouse_IdAndType(warehouse.getId(), MovementType.INBOUND, page));
+    }
+
+    private void measurePage(String label, Supplier<Page<InventoryMovement>> query) {
+        query.get();
+        entityManager.clear();
+        long start = System.nanoTime();
+        Page<InventoryMovement> result = query.get();
+        long nanos = System.nanoTime() - start;
+        log.info("Ledger page {} {} ms ({} rows total)", label, String.format(Locale.ROOT, "%.2f", nanos / 1e6),
+                result.getTotalElements());
+
+        assertFalse(result.getContent().isEmpty());
+        List<InventoryMovement> content = result.getContent();
+        for (int i = 1; i < content.size(); i++) {
+            assertFalse(content.get(i).getOccurredAt().isAfter(content.get(i - 1).getOccurredAt()));
+        }
+        entityManager.clear();
+    }
+
+    private List<InventoryMovement> movements(int count) {
+        MovementType[] types = MovementType.values();
+        Instant origin = Instant.parse("2026-01-01T00:00:00Z");
+        List<InventoryMovement> movements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            InventoryMovement movement = new InventoryMovement();
+            movement.setProduct(products.get(random.nextInt(products.size())));
+            movement.setWarehouse(warehouses.get(random.nextInt(warehouses.size())));
+            movement.setType(types[random.nextInt(types.length)]);
+            movement.setQuantity(1 + random.nextInt(100));
+            movement.setOccurredAt(origin.plusSeconds(random.nextInt(365 * 24 * 3600)));
+            movement.setReferenceDoc("BENCH-" + i);
+            movements.add(movement);
+        }
+        return movements;
+    }
+}
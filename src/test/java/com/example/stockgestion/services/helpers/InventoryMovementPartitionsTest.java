@@ -0,0 +1,82 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.InventoryMovementProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryMovementPartitionsTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private InventoryMovementPartitions partitions;
+
+    @BeforeEach
+    void setUp() {
+        InventoryMovementProperties properties = new InventoryMovementProperties();
+        properties.setPartitionsAhead(3);
+        partitions = new InventoryMovementPartitions(jdbcTemplate, properties);
+    }
+
+    @Test
+    void ensurePartitions_ShouldCreateCurrentAndNextMonths_WhenTableIsPartitioned() {
+        // Given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(1);
+
+        // When
+        partitions.ensurePartitions();
+
+        // Then
+        ArgumentCaptor<String> ddl = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(3)).execute(ddl.capture());
+        YearMonth month = YearMonth.now(ZoneOffset.UTC);
+        List<String> statements = ddl.getAllValues();
+        assertTrue(statements.get(0).contains(InventoryMovementPartitions.partitionName(month)));
+        assertTrue(statements.get(0).contains("FROM ('" + month.atDay(1) + " 00:00:00+00')"));
+        assertTrue(statements.get(2).contains(InventoryMovementPartitions.partitionName(month.plusMonths(2))));
+    }
+
+    @Test
+    void ensurePartitions_ShouldDoNothing_WhenTableIsNotPartitioned() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(0);
+
+        partitions.ensurePartitions();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void ensurePartitions_ShouldDoNothing_OutsidePostgres() {
+        // Given: catalogue pg_* absent (H2)
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class)))
+                .thenThrow(new BadSqlGrammarException("count", "SELECT ...", new SQLException("Table not found")));
+
+        // When
+        partitions.ensurePartitions();
+
+        // Then
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void partitionName_ShouldPadMonth() {
+        assertEquals("inventory_movements_2026_03", InventoryMovementPartitions.partitionName(YearMonth.of(2026, 3)));
+    }
+}
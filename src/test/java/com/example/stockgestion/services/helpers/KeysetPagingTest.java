@@ -0,0 +1,31 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.exception.BusinessRuleException;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetPagingTest {
+
+    @Test
+    void limit_ShouldDefaultAndCap() {
+        assertEquals(KeysetPaging.DEFAULT_LIMIT, KeysetPaging.limit(null).max());
+        assertEquals(KeysetPaging.MAX_LIMIT, KeysetPaging.limit(1_000_000).max());
+        assertEquals(20, KeysetPaging.limit(20).max());
+    }
+
+    @Test
+    void limit_ShouldRejectNonPositive() {
+        assertThrows(BusinessRuleException.class, () -> KeysetPaging.limit(0));
+    }
+
+    @Test
+    void after_ShouldStartBeforeEveryId_WhenNoCursor() {
+        UUID cursor = UUID.randomUUID();
+
+        assertEquals(new UUID(0L, 0L), KeysetPaging.after(null));
+        assertEquals(cursor, KeysetPaging.after(cursor));
+    }
+}
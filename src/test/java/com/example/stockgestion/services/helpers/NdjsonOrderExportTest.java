@@ -0,0 +1,126 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.SalesOrder;
+import com.example.stockgestion.models.SalesOrderLine;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.SOStatus;
+import com.example.stockgestion.repositories.SalesOrderRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Export NDJSON des commandes sur base H2 embarquée : avec 3 lignes par commande, la frontière de vidage
+ * (FLUSH_EVERY) tombe au milieu des lignes SQL d'une commande ; chaque commande doit sortir une seule fois, complète.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({NdjsonStreamer.class, SalesOrderReadModel.class, NdjsonOrderExportTest.JsonConfig.class})
+class NdjsonOrderExportTest {
+
+    private static final int ORDERS = NdjsonStreamer.FLUSH_EVERY + 1;
+    private static final int LINES_PER_ORDER = 3;
+
+    @TestConfiguration
+    static class JsonConfig {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+    }
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private SalesOrderRepository salesOrderRepository;
+
+    @Autowired
+    private SalesOrderReadModel salesOrderReadModel;
+
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        Client client = new Client();
+        client.setName("Client export");
+        entityManager.persist(client);
+        Product product = new Product();
+        product.setSku("SKU-EXPORT");
+        product.setName("Produit export");
+        product.setActive(true);
+        product.setPrice(BigDecimal.TEN);
+        entityManager.persist(product);
+        WareHouse warehouse = new WareHouse();
+        warehouse.setCode("WH-EXPORT");
+        warehouse.setName("Entrepôt export");
+        entityManager.persist(warehouse);
+        for (int i = 0; i < ORDERS; i++) {
+            SalesOrder order = new SalesOrder();
+            order.setClient(client);
+            order.setStatus(SOStatus.RESERVED);
+            order.setTotalPrice(BigDecimal.valueOf(30));
+            List<SalesOrderLine> lines = new ArrayList<>();
+            for (int j = 0; j < LINES_PER_ORDER; j++) {
+                lines.add(SalesOrderLine.builder()
+                        .salesOrder(order)
+                        .product(product)
+                        .warehouse(warehouse)
+                        .quantity(1)
+                        .qtyReserved(1)
+                        .unitPrice(BigDecimal.TEN)
+                        .build());
+            }
+            order.setLines(lines);
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void streamPages_ShouldWriteEachOrderOnce_WithAllItsLines_AcrossTheFlushBoundary() throws Exception {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        ndjsonStreamer.streamPages(salesOrderRepository::findIdsAfter, salesOrderReadModel::findByIds,
+                Function.identity()).writeTo(output);
+
+        // Then
+        Map<String, Integer> linesByOrder = new HashMap<>();
+        for (String json : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            JsonNode order = objectMapper.readTree(json);
+            assertNull(linesByOrder.put(order.get("id").asText(), order.get("lines").size()),
+                    "commande exportée deux fois : " + order.get("id").asText());
+        }
+        assertEquals(ORDERS, linesByOrder.size());
+        assertTrue(linesByOrder.values().stream().allMatch(lines -> lines == LINES_PER_ORDER));
+    }
+}
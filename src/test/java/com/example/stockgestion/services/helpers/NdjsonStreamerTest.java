@@ -0,0 +1,85 @@
+package com.example.stockgestion.services.helpers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NdjsonStreamerTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private NdjsonStreamer streamer;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        streamer = new NdjsonStreamer(transactionManager, new ObjectMapper());
+        ReflectionTestUtils.setField(streamer, "entityManager", entityManager);
+    }
+
+    @Test
+    void stream_ShouldWriteOneJsonLinePerRow_InAReadOnlyTransaction() throws Exception {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        streamer.stream(() -> Stream.of("a", "b", "c"), value -> Map.of("value", value)).writeTo(output);
+
+        // Then
+        assertEquals("{\"value\":\"a\"}\n{\"value\":\"b\"}\n{\"value\":\"c\"}\n", output.toString(StandardCharsets.UTF_8));
+        verify(entityManager, never()).clear();
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void stream_ShouldFlushAndClearPeriodically_AndCloseTheCursor() throws Exception {
+        // Given
+        AtomicInteger flushes = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+        int rows = NdjsonStreamer.FLUSH_EVERY * 3;
+
+        // When
+        streamer.stream(() -> IntStream.range(0, rows).boxed().onClose(() -> closed.set(true)), i -> i)
+                .writeTo(output);
+
+        // Then: une vidange par tranche, plus la vidange finale ; le contexte de persistance vidé à chaque tranche
+        assertEquals(4, flushes.get());
+        verify(entityManager, times(3)).clear();
+        verify(entityManager, never()).detach(any());
+        assertEquals(rows, output.toString(StandardCharsets.UTF_8).split("\n").length);
+        assertTrue(closed.get());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.ProductResponseDto;
+import com.example.stockgestion.Dto.response.ProductSearchResponseDto;
+import com.example.stockgestion.config.ProductSearchProperties;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.repositories.projections.ProductSummary;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Latence de l'index de recherche des produits sur un catalogue synthétique (graine fixe) : p50 / p99 par type
+ * de requête, face à un parcours de tous les produits. Hors de mvn test : lancé avec -Pbenchmark, volume réglé
+ * avec -Dsearch.products (100 000 par défaut ; -Dsearch.products=500000 pour la mesure complète, p99 visé sous 5 ms).
+ */
+@Tag("benchmark")
+class ProductSearchIndexBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndexBenchmarkTest.class);
+
+    private static final int PRODUCTS = Integer.getInteger("search.products", 100_000);
+    private static final int QUERIES = 2_000;
+    private static final String[] SYLLABLES = {"ba", "ca", "de", "fi", "go", "lu", "ma", "ne", "po", "ri",
+            "sa", "te", "vo", "zu", "cha", "tri", "pla", "gre", "mon", "sel"};
+    private static final String[] KINDS = {"sku", "prefixe", "mot+prefixe", "faute", "mot+categorie"};
+
+    private final Random random = new Random(42);
+
+    @Test
+    void search_OnLargeCatalogue() {
+        // Catalogue : 3 000 mots, 40 catégories, un produit sur 10 désactivé
+        String[] words = IntStream.range(0, 3_000).mapToObj(i -> word()).distinct().toArray(String[]::new);
+        String[] categories = IntStream.range(0, 40).mapToObj(i -> word()).toArray(String[]::new);
+        List<ProductSummary> products = IntStream.range(0, PRODUCTS).mapToObj(i -> new ProductSummary(
+                UUID.randomUUID(),
+                "SKU-" + String.format("%07d", i),
+                words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + (i % 50),
+                categories[i % categories.length],
+                i % 10 != 0,
+                BigDecimal.TEN)).toList();
+        ProductSearchIndex index = new ProductSearchIndex(mock(ProductRepository.class), new ProductSearchProperties(),
+                mock(PlatformTransactionManager.class));
+        long start = System.nanoTime();
+        index.rebuild(products.stream());
+        log.info("Search index {} products {} ms", PRODUCTS, (System.nanoTime() - start) / 1_000_000);
+        assertEquals(PRODUCTS, index.size());
+
+        // Requêtes : début de SKU, début de mot, mot complet + début du suivant, faute de frappe, mot + catégorie
+        List<String[]> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            String word = words[random.nextInt(words.length)];
+            String other = words[random.nextInt(words.length)];
+            queries.add(switch (i % KINDS.length) {
+                case 0 -> new String[]{"sku-" + String.format("%05d", random.nextInt(PRODUCTS / 100)), null};
+                case 1 -> new String[]{word.substring(0, 3), null};
+                case 2 -> new String[]{word + " " + other.substring(0, Math.min(4, other.length())), null};
+                case 3 -> new String[]{word.substring(1), null};
+                default -> new String[]{word, categories[random.nextInt(categories.length)]};
+            });
+        }
+        for (int pass = 0; pass < 5; pass++) {
+            queries.forEach(query -> index.search(query[0], query[1], false, 20));
+        }
+        // Déchets de la construction ramassés avant la mesure : une pause de collecte ne compte pas comme p99
+        System.gc();
+
+        long[] durations = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String[] query = queries.get(i);
+            long queryStart = System.nanoTime();
+            ProductSearchResponseDto result = index.search(query[0], query[1], false, 20);
+            durations[i] = System.nanoTime() - queryStart;
+            if (i % KINDS.length == 0) {
+                assertTrue(result.getProducts().stream().map(ProductResponseDto::getSku)
+                        .allMatch(sku -> sku.toLowerCase(Locale.ROOT).startsWith(query[0])));
+            }
+        }
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            int k = kind;
+            long[] ofKind = IntStream.range(0, QUERIES).filter(i -> i % KINDS.length == k)
+                    .mapToLong(i -> durations[i]).sorted().toArray();
+            log.info("Search {} p50 {} ms  p99 {} ms", KINDS[kind], millis(percentile(ofKind, 0.50)),
+                    millis(percentile(ofKind, 0.99)));
+        }
+        long[] sorted = durations.clone();
+        Arrays.sort(sorted);
+        long p99 = percentile(sorted, 0.99);
+        log.info("Search {} p50 {} ms  p99 {} ms", "toutes", millis(percentile(sorted, 0.50)), millis(p99));
+
+        // Référence : parcours de tous les produits (début de SKU ou mot contenu dans le nom), sur un échantillon
+        long[] scans = new long[20];
+        long found = 0;
+        for (int i = 0; i < scans.length; i++) {
+            String text = queries.get(i)[0];
+            long scanStart = System.nanoTime();
+            found += products.stream()
+                    .filter(product -> product.active() && (product.sku().toLowerCase(Locale.ROOT).startsWith(text)
+                            || ProductSearchIndex.normalize(product.name()).contains(text)))
+                    .count();
+            scans[i] = System.nanoTime() - scanStart;
+        }
+        Arrays.sort(scans);
+        log.info("Search {} p50 {} ms ({} produits trouvés)", "parcours", millis(percentile(scans, 0.50)), found);
+
+        assertTrue(p99 < percentile(scans, 0.50),
+                "index p99=" + p99 / 1_000 + " µs, parcours p50=" + percentile(scans, 0.50) / 1_000 + " µs");
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double rank) {
+        return sorted[Math.max(0, (int) Math.ceil(sorted.length * rank) - 1)];
+    }
+
+    private String word() {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 2 + random.nextInt(3); i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+}
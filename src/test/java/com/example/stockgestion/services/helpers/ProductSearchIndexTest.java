@@ -0,0 +1,174 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.ProductResponseDto;
+import com.example.stockgestion.Dto.response.ProductSearchResponseDto;
+import com.example.stockgestion.config.ProductSearchProperties;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.repositories.projections.ProductSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(productRepository, new ProductSearchProperties(), transactionManager);
+        index.rebuild(Stream.of(
+                summary("ECR-24-001", "Écran 24 pouces", "Informatique", true),
+                summary("ECR-27-002", "Écran 27 pouces incurvé", "Informatique", true),
+                summary("CLV-100", "Clavier mécanique", "Informatique", true),
+                summary("CHS-001", "Chaise ergonomique", "Mobilier", true),
+                summary("ECR-19-OLD", "Écran 19 pouces", "Informatique", false)));
+    }
+
+    @Test
+    void search_ShouldMatchSkuPrefix_AndLastWordPrefix() {
+        // When
+        ProductSearchResponseDto bySku = index.search("ecr-2", null, false, 10);
+        ProductSearchResponseDto byName = index.search("ecran pou", null, false, 10);
+
+        // Then : le produit désactivé est écarté
+        assertEquals(List.of("ECR-24-001", "ECR-27-002"), skus(bySku));
+        assertEquals(List.of("ECR-24-001", "ECR-27-002"), skus(byName));
+        assertEquals(2, byName.getTotal());
+    }
+
+    @Test
+    void search_ShouldRankExactSkuFirst() {
+        // When
+        ProductSearchResponseDto result = index.search("CLV-100", null, false, 10);
+
+        // Then
+        assertEquals(List.of("CLV-100"), skus(result));
+    }
+
+    @Test
+    void search_ShouldTolerateOneTypo_OnWordsWithoutDigits() {
+        // When : lettre manquante, lettre en trop, inversion
+        ProductSearchResponseDto missing = index.search("clavir", null, false, 10);
+        ProductSearchResponseDto extra = index.search("chaisse", null, false, 10);
+        ProductSearchResponseDto swapped = index.search("ergonoimque", null, false, 10);
+
+        // Then
+        assertEquals(List.of("CLV-100"), skus(missing));
+        assertEquals(List.of("CHS-001"), skus(extra));
+        assertEquals(List.of("CHS-001"), skus(swapped));
+        assertTrue(index.search("clvaier mceanqiue", null, false, 10).getProducts().isEmpty(),
+                "deux fautes dans un même mot ne correspondent pas");
+    }
+
+    @Test
+    void search_ShouldFilterByCategory_AndCountCategoriesBeforeFilter() {
+        // When
+        ProductSearchResponseDto result = index.search("ecr", "informatique", true, 10);
+        ProductSearchResponseDto byCategory = index.search(null, "Mobilier", false, 10);
+
+        // Then : "ecr" est à la fois un préfixe de SKU et de "ecran"
+        assertEquals(List.of("ECR-19-OLD", "ECR-24-001", "ECR-27-002"), skus(result));
+        assertEquals(Map.of("Informatique", 3), result.getCategories());
+        assertEquals(List.of("CHS-001"), skus(byCategory));
+    }
+
+    @Test
+    void search_ShouldStopPrefixExpansion_AtMaxPrefixPostings() {
+        // Given : "chaise" (2 produits) précède "chariot" dans l'ordre des termes
+        ProductSearchProperties properties = new ProductSearchProperties();
+        properties.setMaxPrefixPostings(2);
+        ProductSearchIndex capped = new ProductSearchIndex(productRepository, properties, transactionManager);
+        ProductSearchIndex uncapped = new ProductSearchIndex(productRepository, new ProductSearchProperties(), transactionManager);
+        List<ProductSummary> products = List.of(
+                summary("CHS-001", "Chaise bureau", "Mobilier", true),
+                summary("CHS-002", "Chaise pliante", "Mobilier", true),
+                summary("CHR-001", "Chariot métal", "Manutention", true));
+        capped.rebuild(products.stream());
+        uncapped.rebuild(products.stream());
+
+        // When
+        ProductSearchResponseDto result = capped.search("cha", null, false, 10);
+
+        // Then : le décompte ne porte que sur les termes retenus
+        assertEquals(List.of("CHS-001", "CHS-002"), skus(result));
+        assertEquals(2, result.getTotal());
+        assertEquals(Map.of("Mobilier", 2), result.getCategories());
+        assertEquals(3, uncapped.search("cha", null, false, 10).getTotal());
+    }
+
+    @Test
+    void put_ShouldUpdateAndDeactivate_WithoutRebuild() {
+        // Given
+        Product chair = new Product();
+        chair.setId(idOf("CHS-001"));
+        chair.setSku("CHS-001");
+        chair.setName("Fauteuil de bureau");
+        chair.setCategory("Mobilier");
+        chair.setActive(true);
+        Product desk = new Product();
+        desk.setId(UUID.randomUUID());
+        desk.setSku("BUR-001");
+        desk.setName("Bureau assis debout");
+        desk.setCategory("Mobilier");
+        desk.setActive(true);
+
+        // When : hors transaction, appliqué immédiatement
+        index.put(chair);
+        index.put(desk);
+
+        // Then : les anciens mots ne correspondent plus
+        assertTrue(index.search("chaise", null, false, 10).getProducts().isEmpty());
+        assertEquals(List.of("BUR-001", "CHS-001"), skus(index.search("bureau", null, false, 10)));
+
+        // When
+        desk.setActive(false);
+        index.put(desk);
+        index.remove(chair.getId());
+
+        // Then
+        assertTrue(index.search("bureau", null, false, 10).getProducts().isEmpty());
+        assertEquals(List.of("BUR-001"), skus(index.search("bureau", null, true, 10)));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void withinOneEdit_ShouldAcceptSingleEdits_Only() {
+        assertTrue(ProductSearchIndex.withinOneEdit("ecran", "ecrna"));
+        assertTrue(ProductSearchIndex.withinOneEdit("ecran", "ecrn"));
+        assertTrue(ProductSearchIndex.withinOneEdit("ecran", "ecrans"));
+        assertTrue(ProductSearchIndex.withinOneEdit("ecran", "ecron"));
+        assertFalse(ProductSearchIndex.withinOneEdit("ecran", "erca"));
+        assertFalse(ProductSearchIndex.withinOneEdit("ecran", "ercna"));
+    }
+
+    private UUID idOf(String sku) {
+        return index.search(sku, null, true, 1).getProducts().get(0).getId();
+    }
+
+    private static List<String> skus(ProductSearchResponseDto result) {
+        return result.getProducts().stream().map(ProductResponseDto::getSku).toList();
+    }
+
+    private static ProductSummary summary(String sku, String name, String category, boolean active) {
+        return new ProductSummary(UUID.randomUUID(), sku, name, category, active, BigDecimal.TEN);
+    }
+}
@@ -3,7 +3,6 @@ package com.example.stockgestion.services.helpers;
 import com.example.stockgestion.exception.BusinessRuleException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.Product;
-import com.example.stockgestion.repositories.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,7 +21,7 @@ import static org.mockito.Mockito.*;
 class ProductValidatorTest {
 
     @Mock
-    private ProductRepository productRepository;
+    private ReferenceDataCache referenceDataCache;
 
     @InjectMocks
     private ProductValidator productValidator;
@@ -43,7 +42,7 @@ class ProductValidatorTest {
     @Test
     void validateAndGet_ShouldReturnProduct_WhenProductExists() {
         // Given
-        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.of(product));
 
         // When
         Product result = productValidator.validateAndGet(productId);
@@ -52,13 +51,13 @@ class ProductValidatorTest {
         assertNotNull(result);
         assertEquals(productId, result.getId());
         assertEquals("Test Product", result.getName());
-        verify(productRepository).findById(productId);
+        verify(referenceDataCache).findProduct(productId);
     }
 
     @Test
     void validateAndGet_ShouldThrowException_WhenProductNotFound() {
         // Given
-        when(productRepository.findById(productId)).thenReturn(Optional.empty());
+        when(referenceDataCache.findProduct(productId)).thenReturn(Optional.empty());
 
         // When & Then
         ResourceNotFoundException exception = assertThrows(
@@ -68,7 +67,7 @@ class ProductValidatorTest {
 
         assertTrue(exception.getMessage().contains("Product"));
         assertTrue(exception.getMessage().contains("id"));
-        verify(productRepository).findById(productId);
+        verify(referenceDataCache).findProduct(productId);
     }
 
     @Test
@@ -0,0 +1,108 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.ReferenceCacheProperties;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.repositories.ClientRepository;
+import com.example.stockgestion.repositories.ProductRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataCacheTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private WareHouseRepository wareHouseRepository;
+
+    @Mock
+    private ClientRepository clientRepository;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private ReferenceDataCache cache;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        ReferenceCacheProperties properties = new ReferenceCacheProperties();
+        properties.setTtl(60_000L);
+        cache = new ReferenceDataCache(productRepository, wareHouseRepository, clientRepository, properties, nanos::get);
+        product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName("Produit en cache");
+    }
+
+    @Test
+    void findProduct_ShouldHitRepositoryOnce_UntilTtlExpires() {
+        // Given
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+
+        // When
+        cache.findProduct(product.getId());
+        cache.findProduct(product.getId());
+
+        // Then : une seule lecture tant que l'entrée est fraîche
+        assertSame(product, cache.findProduct(product.getId()).orElseThrow());
+        verify(productRepository, times(1)).findAllById(any());
+
+        // When : durée de vie dépassée
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        cache.findProduct(product.getId());
+
+        // Then
+        verify(productRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void evictProduct_ShouldReloadOnNextRead() {
+        // Given
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        cache.findProduct(product.getId());
+
+        // When
+        cache.evictProduct(product.getId());
+        cache.findProduct(product.getId());
+
+        // Then
+        verify(productRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void findWarehouses_ShouldLoadOnlyMissingIds_AndNotCacheUnknownOnes() {
+        // Given
+        WareHouse cached = new WareHouse();
+        cached.setId(UUID.randomUUID());
+        WareHouse other = new WareHouse();
+        other.setId(UUID.randomUUID());
+        UUID unknown = UUID.randomUUID();
+        when(wareHouseRepository.findAllById(Set.of(cached.getId()))).thenReturn(List.of(cached));
+        when(wareHouseRepository.findAllById(Set.of(other.getId(), unknown))).thenReturn(List.of(other));
+        cache.findWarehouse(cached.getId());
+
+        // When
+        Map<UUID, WareHouse> result = cache.findWarehouses(List.of(cached.getId(), other.getId(), unknown));
+
+        // Then : l'id inconnu est absent du résultat et sera relu
+        assertEquals(Set.of(cached.getId(), other.getId()), result.keySet());
+        when(wareHouseRepository.findAllById(Set.of(unknown))).thenReturn(List.of());
+        assertTrue(cache.findWarehouse(unknown).isEmpty());
+        verify(wareHouseRepository).findAllById(Set.of(unknown));
+    }
+}
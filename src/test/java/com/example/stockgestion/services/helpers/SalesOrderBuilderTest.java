@@ -71,6 +71,22 @@ class SalesOrderBuilderTest {
         assertEquals(2, order.getLines().size());
     }
 
+    @Test
+    void finalize_ShouldSumBackorderedQty_IntoRemainingCounter() {
+        // Given
+        SalesOrder order = new SalesOrder();
+        SalesOrderLine reserved = SalesOrderLine.builder().qtyReserved(30).build();
+        SalesOrderLine backorder1 = SalesOrderLine.builder().qtyBackordered(20).build();
+        SalesOrderLine backorder2 = SalesOrderLine.builder().qtyBackordered(5).build();
+
+        // When
+        salesOrderBuilder.finalize(order, List.of(reserved, backorder1, backorder2), BigDecimal.TEN,
+                SOStatus.PARTIALLY_RESERVED);
+
+        // Then
+        assertEquals(25, order.getQtyBackorderedRemaining());
+    }
+
     @Test
     void finalize_ShouldHandleEmptyLines() {
         // Given
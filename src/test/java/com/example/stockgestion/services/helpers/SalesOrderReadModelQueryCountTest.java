@@ -0,0 +1,151 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.SalesOrderResponseDto;
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.SalesOrder;
+import com.example.stockgestion.models.SalesOrderLine;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.SOStatus;
+import com.example.stockgestion.repositories.SalesOrderRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nombre de requêtes SQL pour lire 1 000 commandes de 2 lignes (base H2 embarquée, statistiques Hibernate)
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import(SalesOrderReadModel.class)
+class SalesOrderReadModelQueryCountTest {
+
+    private static final int ORDERS = 1_000;
+    private static final int LINES_PER_ORDER = 2;
+    // En-têtes + lignes ; une tranche supplémentaire au plus pour les lectures par ids
+    private static final long MAX_QUERIES = 4;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private SalesOrderRepository salesOrderRepository;
+
+    @Autowired
+    private SalesOrderReadModel salesOrderReadModel;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Client client = new Client();
+            client.setName("Client " + i);
+            entityManager.persist(client);
+            clients.add(client);
+        }
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Product product = new Product();
+            product.setSku("SKU-" + i);
+            product.setName("Produit " + i);
+            product.setActive(true);
+            product.setPrice(BigDecimal.TEN);
+            entityManager.persist(product);
+            products.add(product);
+        }
+        List<WareHouse> warehouses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            WareHouse warehouse = new WareHouse();
+            warehouse.setCode("WH-" + i);
+            warehouse.setName("Entrepôt " + i);
+            entityManager.persist(warehouse);
+            warehouses.add(warehouse);
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            SalesOrder order = new SalesOrder();
+            order.setClient(clients.get(i % clients.size()));
+            order.setStatus(SOStatus.RESERVED);
+            order.setTotalPrice(BigDecimal.valueOf(20));
+            List<SalesOrderLine> lines = new ArrayList<>();
+            for (int j = 0; j < LINES_PER_ORDER; j++) {
+                lines.add(SalesOrderLine.builder()
+                        .salesOrder(order)
+                        .product(products.get((i + j) % products.size()))
+                        .warehouse(warehouses.get((i + j) % warehouses.size()))
+                        .quantity(1)
+                        .qtyReserved(1)
+                        .unitPrice(BigDecimal.TEN)
+                        .build());
+            }
+            order.setLines(lines);
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAll_ShouldUseConstantNumberOfQueries() {
+        // When
+        List<SalesOrderResponseDto> orders = salesOrderReadModel.findAll();
+
+        // Then
+        assertEquals(ORDERS, orders.size());
+        assertTrue(orders.stream().allMatch(order -> order.getLines().size() == LINES_PER_ORDER));
+        assertNotNull(orders.get(0).getClient().getName());
+        assertNotNull(orders.get(0).getLines().get(0).getProduct().getSku());
+        assertNotNull(orders.get(0).getLines().get(0).getWarehouse().getCode());
+        assertTrue(statistics.getPrepareStatementCount() <= MAX_QUERIES,
+                "requêtes=" + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByIds_ShouldUseConstantNumberOfQueries() {
+        // Given
+        List<UUID> ids = entityManager.createQuery("SELECT so.id FROM SalesOrder so ORDER BY so.id", UUID.class)
+                .getResultList();
+        statistics.clear();
+
+        // When
+        List<SalesOrderResponseDto> orders = salesOrderReadModel.findByIds(ids);
+
+        // Then
+        assertEquals(ORDERS, orders.size());
+        assertEquals(ids.get(0), orders.get(0).getId());
+        assertTrue(statistics.getPrepareStatementCount() <= MAX_QUERIES,
+                "requêtes=" + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void entityMapping_ShouldShowTheNPlusOneItReplaces() {
+        // When: ancien chemin de lecture (findAll + constructeur du DTO sur les entités)
+        List<SalesOrderResponseDto> orders = salesOrderRepository.findAll().stream()
+                .map(SalesOrderResponseDto::new)
+                .toList();
+
+        // Then: au moins une requête de lignes par commande
+        assertEquals(ORDERS, orders.size());
+        assertTrue(statistics.getPrepareStatementCount() > ORDERS,
+                "requêtes=" + statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.ShipmentSlotProperties;
+import com.example.stockgestion.exception.BusinessRuleException;
+import com.example.stockgestion.models.Carrier;
+import com.example.stockgestion.models.ShipmentSlot;
+import com.example.stockgestion.repositories.ShipmentSlotRepository;
+import com.example.stockgestion.repositories.projections.SlotFill;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShipmentSlotAllocatorTest {
+
+    @Mock
+    private ShipmentSlotRepository shipmentSlotRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ShipmentSlotProperties properties;
+    private ShipmentSlotAllocator allocator;
+    private Carrier carrier;
+
+    // Lundi
+    private final LocalDateTime requested = LocalDateTime.of(2026, 3, 2, 14, 0);
+
+    @BeforeEach
+    void setUp() {
+        properties = new ShipmentSlotProperties();
+        properties.setSearchDays(10);
+        allocator = new ShipmentSlotAllocator(shipmentSlotRepository, properties, transactionManager);
+        carrier = new Carrier();
+        carrier.setId(UUID.randomUUID());
+        carrier.setName("DHL");
+        carrier.setSlotCapacity(3);
+    }
+
+    private ShipmentSlot slot(LocalDate date, int booked) {
+        return ShipmentSlot.builder().carrier(carrier).slotDate(date).slotHour(14).booked(booked).build();
+    }
+
+    @Test
+    void book_ShouldSkipFullDaysWithASingleRead() {
+        // Given : lundi, mardi et mercredi pleins, jeudi à 1/3
+        when(shipmentSlotRepository.findByCarrier_IdAndSlotDateBetween(carrier.getId(), requested.toLocalDate(),
+                LocalDate.of(2026, 3, 16))).thenReturn(List.of(
+                slot(LocalDate.of(2026, 3, 2), 3),
+                slot(LocalDate.of(2026, 3, 3), 3),
+                slot(LocalDate.of(2026, 3, 4), 5),
+                slot(LocalDate.of(2026, 3, 5), 1)));
+        when(shipmentSlotRepository.bookIfAvailable(carrier.getId(), LocalDate.of(2026, 3, 5), 14, 3)).thenReturn(1);
+
+        // When
+        LocalDateTime booked = allocator.book(carrier, requested, 14);
+
+        // Then
+        assertEquals(LocalDateTime.of(2026, 3, 5, 14, 0), booked);
+        verify(shipmentSlotRepository, times(1)).findByCarrier_IdAndSlotDateBetween(any(), any(), any());
+        verify(shipmentSlotRepository, times(1)).bookIfAvailable(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void book_ShouldMoveOn_WhenLastPlaceTakenConcurrently() {
+        // Given : lundi lu à 2/3 mais rempli entre-temps
+        when(shipmentSlotRepository.findByCarrier_IdAndSlotDateBetween(any(), any(), any()))
+                .thenReturn(List.of(slot(LocalDate.of(2026, 3, 2), 2), slot(LocalDate.of(2026, 3, 3), 0)));
+        when(shipmentSlotRepository.bookIfAvailable(carrier.getId(), LocalDate.of(2026, 3, 2), 14, 3)).thenReturn(0);
+        when(shipmentSlotRepository.bookIfAvailable(carrier.getId(), LocalDate.of(2026, 3, 3), 14, 3)).thenReturn(1);
+
+        // When & Then
+        assertEquals(LocalDateTime.of(2026, 3, 3, 14, 0), allocator.book(carrier, requested, 14));
+    }
+
+    @Test
+    void book_ShouldUseDefaultCapacity_WhenCarrierHasNone() {
+        carrier.setSlotCapacity(null);
+        properties.setDefaultCapacity(7);
+
+        assertEquals(7, allocator.capacityOf(carrier));
+    }
+
+    @Test
+    void candidates_ShouldSkipWeekends() {
+        // Vendredi après le cut-off : le créneau suivant est lundi
+        List<LocalDateTime> candidates = allocator.candidates(LocalDateTime.of(2026, 3, 6, 9, 0), 14);
+
+        assertEquals(11, candidates.size());
+        assertEquals(LocalDateTime.of(2026, 3, 6, 9, 0), candidates.get(0));
+        assertEquals(LocalDateTime.of(2026, 3, 9, 14, 0), candidates.get(1));
+    }
+
+    @Test
+    void book_ShouldFail_WhenHorizonIsFull() {
+        // Given : tous les créneaux de l'horizon pleins
+        List<ShipmentSlot> full = allocator.candidates(requested, 14).stream()
+                .map(c -> slot(c.toLocalDate(), 3))
+                .toList();
+        when(shipmentSlotRepository.findByCarrier_IdAndSlotDateBetween(any(), any(), any())).thenReturn(full);
+
+        // When & Then
+        assertThrows(BusinessRuleException.class, () -> allocator.book(carrier, requested, 14));
+        verify(shipmentSlotRepository, never()).bookIfAvailable(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void bookMany_ShouldFillEachSlotAcrossCarriersBeforeMovingOn() {
+        // Given : DHL à 1/3 le lundi, UPS 2 places par créneau, rien d'autre de réservé
+        Carrier ups = new Carrier();
+        ups.setId(UUID.randomUUID());
+        ups.setName("UPS");
+        ups.setSlotCapacity(2);
+        when(shipmentSlotRepository.findFillByCarrierIds(eq(List.of(carrier.getId(), ups.getId())),
+                eq(requested.toLocalDate()), any()))
+                .thenReturn(List.of(new SlotFill(carrier.getId(), requested.toLocalDate(), 14, 1)));
+        when(shipmentSlotRepository.bookManyIfAvailable(any(), any(), anyInt(), anyInt(), anyInt())).thenReturn(1);
+
+        // When
+        List<SlotBooking> bookings = allocator.bookMany(List.of(carrier, ups), requested, 14, 6);
+
+        // Then : lundi DHL 2 + UPS 2, puis mardi DHL 2
+        assertEquals(List.of(
+                new SlotBooking(carrier, requested, 2),
+                new SlotBooking(ups, requested, 2),
+                new SlotBooking(carrier, LocalDateTime.of(2026, 3, 3, 14, 0), 2)), bookings);
+        verify(shipmentSlotRepository, times(1)).findFillByCarrierIds(any(), any(), any());
+        verify(shipmentSlotRepository).bookManyIfAvailable(carrier.getId(), requested.toLocalDate(), 14, 2, 3);
+    }
+
+    @Test
+    void bookMany_ShouldReadAgain_WhenPlacesTakenConcurrently() {
+        // Given : lundi lu à 0/3, rempli entre-temps ; relu plein
+        when(shipmentSlotRepository.findFillByCarrierIds(any(), any(), any()))
+                .thenReturn(List.of(new SlotFill(carrier.getId(), requested.toLocalDate(), 14, 0)))
+                .thenReturn(List.of(new SlotFill(carrier.getId(), requested.toLocalDate(), 14, 3)));
+        when(shipmentSlotRepository.bookManyIfAvailable(carrier.getId(), requested.toLocalDate(), 14, 3, 3)).thenReturn(0);
+        when(shipmentSlotRepository.bookManyIfAvailable(carrier.getId(), LocalDate.of(2026, 3, 3), 14, 3, 3)).thenReturn(1);
+
+        // When
+        List<SlotBooking> bookings = allocator.bookMany(List.of(carrier), requested, 14, 3);
+
+        // Then
+        assertEquals(List.of(new SlotBooking(carrier, LocalDateTime.of(2026, 3, 3, 14, 0), 3)), bookings);
+        verify(shipmentSlotRepository, times(2)).findFillByCarrierIds(any(), any(), any());
+    }
+
+    @Test
+    void bookMany_ShouldReturnFewerPlaces_WhenHorizonIsFull() {
+        // Given : une seule place libre sur tout l'horizon
+        properties.setSearchDays(0);
+        when(shipmentSlotRepository.findFillByCarrierIds(any(), any(), any()))
+                .thenReturn(List.of(new SlotFill(carrier.getId(), requested.toLocalDate(), 14, 2)));
+        when(shipmentSlotRepository.bookManyIfAvailable(carrier.getId(), requested.toLocalDate(), 14, 1, 3)).thenReturn(1);
+
+        // When & Then
+        assertEquals(List.of(new SlotBooking(carrier, requested, 1)), allocator.bookMany(List.of(carrier), requested, 14, 5));
+    }
+
+    @Test
+    void requestedDeparture_ShouldMoveToNextBusinessDay_AfterCutoff() {
+        // Vendredi 15h, cut-off 14h : lundi 9h
+        assertEquals(LocalDateTime.of(2026, 3, 9, 9, 0),
+                ShipmentSlotAllocator.requestedDeparture(LocalDateTime.of(2026, 3, 6, 15, 0), 14));
+        assertEquals(LocalDateTime.of(2026, 3, 6, 14, 0),
+                ShipmentSlotAllocator.requestedDeparture(LocalDateTime.of(2026, 3, 6, 10, 30), 14));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.config.ShipmentSlotProperties;
+import com.example.stockgestion.models.Carrier;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Planifications concurrentes sur base H2 embarquée : aucun créneau ne dépasse la capacité du transporteur.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({ShipmentSlotAllocator.class, ShipmentSlotProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShipmentSlotConcurrencyTest {
+
+    private static final int THREADS = 6;
+    private static final int BOOKINGS_PER_THREAD = 5;
+    private static final int CAPACITY = 10;
+
+    @Autowired
+    private ShipmentSlotAllocator allocator;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Carrier carrier;
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            carrier = new Carrier();
+            carrier.setName("Slot Carrier");
+            carrier.setActive(true);
+            carrier.setSlotCapacity(CAPACITY);
+            entityManager.persist(carrier);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM shipment_slots");
+        jdbcTemplate.update("DELETE FROM carriers");
+    }
+
+    @Test
+    void concurrentBookings_ShouldNeverExceedCapacity() throws InterruptedException {
+        // Lundi 14h
+        LocalDateTime requested = LocalDateTime.of(2026, 3, 2, 14, 0);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<LocalDateTime, Integer> perSlot = new ConcurrentHashMap<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < THREADS; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < BOOKINGS_PER_THREAD; i++) {
+                        LocalDateTime slot = transaction.execute(status -> allocator.book(carrier, requested, 14));
+                        perSlot.merge(slot, 1, Integer::sum);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        assertTrue(failures.isEmpty(), () -> "Échecs : " + failures);
+
+        // 30 planifications, 10 par créneau : lundi, mardi, mercredi pleins
+        assertEquals(3, perSlot.size());
+        perSlot.values().forEach(count -> assertEquals(CAPACITY, count));
+        List<Integer> booked = new JdbcTemplate(dataSource)
+                .queryForList("SELECT booked FROM shipment_slots ORDER BY slot_date", Integer.class);
+        assertEquals(List.of(CAPACITY, CAPACITY, CAPACITY), booked);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.ShipmentWaveProgressDto;
+import com.example.stockgestion.config.ShipmentSlotProperties;
+import com.example.stockgestion.config.ShipmentWaveProperties;
+import com.example.stockgestion.config.TrackingNumberProperties;
+import com.example.stockgestion.models.Carrier;
+import com.example.stockgestion.models.Client;
+import com.example.stockgestion.models.SalesOrder;
+import com.example.stockgestion.models.Shipment;
+import com.example.stockgestion.models.enums.SOStatus;
+import com.example.stockgestion.models.enums.ShipmentStatus;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Vague de planification sur base H2 embarquée : expéditions insérées par lots JDBC, compteurs de créneaux
+ * tenus à jour et capacité respectée. Les lots sont commités, comme en production.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({ShipmentWavePlanner.class, ShipmentSlotAllocator.class, ShipmentSlotProperties.class,
+        ShipmentWaveProperties.class, TrackingNumberGenerator.class, TrackingNumberProperties.class,
+        ShipmentWavePlannerTest.JdbcConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShipmentWavePlannerTest {
+
+    @TestConfiguration
+    static class JdbcConfig {
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+
+    // Lundi 14h
+    private static final LocalDateTime REQUESTED = LocalDateTime.of(2026, 3, 2, 14, 0);
+
+    @Autowired
+    private ShipmentWavePlanner planner;
+
+    @Autowired
+    private ShipmentSlotProperties slotProperties;
+
+    @Autowired
+    private ShipmentWaveProperties waveProperties;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Carrier dhl;
+    private Carrier ups;
+
+    @BeforeEach
+    void setUp() {
+        // Lots de 4 commandes : plusieurs transactions pour 8 commandes
+        waveProperties.setChunkSize(4);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Client client = new Client();
+            client.setName("Client vague");
+            entityManager.persist(client);
+            dhl = carrier("DHL");
+            ups = carrier("UPS");
+            for (int i = 0; i < 8; i++) {
+                order(client, SOStatus.RESERVED);
+            }
+            order(client, SOStatus.CREATED);
+            // Déjà expédiée : ignorée par la vague
+            Shipment existing = new Shipment();
+            existing.setSalesOrder(order(client, SOStatus.RESERVED));
+            existing.setCarrier(dhl);
+            existing.setStatus(ShipmentStatus.PLANNED);
+            existing.setTrackingNumber("DHL-EXISTING");
+            entityManager.persist(existing);
+        });
+    }
+
+    private Carrier carrier(String name) {
+        Carrier carrier = new Carrier();
+        carrier.setName(name);
+        carrier.setActive(true);
+        carrier.setSlotCapacity(3);
+        entityManager.persist(carrier);
+        return carrier;
+    }
+
+    private SalesOrder order(Client client, SOStatus status) {
+        SalesOrder order = SalesOrder.builder().client(client).status(status).build();
+        entityManager.persist(order);
+        return order;
+    }
+
+    @AfterEach
+    void tearDown() {
+        slotProperties.setSearchDays(60);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM shipments");
+        jdbcTemplate.update("DELETE FROM shipment_slots");
+        jdbcTemplate.update("DELETE FROM sales_orders");
+        jdbcTemplate.update("DELETE FROM clients");
+        jdbcTemplate.update("DELETE FROM carriers");
+    }
+
+    @Test
+    void plan_ShouldCreateOneShipmentPerPendingOrder_WithinSlotCapacity() {
+        // When
+        List<ShipmentWaveProgressDto> progress = new ArrayList<>();
+        ShipmentWaveProgressDto result = planner.plan(List.of(dhl, ups), REQUESTED, 14, 14,
+                state -> progress.add(new ShipmentWaveProgressDto(state.getStartedAt(), state.getDurationMs(),
+                        state.getChunks(), state.getPlanned(), state.getUnplanned(), state.isDone(), state.getMessage())));
+
+        // Then : lundi DHL 3 + UPS 3, mardi DHL 2
+        assertTrue(result.isDone());
+        assertEquals(8, result.getPlanned());
+        assertEquals(0, result.getUnplanned());
+        assertEquals(List.of(4L, 8L, 8L), progress.stream().map(ShipmentWaveProgressDto::getPlanned).toList());
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        List<Map<String, Object>> slots = jdbcTemplate.queryForList("SELECT c.name, s.slot_date, s.booked "
+                + "FROM shipment_slots s JOIN carriers c ON c.id = s.carrier_id ORDER BY s.slot_date, c.name");
+        assertEquals(3, slots.size());
+        assertEquals(List.of(3, 3, 2), slots.stream().map(row -> ((Number) row.get("booked")).intValue()).toList());
+        assertEquals(List.of("DHL", "UPS", "DHL"), slots.stream().map(row -> row.get("name")).toList());
+
+        Integer withoutShipment = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sales_orders so WHERE so.status = 'RESERVED' "
+                + "AND NOT EXISTS (SELECT 1 FROM shipments s WHERE s.sales_order_id = so.id)", Integer.class);
+        assertEquals(0, withoutShipment);
+        Integer trackingNumbers = jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT tracking_number) FROM shipments "
+                + "WHERE status = 'PLANNED' AND cutoff_hour = 14 AND planned_departure_date IS NOT NULL", Integer.class);
+        assertEquals(8, trackingNumbers);
+    }
+
+    @Test
+    void plan_ShouldStop_WhenNoSlotIsLeft() {
+        // Given : seul le créneau demandé, 6 places pour 8 commandes
+        slotProperties.setSearchDays(0);
+
+        // When
+        ShipmentWaveProgressDto result = planner.plan(List.of(dhl, ups), REQUESTED, 14, 14, state -> { });
+
+        // Then
+        assertEquals(6, result.getPlanned());
+        assertEquals(2, result.getUnplanned());
+        assertNotNull(result.getMessage());
+        assertEquals(7, new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM shipments", Integer.class));
+    }
+
+    @Test
+    void plan_ShouldCountOrdersOfLaterChunks_WhenStoppingEarly() {
+        // Given : seul le créneau demandé chez DHL, 3 places ; le premier lot de 4 n'est pas placé en entier
+        slotProperties.setSearchDays(0);
+
+        // When
+        ShipmentWaveProgressDto result = planner.plan(List.of(dhl), REQUESTED, 14, 14, state -> { });
+
+        // Then : la commande restante du lot et les 4 du lot suivant
+        assertEquals(3, result.getPlanned());
+        assertEquals(5, result.getUnplanned());
+        assertEquals(1, result.getChunks());
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.ReconciliationReportDto;
+import com.example.stockgestion.Dto.response.StockDriftDto;
+import com.example.stockgestion.config.InventoryMovementProperties;
+import com.example.stockgestion.config.StockReconciliationProperties;
+import com.example.stockgestion.models.Inventory;
+import com.example.stockgestion.models.InventoryMovement;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.MovementType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rapprochement sur base H2 embarquée. Les données sont commitées : chaque entrepôt est lu par un
+ * thread du pool, sur sa propre connexion.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReconciliationJobTest {
+
+    private static final int ROWS = 2_000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Random random = new Random(11);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StockReconciliationJob job;
+    private List<Product> products;
+    private List<WareHouse> warehouses;
+    private final Map<StockKey, Long> expected = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        StockReconciliationProperties properties = new StockReconciliationProperties();
+        properties.setMaxReportedDrifts(10);
+        job = new StockReconciliationJob(dataSource, transactionManager, meterRegistry, properties);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            products = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                Product product = new Product();
+                product.setSku("REC-" + i);
+                product.setName("Produit " + i);
+                product.setActive(true);
+                entityManager.persist(product);
+                products.add(product);
+            }
+            warehouses = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                WareHouse warehouse = new WareHouse();
+                warehouse.setCode("REC-WH-" + i);
+                warehouse.setName("Entrepôt " + i);
+                entityManager.persist(warehouse);
+                warehouses.add(warehouse);
+            }
+            entityManager.flush();
+
+            // Sorties enregistrées tantôt en positif, tantôt en négatif
+            List<InventoryMovement> movements = new ArrayList<>(ROWS);
+            MovementType[] types = MovementType.values();
+            Instant origin = Instant.parse("2026-01-01T00:00:00Z");
+            for (int i = 0; i < ROWS; i++) {
+                InventoryMovement movement = new InventoryMovement();
+                movement.setProduct(products.get(random.nextInt(products.size())));
+                movement.setWarehouse(warehouses.get(random.nextInt(warehouses.size())));
+                movement.setType(types[random.nextInt(types.length)]);
+                long quantity = 1 + random.nextInt(50);
+                movement.setQuantity(movement.getType() == MovementType.INBOUND || random.nextBoolean() ? quantity : -quantity);
+                movement.setOccurredAt(origin.plusSeconds(random.nextInt(365 * 24 * 3600)));
+                movement.setReferenceDoc("REC-" + i);
+                movements.add(movement);
+                expected.merge(new StockKey(movement.getProduct().getId(), movement.getWarehouse().getId()),
+                        movement.getType().signed(movement.getQuantity()), Long::sum);
+            }
+            new InventoryMovementWriter(new JdbcTemplate(dataSource), new InventoryMovementProperties()).append(movements);
+
+            for (Product product : products) {
+                for (WareHouse warehouse : warehouses) {
+                    Long qty = expected.get(new StockKey(product.getId(), warehouse.getId()));
+                    if (qty != null) {
+                        entityManager.persist(Inventory.builder().product(product).warehouse(warehouse)
+                                .qtyOnHand(qty).qtyReserved(0).build());
+                    }
+                }
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM inventory_movements");
+        jdbcTemplate.update("DELETE FROM inventories");
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM warehouses");
+    }
+
+    @Test
+    void reconcileAll_ShouldReportNoDrift_WhenBalancesMatchLedger() {
+        ReconciliationReportDto report = job.reconcileAll();
+
+        assertEquals(warehouses.size(), report.getWarehouses());
+        assertEquals(expected.size(), report.getPairsChecked());
+        assertEquals(0, report.getDriftedPairs());
+        assertTrue(report.getDrifts().isEmpty());
+        assertEquals(0.0, meterRegistry.get("stock.reconciliation.drifted.pairs").gauge().value());
+        assertEquals(1, meterRegistry.get("stock.reconciliation.duration").timer().count());
+    }
+
+    @Test
+    void reconcileAll_ShouldReportDrift_WhenBalanceOrLedgerDiverge() {
+        // Given : un stock modifié sans mouvement, une ligne d'inventaire sans mouvement
+        Product product = products.get(0);
+        WareHouse warehouse = warehouses.get(0);
+        Product orphan = products.get(1);
+        WareHouse orphanWarehouse = warehouses.get(1);
+        long ledgerQty = expected.getOrDefault(new StockKey(product.getId(), warehouse.getId()), 0L);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM inventories WHERE product_id = ? AND warehouse_id = ?",
+                product.getId(), warehouse.getId());
+        jdbcTemplate.update("DELETE FROM inventories WHERE product_id = ? AND warehouse_id = ?",
+                orphan.getId(), orphanWarehouse.getId());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            entityManager.persist(Inventory.builder().product(entityManager.merge(product))
+                    .warehouse(entityManager.merge(warehouse)).qtyOnHand(ledgerQty + 7).qtyReserved(0).build());
+        });
+        long orphanLedgerQty = expected.getOrDefault(new StockKey(orphan.getId(), orphanWarehouse.getId()), 0L);
+
+        // When
+        ReconciliationReportDto report = job.reconcileAll();
+
+        // Then
+        assertEquals(2, report.getDriftedPairs());
+        assertEquals(7 + Math.abs(orphanLedgerQty), report.getDriftUnits());
+        StockDriftDto drift = report.getDrifts().stream()
+                .filter(d -> d.getProductId().equals(product.getId()))
+                .findFirst().orElseThrow();
+        assertEquals(ledgerQty, drift.getLedgerQty());
+        assertEquals(7, drift.getDrift());
+        assertEquals(2.0, meterRegistry.get("stock.reconciliation.drifted.pairs").gauge().value());
+        assertSame(report, job.getLastReport().orElseThrow());
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.models.*;
+import com.example.stockgestion.repositories.InventoryRepository;
+import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.repositories.projections.StockLevel;
+import com.example.stockgestion.services.allocation.GreedyAllocationStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Benchmark de contention : 64 créateurs de commandes en parallèle sur un SKU chaud.
+ * Le ledger est réel ; le repository simule la sémantique de l'UPDATE conditionnel (verrou de ligne + prédicat réévalué).
+ * Le débit n'est mesuré et journalisé qu'avec -Pbenchmark.
+ */
+class StockReservationHelperConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationHelperConcurrencyTest.class);
+
+    private static final int CREATORS = 64;
+    private static final int ORDERS_PER_CREATOR = 250;
+    private static final long STOCK_PER_WAREHOUSE = 5_000;
+
+    private final Map<UUID, AtomicLong> onHandById = new LinkedHashMap<>();
+    private final Map<UUID, AtomicLong> reservedById = new LinkedHashMap<>();
+    private final Map<UUID, WareHouse> warehouseById = new LinkedHashMap<>();
+    private final AtomicLong inventoryReads = new AtomicLong();
+
+    private Product product;
+    private StockReservationHelper stockReservationHelper;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName("Hot SKU");
+
+        for (int i = 0; i < 3; i++) {
+            WareHouse warehouse = new WareHouse();
+            warehouse.setId(UUID.randomUUID());
+            warehouse.setCode("WH" + i);
+            warehouseById.put(warehouse.getId(), warehouse);
+            onHandById.put(warehouse.getId(), new AtomicLong(STOCK_PER_WAREHOUSE));
+            reservedById.put(warehouse.getId(), new AtomicLong(0));
+        }
+
+        InventoryRepository inventoryRepository = mock(InventoryRepository.class, withSettings().stubOnly());
+        when(inventoryRepository.findStockLevelsByProductId(product.getId())).thenAnswer(invocation -> readLevels());
+        when(inventoryRepository.reserveIfAvailable(any(), any(), anyLong())).thenAnswer(invocation ->
+                conditionalReserve(invocation.getArgument(1), invocation.getArgument(2)));
+        when(inventoryRepository.findStockLevel(any(), any())).thenAnswer(invocation -> {
+            inventoryReads.incrementAndGet();
+            UUID warehouseId = invocation.getArgument(1);
+            return Optional.of(new StockLevel(product.getId(), warehouseId,
+                    onHandById.get(warehouseId).get(), reservedById.get(warehouseId).get()));
+        });
+        WareHouseRepository wareHouseRepository = mock(WareHouseRepository.class, withSettings().stubOnly());
+        when(wareHouseRepository.getReferenceById(any())).thenAnswer(invocation -> warehouseById.get(invocation.getArgument(0)));
+
+        stockReservationHelper = new StockReservationHelper(inventoryRepository, wareHouseRepository,
+                new AvailabilityLedger(inventoryRepository));
+    }
+
+    private record Contention(long requested, long reservedByLines, long backorderedByLines, long elapsedNanos) {
+    }
+
+    @Test
+    void reserveAcrossWarehouses_With64ParallelCreators_ShouldNeverOversell() throws Exception {
+        Contention run = contend();
+
+        long totalOnHand = onHandById.values().stream().mapToLong(AtomicLong::get).sum();
+        long totalReserved = reservedById.values().stream().mapToLong(AtomicLong::get).sum();
+
+        // Zéro survente : aucun entrepôt ne réserve plus que son stock physique
+        reservedById.forEach((id, reserved) -> assertTrue(reserved.get() <= onHandById.get(id).get()));
+        // Ce qui a été réservé en base correspond exactement aux lignes créées
+        assertEquals(totalReserved, run.reservedByLines());
+        // Chaque unité demandée est soit réservée soit en backorder
+        assertEquals(run.requested(), run.reservedByLines() + run.backorderedByLines());
+        // La demande (~32k) dépasse l'offre (15k) : le stock doit être consommé
+        assertTrue(totalReserved > totalOnHand * 9 / 10);
+        // Un seul chargement du produit, puis plus aucune lecture de l'inventaire : la base ne contredit jamais le ledger
+        assertEquals(1, inventoryReads.get());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void reserveAcrossWarehouses_With64ParallelCreators_Throughput() throws Exception {
+        Contention run = contend();
+
+        long orders = (long) CREATORS * ORDERS_PER_CREATOR;
+        long totalOnHand = onHandById.values().stream().mapToLong(AtomicLong::get).sum();
+        long totalReserved = reservedById.values().stream().mapToLong(AtomicLong::get).sum();
+        log.info("Reservation contention: {} orders by {} creators in {} ms ({} orders/s), reserved {}/{}, {} inventory reads",
+                orders, CREATORS, TimeUnit.NANOSECONDS.toMillis(run.elapsedNanos()),
+                Math.round(orders / (run.elapsedNanos() / 1_000_000_000.0)), totalReserved, totalOnHand, inventoryReads.get());
+
+        reservedById.forEach((id, reserved) -> assertTrue(reserved.get() <= onHandById.get(id).get()));
+        assertEquals(run.requested(), run.reservedByLines() + run.backorderedByLines());
+    }
+
+    // Lance les 64 créateurs ensemble et attend la fin de toutes leurs commandes
+    private Contention contend() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CREATORS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong reservedByLines = new AtomicLong();
+        AtomicLong backorderedByLines = new AtomicLong();
+        AtomicLong requested = new AtomicLong();
+
+        List<Future<?>> creators = new ArrayList<>();
+        for (int c = 0; c < CREATORS; c++) {
+            creators.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int o = 0; o < ORDERS_PER_CREATOR; o++) {
+                    long qty = 1 + random.nextInt(3);
+                    requested.addAndGet(qty);
+                    SalesOrder order = new SalesOrder();
+                    ReservationResult result = stockReservationHelper.reserveAcrossWarehouses(
+                            order, product, BigDecimal.TEN, qty, new GreedyAllocationStrategy());
+                    for (SalesOrderLine line : result.getLines()) {
+                        reservedByLines.addAndGet(line.getQtyReserved());
+                        backorderedByLines.addAndGet(line.getQtyBackordered());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> creator : creators) {
+            creator.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        pool.shutdown();
+        return new Contention(requested.get(), reservedByLines.get(), backorderedByLines.get(), elapsedNanos);
+    }
+
+    private List<StockLevel> readLevels() {
+        inventoryReads.incrementAndGet();
+        List<StockLevel> levels = new ArrayList<>();
+        onHandById.forEach((warehouseId, onHand) -> levels.add(
+                new StockLevel(product.getId(), warehouseId, onHand.get(), reservedById.get(warehouseId).get())));
+        return levels;
+    }
+
+    private int conditionalReserve(UUID warehouseId, long qty) {
+        AtomicLong reserved = reservedById.get(warehouseId);
+        long onHand = onHandById.get(warehouseId).get();
+        while (true) {
+            long current = reserved.get();
+            if (onHand - current < qty) {
+                return 0;
+            }
+            if (reserved.compareAndSet(current, current + qty)) {
+                return 1;
+            }
+        }
+    }
+}
@@ -1,24 +1,36 @@
 package com.example.stockgestion.services.helpers;
 
+import com.example.stockgestion.exception.ConflictException;
 import com.example.stockgestion.exception.ResourceNotFoundException;
 import com.example.stockgestion.models.*;
 import com.example.stockgestion.repositories.InventoryRepository;
 import com.example.stockgestion.repositories.WareHouseRepository;
+import com.example.stockgestion.repositories.projections.StockLevel;
+import com.example.stockgestion.services.allocation.AllocationStrategy;
+import com.example.stockgestion.services.allocation.GreedyAllocationStrategy;
+import com.example.stockgestion.services.allocation.MinSplitAllocationStrategy;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,7 +42,8 @@ class StockReservationHelperTest {
     @Mock
     private WareHouseRepository wareHouseRepository;
 
-    @InjectMocks
+    private final AllocationStrategy greedy = new GreedyAllocationStrategy();
+    private AvailabilityLedger availabilityLedger;
     private StockReservationHelper stockReservationHelper;
 
     private Product product;
@@ -53,12 +66,14 @@ class StockReservationHelperTest {
         warehouse2.setName("Warehouse 2");
 
         inventory1 = new Inventory();
+        inventory1.setId(UUID.randomUUID());
         inventory1.setProduct(product);
         inventory1.setWarehouse(warehouse1);
         inventory1.setQtyOnHand(100);
         inventory1.setQtyReserved(20);
 
         inventory2 = new Inventory();
+        inventory2.setId(UUID.randomUUID());
         inventory2.setProduct(product);
         inventory2.setWarehouse(warehouse2);
         inventory2.setQtyOnHand(50);
@@ -66,22 +81,53 @@ class StockReservationHelperTest {
 
         salesOrder = new SalesOrder();
         salesOrder.setId(UUID.randomUUID());
+
+        // Ledger réel : il lit ses compteurs via le repository mocké
+        availabilityLedger = new AvailabilityLedger(inventoryRepository);
+        stockReservationHelper = new StockReservationHelper(inventoryRepository, wareHouseRepository, availabilityLedger);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void givenLedgerHolds(Inventory... inventories) {
+        List<StockLevel> levels = Arrays.stream(inventories)
+            .map(inv -> new StockLevel(product.getId(), inv.getWarehouse().getId(), inv.getQtyOnHand(), inv.getQtyReserved()))
+            .toList();
+        when(inventoryRepository.findStockLevelsByProductId(product.getId())).thenReturn(levels);
     }
 
     @Test
-    void getInventoriesSortedByAvailability_ShouldSortByAvailableQty() {
+    void getWarehousesSortedByAvailability_ShouldSortByAvailableQty() {
         // Given
-        when(inventoryRepository.findByProduct_Id(product.getId()))
-            .thenReturn(Arrays.asList(inventory2, inventory1)); // inventory2 has less available
+        givenLedgerHolds(inventory2, inventory1); // inventory2 has less available
 
         // When
-        List<Inventory> result = stockReservationHelper.getInventoriesSortedByAvailability(product);
+        List<WarehouseAvailability> result = stockReservationHelper.getWarehousesSortedByAvailability(product);
 
         // Then
         assertEquals(2, result.size());
         // inventory1 has 80 available (100-20), inventory2 has 40 available (50-10)
-        assertEquals(inventory1, result.get(0)); // More available should be first
-        verify(inventoryRepository).findByProduct_Id(product.getId());
+        assertEquals(new WarehouseAvailability(warehouse1.getId(), 80), result.get(0)); // More available should be first
+        assertEquals(new WarehouseAvailability(warehouse2.getId(), 40), result.get(1));
+    }
+
+    @Test
+    void getWarehousesSortedByAvailability_ShouldLoadProductOnlyOnce() {
+        // Given
+        givenLedgerHolds(inventory1);
+
+        // When
+        stockReservationHelper.getWarehousesSortedByAvailability(product);
+        stockReservationHelper.getWarehousesSortedByAvailability(product);
+
+        // Then: la deuxième lecture est servie par le ledger
+        verify(inventoryRepository, times(1)).findStockLevelsByProductId(product.getId());
+        verify(inventoryRepository, never()).findByProduct_Id(any());
     }
 
     @Test
@@ -106,17 +152,82 @@ class StockReservationHelperTest {
     }
 
     @Test
-    void reserveInventory_ShouldIncreaseQtyReserved() {
+    void reserveInWarehouse_ShouldReserveAtomically_WhenStockAvailable() {
         // Given
-        List<Inventory> inventoriesToUpdate = new ArrayList<>();
-        long initialReserved = inventory1.getQtyReserved();
+        givenLedgerHolds(inventory1);
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse1.getId(), 30)).thenReturn(1);
 
         // When
-        stockReservationHelper.reserveInventory(inventory1, 30, inventoriesToUpdate);
+        long reserved = stockReservationHelper.reserveInWarehouse(product.getId(), warehouse1.getId(), 30);
 
         // Then
-        assertEquals(initialReserved + 30, inventory1.getQtyReserved());
-        assertTrue(inventoriesToUpdate.contains(inventory1));
+        assertEquals(30, reserved);
+        assertEquals(50, availabilityLedger.available(product.getId(), warehouse1.getId())); // 80 - 30
+        verify(inventoryRepository, never()).findStockLevel(any(), any());
+    }
+
+    @Test
+    void reserveInWarehouse_ShouldCapToAvailableQty() {
+        // Given: 80 disponibles, 200 demandées
+        givenLedgerHolds(inventory1);
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse1.getId(), 80)).thenReturn(1);
+
+        // When
+        long reserved = stockReservationHelper.reserveInWarehouse(product.getId(), warehouse1.getId(), 200);
+
+        // Then
+        assertEquals(80, reserved);
+        assertEquals(0, availabilityLedger.available(product.getId(), warehouse1.getId()));
+    }
+
+    @Test
+    void reserveInWarehouse_ShouldResyncAndRetry_WhenDatabaseDisagreesWithLedger() {
+        // Given: le ledger voit 80 disponibles mais une autre instance en a pris 60
+        givenLedgerHolds(inventory1);
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse1.getId(), 50)).thenReturn(0);
+        when(inventoryRepository.findStockLevel(product.getId(), warehouse1.getId()))
+            .thenReturn(Optional.of(new StockLevel(product.getId(), warehouse1.getId(), 100, 80)));
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse1.getId(), 20)).thenReturn(1);
+
+        // When
+        long reserved = stockReservationHelper.reserveInWarehouse(product.getId(), warehouse1.getId(), 50);
+
+        // Then
+        assertEquals(20, reserved);
+        assertEquals(0, availabilityLedger.available(product.getId(), warehouse1.getId()));
+    }
+
+    @Test
+    void reserveInWarehouse_ShouldGiveUpAfterMaxAttempts() {
+        // Given: chaque tentative est refusée par la base
+        givenLedgerHolds(inventory1);
+        when(inventoryRepository.reserveIfAvailable(eq(product.getId()), eq(warehouse1.getId()), anyLong())).thenReturn(0);
+        when(inventoryRepository.findStockLevel(product.getId(), warehouse1.getId()))
+            .thenReturn(Optional.of(new StockLevel(product.getId(), warehouse1.getId(), 100, 90)));
+
+        // When
+        long reserved = stockReservationHelper.reserveInWarehouse(product.getId(), warehouse1.getId(), 50);
+
+        // Then
+        assertEquals(0, reserved);
+        verify(inventoryRepository, times(StockReservationHelper.MAX_RESERVATION_ATTEMPTS))
+            .reserveIfAvailable(eq(product.getId()), eq(warehouse1.getId()), anyLong());
+        // Les prises refusées ont été rendues au ledger
+        assertEquals(10, availabilityLedger.available(product.getId(), warehouse1.getId()));
+    }
+
+    @Test
+    void reserveInWarehouse_ShouldReturnZero_WhenNothingAvailable() {
+        // Given
+        inventory1.setQtyReserved(100);
+        givenLedgerHolds(inventory1);
+
+        // When
+        long reserved = stockReservationHelper.reserveInWarehouse(product.getId(), warehouse1.getId(), 10);
+
+        // Then
+        assertEquals(0, reserved);
+        verify(inventoryRepository, never()).reserveIfAvailable(any(), any(), anyLong());
     }
 
     @Test
@@ -156,25 +267,27 @@ class StockReservationHelperTest {
     }
 
     @Test
-    void findFallbackWarehouse_ShouldReturnFirstInventoryWarehouse_WhenInventoriesExist() {
+    void findFallbackWarehouse_ShouldReturnFirstCandidateWarehouse_WhenCandidatesExist() {
         // Given
-        List<Inventory> inventories = Arrays.asList(inventory1, inventory2);
+        List<WarehouseAvailability> candidates = Arrays.asList(
+            new WarehouseAvailability(warehouse1.getId(), 80), new WarehouseAvailability(warehouse2.getId(), 40));
+        when(wareHouseRepository.getReferenceById(warehouse1.getId())).thenReturn(warehouse1);
 
         // When
-        WareHouse result = stockReservationHelper.findFallbackWarehouse(inventories);
+        WareHouse result = stockReservationHelper.findFallbackWarehouse(candidates);
 
         // Then
         assertEquals(warehouse1, result);
     }
 
     @Test
-    void findFallbackWarehouse_ShouldReturnFirstWarehouse_WhenNoInventories() {
+    void findFallbackWarehouse_ShouldReturnFirstWarehouse_WhenNoCandidates() {
         // Given
-        List<Inventory> emptyInventories = new ArrayList<>();
+        List<WarehouseAvailability> emptyCandidates = new ArrayList<>();
         when(wareHouseRepository.findAll()).thenReturn(Arrays.asList(warehouse1, warehouse2));
 
         // When
-        WareHouse result = stockReservationHelper.findFallbackWarehouse(emptyInventories);
+        WareHouse result = stockReservationHelper.findFallbackWarehouse(emptyCandidates);
 
         // Then
         assertEquals(warehouse1, result);
@@ -184,49 +297,26 @@ class StockReservationHelperTest {
     @Test
     void findFallbackWarehouse_ShouldThrowException_WhenNoWarehousesAvailable() {
         // Given
-        List<Inventory> emptyInventories = new ArrayList<>();
+        List<WarehouseAvailability> emptyCandidates = new ArrayList<>();
         when(wareHouseRepository.findAll()).thenReturn(new ArrayList<>());
 
         // When & Then
         assertThrows(ResourceNotFoundException.class,
-            () -> stockReservationHelper.findFallbackWarehouse(emptyInventories)
+            () -> stockReservationHelper.findFallbackWarehouse(emptyCandidates)
         );
     }
 
-    @Test
-    void saveInventoriesInBatch_ShouldSaveWhenNotEmpty() {
-        // Given
-        List<Inventory> inventories = Arrays.asList(inventory1, inventory2);
-
-        // When
-        stockReservationHelper.saveInventoriesInBatch(inventories);
-
-        // Then
-        verify(inventoryRepository).saveAll(inventories);
-    }
-
-    @Test
-    void saveInventoriesInBatch_ShouldNotSaveWhenEmpty() {
-        // Given
-        List<Inventory> emptyList = new ArrayList<>();
-
-        // When
-        stockReservationHelper.saveInventoriesInBatch(emptyList);
-
-        // Then
-        verify(inventoryRepository, never()).saveAll(any());
-    }
-
     @Test
     void reserveAcrossWarehouses_ShouldReserveFromSingleWarehouse_WhenSufficientStock() {
         // Given
-        List<Inventory> inventories = Arrays.asList(inventory1);
-        List<Inventory> inventoriesToUpdate = new ArrayList<>();
+        givenLedgerHolds(inventory1);
         long requestedQty = 50;
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse1.getId(), 50)).thenReturn(1);
+        when(wareHouseRepository.getReferenceById(warehouse1.getId())).thenReturn(warehouse1);
 
         // When
         ReservationResult result = stockReservationHelper.reserveAcrossWarehouses(
-            salesOrder, product, BigDecimal.valueOf(10.00), requestedQty, inventories, inventoriesToUpdate
+            salesOrder, product, BigDecimal.valueOf(10.00), requestedQty, greedy
         );
 
         // Then
@@ -234,7 +324,6 @@ class StockReservationHelperTest {
         assertTrue(result.isHasReserved());
         assertFalse(result.isHasBackorder());
         assertEquals(1, result.getLines().size());
-        assertEquals(1, inventoriesToUpdate.size());
         
         SalesOrderLine line = result.getLines().get(0);
         assertEquals(50, line.getQtyReserved());
@@ -244,32 +333,39 @@ class StockReservationHelperTest {
     @Test
     void reserveAcrossWarehouses_ShouldReserveFromMultipleWarehouses() {
         // Given
-        List<Inventory> inventories = Arrays.asList(inventory1, inventory2);
-        List<Inventory> inventoriesToUpdate = new ArrayList<>();
+        givenLedgerHolds(inventory1, inventory2);
         long requestedQty = 100; // inventory1 can provide 80, inventory2 can provide 20
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse1.getId(), 80)).thenReturn(1);
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse2.getId(), 20)).thenReturn(1);
+        when(wareHouseRepository.getReferenceById(warehouse1.getId())).thenReturn(warehouse1);
+        when(wareHouseRepository.getReferenceById(warehouse2.getId())).thenReturn(warehouse2);
 
         // When
         ReservationResult result = stockReservationHelper.reserveAcrossWarehouses(
-            salesOrder, product, BigDecimal.valueOf(10.00), requestedQty, inventories, inventoriesToUpdate
+            salesOrder, product, BigDecimal.valueOf(10.00), requestedQty, greedy
         );
 
         // Then
         assertTrue(result.isHasReserved());
         assertFalse(result.isHasBackorder());
         assertEquals(2, result.getLines().size());
-        assertEquals(2, inventoriesToUpdate.size());
+        assertEquals(80, result.getLines().get(0).getQtyReserved());
+        assertEquals(20, result.getLines().get(1).getQtyReserved());
     }
 
     @Test
     void reserveAcrossWarehouses_ShouldCreateBackorder_WhenInsufficientStock() {
         // Given
-        List<Inventory> inventories = Arrays.asList(inventory1, inventory2);
-        List<Inventory> inventoriesToUpdate = new ArrayList<>();
+        givenLedgerHolds(inventory1, inventory2);
         long requestedQty = 200; // Total available is 120 (80+40)
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse1.getId(), 80)).thenReturn(1);
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse2.getId(), 40)).thenReturn(1);
+        when(wareHouseRepository.getReferenceById(warehouse1.getId())).thenReturn(warehouse1);
+        when(wareHouseRepository.getReferenceById(warehouse2.getId())).thenReturn(warehouse2);
 
         // When
         ReservationResult result = stockReservationHelper.reserveAcrossWarehouses(
-            salesOrder, product, BigDecimal.valueOf(10.00), requestedQty, inventories, inventoriesToUpdate
+            salesOrder, product, BigDecimal.valueOf(10.00), requestedQty, greedy
         );
 
         // Then
@@ -289,17 +385,18 @@ class StockReservationHelperTest {
         inventory2.setQtyOnHand(10);
         inventory2.setQtyReserved(10); // No available stock
         
-        List<Inventory> inventories = Arrays.asList(inventory1, inventory2);
-        List<Inventory> inventoriesToUpdate = new ArrayList<>();
+        givenLedgerHolds(inventory1, inventory2);
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse1.getId(), 50)).thenReturn(1);
+        when(wareHouseRepository.getReferenceById(warehouse1.getId())).thenReturn(warehouse1);
 
         // When
         ReservationResult result = stockReservationHelper.reserveAcrossWarehouses(
-            salesOrder, product, BigDecimal.valueOf(10.00), 50, inventories, inventoriesToUpdate
+            salesOrder, product, BigDecimal.valueOf(10.00), 50, greedy
         );
 
         // Then
         assertEquals(1, result.getLines().size()); // Only from inventory1
-        assertEquals(1, inventoriesToUpdate.size()); // Only inventory1 updated
+        verify(inventoryRepository, never()).reserveIfAvailable(any(), eq(warehouse2.getId()), anyLong());
     }
 
     @Test
@@ -308,22 +405,162 @@ class StockReservationHelperTest {
         inventory1.setQtyReserved(100); // All reserved
         inventory2.setQtyReserved(50); // All reserved
         
-        List<Inventory> inventories = Arrays.asList(inventory1, inventory2);
-        List<Inventory> inventoriesToUpdate = new ArrayList<>();
+        givenLedgerHolds(inventory1, inventory2);
+        when(wareHouseRepository.getReferenceById(any())).thenReturn(warehouse1);
 
         // When
         ReservationResult result = stockReservationHelper.reserveAcrossWarehouses(
-            salesOrder, product, BigDecimal.valueOf(10.00), 50, inventories, inventoriesToUpdate
+            salesOrder, product, BigDecimal.valueOf(10.00), 50, greedy
         );
 
         // Then
         assertFalse(result.isHasReserved());
         assertTrue(result.isHasBackorder());
         assertEquals(1, result.getLines().size());
-        assertEquals(0, inventoriesToUpdate.size());
+        verify(inventoryRepository, never()).reserveIfAvailable(any(), any(), anyLong());
         
         SalesOrderLine line = result.getLines().get(0);
         assertEquals(50, line.getQtyBackordered());
         assertEquals(0, line.getQtyReserved());
     }
+
+    @Test
+    void reserveAcrossWarehouses_ShouldFollowStrategyOrder() {
+        // Given: WH1 80 disponibles, WH2 40 ; MIN_SPLIT sert 30 depuis le plus petit entrepôt suffisant
+        givenLedgerHolds(inventory1, inventory2);
+        when(inventoryRepository.reserveIfAvailable(product.getId(), warehouse2.getId(), 30)).thenReturn(1);
+        when(wareHouseRepository.getReferenceById(warehouse2.getId())).thenReturn(warehouse2);
+
+        // When
+        ReservationResult result = stockReservationHelper.reserveAcrossWarehouses(
+            salesOrder, product, BigDecimal.valueOf(10.00), 30, new MinSplitAllocationStrategy()
+        );
+
+        // Then
+        assertEquals(1, result.getLines().size());
+        assertEquals(warehouse2, result.getLines().get(0).getWarehouse());
+        verify(inventoryRepository, never()).reserveIfAvailable(any(), eq(warehouse1.getId()), anyLong());
+    }
+
+    @Test
+    void allocateInLedger_ShouldAccumulateDeltas_WithoutWritingToDatabase() {
+        // Given
+        givenLedgerHolds(inventory1, inventory2);
+        when(wareHouseRepository.getReferenceById(warehouse1.getId())).thenReturn(warehouse1);
+        when(wareHouseRepository.getReferenceById(warehouse2.getId())).thenReturn(warehouse2);
+        Map<StockKey, Long> pendingDeltas = new HashMap<>();
+
+        // When: deux commandes du même lot
+        stockReservationHelper.allocateInLedger(salesOrder, product, BigDecimal.TEN, 70, greedy, pendingDeltas);
+        ReservationResult second = stockReservationHelper.allocateInLedger(salesOrder, product, BigDecimal.TEN, 30, greedy, pendingDeltas);
+
+        // Then: la 2e commande voit le disponible déjà consommé par la 1re (WH1: 10, WH2: 40), rien écrit en base
+        assertEquals(1, second.getLines().size());
+        assertEquals(warehouse2, second.getLines().get(0).getWarehouse());
+        assertEquals(70L, pendingDeltas.get(new StockKey(product.getId(), warehouse1.getId())));
+        assertEquals(30L, pendingDeltas.get(new StockKey(product.getId(), warehouse2.getId())));
+        verify(inventoryRepository, never()).reserveIfAvailable(any(), any(), anyLong());
+    }
+
+    @Test
+    void applyPendingReservations_ShouldWriteOneUpdatePerPair() {
+        // Given
+        Map<StockKey, Long> pendingDeltas = new HashMap<>();
+        pendingDeltas.put(new StockKey(product.getId(), warehouse1.getId()), 80L);
+        pendingDeltas.put(new StockKey(product.getId(), warehouse2.getId()), 20L);
+        when(inventoryRepository.reserveIfAvailable(eq(product.getId()), any(), anyLong())).thenReturn(1);
+
+        // When
+        stockReservationHelper.applyPendingReservations(pendingDeltas);
+
+        // Then
+        verify(inventoryRepository).reserveIfAvailable(product.getId(), warehouse1.getId(), 80);
+        verify(inventoryRepository).reserveIfAvailable(product.getId(), warehouse2.getId(), 20);
+    }
+
+    @Test
+    void applyPendingReservations_ShouldGiveBatchBackAndThrow_WhenDatabaseRefusesAPair() {
+        // Given: le lot a pris 80 en WH1 et 40 en WH2 dans le ledger
+        givenLedgerHolds(inventory1, inventory2);
+        availabilityLedger.tryReserve(product.getId(), warehouse1.getId(), 80);
+        availabilityLedger.tryReserve(product.getId(), warehouse2.getId(), 40);
+        Map<StockKey, Long> pendingDeltas = new HashMap<>();
+        pendingDeltas.put(new StockKey(product.getId(), warehouse1.getId()), 80L);
+        pendingDeltas.put(new StockKey(product.getId(), warehouse2.getId()), 40L);
+        when(inventoryRepository.reserveIfAvailable(eq(product.getId()), any(), anyLong())).thenReturn(0);
+        lenient().when(inventoryRepository.findStockLevel(eq(product.getId()), any())).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(ConflictException.class, () -> stockReservationHelper.applyPendingReservations(pendingDeltas));
+        assertEquals(80, availabilityLedger.available(product.getId(), warehouse1.getId()));
+        assertEquals(40, availabilityLedger.available(product.getId(), warehouse2.getId()));
+        verify(inventoryRepository, times(1)).reserveIfAvailable(any(), any(), anyLong());
+    }
+
+    @Test
+    void allocateInLedger_ShouldGiveHoldsBack_WhenTransactionRollsBackBeforeWriting() {
+        // Given: lot en transaction, 100 pris dans le ledger (WH1 80, WH2 20)
+        givenLedgerHolds(inventory1, inventory2);
+        when(wareHouseRepository.getReferenceById(any())).thenReturn(warehouse1);
+        TransactionSynchronizationManager.initSynchronization();
+        stockReservationHelper.allocateInLedger(salesOrder, product, BigDecimal.TEN, 100, greedy, new HashMap<>());
+
+        // When: une erreur avant applyPendingReservations annule la transaction
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then
+        assertEquals(80, availabilityLedger.available(product.getId(), warehouse1.getId()));
+        assertEquals(40, availabilityLedger.available(product.getId(), warehouse2.getId()));
+        verify(inventoryRepository, never()).reserveIfAvailable(any(), any(), anyLong());
+    }
+
+    @Test
+    void applyPendingReservations_ShouldResyncRefusedPairInPlace_AfterRollback_WhenDatabaseRefusesAPair() {
+        // Given: le lot a pris 80 en WH1 et 40 en WH2, la base refuse WH1 (stock consommé ailleurs)
+        givenLedgerHolds(inventory1, inventory2);
+        when(wareHouseRepository.getReferenceById(any())).thenReturn(warehouse1);
+        TransactionSynchronizationManager.initSynchronization();
+        Map<StockKey, Long> pendingDeltas = new HashMap<>();
+        stockReservationHelper.allocateInLedger(salesOrder, product, BigDecimal.TEN, 120, greedy, pendingDeltas);
+        when(inventoryRepository.reserveIfAvailable(eq(product.getId()), any(), anyLong()))
+                .thenAnswer(call -> warehouse1.getId().equals(call.getArgument(1)) ? 0 : 1);
+
+        // When
+        assertThrows(ConflictException.class, () -> stockReservationHelper.applyPendingReservations(pendingDeltas));
+        when(inventoryRepository.findStockLevel(product.getId(), warehouse1.getId()))
+                .thenReturn(Optional.of(new StockLevel(product.getId(), warehouse1.getId(), 100, 90)));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then: seul le couple refusé est relu en base, sans double restitution ni rechargement du produit
+        assertEquals(10, availabilityLedger.available(product.getId(), warehouse1.getId()));
+        assertEquals(40, availabilityLedger.available(product.getId(), warehouse2.getId()));
+        verify(inventoryRepository, times(1)).findStockLevelsByProductId(product.getId());
+        verify(inventoryRepository, never()).findStockLevel(product.getId(), warehouse2.getId());
+    }
+
+    @Test
+    void applyPendingReservations_ShouldKeepOtherTransactionsHolds_WhenBatchIsRejected() {
+        // Given: une autre transaction tient 30 unités en WH2, le lot prend 80 en WH1 que la base refuse
+        givenLedgerHolds(inventory1, inventory2);
+        TransactionSynchronizationManager.initSynchronization();
+        availabilityLedger.tryReserve(product.getId(), warehouse2.getId(), 30);
+        availabilityLedger.tryReserve(product.getId(), warehouse1.getId(), 80);
+        Map<StockKey, Long> pendingDeltas = new HashMap<>();
+        pendingDeltas.put(new StockKey(product.getId(), warehouse1.getId()), 80L);
+        when(inventoryRepository.reserveIfAvailable(eq(product.getId()), any(), anyLong())).thenReturn(0);
+        when(inventoryRepository.findStockLevel(product.getId(), warehouse1.getId()))
+                .thenReturn(Optional.of(new StockLevel(product.getId(), warehouse1.getId(), 100, 20)));
+
+        // When: le lot est annulé, sa prise rendue
+        assertThrows(ConflictException.class, () -> stockReservationHelper.applyPendingReservations(pendingDeltas));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        availabilityLedger.cancelReservation(product.getId(), warehouse1.getId(), 80);
+
+        // Then: la prise en cours de l'autre transaction est toujours comptée
+        assertEquals(10, availabilityLedger.available(product.getId(), warehouse2.getId()));
+        assertEquals(80, availabilityLedger.available(product.getId(), warehouse1.getId()));
+    }
 }
@@ -0,0 +1,230 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.Dto.response.StockAtResponseDto;
+import com.example.stockgestion.config.InventoryMovementProperties;
+import com.example.stockgestion.models.InventoryMovement;
+import com.example.stockgestion.models.Product;
+import com.example.stockgestion.models.WareHouse;
+import com.example.stockgestion.models.enums.MovementType;
+import com.example.stockgestion.repositories.InventoryMovmentRepository;
+import com.example.stockgestion.services.StockHistoryService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stock à une date passée sur base H2 embarquée : quatre mois de mouvements, points de reprise hebdomadaires
+ * (chaque point couvre les jours manqués, comme après une interruption du job), puis comparaison avec la
+ * somme de tout le journal depuis l'origine. La mesure sur deux ans (volume réglé avec -Dledger.rows) est
+ * taguée benchmark : exclue de mvn test, lancée avec -Pbenchmark.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({StockSnapshotJob.class, StockHistoryService.class})
+class StockSnapshotQueryTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StockSnapshotQueryTest.class);
+
+    private static final int ROWS = 2_000;
+    private static final int DAYS = 120;
+    private static final int BENCHMARK_ROWS = Integer.getInteger("ledger.rows", 20_000);
+    private static final int BENCHMARK_DAYS = 730;
+    private static final Instant ORIGIN = Instant.parse("2024-01-01T00:00:00Z");
+    private static final int SNAPSHOT_EVERY_DAYS = 7;
+    private static final int QUERIES = 50;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private InventoryMovmentRepository inventoryMovmentRepository;
+
+    @Autowired
+    private StockSnapshotJob stockSnapshotJob;
+
+    @Autowired
+    private StockHistoryService stockHistoryService;
+
+    private final Random random = new Random(7);
+    private List<Product> products;
+    private List<WareHouse> warehouses;
+
+    @BeforeEach
+    void setUp() {
+        products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Product product = new Product();
+            product.setSku("SKU-" + i);
+            product.setName("Produit " + i);
+            product.setActive(true);
+            entityManager.persist(product);
+            products.add(product);
+        }
+        warehouses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            WareHouse warehouse = new WareHouse();
+            warehouse.setCode("WH-" + i);
+            warehouse.setName("Entrepôt " + i);
+            entityManager.persist(warehouse);
+            warehouses.add(warehouse);
+        }
+        entityManager.flush();
+    }
+
+    // Quantités de sortie stockées tantôt positives, tantôt négatives, comme dans l'historique réel
+    private void seedLedger(int rows, int days) {
+        List<InventoryMovement> movements = new ArrayList<>(rows);
+        MovementType[] types = MovementType.values();
+        for (int i = 0; i < rows; i++) {
+            InventoryMovement movement = new InventoryMovement();
+            movement.setProduct(products.get(random.nextInt(products.size())));
+            movement.setWarehouse(warehouses.get(random.nextInt(warehouses.size())));
+            movement.setType(types[random.nextInt(types.length)]);
+            long quantity = 1 + random.nextInt(50);
+            movement.setQuantity(movement.getType() == MovementType.INBOUND || random.nextBoolean() ? quantity : -quantity);
+            movement.setOccurredAt(ORIGIN.plusSeconds(random.nextInt(days * 24 * 3600)));
+            movement.setReferenceDoc("HIST-" + i);
+            movements.add(movement);
+        }
+        new InventoryMovementWriter(new JdbcTemplate(dataSource), new InventoryMovementProperties()).append(movements);
+    }
+
+    @Test
+    void takeSnapshots_ShouldSkipCheckpointNotAfterLatest() {
+        seedLedger(ROWS, DAYS);
+        Instant day = ORIGIN.plus(Duration.ofDays(10));
+        assertTrue(stockSnapshotJob.takeSnapshots(day) > 0);
+
+        assertEquals(0, stockSnapshotJob.takeSnapshots(day));
+        assertEquals(0, stockSnapshotJob.takeSnapshots(day.minus(Duration.ofDays(1))));
+    }
+
+    @Test
+    void getOnHandAt_ShouldMatchFullLedgerReplay() {
+        seedLedger(ROWS, DAYS);
+        takeWeeklySnapshots(DAYS);
+
+        for (int i = 0; i < QUERIES; i++) {
+            Product product = products.get(random.nextInt(products.size()));
+            WareHouse warehouse = warehouses.get(random.nextInt(warehouses.size()));
+            Instant at = ORIGIN.plusSeconds(random.nextInt((DAYS + 5) * 24 * 3600));
+
+            assertMatchesLedger(stockHistoryService.getOnHandAt(product.getId(), warehouse.getId(), at),
+                    inventoryMovmentRepository.sumDelta(product.getId(), warehouse.getId(), Instant.EPOCH, at), at);
+        }
+    }
+
+    @Test
+    void takeSnapshots_ShouldStartEachPairFromItsOwnLatestSnapshot() {
+        // Given : le couple a n'a pas bougé du jour 2 au jour 6, le couple b si ; c n'a aucun point
+        Product product = products.get(0);
+        WareHouse a = warehouses.get(0);
+        WareHouse b = warehouses.get(1);
+        WareHouse c = warehouses.get(2);
+        append(movement(product, a, 1, 10), movement(product, b, 1, 10), movement(product, b, 5, 1));
+        stockSnapshotJob.takeSnapshots(ORIGIN.plus(Duration.ofDays(2)));
+        stockSnapshotJob.takeSnapshots(ORIGIN.plus(Duration.ofDays(6)));
+        // Antidatés entre le point du jour 2 de a et le dernier point de la table : aucun point à décaler
+        append(movement(product, a, 4, 5), movement(product, c, 4, 7));
+        append(movement(product, a, 7, 1), movement(product, c, 7, 1));
+
+        // When
+        stockSnapshotJob.takeSnapshots(ORIGIN.plus(Duration.ofDays(8)));
+        entityManager.flush();
+        entityManager.clear();
+
+        // Then
+        Instant at = ORIGIN.plus(Duration.ofDays(9));
+        StockAtResponseDto onA = stockHistoryService.getOnHandAt(product.getId(), a.getId(), at);
+        StockAtResponseDto onC = stockHistoryService.getOnHandAt(product.getId(), c.getId(), at);
+        assertEquals(ORIGIN.plus(Duration.ofDays(8)), onA.getCheckpointAt());
+        assertEquals(16, onA.getQtyOnHand());
+        assertEquals(ORIGIN.plus(Duration.ofDays(8)), onC.getCheckpointAt());
+        assertEquals(8, onC.getQtyOnHand());
+        assertEquals(11, stockHistoryService.getOnHandAt(product.getId(), b.getId(), at).getQtyOnHand());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void getOnHandAt_OnTwoYearLedger() {
+        seedLedger(BENCHMARK_ROWS, BENCHMARK_DAYS);
+        long start = System.nanoTime();
+        takeWeeklySnapshots(BENCHMARK_DAYS);
+        log.info("Snapshots {} days {} ms", BENCHMARK_DAYS,
+                String.format(Locale.ROOT, "%.2f", (System.nanoTime() - start) / 1e6));
+
+        long checkpointNanos = 0;
+        long ledgerNanos = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            Product product = products.get(random.nextInt(products.size()));
+            WareHouse warehouse = warehouses.get(random.nextInt(warehouses.size()));
+            Instant at = ORIGIN.plusSeconds(random.nextInt((BENCHMARK_DAYS + 5) * 24 * 3600));
+
+            start = System.nanoTime();
+            StockAtResponseDto result = stockHistoryService.getOnHandAt(product.getId(), warehouse.getId(), at);
+            checkpointNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long expected = inventoryMovmentRepository.sumDelta(product.getId(), warehouse.getId(), Instant.EPOCH, at);
+            ledgerNanos += System.nanoTime() - start;
+
+            assertMatchesLedger(result, expected, at);
+        }
+        log.info("Stock at: checkpoint {} ms/query, full ledger {} ms/query",
+                String.format(Locale.ROOT, "%.3f", checkpointNanos / QUERIES / 1e6),
+                String.format(Locale.ROOT, "%.3f", ledgerNanos / QUERIES / 1e6));
+    }
+
+    private InventoryMovement movement(Product product, WareHouse warehouse, int day, long quantity) {
+        InventoryMovement movement = new InventoryMovement();
+        movement.setProduct(product);
+        movement.setWarehouse(warehouse);
+        movement.setType(MovementType.INBOUND);
+        movement.setQuantity(quantity);
+        movement.setOccurredAt(ORIGIN.plus(Duration.ofDays(day)).plusSeconds(3600));
+        movement.setReferenceDoc("TEST-" + day);
+        return movement;
+    }
+
+    private void append(InventoryMovement... movements) {
+        new InventoryMovementWriter(new JdbcTemplate(dataSource), new InventoryMovementProperties()).append(List.of(movements));
+    }
+
+    private void takeWeeklySnapshots(int days) {
+        for (int day = SNAPSHOT_EVERY_DAYS; day <= days; day += SNAPSHOT_EVERY_DAYS) {
+            stockSnapshotJob.takeSnapshots(ORIGIN.plus(Duration.ofDays(day)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static void assertMatchesLedger(StockAtResponseDto result, long expected, Instant at) {
+        assertEquals(expected, result.getQtyOnHand(), "stock au " + at);
+        if (at.isAfter(ORIGIN.plus(Duration.ofDays(60)))) {
+            assertNotNull(result.getCheckpointAt());
+            assertFalse(result.getCheckpointAt().isAfter(at));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.stockgestion.services.helpers;
+
+import com.example.stockgestion.models.Carrier;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingNumberGeneratorTest {
+
+    private static final int THREADS = 32;
+    private static final int IDS_PER_THREAD = 312_500; // 10 millions au total
+
+    @Test
+    void nextId_ShouldNeverRepeat_AcrossThreads() throws InterruptedException {
+        // Given
+        TrackingNumberGenerator generator = new TrackingNumberGenerator(7, System::currentTimeMillis);
+        long[] ids = new long[THREADS * IDS_PER_THREAD];
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When : chaque thread remplit sa tranche du tableau
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t * IDS_PER_THREAD;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    ids[offset + i] = generator.nextId();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(120, TimeUnit.SECONDS));
+
+        // Then : aucun doublon une fois triés, tous positifs
+        Arrays.sort(ids);
+        assertTrue(ids[0] > 0);
+        for (int i = 1; i < ids.length; i++) {
+            assertNotEquals(ids[i - 1], ids[i], "Doublon à l'indice " + i);
+        }
+    }
+
+    @Test
+    void nextId_ShouldKeepIncreasing_WhenClockGoesBackOrSequenceOverflows() {
+        // Given : horloge figée puis reculée d'une seconde
+        AtomicLong clock = new AtomicLong(TrackingNumberGenerator.EPOCH + 1_000_000);
+        TrackingNumberGenerator generator = new TrackingNumberGenerator(0, clock::get);
+
+        // When : plus de 4096 numéros dans la même milliseconde, puis retour en arrière
+        long previous = generator.nextId();
+        for (int i = 0; i < 5000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        clock.addAndGet(-1000);
+        long afterRewind = generator.nextId();
+
+        // Then
+        assertTrue(afterRewind > previous);
+    }
+
+    @Test
+    void nextId_ShouldDiffer_BetweenNodesAtTheSameInstant() {
+        TrackingNumberGenerator first = new TrackingNumberGenerator(1, () -> TrackingNumberGenerator.EPOCH + 42);
+        TrackingNumberGenerator second = new TrackingNumberGenerator(2, () -> TrackingNumberGenerator.EPOCH + 42);
+
+        assertNotEquals(first.nextId(), second.nextId());
+    }
+
+    @Test
+    void next_ShouldCarryCarrierPrefixAndValidCheckDigit() {
+        // Given
+        TrackingNumberGenerator generator = new TrackingNumberGenerator(3, System::currentTimeMillis);
+        Carrier carrier = new Carrier();
+        carrier.setName("Chronopost");
+
+        // When
+        String trackingNumber = generator.next(carrier);
+
+        // Then : CHR-, 19 chiffres, clé
+        assertTrue(trackingNumber.matches("CHR-\\d{20}"), trackingNumber);
+        assertTrue(TrackingNumberGenerator.hasValidCheckDigit(trackingNumber));
+
+        // Une erreur sur un chiffre est détectée
+        char[] typo = trackingNumber.toCharArray();
+        typo[10] = typo[10] == '9' ? '0' : (char) (typo[10] + 1);
+        assertFalse(TrackingNumberGenerator.hasValidCheckDigit(new String(typo)));
+    }
+
+    @Test
+    void constructor_ShouldRejectNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TrackingNumberGenerator(TrackingNumberGenerator.MAX_NODE_ID + 1, System::currentTimeMillis));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.stockgestion.services.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7Test {
+
+    @Test
+    void next_ShouldSetVersionAndVariant() {
+        UUID uuid = UuidV7.next();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+    }
+
+    @Test
+    void next_ShouldBeStrictlyIncreasing_WithinTheSameMillisecond() {
+        // Given: bien plus d'identifiants que de millisecondes écoulées
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(UuidV7.next());
+        }
+
+        // Then
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, "position " + i);
+        }
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+
+    @Test
+    void timestamp_ShouldReturnCreationMillis() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.next();
+
+        assertTrue(UuidV7.timestamp(uuid) >= before);
+        assertTrue(UuidV7.timestamp(uuid) <= System.currentTimeMillis() + 1);
+    }
+}